@@ -0,0 +1,75 @@
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.List;
+
+import bookstore.bench.InventoryTarget;
+
+// InventoryTarget over a BookstoreInventory on the shared DatabaseConnection pool. The database comes
+// from -Dbookstore.db.url; InventoryBenchmark forks with an in-memory H2 database in MySQL mode.
+public class InventoryBenchmarkTarget implements InventoryTarget {
+
+    private static final String[] GENRES = { "Fantasy", "Mystery", "Science", "History", "Romance" };
+
+    private final BookstoreInventory inventory = new BookstoreInventory();
+
+    @Override
+    public void seed(int catalogSize) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS books (" +
+                    "bookID INT AUTO_INCREMENT PRIMARY KEY, title VARCHAR(255), author VARCHAR(255), " +
+                    "genre VARCHAR(255), price DOUBLE, stockQuantity INT)");
+            stmt.execute("CREATE TABLE IF NOT EXISTS invoices (" +
+                    "invoiceID INT AUTO_INCREMENT PRIMARY KEY, saleDate TIMESTAMP, bookID INT, " +
+                    "bookTitle VARCHAR(255), quantity INT, totalPrice DOUBLE)");
+            SchemaMigration.migrate(conn);
+            stmt.executeUpdate("DELETE FROM invoices");
+            stmt.executeUpdate("DELETE FROM books");
+        }
+        inventory.getCache().invalidateAll();
+
+        Iterable<Books> catalog = () -> new Iterator<Books>() {
+            private int next = 1;
+
+            @Override
+            public boolean hasNext() { return next <= catalogSize; }
+
+            @Override
+            public Books next() {
+                int id = next++;
+                return new Books(id, "Title " + id, "Author " + (id % 5000), GENRES[id % GENRES.length],
+                        5.0 + (id % 50), 1_000_000);
+            }
+        };
+        BulkImportReport report = inventory.addBooks(catalog, 5000);
+        if (report.getRowsFailed() > 0) throw new IllegalStateException("Seeding failed: " + report);
+    }
+
+    @Override
+    public Object processSale(int bookID, int quantity) {
+        return inventory.processSale(bookID, quantity);
+    }
+
+    @Override
+    public List<?> getBooksList() {
+        inventory.getCache().invalidateAll();
+        return inventory.getBooksList();
+    }
+
+    @Override
+    public void addBook(String title) {
+        inventory.addBook(new Books(0, title, "Bench Author", "Benchmark", 9.99, 100));
+    }
+
+    @Override
+    public void updateStock(int bookID, int newStock) {
+        inventory.updateStock(bookID, newStock);
+    }
+
+    @Override
+    public void close() {
+        DatabaseConnection.shutdown();
+    }
+}
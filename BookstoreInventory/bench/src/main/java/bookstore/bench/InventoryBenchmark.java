@@ -0,0 +1,126 @@
+package bookstore.bench;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+// JMH benchmarks for the core inventory operations over catalogs of 1K to 1M books. Each fork gets
+// its own in-memory H2 database in MySQL mode, seeded once per trial.
+//
+//   java -jar BookstoreInventory/bench/target/benchmarks.jar                            everything
+//   java -jar BookstoreInventory/bench/target/benchmarks.jar processSale -p catalogSize=10000
+//
+// Single-threaded benchmarks measure the uncontended cost; the *Contended ones and the hotBook group
+// measure row-lock and pool contention.
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {
+        "-Dbookstore.db.url=jdbc:h2:mem:bench;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "-Dbookstore.db.user=sa",
+        "-Dbookstore.db.password=",
+        "-Dbookstore.pool.max=32" })
+public class InventoryBenchmark {
+
+    // Every thread in the hotBook group and processSaleHot sells this book
+    private static final int HOT_BOOK = 1;
+
+    @Param({ "1000", "10000", "100000", "1000000" })
+    public int catalogSize;
+
+    private InventoryTarget inventory;
+
+    @Setup(Level.Trial)
+    public void seed() throws Exception {
+        inventory = (InventoryTarget) Class.forName("InventoryBenchmarkTarget")
+                .getDeclaredConstructor().newInstance();
+        inventory.seed(catalogSize);
+    }
+
+    // Keep sales from running the hot book out of stock over a long run
+    @Setup(Level.Iteration)
+    public void restockHotBook() {
+        inventory.updateStock(HOT_BOOK, 1_000_000);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        inventory.close();
+    }
+
+    private int randomBook() {
+        return 1 + ThreadLocalRandom.current().nextInt(catalogSize);
+    }
+
+    @Benchmark
+    public Object processSale() {
+        return inventory.processSale(randomBook(), 1);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Object processSaleContended() {
+        return inventory.processSale(randomBook(), 1);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Object processSaleHot() {
+        return inventory.processSale(HOT_BOOK, 1);
+    }
+
+    @Benchmark
+    public List<?> getBooksList() {
+        return inventory.getBooksList();
+    }
+
+    @Benchmark
+    public void addBook() {
+        inventory.addBook("Bench Title " + ThreadLocalRandom.current().nextInt());
+    }
+
+    @Benchmark
+    public void updateStock() {
+        inventory.updateStock(randomBook(), 1_000_000);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void updateStockContended() {
+        inventory.updateStock(randomBook(), 1_000_000);
+    }
+
+    // Sellers and a restocking writer on the same row
+    @Benchmark
+    @Group("hotBook")
+    @GroupThreads(8)
+    public Object hotBookSell() {
+        return inventory.processSale(HOT_BOOK, 1);
+    }
+
+    @Benchmark
+    @Group("hotBook")
+    @GroupThreads(2)
+    public void hotBookRestock() {
+        inventory.updateStock(HOT_BOOK, 1_000_000);
+    }
+}
@@ -0,0 +1,27 @@
+package bookstore.bench;
+
+import java.util.List;
+
+// The inventory operations the benchmarks call. The application lives in the default package, which
+// JMH benchmarks cannot import from, so InventoryBenchmarkTarget (default package, same module)
+// implements this and InventoryBenchmark loads it by name once per trial.
+public interface InventoryTarget extends AutoCloseable {
+
+    // Empty the books and invoices tables and load catalogSize books with IDs 1..catalogSize
+    void seed(int catalogSize) throws Exception;
+
+    // Sell quantity copies; returns the SaleResult
+    Object processSale(int bookID, int quantity);
+
+    // Full listing from the database (the cache is dropped first so no call is a cache hit)
+    List<?> getBooksList();
+
+    // Add a book with a generated ID
+    void addBook(String title);
+
+    // Set the stock of one book
+    void updateStock(int bookID, int newStock);
+
+    @Override
+    void close();
+}
@@ -0,0 +1,285 @@
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory inverted index over title, author and genre for counter-side lookups.
+// Terms are lower-cased, accent-folded words; the term dictionary is sorted so the last word of
+// a query also matches as a prefix (type-ahead). Results are ranked by a field-weighted TF-IDF
+// score (title > author > genre, exact word > prefix) and come with genre facet counts.
+// Kept up to date incrementally by BookstoreInventory; searches never touch MySQL.
+public class BookSearchIndex {
+    private static final float TITLE_WEIGHT = 3.0f;
+    private static final float AUTHOR_WEIGHT = 2.0f;
+    private static final float GENRE_WEIGHT = 1.0f;
+    private static final float PREFIX_FACTOR = 0.6f;      // Prefix matches score lower than whole words
+    private static final int MAX_PREFIX_EXPANSION = 64;   // Terms a single prefix may expand to
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "a", "an", "and", "the", "of", "in", "on", "to", "for", "de", "la", "le"));
+
+    // Best first: higher score, then title alphabetically
+    private static final Comparator<Hit> RANKING = Comparator.comparingDouble((Hit h) -> -h.score)
+            .thenComparing(h -> h.book.getTitle() == null ? "" : h.book.getTitle());
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Books> documents = new HashMap<>();
+    // term -> (bookID -> field-weighted term frequency)
+    private final NavigableMap<String, Map<Integer, Float>> postings = new TreeMap<>();
+
+    // A ranked search hit
+    public static final class Hit {
+        private final Books book;
+        private final float score;
+
+        Hit(Books book, float score) {
+            this.book = book;
+            this.score = score;
+        }
+
+        public Books getBook() { return book; }
+        public float getScore() { return score; }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%.2f  %s", score, book);
+        }
+    }
+
+    // Ranked hits plus genre facet counts over every match (not just the returned page)
+    public static final class Results {
+        private final List<Hit> hits;
+        private final int totalMatches;
+        private final Map<String, Integer> genreFacets;
+
+        Results(List<Hit> hits, int totalMatches, Map<String, Integer> genreFacets) {
+            this.hits = hits;
+            this.totalMatches = totalMatches;
+            this.genreFacets = genreFacets;
+        }
+
+        public List<Hit> getHits() { return hits; }
+        public int getTotalMatches() { return totalMatches; }
+        public Map<String, Integer> getGenreFacets() { return genreFacets; }
+    }
+
+    // Replace the whole index with the given books (used at start-up)
+    public void rebuild(Iterable<Books> books) {
+        lock.writeLock().lock();
+        try {
+            documents.clear();
+            postings.clear();
+            for (Books book : books) addLocked(book);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Index a new book, or re-index one whose text changed
+    public void add(Books book) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(book.getBookID());
+            addLocked(book);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Refresh the stored record after a stock change (terms are unchanged)
+    public void updateStock(int bookID, int newStock) {
+        lock.writeLock().lock();
+        try {
+            Books old = documents.get(bookID);
+            if (old != null) {
+                documents.put(bookID, new Books(bookID, old.getTitle(), old.getAuthor(),
+                        old.getGenre(), old.getPrice(), newStock));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Drop a book from the index
+    public void remove(int bookID) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(bookID);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Search: every query word must match (the last one may match as a prefix).
+    // genre limits results to one genre (null = any); limit caps the number of hits returned.
+    public Results search(String query, String genre, int limit) {
+        List<String> words = tokenize(query);
+        String genreFilter = genre == null || genre.isBlank() ? null : genre.trim().toLowerCase(Locale.ROOT);
+
+        lock.readLock().lock();
+        try {
+            if (words.isEmpty()) return new Results(new ArrayList<>(), 0, new LinkedHashMap<>());
+
+            // Drive from the rarest word and probe the others per candidate, so a common word
+            // never materializes its whole posting list
+            List<List<String>> termsPerWord = new ArrayList<>();
+            int driver = 0;
+            long driverSize = Long.MAX_VALUE;
+            for (int w = 0; w < words.size(); w++) {
+                List<String> terms = matchingTerms(words.get(w), w == words.size() - 1);
+                long size = 0;
+                for (String term : terms) size += postings.get(term).size();
+                if (size < driverSize) {
+                    driver = w;
+                    driverSize = size;
+                }
+                termsPerWord.add(terms);
+            }
+
+            Map<Integer, Float> scores = new HashMap<>();
+            for (String term : termsPerWord.get(driver)) {
+                float weight = idf(term) * (term.equals(words.get(driver)) ? 1.0f : PREFIX_FACTOR);
+                for (Map.Entry<Integer, Float> e : postings.get(term).entrySet()) {
+                    scores.merge(e.getKey(), e.getValue() * weight, Math::max);   // Best term counts once per word
+                }
+            }
+            for (int w = 0; w < words.size() && !scores.isEmpty(); w++) {
+                if (w == driver) continue;
+                List<String> terms = termsPerWord.get(w);
+                String word = words.get(w);
+                scores.entrySet().removeIf(e -> {
+                    float best = 0f;
+                    for (String term : terms) {
+                        Float tf = postings.get(term).get(e.getKey());
+                        if (tf != null) {
+                            best = Math.max(best, tf * idf(term) * (term.equals(word) ? 1.0f : PREFIX_FACTOR));
+                        }
+                    }
+                    if (best == 0f) return true;
+                    e.setValue(e.getValue() + best);
+                    return false;
+                });
+            }
+
+            // Keep only the best `limit` hits in a min-heap instead of sorting every match
+            Map<String, Integer> facets = new TreeMap<>();
+            PriorityQueue<Hit> top = new PriorityQueue<>(Math.max(1, limit), RANKING.reversed());
+            int total = 0;
+            for (Map.Entry<Integer, Float> e : scores.entrySet()) {
+                Books book = documents.get(e.getKey());
+                String bookGenre = book.getGenre() == null ? "" : book.getGenre();
+                facets.merge(bookGenre, 1, Integer::sum);
+                if (genreFilter == null || bookGenre.toLowerCase(Locale.ROOT).equals(genreFilter)) {
+                    total++;
+                    top.add(new Hit(book, e.getValue()));
+                    if (top.size() > limit) top.poll();
+                }
+            }
+            List<Hit> hits = new ArrayList<>(top);
+            hits.sort(RANKING);
+            return new Results(hits, total, facets);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Books per genre across the whole catalog
+    public Map<String, Integer> genreCounts() {
+        lock.readLock().lock();
+        try {
+            Map<String, Integer> counts = new TreeMap<>();
+            for (Books book : documents.values()) {
+                counts.merge(book.getGenre() == null ? "" : book.getGenre(), 1, Integer::sum);
+            }
+            return counts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Indexed terms one query word matches: the word itself, plus the terms it prefixes. At most
+    // MAX_PREFIX_EXPANSION terms in all; beyond that the prefixed terms in the most books are kept
+    // (ties go to the earlier term), so a short prefix still finds the common words.
+    private List<String> matchingTerms(String word, boolean prefix) {
+        List<String> terms = new ArrayList<>();
+        if (postings.containsKey(word)) terms.add(word);
+        if (prefix) {
+            int room = MAX_PREFIX_EXPANSION - terms.size();
+            // Min-heap on book count: the head is the weakest term kept so far
+            Comparator<Map.Entry<String, Map<Integer, Float>>> weakestFirst =
+                    Comparator.<Map.Entry<String, Map<Integer, Float>>>comparingInt(e -> e.getValue().size())
+                            .thenComparing(Map.Entry::getKey, Comparator.reverseOrder());
+            PriorityQueue<Map.Entry<String, Map<Integer, Float>>> kept = new PriorityQueue<>(room + 1, weakestFirst);
+            for (Map.Entry<String, Map<Integer, Float>> e
+                    : postings.subMap(word, false, word + Character.MAX_VALUE, false).entrySet()) {
+                kept.add(e);
+                if (kept.size() > room) kept.poll();
+            }
+            for (Map.Entry<String, Map<Integer, Float>> e : kept) terms.add(e.getKey());
+        }
+        return terms;
+    }
+
+    private float idf(String term) {
+        return (float) Math.log(1.0 + (double) documents.size() / postings.get(term).size());
+    }
+
+    private void addLocked(Books book) {
+        int id = book.getBookID();
+        documents.put(id, book);
+        Map<String, Float> terms = new HashMap<>();
+        for (String t : tokenize(book.getTitle())) terms.merge(t, TITLE_WEIGHT, Float::sum);
+        for (String t : tokenize(book.getAuthor())) terms.merge(t, AUTHOR_WEIGHT, Float::sum);
+        for (String t : tokenize(book.getGenre())) terms.merge(t, GENRE_WEIGHT, Float::sum);
+        for (Map.Entry<String, Float> e : terms.entrySet()) {
+            postings.computeIfAbsent(e.getKey(), k -> new HashMap<>()).put(id, e.getValue());
+        }
+    }
+
+    private void removeLocked(int bookID) {
+        Books old = documents.remove(bookID);
+        if (old == null) return;
+        Set<String> terms = new HashSet<>(tokenize(old.getTitle()));
+        terms.addAll(tokenize(old.getAuthor()));
+        terms.addAll(tokenize(old.getGenre()));
+        for (String term : terms) {
+            Map<Integer, Float> docs = postings.get(term);
+            if (docs != null) {
+                docs.remove(bookID);
+                if (docs.isEmpty()) postings.remove(term);
+            }
+        }
+    }
+
+    // Lower-case, strip accents and split on anything that is not a letter or digit
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) return tokens;
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}+", "")
+                .toLowerCase(Locale.ROOT);
+        for (String t : folded.split("[^\\p{L}\\p{N}]+")) {
+            if (!t.isEmpty() && !STOP_WORDS.contains(t)) tokens.add(t);
+        }
+        return tokens;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,26 @@
+import java.util.List;
+
+// One page of a keyset-paginated inventory listing (see BookstoreInventory.getBooksPage)
+public class BooksPage {
+    private final List<Books> books;  // Books on this page, in ascending bookID order
+    private final int nextCursor;     // Pass as afterBookID to fetch the following page
+    private final boolean hasMore;    // False when this is the last page
+
+    // Constructor - wraps the rows of one page
+    public BooksPage(List<Books> books, int nextCursor, boolean hasMore) {
+        this.books = books;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+    }
+
+    // Getter methods
+    public List<Books> getBooks() { return books; }
+    public int getNextCursor() { return nextCursor; }
+    public boolean hasMore() { return hasMore; }
+    public int size() { return books.size(); }
+
+    @Override
+    public String toString() {
+        return "Page of " + books.size() + " books, next cursor: " + nextCursor + (hasMore ? "" : " (last page)");
+    }
+}
\ No newline at end of file
@@ -1,219 +1,1013 @@
+import java.nio.file.Path;       // Import Path for the catalog snapshot file
 import java.util.ArrayList;      // Import ArrayList to store books (local cache if you want one later)
+import java.util.BitSet;         // Import BitSet to find deleted books during a snapshot refresh
+import java.util.HashMap;        // Import HashMap for the stock levels of a shipment
 import java.util.List;           // Import List interface for managing collections
-import java.util.logging.*;      // Import logging framework for tracking inventory changes
-import java.io.IOException;      // Import IOException for file handling
-
-import java.sql.Connection;      // Import SQL Connection for database connectivity
-import java.sql.PreparedStatement;   // Import PreparedStatement for executing SQL queries
-import java.sql.ResultSet;       // Import ResultSet for retrieving query results
+import java.util.Map;            // Import Map interface for shipments and per-book stock levels
+import java.util.Queue;          // Import Queue for books added while the columnar catalog loads
+import java.util.TreeMap;        // Import TreeMap to lock basket rows in bookID order
+import java.util.concurrent.CompletableFuture;  // Import CompletableFuture for asynchronous sales
+import java.util.concurrent.ConcurrentLinkedQueue;  // Import ConcurrentLinkedQueue for books added during a load
+import java.util.concurrent.Executors;  // Import Executors for the snapshot maintenance thread
+import java.util.concurrent.ScheduledExecutorService;  // Import ScheduledExecutorService for snapshot refreshes
+import java.util.concurrent.TimeUnit;  // Import TimeUnit for the snapshot schedule
+import java.util.stream.Stream;  // Import Stream for lazily evaluated inventory reads
+import java.util.logging.Level;  // Import logging levels for lifecycle messages and warnings
+import java.util.logging.Logger; // Import Logger for lifecycle messages and warnings
+
+import java.io.IOException;      // Import IOException for catalog snapshot writes
+
+import java.sql.BatchUpdateException; // Import BatchUpdateException for failed bulk batches
+import java.sql.Connection;      // Import SQL Connection for the connectivity check in main
 import java.sql.SQLException;    // Import SQLException for handling database errors
-import java.sql.Timestamp;       // Import Timestamp for the invoice date
-import java.util.Date;           // Import Date so the Timestamp import is truly used
+import java.util.Date;           // Import Date for checkout invoice dates
 
 // Class to manage bookstore inventory operations
 public class BookstoreInventory {
     private static final Logger logger =
-            Logger.getLogger(BookstoreInventory.class.getName());  // Logger instance
-
-    /* Logging configuration */
-    static {
-        try {
-            FileHandler fileHandler = new FileHandler("bookstore_logs.txt", true);
-            fileHandler.setFormatter(new SimpleFormatter());
-            logger.addHandler(fileHandler);
+            Logger.getLogger(BookstoreInventory.class.getName());  // Logger for lifecycle messages and warnings
+
+    private static final int DEFAULT_BATCH_SIZE = 1000;  // Rows per JDBC batch in addBooks
+    private static final int LIST_PAGE_SIZE = 1000;      // Page size used to assemble getBooksList
+    private static final long SNAPSHOT_OVERLAP_MILLIS = 2_000L;  // Re-read rows this close to the high-water mark
+    private static final int DEFAULT_CACHE_SIZE =
+            Integer.getInteger("bookstore.cache.maxBooks", 100_000);  // Books kept in memory
+
+    private final InventoryRepository repository;  // Where books, stock, invoices and reorders are stored
+    private final InventoryCache cache;  // Write-through cache of book records
+    private volatile SaleAggregator aggregator;  // Group-commit stage for processSaleAsync (null = off)
+    private volatile JournaledSales journal;  // Write-ahead sale journal for processSaleAsync (null = off)
+    private volatile ReorderEngine reorderEngine;  // Low-stock reordering fed by stock deltas (null = off)
+    private final BookSearchIndex searchIndex = new BookSearchIndex();  // Title/author/genre search
+    private volatile boolean searchIndexBuilt;   // Incremental index updates start after the first build
+    private final SalesAnalytics analytics = new SalesAnalytics();  // Sales rollups fed by every committed sale
+    private volatile ColumnarCatalog columnar;   // Compact catalog copy kept current by every write (null = off)
+    private volatile boolean columnarReady;      // columnar is fully loaded and serves getBooksList
+    private final Queue<Books> addedWhileLoading = new ConcurrentLinkedQueue<>();  // addBook during a load
+    private volatile CatalogSnapshot snapshot;   // Memory-mapped catalog copy (null = off)
+    private volatile boolean snapshotCaughtUp;   // The snapshot has been refreshed from the database at least once
+    private ScheduledExecutorService snapshotWorker;  // Refreshes and rewrites the snapshot (guarded by this)
+    private Thread snapshotShutdownHook;         // Writes the snapshot on JVM exit (guarded by this)
+
+    /* Inventory changes go to bookstore_logs.txt through the asynchronous event log,
+       so no operation waits on disk I/O or builds log strings on the caller's thread */
+    private final InventoryEventLog eventLog = InventoryEventLog.getDefault();
+    // Committed changes for other consumers (UI, external caches); costs nothing without subscribers
+    private final InventoryChangeBus changeBus =
+            new InventoryChangeBus(Integer.getInteger("bookstore.bus.capacity", 4096));
 
-            ConsoleHandler consoleHandler = new ConsoleHandler();
-            consoleHandler.setFormatter(new SimpleFormatter());
-            logger.addHandler(consoleHandler);
+    public BookstoreInventory() {
+        this(DEFAULT_CACHE_SIZE);
+    }
 
-            logger.setLevel(Level.INFO);
-        } catch (IOException e) {
-            System.out.println("Error initializing logging system: " + e.getMessage());
-        }
+    // Constructor with an explicit bound on the number of cached books
+    public BookstoreInventory(int cacheSize) {
+        this(new JdbcInventoryRepository(), cacheSize);
     }
 
-    public BookstoreInventory() {
+    // Constructor on another storage backend (e.g. InMemoryInventoryRepository)
+    public BookstoreInventory(InventoryRepository repository, int cacheSize) {
+        this.repository = repository;
+        this.cache = new InventoryCache(cacheSize);
+        InventoryMetrics.startSnapshotDump(Long.getLong("bookstore.metrics.dumpSeconds", 0L));
         logger.log(Level.INFO, "Bookstore Inventory system initialized.");
     }
 
     // Method to add a new book to the inventory (stored in MySQL)
     public void addBook(Books book) {
-        String sql =
-                "INSERT INTO books (title, author, genre, price, stockQuantity) " +
-                "VALUES (?, ?, ?, ?, ?)";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setString(1, book.getTitle());
-            stmt.setString(2, book.getAuthor());
-            stmt.setString(3, book.getGenre());
-            stmt.setDouble(4, book.getPrice());
-            stmt.setInt   (5, book.getStockQuantity());
-            stmt.executeUpdate();
-
-            System.out.println("Book added to database: " + book.getTitle());
-            logger.log(Level.INFO,
-                    "Book added: " + book.getTitle() + " | Stock: " + book.getStockQuantity());
+        long timer = InventoryMetrics.ADD_BOOK.start();
+        boolean ok = false;
+        try {
+            // Write-through: cache the new row under its generated ID
+            int newID = repository.insertBook(book);
+            if (newID > 0) {
+                Books added = new Books(newID, book.getTitle(), book.getAuthor(),
+                        book.getGenre(), book.getPrice(), book.getStockQuantity());
+                cache.put(added);
+                if (searchIndexBuilt) searchIndex.add(added);
+                CatalogSnapshot snap = snapshot;
+                if (snap != null) snap.put(added);
+                appendToColumnarCatalog(added);
+                if (changeBus.hasSubscribers()) changeBus.publish(InventoryChange.bookAdded(added));
+            } else {
+                cache.invalidateAll();
+            }
+
+            eventLog.logBookAdded(newID, book.getTitle(), book.getStockQuantity());
+            ok = true;
         } catch (SQLException e) {
             System.out.println("Error adding book: " + e.getMessage());
+        } finally {
+            InventoryMetrics.ADD_BOOK.stop(timer, ok);
+        }
+    }
+
+    // Method to bulk-load many books at once (e.g. a publisher catalog)
+    // Books are handed to the repository in batches of batchSize, each stored in one transaction, so
+    // memory stays constant however large the Iterable is. Books with a bookID > 0 are upserted: an
+    // existing row with that ID is overwritten instead of failing. Books with bookID 0 get an
+    // auto-generated ID and are always inserted, so importing the same ID-less file twice stores
+    // every book twice. A batch the database rejects is counted as failed and the import continues;
+    // any other error stops it.
+    public BulkImportReport addBooks(Iterable<Books> books, int batchSize) {
+        if (batchSize <= 0) throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+
+        long start = InventoryMetrics.ADD_BOOKS.start();
+        long written = 0, failed = 0, batches = 0;
+        boolean ok = false;
+
+        try {
+            List<Books> batch = new ArrayList<>(batchSize);
+            for (Books book : books) {
+                batch.add(book);
+                if (batch.size() == batchSize) {
+                    if (storeBatch(batch)) written += batch.size(); else failed += batch.size();
+                    batches++;
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                if (storeBatch(batch)) written += batch.size(); else failed += batch.size();
+                batches++;
+            }
+            ok = failed == 0;
+        } catch (SQLException e) {
+            System.out.println("Error bulk adding books: " + e.getMessage());
+        } finally {
+            cache.invalidateAll();  // Upserts may have touched any cached row
+            SaleAggregator agg = aggregator;
+            if (agg != null) agg.refreshAllStock();
+            InventoryMetrics.ADD_BOOKS.stop(start, ok);
+        }
+
+        BulkImportReport report = new BulkImportReport(written, failed, 0, batches, System.nanoTime() - start);
+        logger.log(Level.INFO, report.toString());
+        if (searchIndexBuilt && written > 0) buildSearchIndex();  // IDs of imported rows are not known here
+        if (columnar != null && written > 0) rebuildColumnarCatalog();
+        return report;
+    }
+
+    // Method to bulk-load books with the default batch size
+    public BulkImportReport addBooks(Iterable<Books> books) {
+        return addBooks(books, DEFAULT_BATCH_SIZE);
+    }
+
+    // Store one batch; a rejected batch has been rolled back by the repository and the import continues
+    private boolean storeBatch(List<Books> batch) throws SQLException {
+        try {
+            repository.upsertBooks(batch);
+            return true;
+        } catch (BatchUpdateException e) {
+            System.out.println("Error in bulk import batch: " + e.getMessage());
+            return false;
         }
     }
 
     // Method to update the stock of a specific book in MySQL
+    // Overwrites the quantity (e.g. after a stock count); use adjustStock for relative changes.
     public void updateStock(int bookID, int newStock) {
-        String sql = "UPDATE books SET stockQuantity = ? WHERE bookID = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        long timer = InventoryMetrics.UPDATE_STOCK.start();
+        boolean ok = false;
+        try {
+            long version = repository.setStock(bookID, newStock);
+            if (version >= 0) {
+                stockCommitted(bookID, newStock, version);
+                stockChangedElsewhere(bookID);
+                publishStockChange(bookID, newStock, version);
+            }
+            ok = true;
+        } catch (SQLException e) {
+            System.out.println("Error updating stock: " + e.getMessage());
+        } finally {
+            InventoryMetrics.UPDATE_STOCK.stop(timer, ok);
+        }
+    }
 
-            stmt.setInt(1, newStock);
-            stmt.setInt(2, bookID);
-            stmt.executeUpdate();
+    // Method to change the stock of a book by delta (positive = received, negative = removed)
+    // Optimistic: with MySQL the row is read without a lock and written back with
+    // UPDATE ... WHERE version = ?, so no row lock is held between round-trips. If another writer
+    // got there first the attempt is retried after a short randomized, doubling backoff, up to
+    // bookstore.stock.casAttempts times. Stock never goes below zero.
+    public StockAdjustResult adjustStock(int bookID, int delta) {
+        if (delta == 0) throw new IllegalArgumentException("delta must not be zero");
 
-            System.out.println("Stock updated for Book ID: " + bookID + " | New Stock: " + newStock);
-            logger.log(Level.INFO,
-                    "Stock updated for Book ID: " + bookID + " | New Stock: " + newStock);
+        long timer = InventoryMetrics.ADJUST_STOCK.start();
+        StockAdjustResult result = null;
+        try {
+            result = repository.adjustStock(bookID, delta);
+            if (result.isApplied()) {
+                stockCommitted(bookID, result.getNewStock(), result.getVersion());
+                stockChangedElsewhere(bookID);
+                publishStockChange(bookID, result.getNewStock(), result.getVersion());
+            } else if (result.getStatus() == StockAdjustResult.Status.CONFLICT) {
+                logger.log(Level.WARNING, result.toString());
+            }
+            return result;
         } catch (SQLException e) {
-            System.out.println("Error updating stock: " + e.getMessage());
+            result = StockAdjustResult.error(bookID, delta, 0, e.getMessage());
+            return result;
+        } finally {
+            InventoryMetrics.ADJUST_STOCK.stop(timer, result != null &&
+                    result.getStatus() != StockAdjustResult.Status.ERROR &&
+                    result.getStatus() != StockAdjustResult.Status.CONFLICT);
         }
     }
 
-    // Method to delete a book from inventory in MySQL
-    public void deleteBook(int bookID) {
-        String sql = "DELETE FROM books WHERE bookID = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+    // Method to receive a whole shipment: adds each quantity to its book's stock
+    // The repository applies the whole shipment in one transaction (with MySQL, one UPDATE ... CASE
+    // per 1000 books, so no read-modify-write and nothing to retry). Returns the new stock of every
+    // book that was updated; unknown IDs are left out.
+    public Map<Integer, Integer> receiveShipment(Map<Integer, Integer> quantities) {
+        Map<Integer, Integer> levels = new HashMap<>();
+        for (Map.Entry<Integer, Integer> e : quantities.entrySet()) {
+            if (e.getValue() == null || e.getValue() <= 0) {
+                throw new IllegalArgumentException("Received quantity must be positive for Book ID " + e.getKey());
+            }
+        }
+        if (quantities.isEmpty()) return levels;
 
-            stmt.setInt(1, bookID);
-            stmt.executeUpdate();
+        long timer = InventoryMetrics.RECEIVE_SHIPMENT.start();
+        boolean ok = false;
+        try {
+            Map<Integer, InventoryRepository.StockLevel> written = repository.addStock(quantities);
+            for (Map.Entry<Integer, InventoryRepository.StockLevel> e : written.entrySet()) {
+                InventoryRepository.StockLevel level = e.getValue();
+                levels.put(e.getKey(), level.getStock());
+                stockCommitted(e.getKey(), level.getStock(), level.getVersion());
+                stockChangedElsewhere(e.getKey());
+                publishStockChange(e.getKey(), level.getStock(), level.getVersion());
+            }
+            ok = true;
+        } catch (SQLException e) {
+            System.out.println("Error receiving shipment: " + e.getMessage());
+        } finally {
+            InventoryMetrics.RECEIVE_SHIPMENT.stop(timer, ok);
+        }
+        return levels;
+    }
 
-            System.out.println("Book ID " + bookID + " removed from database.");
-            logger.log(Level.INFO, "Book ID " + bookID + " removed from inventory.");
+    // Method to delete a book from inventory in MySQL
+    public void deleteBook(int bookID) {
+        long timer = InventoryMetrics.DELETE_BOOK.start();
+        boolean ok = false;
+        try {
+            repository.deleteBook(bookID);
+            cache.invalidate(bookID);
+            searchIndex.remove(bookID);
+            CatalogSnapshot snap = snapshot;
+            if (snap != null) snap.remove(bookID);
+            ColumnarCatalog cat = columnar;
+            if (cat != null) cat.remove(bookID);
+            stockChangedElsewhere(bookID);
+            eventLog.logBookDeleted(bookID);
+            if (changeBus.hasSubscribers()) changeBus.publish(InventoryChange.bookDeleted(bookID));
+            ok = true;
         } catch (SQLException e) {
             System.out.println("Error deleting book: " + e.getMessage());
+        } finally {
+            InventoryMetrics.DELETE_BOOK.stop(timer, ok);
         }
     }
 
     // Method to process a book sale (updates stock AND writes an invoice row)
-    public void processSale(int bookID, int quantity) {
+    // Everything happens on one connection inside one transaction: the book row is locked and read
+    // once (title, price, stock), the decrement is guarded so it can never oversell, and the
+    // invoice is written with the title already in hand.
+    public SaleResult processSale(int bookID, int quantity) {
+        long timer = InventoryMetrics.PROCESS_SALE.start();
+        SaleResult result = null;
+        try {
+            result = sell(bookID, quantity);
+            return result;
+        } finally {
+            InventoryMetrics.PROCESS_SALE.stop(timer,
+                    result != null && result.getStatus() != SaleResult.Status.ERROR);
+        }
+    }
+
+    private SaleResult sell(int bookID, int quantity) {
+        if (quantity <= 0) return SaleResult.invalidQuantity(bookID, quantity);
+        try {
+            long now = System.currentTimeMillis();
+            InventoryRepository.Sale sale = repository.sell(bookID, quantity, now);
+            SaleResult result = sale.getResult();
+            if (result.isSuccess()) {
+                stockCommitted(bookID, result.getRemainingStock(), sale.getVersion());
+                stockChangedElsewhere(bookID);
+                publishSale(sale);
+                analytics.recordSale(sale.getInvoiceID(), now, bookID, result.getBookTitle(), sale.getGenre(),
+                        quantity, result.getTotalPrice());
+            }
+            return result;
+        } catch (SQLException e) {
+            return SaleResult.error(bookID, quantity, e.getMessage());
+        }
+    }
 
-        /* 1. Reduce stock    2. Create invoice    (do both in one DB transaction) */
-        final String updateStockSQL =
-                "UPDATE books SET stockQuantity = stockQuantity - ? WHERE bookID = ?";
+    // Method to turn on group-commit sale aggregation for processSaleAsync (see SaleAggregator)
+    public synchronized void enableSaleAggregation(long flushIntervalMillis, int maxBatchSize, int stripes) {
+        if (aggregator == null) {
+            aggregator = new SaleAggregator(this, flushIntervalMillis, maxBatchSize, stripes);
+        }
+    }
 
-        final String insertInvoiceSQL =
-                "INSERT INTO invoices (saleDate, bookID, bookTitle, quantity, totalPrice) " +
-                "VALUES (?, ?, (SELECT title FROM books WHERE bookID = ?), ?, ?)";
+    // Method to flush pending aggregated sales and turn aggregation off again
+    public synchronized void disableSaleAggregation() {
+        if (aggregator != null) {
+            aggregator.close();
+            aggregator = null;
+        }
+    }
 
-        try (Connection conn = DatabaseConnection.getConnection()) {
-            conn.setAutoCommit(false);  // Begin atomic block
+    // Method to turn on automatic reordering; stock deltas are evaluated every flushIntervalMillis
+    // Returns the engine so rules and suppliers can be configured, or null if it could not start.
+    public synchronized ReorderEngine enableAutoReorder(long flushIntervalMillis) {
+        if (reorderEngine == null) {
+            try {
+                reorderEngine = new ReorderEngine(this, flushIntervalMillis).start();
+            } catch (SQLException e) {
+                System.out.println("Error starting reorder engine: " + e.getMessage());
+            }
+        }
+        return reorderEngine;
+    }
 
-            try (PreparedStatement stockStmt   = conn.prepareStatement(updateStockSQL);
-                 PreparedStatement invoiceStmt = conn.prepareStatement(insertInvoiceSQL)) {
+    // Method to stop automatic reordering (pending deltas are evaluated first)
+    public synchronized void disableAutoReorder() {
+        if (reorderEngine != null) {
+            reorderEngine.close();
+            reorderEngine = null;
+        }
+    }
 
-                /* ---------- Update stock ---------- */
-                stockStmt.setInt(1, quantity);
-                stockStmt.setInt(2, bookID);
-                stockStmt.executeUpdate();
+    // The running reorder engine, or null if automatic reordering is off
+    public ReorderEngine getReorderEngine() {
+        return reorderEngine;
+    }
 
-                /* ---------- Insert invoice ---------- */
-                double priceEach = getBookPrice(bookID);
-                double total     = priceEach * quantity;
+    // Method to turn on the write-ahead sale journal in dir (see JournaledSales)
+    // processSaleAsync then acknowledges a sale as soon as it is on local disk and applies it to
+    // MySQL in the background. Unapplied sales from an earlier run are replayed first.
+    // Returns the journal front end, or null if the journal could not be opened.
+    public synchronized JournaledSales enableSaleJournal(Path dir) {
+        if (journal == null) {
+            try {
+                journal = new JournaledSales(this, new SaleJournal(dir,
+                        Integer.getInteger("bookstore.journal.segmentBytes", 16 << 20),
+                        Long.getLong("bookstore.journal.syncMillis", 0L)));
+            } catch (IOException e) {
+                System.out.println("Error opening sale journal: " + e.getMessage());
+            }
+        }
+        return journal;
+    }
 
-                // Uses Date → keeps the Date import valid and removes unused-import warning
-                Timestamp now = new Timestamp(new Date().getTime());
+    // Method to stop journaling; sales already journaled but not yet applied stay on disk for the next run
+    public synchronized void disableSaleJournal() {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+    }
 
-                invoiceStmt.setTimestamp(1, now);  // saleDate
-                invoiceStmt.setInt      (2, bookID);
-                invoiceStmt.setInt      (3, bookID);  // for sub-query placeholder
-                invoiceStmt.setInt      (4, quantity);
-                invoiceStmt.setDouble   (5, total);
-                invoiceStmt.executeUpdate();
+    // The journal front end, or null if journaling is off
+    public JournaledSales getSaleJournal() {
+        return journal;
+    }
 
-                conn.commit();  // All good
-                System.out.println("Sale processed successfully for Book ID: " + bookID);
-                logger.log(Level.INFO,
-                        "Sale processed | Book ID: " + bookID + " | Qty: " + quantity +
-                        " | Total: $" + total);
+    // Method to sell a book asynchronously
+    // With the sale journal enabled the sale is acknowledged once journaled (JOURNALED status).
+    // With aggregation enabled the sale is staged and committed together with other sales of the
+    // same book; otherwise it is processed immediately and the returned future is already complete.
+    public CompletableFuture<SaleResult> processSaleAsync(int bookID, int quantity) {
+        JournaledSales journaled = journal;
+        if (journaled != null) return journaled.submit(bookID, quantity);
+        SaleAggregator agg = aggregator;
+        if (agg != null) return agg.submit(bookID, quantity);
+        return CompletableFuture.completedFuture(processSale(bookID, quantity));
+    }
 
-            } catch (SQLException inner) {
-                conn.rollback();                 // Undo both steps if either fails
-                throw inner;
+    // Method to commit several sales of one book in a single transaction (used by SaleAggregator)
+    // The repository locks the row once and accepts sales in order while stock lasts (with MySQL, one
+    // guarded UPDATE for the accepted total and one invoice batch). Each result reports the stock
+    // left after the sales processed so far, so the last result holds the final stock level.
+    SaleResult[] processSaleGroup(int bookID, int[] quantities) {
+        long timer = InventoryMetrics.SALE_GROUP_FLUSH.start();
+        SaleResult[] results = new SaleResult[quantities.length];
+        boolean ok = false;
+        try {
+            long now = System.currentTimeMillis();
+            InventoryRepository.Sale[] sales = repository.sellGroup(bookID, quantities, now);
+            InventoryRepository.Sale last = null;
+            for (int i = 0; i < sales.length; i++) {
+                results[i] = sales[i].getResult();
+                if (results[i].isSuccess()) last = sales[i];
+            }
+            if (last != null) stockCommitted(bookID, last.getResult().getRemainingStock(), last.getVersion());
+            for (InventoryRepository.Sale sale : sales) {
+                SaleResult r = sale.getResult();
+                if (!r.isSuccess()) continue;
+                publishSale(sale);
+                analytics.recordSale(sale.getInvoiceID(), now, bookID, r.getBookTitle(), sale.getGenre(),
+                        r.getQuantity(), r.getTotalPrice());
+            }
+            ok = true;
+        } catch (SQLException e) {
+            for (int i = 0; i < quantities.length; i++) {
+                results[i] = SaleResult.error(bookID, quantities[i], e.getMessage());
+            }
+        } finally {
+            InventoryMetrics.SALE_GROUP_FLUSH.stop(timer, ok);
+        }
+        return results;
+    }
+
+    // Apply journaled sales in one transaction (used by JournaledSales)
+    // Entries whose idempotency key already has an invoice are skipped (their result is null), so a
+    // batch replayed twice after a crash is applied once. Sales are applied in LSN order while stock
+    // lasts; the others come back as rejected.
+    // Throws SQLException if nothing could be applied, so the caller can retry the same batch.
+    SaleResult[] applyJournaledSales(List<SaleJournal.Entry> entries, String journalID) throws SQLException {
+        long timer = InventoryMetrics.JOURNAL_REPLAY.start();
+        boolean ok = false;
+        SaleResult[] results = new SaleResult[entries.size()];
+        try {
+            InventoryRepository.Sale[] sales = repository.applySales(entries, journalID);
+            Map<Integer, InventoryRepository.Sale> last = new TreeMap<>();   // bookID -> its last sale
+            for (int i = 0; i < sales.length; i++) {
+                if (sales[i] == null) continue;
+                results[i] = sales[i].getResult();
+                if (results[i].isSuccess()) last.put(results[i].getBookID(), sales[i]);
+            }
+            for (InventoryRepository.Sale sale : last.values()) {
+                stockCommitted(sale.getResult().getBookID(), sale.getResult().getRemainingStock(), sale.getVersion());
+                stockChangedElsewhere(sale.getResult().getBookID());
+            }
+            for (int i = 0; i < sales.length; i++) {
+                if (sales[i] == null || !results[i].isSuccess()) continue;
+                SaleJournal.Entry e = entries.get(i);
+                SaleResult r = results[i];
+                publishSale(sales[i]);
+                analytics.recordSale(sales[i].getInvoiceID(), e.getTimeMillis(),
+                        e.getBookID(), r.getBookTitle(), sales[i].getGenre(),
+                        e.getQuantity(), r.getTotalPrice());
+            }
+            ok = true;
+        } finally {
+            InventoryMetrics.JOURNAL_REPLAY.stop(timer, ok);
+        }
+        return results;
+    }
+
+    // Method to check out a whole basket in a single transaction
+    // Lines for the same book are merged and the repository takes the whole basket or nothing (with
+    // MySQL, rows are locked in ascending bookID order, so two concurrent checkouts can never
+    // deadlock, and stock decrements and invoice rows go as JDBC batches under one commit). Returns
+    // one Invoice per distinct book, or an empty list if any line could not be fulfilled (in which
+    // case nothing is changed).
+    public List<Invoice> checkout(List<SaleLine> lines) {
+        long timer = InventoryMetrics.CHECKOUT.start();
+        List<Invoice> invoices = null;
+        try {
+            invoices = checkoutBasket(lines);
+            return invoices;
+        } finally {
+            InventoryMetrics.CHECKOUT.stop(timer, invoices != null && !invoices.isEmpty());
+        }
+    }
+
+    private List<Invoice> checkoutBasket(List<SaleLine> lines) {
+        List<Invoice> invoices = new ArrayList<>();
+
+        // Merge duplicate lines; TreeMap keeps the deterministic lock order
+        TreeMap<Integer, Integer> wanted = new TreeMap<>();
+        for (SaleLine line : lines) {
+            if (line.getQuantity() <= 0) {
+                logger.log(Level.WARNING, "Checkout rejected: invalid quantity for " + line);
+                return invoices;
+            }
+            wanted.merge(line.getBookID(), line.getQuantity(), Integer::sum);
+        }
+        if (wanted.isEmpty()) return invoices;
+
+        try {
+            long now = System.currentTimeMillis();
+            List<InventoryRepository.Sale> sales = repository.checkoutBasket(wanted, now);
+            SaleResult first = sales.get(0).getResult();
+            if (!first.isSuccess()) {
+                if (first.getStatus() == SaleResult.Status.BOOK_NOT_FOUND) {
+                    logger.log(Level.WARNING, "Checkout rejected: unknown Book ID in basket " + wanted.keySet());
+                } else {
+                    logger.log(Level.WARNING, "Checkout rejected: insufficient stock for Book ID: " +
+                            first.getBookID() + " | Requested: " + first.getQuantity() +
+                            " | Available: " + first.getRemainingStock());
+                }
+                return invoices;
+            }
+
+            Date saleDate = new Date(now);
+            for (InventoryRepository.Sale sale : sales) {
+                SaleResult r = sale.getResult();
+                invoices.add(new Invoice(sale.getInvoiceID(), saleDate, r.getBookID(), r.getBookTitle(),
+                        r.getQuantity(), r.getTotalPrice()));
+                stockCommitted(r.getBookID(), r.getRemainingStock(), sale.getVersion());
+                stockChangedElsewhere(r.getBookID());
+            }
+            for (InventoryRepository.Sale sale : sales) {
+                SaleResult r = sale.getResult();
+                publishSale(sale);
+                analytics.recordSale(sale.getInvoiceID(), now, r.getBookID(), r.getBookTitle(), sale.getGenre(),
+                        r.getQuantity(), r.getTotalPrice());
             }
 
         } catch (SQLException e) {
-            System.out.println("Error processing sale: " + e.getMessage());
+            System.out.println("Error processing checkout: " + e.getMessage());
         }
+        return invoices;
     }
 
-    // Method to retrieve inventory from MySQL
+    // Method to print the inventory from MySQL
+    // Rows are streamed through a server-side cursor, so the table is never held in memory.
     public void displayInventory() {
-        String sql = "SELECT * FROM books";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
+        System.out.println("\n---- Current Inventory ----");
+        try (Stream<Books> books = streamBooks()) {
+            books.forEach(System.out::println);
+        } catch (UncheckedSQLException e) {
+            System.out.println("Error retrieving inventory: " + e.getCause().getMessage());
+        }
+    }
+
+    // Method to look up a single book, served from the cache when possible; null if it does not exist
+    public Books getBook(int bookID) {
+        long timer = InventoryMetrics.GET_BOOK.start();
+        try {
+            return lookupBook(bookID);
+        } finally {
+            InventoryMetrics.GET_BOOK.stop(timer, true);
+        }
+    }
 
-            System.out.println("\n---- Current Inventory ----");
-            while (rs.next()) {
-                System.out.println(
-                        "Book ID: " + rs.getInt("bookID") +
-                        ", Title: " + rs.getString("title") +
-                        ", Author: " + rs.getString("author") +
-                        ", Genre: " + rs.getString("genre") +
-                        ", Price: $" + rs.getDouble("price") +
-                        ", Stock: " + rs.getInt("stockQuantity"));
+    private Books lookupBook(int bookID) {
+        Books cached = cache.get(bookID);
+        if (cached != null) return cached;
+        CatalogSnapshot snap = offlineSnapshot();
+        if (snap != null) return snap.get(bookID);
+
+        long epoch = cache.beginRead();
+        try {
+            Books book = repository.findBook(bookID);
+            if (book != null) {
+                cache.fill(book, epoch);
+                return book;
             }
         } catch (SQLException e) {
-            System.out.println("Error retrieving inventory: " + e.getMessage());
+            System.out.println("Error retrieving book: " + e.getMessage());
+            snap = snapshot;
+            if (snap != null) return snap.get(bookID);   // Database unavailable: last known state
         }
+        return null;
     }
 
-    // Method to retrieve book price from MySQL
-    private double getBookPrice(int bookID) {
-        String sql = "SELECT price FROM books WHERE bookID = ?";
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+    // Method to retrieve book price (from the cache, or MySQL on a miss)
+    public double getBookPrice(int bookID) {
+        Books book = getBook(bookID);
+        return book != null ? book.getPrice() : 0.0;
+    }
+
+    // Method to read one page of the inventory, ordered by bookID
+    // Keyset pagination: pass 0 for the first page, then the previous page's nextCursor.
+    // Each page is an index range scan on the primary key, so deep pages cost the same as the first.
+    public BooksPage getBooksPage(int afterBookID, int pageSize) {
+        if (pageSize <= 0) throw new IllegalArgumentException("pageSize must be positive: " + pageSize);
+
+        CatalogSnapshot snap = offlineSnapshot();
+        if (snap != null) return snapshotPage(snap, afterBookID, pageSize);
 
-            stmt.setInt(1, bookID);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) return rs.getDouble("price");
+        long timer = InventoryMetrics.GET_BOOKS_PAGE.start();
+        boolean ok = false;
+        long epoch = cache.beginRead();
+        List<Books> page = new ArrayList<>(Math.min(pageSize, 1024));
+        boolean hasMore = false;
 
+        try {
+            // One extra row tells us whether another page exists
+            for (Books book : repository.findBooksAfter(afterBookID, pageSize + 1)) {
+                if (page.size() == pageSize) {
+                    hasMore = true;
+                    break;
+                }
+                cache.fill(book, epoch);
+                page.add(book);
+            }
+            ok = true;
+        } catch (SQLException e) {
+            System.out.println("Error retrieving book page: " + e.getMessage());
+            snap = snapshot;
+            if (snap != null) return snapshotPage(snap, afterBookID, pageSize);
+        } finally {
+            InventoryMetrics.GET_BOOKS_PAGE.stop(timer, ok);
+        }
+        int next = page.isEmpty() ? afterBookID : page.get(page.size() - 1).getBookID();
+        return new BooksPage(page, next, hasMore);
+    }
+
+    // Method to count the books in the inventory
+    public int countBooks() {
+        CatalogSnapshot snap = offlineSnapshot();
+        if (snap != null) return snap.size();
+        try {
+            return repository.countBooks();
         } catch (SQLException e) {
-            System.out.println("Error retrieving book price: " + e.getMessage());
+            System.out.println("Error counting books: " + e.getMessage());
+            snap = snapshot;
+            if (snap != null) return snap.size();
         }
-        return 0.0;
+        return 0;
+    }
+
+    // Method to find the bookID at a position of the bookID-ordered listing (0-based), or 0 if out of range
+    // Used to turn a row offset into a keyset cursor; with MySQL only the primary key index is scanned.
+    public int bookIDAt(int position) {
+        CatalogSnapshot snap = offlineSnapshot();
+        if (snap != null) return snap.bookIDAt(position);
+        try {
+            return repository.idAt(position);
+        } catch (SQLException e) {
+            System.out.println("Error locating book position: " + e.getMessage());
+            snap = snapshot;
+            if (snap != null) return snap.bookIDAt(position);
+        }
+        return 0;
+    }
+
+    // Method to stream the whole inventory lazily, ordered by bookID
+    // With MySQL, rows are pulled from a server-side cursor and the stream owns a pooled connection
+    // until it is closed, so always use it in a try-with-resources block.
+    // Database errors while reading are rethrown as UncheckedSQLException.
+    public Stream<Books> streamBooks() {
+        return repository.streamBooks();
     }
 
     // Optional helper for UI: return list of Books objects
+    // Served from memory while the cache holds the whole catalog; otherwise assembled from
+    // keyset pages (and used to fill the cache if the catalog fits). Prefer getBooksPage or
+    // streamBooks for large catalogs.
     public List<Books> getBooksList() {
+        long timer = InventoryMetrics.GET_BOOKS_LIST.start();
+        try {
+            return listBooks();
+        } finally {
+            InventoryMetrics.GET_BOOKS_LIST.stop(timer, true);
+        }
+    }
+
+    private List<Books> listBooks() {
+        ColumnarCatalog cat = columnar;
+        if (cat != null && columnarReady) return cat.asList();
+        List<Books> cached = cache.getAll();
+        if (cached != null) return cached;
+
+        long epoch = cache.beginRead();
         List<Books> list = new ArrayList<>();
-        String sql = "SELECT * FROM books";
+        BooksPage page = getBooksPage(0, LIST_PAGE_SIZE);
+        list.addAll(page.getBooks());
+        while (page.hasMore()) {
+            page = getBooksPage(page.getNextCursor(), LIST_PAGE_SIZE);
+            list.addAll(page.getBooks());
+        }
+        cache.loadAll(list, epoch);
+        return list;
+    }
+
+    // Method to (re)build the in-memory search index from the database; returns the number of books indexed
+    // Call once at start-up. Afterwards addBook, updateStock, deleteBook and sales keep it current.
+    // Before the catalog snapshot has caught up, the index is built from the snapshot instead.
+    public int buildSearchIndex() {
+        CatalogSnapshot snap = offlineSnapshot();
+        if (snap != null) {
+            searchIndex.rebuild(snap.books());
+            searchIndexBuilt = true;
+            return searchIndex.size();
+        }
+        try (Stream<Books> books = streamBooks()) {
+            searchIndex.rebuild(books::iterator);
+            searchIndexBuilt = true;
+        } catch (UncheckedSQLException e) {
+            System.out.println("Error building search index: " + e.getCause().getMessage());
+        }
+        return searchIndex.size();
+    }
+
+    // Method to search titles, authors and genres (last word matches as a prefix); genre may be null
+    public BookSearchIndex.Results search(String query, String genre, int limit) {
+        return searchIndex.search(query, genre, limit);
+    }
+
+    // Book counts per genre, from the search index
+    public Map<String, Integer> getGenreCounts() {
+        return searchIndex.genreCounts();
+    }
+
+    // Method to keep a compact, columnar copy of the catalog in memory (see ColumnarCatalog)
+    // getBooksList then returns flyweight views over it instead of one Books object per row, which
+    // for catalogs of millions of titles cuts the footprint by an order of magnitude. Titles can be
+    // kept off-heap. Stock changes, additions and deletions keep the copy current.
+    // Returns the catalog, or null if it could not be loaded.
+    public synchronized ColumnarCatalog enableColumnarCatalog(boolean offHeapTitles) {
+        ColumnarCatalog cat = columnar;
+        if (cat != null) return cat;
+        return loadColumnarCatalog(offHeapTitles);
+    }
+
+    // Method to drop the columnar copy; getBooksList goes back to the cache and the database
+    public synchronized void disableColumnarCatalog() {
+        columnar = null;
+        columnarReady = false;
+    }
+
+    // The columnar catalog, or null if it is off
+    public ColumnarCatalog getColumnarCatalog() {
+        return columnarReady ? columnar : null;
+    }
+
+    // Reload the columnar copy after changes it cannot follow row by row (bulk imports)
+    private synchronized void rebuildColumnarCatalog() {
+        ColumnarCatalog old = columnar;
+        if (old != null) loadColumnarCatalog(old.isOffHeapTitles());
+    }
+
+    // The catalog is published to the write hooks before loading, so stock changes to rows already
+    // loaded are not lost; getBooksList only uses it once loading is complete.
+    private ColumnarCatalog loadColumnarCatalog(boolean offHeapTitles) {
+        ColumnarCatalog cat = new ColumnarCatalog(offHeapTitles);
+        columnarReady = false;
+        columnar = cat;
+        CatalogSnapshot snap = offlineSnapshot();
+        try {
+            if (snap != null) {
+                for (Books b : snap.books()) cat.add(b);
+            } else {
+                try (Stream<Books> books = streamBooks()) {
+                    books.forEach(cat::add);
+                }
+            }
+        } catch (UncheckedSQLException e) {
+            System.out.println("Error loading columnar catalog: " + e.getCause().getMessage());
+            columnar = null;
+            return null;
+        }
+        cat.trim();
+        columnarReady = true;
+        drainAddedWhileLoading();
+        logger.log(Level.INFO, cat.toString());
+        return cat;
+    }
+
+    // Append a newly added book to the columnar copy (new IDs are always the highest)
+    private void appendToColumnarCatalog(Books added) {
+        ColumnarCatalog cat = columnar;
+        if (cat == null) return;
+        if (!columnarReady) {
+            addedWhileLoading.add(added);   // Appended once the load (in bookID order) is done
+            if (columnarReady) drainAddedWhileLoading();   // The load finished meanwhile
+            return;
+        }
+        if (cat.get(added.getBookID()) != null) return;   // Already read by the load
+        try {
+            cat.add(added);
+        } catch (IllegalArgumentException e) {
+            logger.log(Level.WARNING, "Columnar catalog out of order, reloading: " + e.getMessage());
+            rebuildColumnarCatalog();
+        }
+    }
+
+    private void drainAddedWhileLoading() {
+        Books added;
+        while ((added = addedWhileLoading.poll()) != null) appendToColumnarCatalog(added);
+    }
+
+    // Method to load historical invoices into the sales analytics (once, normally at start-up)
+    // Uses a fork-join pool as wide as the repository allows (with MySQL, no wider than half the
+    // connection pool, so sales keep a connection).
+    // Returns the number of invoices loaded, or -1 if the backfill failed.
+    public long backfillSalesAnalytics() {
+        try {
+            long loaded = analytics.backfill(repository, repository.scanParallelism());
+            logger.log(Level.INFO, "Sales analytics backfilled from " + loaded + " invoices.");
+            return loaded;
+        } catch (SQLException e) {
+            System.out.println("Error backfilling sales analytics: " + e.getMessage());
+            return -1;
+        }
+    }
 
-        try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
+    // Sales rollups (per day, per genre, best sellers) answered from memory
+    public SalesAnalytics getSalesAnalytics() {
+        return analytics;
+    }
 
-            while (rs.next()) {
-                list.add(new Books(
-                        rs.getInt("bookID"),
-                        rs.getString("title"),
-                        rs.getString("author"),
-                        rs.getString("genre"),
-                        rs.getDouble("price"),
-                        rs.getInt("stockQuantity")));
+    /* ---------- Catalog snapshot ---------- */
+
+    // Method to serve the catalog from a memory-mapped snapshot file while the database catches up
+    // The file is mapped immediately, so getBook, getBooksPage, countBooks and buildSearchIndex answer
+    // from it straight away. A background thread then refreshes it from the database (rows changed
+    // since its high-water mark) - after that first refresh reads go to the database again, with the
+    // snapshot as fallback whenever the database fails. A new generation of the file (file.1, file.2,
+    // ...) is written every writeSeconds and on JVM shutdown. Returns the snapshot, already enabled or not.
+    public synchronized CatalogSnapshot enableCatalogSnapshot(Path file, long refreshSeconds, long writeSeconds) {
+        if (snapshot != null) return snapshot;
+        CatalogSnapshot snap = new CatalogSnapshot(file);
+        snapshotCaughtUp = false;
+        snapshot = snap;
+        logger.log(Level.INFO, "Catalog snapshot " + file + " mapped with " + snap.size() + " books.");
+
+        snapshotWorker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "catalog-snapshot");
+            t.setDaemon(true);
+            return t;
+        });
+        snapshotWorker.execute(() -> {
+            if (refreshCatalogSnapshot() >= 0) writeCatalogSnapshot(snap);   // Catch up, then persist
+        });
+        snapshotWorker.scheduleWithFixedDelay(this::refreshCatalogSnapshot,
+                refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
+        snapshotWorker.scheduleWithFixedDelay(() -> writeCatalogSnapshot(snap),
+                writeSeconds, writeSeconds, TimeUnit.SECONDS);
+
+        snapshotShutdownHook = new Thread(() -> writeCatalogSnapshot(snap), "catalog-snapshot-shutdown");
+        Runtime.getRuntime().addShutdownHook(snapshotShutdownHook);
+        return snap;
+    }
+
+    // Method to stop maintaining the snapshot; the file is written one last time
+    public synchronized void disableCatalogSnapshot() {
+        CatalogSnapshot snap = snapshot;
+        if (snap == null) return;
+        snapshotWorker.shutdownNow();
+        try {
+            snapshotWorker.awaitTermination(30, TimeUnit.SECONDS);
+            Runtime.getRuntime().removeShutdownHook(snapshotShutdownHook);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IllegalStateException e) {
+            // JVM already shutting down; the hook writes the file
+        }
+        snapshot = null;
+        snapshotCaughtUp = false;
+        writeCatalogSnapshot(snap);
+    }
+
+    // The catalog snapshot, or null if it is not enabled
+    public CatalogSnapshot getCatalogSnapshot() {
+        return snapshot;
+    }
+
+    // Method to bring the snapshot up to date with the database; returns the number of changed rows applied, or -1
+    // Reads only rows modified since the high-water mark (less a small overlap for transactions that
+    // committed late). Deletions leave no row behind, so when the row counts disagree the book IDs
+    // are scanned and missing books dropped.
+    public int refreshCatalogSnapshot() {
+        CatalogSnapshot snap = snapshot;
+        if (snap == null) return -1;
+        long since = Math.max(0L, snap.getHighWaterMillis() - SNAPSHOT_OVERLAP_MILLIS);
+        int[] applied = new int[1];
+        try {
+            /* ---------- Rows changed since the high-water mark ---------- */
+            long latest = repository.findBooksModifiedSince(since, book -> {
+                snap.put(book);
+                applied[0]++;
+            });
+            long highWater = Math.max(snap.getHighWaterMillis(), latest);
+
+            /* ---------- Deletions ---------- */
+            if (repository.countBooks() != snap.size()) {
+                BitSet present = new BitSet();
+                repository.scanBookIDs(present::set);
+                applied[0] += snap.retainAll(present);
+            }
+
+            snap.setHighWaterMillis(highWater);
+            if (!snapshotCaughtUp) {
+                snapshotCaughtUp = true;
+                logger.log(Level.INFO, "Catalog snapshot caught up with the database (" + applied[0] + " changes).");
             }
+            return applied[0];
         } catch (SQLException e) {
-            System.out.println("Error retrieving book list: " + e.getMessage());
+            System.out.println("Error refreshing catalog snapshot: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    // Persist the snapshot (file + changes since) to disk
+    private static void writeCatalogSnapshot(CatalogSnapshot snap) {
+        try {
+            int written = snap.write();
+            logger.log(Level.FINE, "Catalog snapshot written with " + written + " books.");
+        } catch (IOException e) {
+            System.out.println("Error writing catalog snapshot: " + e.getMessage());
         }
-        return list;
+    }
+
+    // The snapshot if reads should be served from it: a file was loaded but not yet caught up with the database
+    private CatalogSnapshot offlineSnapshot() {
+        CatalogSnapshot snap = snapshot;
+        return snap != null && !snapshotCaughtUp && snap.getWrittenAtMillis() > 0 ? snap : null;
+    }
+
+    // One keyset page read from the snapshot
+    private static BooksPage snapshotPage(CatalogSnapshot snap, int afterBookID, int pageSize) {
+        List<Books> page = snap.page(afterBookID, pageSize + 1);
+        boolean hasMore = page.size() > pageSize;
+        if (hasMore) page.remove(pageSize);
+        int next = page.isEmpty() ? afterBookID : page.get(page.size() - 1).getBookID();
+        return new BooksPage(page, next, hasMore);
+    }
+
+    // Bring every in-memory view (cache, search index, snapshot, columnar catalog, reorder engine) to a
+    // committed stock level. Commits of the same book finish on different threads in any order, so
+    // each level comes with the row version it was written with, and the cache entry keeps the
+    // version last applied; an older level that arrives late is dropped. The other views are
+    // updated outside the cache lock by one thread per book at a time: a level that arrives while
+    // another thread is pushing that book is left in the cache entry for that thread to push next.
+    private void stockCommitted(int bookID, int newStock, long version) {
+        if (!cache.updateStock(bookID, newStock, version)) return;
+        boolean done = false;
+        try {
+            int stock = newStock;
+            long pushed = version;
+            while (true) {
+                searchIndex.updateStock(bookID, stock);
+                CatalogSnapshot snap = snapshot;
+                if (snap != null) snap.updateStock(bookID, stock);
+                ColumnarCatalog cat = columnar;
+                if (cat != null) cat.updateStock(bookID, stock);
+                ReorderEngine engine = reorderEngine;
+                if (engine != null) engine.stockChanged(bookID, stock);
+
+                InventoryRepository.StockLevel next = cache.stockPushed(bookID, pushed);
+                if (next == null) break;
+                stock = next.getStock();
+                pushed = next.getVersion();
+            }
+            done = true;
+        } finally {
+            if (!done) cache.abandonPush(bookID);
+        }
+    }
+
+    // Log a committed stock level and publish it on the change bus
+    private void publishStockChange(int bookID, int newStock, long version) {
+        eventLog.logStockUpdate(bookID, newStock);
+        if (changeBus.hasSubscribers()) changeBus.publish(InventoryChange.stockChanged(bookID, newStock, version));
+    }
+
+    // Log a committed sale and publish it on the change bus (remaining stock is taken from the result)
+    private void publishSale(InventoryRepository.Sale sale) {
+        SaleResult result = sale.getResult();
+        eventLog.logSale(result.getBookID(), result.getQuantity(), result.getTotalPrice());
+        if (changeBus.hasSubscribers()) {
+            changeBus.publish(InventoryChange.saleCommitted(result.getBookID(), result.getBookTitle(),
+                    result.getQuantity(), result.getTotalPrice(), result.getRemainingStock(), sale.getInvoiceID(),
+                    sale.getVersion()));
+        }
+    }
+
+    // Tell the sale aggregator (if any) that a book's stock changed outside its batches
+    private void stockChangedElsewhere(int bookID) {
+        SaleAggregator agg = aggregator;
+        if (agg != null) agg.refreshStock(bookID);
+    }
+
+    // Committed changes (book added, stock changed, book deleted, sale committed), published after commit
+    // Subscribe to follow the inventory by deltas instead of re-reading it.
+    public InventoryChangeBus getChangeBus() {
+        return changeBus;
+    }
+
+    // The storage backend this inventory reads and writes
+    public InventoryRepository getRepository() {
+        return repository;
+    }
+
+    // Cache statistics (hits, misses, evictions)
+    public InventoryCache getCache() {
+        return cache;
     }
 
     public static void main(String[] args) {
-        Connection conn = DatabaseConnection.getConnection();
-        System.out.println(conn != null
-                ? "Connected to MySQL database successfully!"
-                : "Failed to connect to MySQL!!!");
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            System.out.println(conn != null
+                    ? "Connected to MySQL database successfully!"
+                    : "Failed to connect to MySQL!!!");
+        } catch (SQLException e) {
+            System.out.println("Error releasing connection: " + e.getMessage());
+        }
 
         BookstoreInventory inv = new BookstoreInventory();
         inv.displayInventory();
+
+        System.out.println(InventoryMetrics.snapshot());
+        System.out.println(inv.getCache());
+        DatabaseConnection.shutdown();
     }
 }
\ No newline at end of file
@@ -2,14 +2,15 @@ import javax.swing.*;           // Swing components for UI
 import java.awt.*;              // AWT for layouts
 import java.awt.event.*;        // Listeners (ActionEvent, etc.)
 import java.io.Serializable;    // To fix serialization warning
-import java.util.List;          // For working with collections
+import java.nio.file.Paths;     // Location of the catalog snapshot file
 
 // Class to create UI for the bookstore inventory system
-public class BookstoreUI extends JFrame implements Serializable {
+public final class BookstoreUI extends JFrame implements Serializable {
     private static final long serialVersionUID = 1L;  // Fix for serialization warning
 
-    private final BookstoreInventory inventory;  // Reference to inventory system
-    private final JTextArea inventoryDisplay;    // UI component to show inventory list
+    private final transient BookstoreInventory inventory;  // Reference to inventory system
+    private final InventoryTableModel inventoryModel;  // Lazily paged rows for the inventory table
+    private final JTable inventoryTable;         // UI component to show inventory list
 
     // Panels used for different functionalities (Sales, and Inventory Management)
     private final JTabbedPane tabbedPane = new JTabbedPane();
@@ -32,6 +33,11 @@ public class BookstoreUI extends JFrame implements Serializable {
     // Delete Book panel components
     private final JTextField deleteBookIDField = new JTextField();
 
+    // Reorder panel components
+    private final DefaultListModel<ReorderRequest> reorderListModel = new DefaultListModel<>();
+    private final JList<ReorderRequest> reorderList = new JList<>(reorderListModel);
+    private int reorderListGeneration;  // Bumped per reload so a slow, older reload is discarded (EDT only)
+
     // Constructor – Initializes the extended bookstore UI
     public BookstoreUI (BookstoreInventory inventory) {
         this.inventory = inventory;
@@ -46,14 +52,34 @@ public class BookstoreUI extends JFrame implements Serializable {
         //  1. Sales/Invoice Entry, 2. Inventory Management
         tabbedPane.addTab("Sales / Invoices", createSalesPanel());
         tabbedPane.addTab("Manage Inventory", createInventoryPanel());
+        tabbedPane.addTab("Reorders", createReorderPanel());
         add(tabbedPane, BorderLayout.CENTER);
 
-        // Display area at the bottom to view updated inventory
-        inventoryDisplay = new JTextArea();
-        inventoryDisplay.setEditable(false);
-        add(new JScrollPane(inventoryDisplay), BorderLayout.SOUTH);
+        // Table at the bottom to view the inventory; rows are fetched page-by-page in the background
+        inventoryModel = new InventoryTableModel(inventory, 100, 50);
+        inventoryTable = new JTable(inventoryModel);
+        inventoryTable.setFillsViewportHeight(true);
+        JScrollPane tableScroll = new JScrollPane(inventoryTable);
+        tableScroll.setPreferredSize(new Dimension(800, 250));
+        add(tableScroll, BorderLayout.SOUTH);
+
+        // Follow committed changes - from this window, the HTTP API or background work - by delta;
+        // if the table falls a whole bus ring behind it reloads instead
+        inventory.getChangeBus().subscribe("ui", InventoryChangeBus.Backpressure.RESYNC, 500,
+                new InventoryChangeBus.Listener() {
+                    @Override
+                    public void onChanges(java.util.List<InventoryChange> changes) {
+                        SwingUtilities.invokeLater(() -> inventoryModel.applyChanges(changes));
+                    }
 
-        updateInventoryDisplay();  // Initial inventory display
+                    @Override
+                    public void onMissed(long count) {
+                        SwingUtilities.invokeLater(BookstoreUI.this::updateInventoryDisplay);
+                    }
+                });
+
+        updateInventoryDisplay();  // Initial inventory display, from the snapshot until the database answers
+        // The reorder list is filled once start-up work has connected (see startDatabaseWork)
     }
 
     // Build the Sales / Invoice Entry panel
@@ -73,8 +99,11 @@ public class BookstoreUI extends JFrame implements Serializable {
         saleBtn.addActionListener(e -> processSale());
         JButton refreshBtn = new JButton("Refresh Inventory");
         refreshBtn.addActionListener(e -> updateInventoryDisplay());
+        JButton reportBtn = new JButton("Today's Sales");
+        reportBtn.addActionListener(e -> showSalesReport());
         btnPanel.add(saleBtn);
         btnPanel.add(refreshBtn);
+        btnPanel.add(reportBtn);
 
         panel.add(form, BorderLayout.NORTH);
         panel.add(btnPanel, BorderLayout.SOUTH);
@@ -133,6 +162,78 @@ public class BookstoreUI extends JFrame implements Serializable {
         return panel;
     }
 
+    // Build the Reorders panel listing pending restock requests
+    private JPanel createReorderPanel() {
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.add(new JScrollPane(reorderList), BorderLayout.CENTER);
+
+        JPanel btnPanel = new JPanel();
+        JButton approveBtn = new JButton("Approve");
+        approveBtn.addActionListener(e -> decideReorder(true));
+        JButton rejectBtn = new JButton("Reject");
+        rejectBtn.addActionListener(e -> decideReorder(false));
+        JButton refreshBtn = new JButton("Refresh");
+        refreshBtn.addActionListener(e -> updateReorderList());
+        btnPanel.add(approveBtn);
+        btnPanel.add(rejectBtn);
+        btnPanel.add(refreshBtn);
+        panel.add(btnPanel, BorderLayout.SOUTH);
+        return panel;
+    }
+
+    // Approve or reject the selected reorder request
+    // The decision is written in a background SwingWorker, like the table's page loads
+    private void decideReorder(boolean approve) {
+        ReorderRequest selected = reorderList.getSelectedValue();
+        ReorderEngine engine = inventory.getReorderEngine();
+        if (selected == null || engine == null) return;
+        int requestID = selected.getRequestID();
+        new SwingWorker<Boolean, Void>() {
+            @Override
+            protected Boolean doInBackground() {
+                return approve ? engine.approveRequest(requestID) : engine.rejectRequest(requestID);
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    if (!get()) {
+                        JOptionPane.showMessageDialog(BookstoreUI.this, "Request is no longer pending.",
+                                                      "Error", JOptionPane.ERROR_MESSAGE);
+                    }
+                } catch (Exception e) {
+                    System.out.println("Error deciding reorder request: " + e.getMessage());
+                }
+                updateReorderList();
+            }
+        }.execute();
+    }
+
+    // Reload the pending reorder requests in the background; only the latest reload is shown
+    private void updateReorderList() {
+        ReorderEngine engine = inventory.getReorderEngine();
+        if (engine == null) return;
+        final int gen = ++reorderListGeneration;
+        new SwingWorker<java.util.List<ReorderRequest>, Void>() {
+            @Override
+            protected java.util.List<ReorderRequest> doInBackground() {
+                return engine.getPendingRequests();
+            }
+
+            @Override
+            protected void done() {
+                if (gen != reorderListGeneration) return;
+                try {
+                    java.util.List<ReorderRequest> pending = get();
+                    reorderListModel.clear();
+                    pending.forEach(reorderListModel::addElement);
+                } catch (Exception e) {
+                    System.out.println("Error loading reorder requests: " + e.getMessage());
+                }
+            }
+        }.execute();
+    }
+
     // Process a sale from the Sales tab
     private void processSale() {
         try {
@@ -141,18 +242,39 @@ public class BookstoreUI extends JFrame implements Serializable {
             if (quantity <= 0) {
                 throw new NumberFormatException("Quantity must be positive.");
             }
-            inventory.processSale(bookID, quantity);
-            JOptionPane.showMessageDialog(this, "Sale processed successfully!",
+            SaleResult result = inventory.processSale(bookID, quantity);
+            if (!result.isSuccess()) {
+                JOptionPane.showMessageDialog(this, result.toString(),
+                                              "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            JOptionPane.showMessageDialog(this, "Sale processed successfully!\n" + result,
                                           "Success", JOptionPane.INFORMATION_MESSAGE);
             saleBookIDField.setText("");
-            saleQuantityField.setText("");
-            updateInventoryDisplay();
+            saleQuantityField.setText("");   // The sold book's row is updated from the change bus
         } catch (NumberFormatException ex) {
             JOptionPane.showMessageDialog(this, "Invalid input. Please enter numeric values (and a positive quantity).",
                                           "Error", JOptionPane.ERROR_MESSAGE);
         }
     }
 
+    // Show today's sales from the in-memory rollups (no database query)
+    private void showSalesReport() {
+        SalesAnalytics.Summary today = inventory.getSalesAnalytics().getToday();
+        StringBuilder sb = new StringBuilder();
+        sb.append("Copies sold: ").append(today.getQuantity()).append('\n');
+        sb.append(String.format("Revenue: $%.2f over %d invoices%n", today.getRevenue(), today.getInvoiceCount()));
+        sb.append("\nBest sellers:\n");
+        for (SalesAnalytics.TitleSales t : today.getTopTitles()) {
+            sb.append("  ").append(t).append('\n');
+        }
+        sb.append("\nRevenue by genre:\n");
+        today.getRevenueByGenre().forEach((genre, revenue) ->
+                sb.append(String.format("  %s: $%.2f%n", genre.isEmpty() ? "(none)" : genre, revenue)));
+        JOptionPane.showMessageDialog(this, sb.toString(), "Sales for " + today.getPeriod(),
+                                      JOptionPane.INFORMATION_MESSAGE);
+    }
+
     // Add a new book using input from the Add Book section
     private void addBook() {
         try {
@@ -174,8 +296,7 @@ public class BookstoreUI extends JFrame implements Serializable {
             addAuthorField.setText("");
             addGenreField.setText("");
             addPriceField.setText("");
-            addStockField.setText("");
-            updateInventoryDisplay();
+            addStockField.setText("");   // The new row arrives through the change bus
         } catch (NumberFormatException ex) {
             JOptionPane.showMessageDialog(this, "Price and Stock must be numeric.",
                                           "Error", JOptionPane.ERROR_MESSAGE);
@@ -191,8 +312,7 @@ public class BookstoreUI extends JFrame implements Serializable {
             JOptionPane.showMessageDialog(this, "Stock updated successfully!",
                                           "Success", JOptionPane.INFORMATION_MESSAGE);
             updateBookIDField.setText("");
-            updateStockField.setText("");
-            updateInventoryDisplay();
+            updateStockField.setText("");   // The updated row arrives through the change bus
         } catch (NumberFormatException ex) {
             JOptionPane.showMessageDialog(this, "Book ID and New Stock must be numeric.",
                                           "Error", JOptionPane.ERROR_MESSAGE);
@@ -206,34 +326,53 @@ public class BookstoreUI extends JFrame implements Serializable {
             inventory.deleteBook(bookID);
             JOptionPane.showMessageDialog(this, "Book deleted successfully!",
                                           "Success", JOptionPane.INFORMATION_MESSAGE);
-            deleteBookIDField.setText("");
-            updateInventoryDisplay();
+            deleteBookIDField.setText("");   // The change bus reloads the table
         } catch (NumberFormatException ex) {
             JOptionPane.showMessageDialog(this, "Book ID must be numeric.",
                                           "Error", JOptionPane.ERROR_MESSAGE);
         }
     }
 
-    // Update the inventory display text area with current inventory data 
+    // Reload the inventory table (row count and visible pages are fetched in the background)
     private void updateInventoryDisplay() {
-        List<Books> booksList = inventory.getBooksList();
-        StringBuilder sb = new StringBuilder("Current Inventory:\n");
-        for (Books b : booksList) {
-            sb.append(b).append("\n");
-        }
-        inventoryDisplay.setText(sb.toString());
+        inventoryModel.refresh();
     }
 
     // Main method to launch the extended UI
+    // The catalog snapshot is mapped first so the window opens with data at once; nothing on this
+    // thread or the event thread waits for a connection. Everything that needs the database (the pool
+    // warm-up, schema check, seeding, search index, analytics, reordering) runs on a start-up thread.
     public static void main(String[] args) {
-        // Create your inventory system and seed it with sample books
         BookstoreInventory inventory = new BookstoreInventory();
-        inventory.addBook(new Books(1, "Harry Potter", "J.K. Rowling", "Fantasy", 19.99, 50));
-        inventory.addBook(new Books(2, "The Hobbit", "J.R.R. Tolkien", "Fantasy", 14.99, 10));
+        inventory.enableCatalogSnapshot(
+                Paths.get(System.getProperty("bookstore.snapshot.file", "catalog.snapshot")),
+                Long.getLong("bookstore.snapshot.refreshSeconds", 10L),
+                Long.getLong("bookstore.snapshot.writeSeconds", 300L));
 
         SwingUtilities.invokeLater(() -> {
-        	BookstoreUI ui = new BookstoreUI(inventory);
+            BookstoreUI ui = new BookstoreUI(inventory);
             ui.setVisible(true);
+            startDatabaseWork(inventory, ui);
         });
     }
-}
\ No newline at end of file
+
+    // Start-up work that needs the database, run off the event thread; the UI reloads when it is done
+    private static void startDatabaseWork(BookstoreInventory inventory, BookstoreUI ui) {
+        Thread startup = new Thread(() -> {
+            // The first query opens the pool and checks the schema; seed sample books only into an empty catalog
+            if (inventory.countBooks() == 0) {
+                inventory.addBook(new Books(1, "Harry Potter", "J.K. Rowling", "Fantasy", 19.99, 50));
+                inventory.addBook(new Books(2, "The Hobbit", "J.R.R. Tolkien", "Fantasy", 14.99, 10));
+            }
+            inventory.buildSearchIndex();
+            inventory.backfillSalesAnalytics();
+            inventory.enableAutoReorder(1000);
+            SwingUtilities.invokeLater(() -> {
+                ui.updateInventoryDisplay();
+                ui.updateReorderList();
+            });
+        }, "bookstore-startup");
+        startup.setDaemon(true);
+        startup.start();
+    }
+}
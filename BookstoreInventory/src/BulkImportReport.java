@@ -0,0 +1,39 @@
+// Summary of a bulk catalog import, printed once at the end instead of logging every row
+public class BulkImportReport {
+    private final long rowsWritten;    // Rows sent to the database (inserted or updated)
+    private final long rowsFailed;     // Rows in batches that the database rejected
+    private final long rowsSkipped;    // Input lines that could not be parsed
+    private final long batches;        // Number of executed JDBC batches
+    private final long elapsedNanos;   // Wall-clock time of the import
+
+    // Constructor - records the totals of one import run
+    public BulkImportReport(long rowsWritten, long rowsFailed, long rowsSkipped, long batches, long elapsedNanos) {
+        this.rowsWritten = rowsWritten;
+        this.rowsFailed = rowsFailed;
+        this.rowsSkipped = rowsSkipped;
+        this.batches = batches;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    // Copy of this report with the given number of unparseable input lines
+    public BulkImportReport withSkipped(long skipped) {
+        return new BulkImportReport(rowsWritten, rowsFailed, skipped, batches, elapsedNanos);
+    }
+
+    // Getter methods
+    public long getRowsWritten() { return rowsWritten; }
+    public long getRowsFailed() { return rowsFailed; }
+    public long getRowsSkipped() { return rowsSkipped; }
+    public long getBatches() { return batches; }
+    public double getElapsedSeconds() { return elapsedNanos / 1_000_000_000.0; }
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : rowsWritten / getElapsedSeconds();
+    }
+
+    @Override
+    public String toString() {
+        return "Bulk import: " + rowsWritten + " rows written, " + rowsFailed + " failed, " +
+               rowsSkipped + " skipped, " + batches + " batches in " +
+               String.format("%.2f s (%.0f rows/s)", getElapsedSeconds(), getRowsPerSecond());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,112 @@
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.Supplier;
+
+// Memory-footprint benchmark: the catalog as a List<Books> (what getBooksList returns without the
+// columnar catalog) against ColumnarCatalog with on-heap and off-heap titles.
+// Books are synthetic but shaped like a real catalog: a limited pool of authors, a few dozen
+// genres, and - as with rows read through JDBC - separate String objects on every row.
+// Retained heap is measured after repeated GCs, so run it with a heap large enough for the
+// biggest size, e.g.
+//   java -Xmx8g CatalogFootprintBenchmark --sizes=100000,1000000,3000000
+//
+// Options: --sizes=N,... --authors=N --genres=N
+public class CatalogFootprintBenchmark {
+
+    public static void main(String[] args) {
+        List<Integer> sizes = List.of(100_000, 1_000_000);
+        int authorPool = 50_000, genrePool = 40;
+        for (String arg : args) {
+            String[] kv = arg.split("=", 2);
+            switch (kv[0]) {
+                case "--sizes":
+                    sizes = new ArrayList<>();
+                    for (String s : kv[1].split(",")) sizes.add(Integer.parseInt(s.trim()));
+                    break;
+                case "--authors": authorPool = Integer.parseInt(kv[1]); break;
+                case "--genres":  genrePool = Integer.parseInt(kv[1]); break;
+                default:
+                    System.out.println("Unknown option: " + arg);
+                    return;
+            }
+        }
+
+        System.out.printf(Locale.ROOT, "%-22s %10s %12s %12s %10s %10s%n",
+                "representation", "books", "heap MB", "off-heap MB", "bytes/book", "scan ms");
+        for (int size : sizes) {
+            final int n = size, authors = authorPool, genres = genrePool;
+            measure("List<Books>", n, () -> generate(n, authors, genres));
+            measure("Columnar", n, () -> ColumnarCatalog.of(generate(n, authors, genres)::iterator, false));
+            measure("Columnar+offHeap", n, () -> ColumnarCatalog.of(generate(n, authors, genres)::iterator, true));
+        }
+    }
+
+    // Build one representation, report what it retains, and time a scan over every book
+    private static void measure(String name, int size, Supplier<Iterable<Books>> build) {
+        long heapBefore = usedHeap();
+        long directBefore = directBytes();
+        Iterable<Books> catalog = build.get();
+        long heap = usedHeap() - heapBefore;
+        long direct = directBytes() - directBefore;
+
+        long start = System.nanoTime();
+        long checksum = 0;
+        for (Books b : catalog) checksum += b.getStockQuantity() + b.getGenre().length();
+        double scanMillis = (System.nanoTime() - start) / 1e6;
+
+        System.out.printf(Locale.ROOT, "%-22s %10d %12.1f %12.1f %10.1f %10.1f%n",
+                name, size, heap / 1048576.0, direct / 1048576.0, (heap + direct) / (double) size, scanMillis);
+        if (checksum == 42) System.out.println();   // Keep the scan from being optimized away
+        keepAlive(catalog);
+    }
+
+    // Catalog rows as JDBC would produce them: fresh Strings per row, ascending bookID
+    private static Iterable<Books> generate(int size, int authorPool, int genrePool) {
+        Random random = new Random(size);
+        List<Books> books = new ArrayList<>(size);
+        for (int id = 1; id <= size; id++) {
+            String title = "The " + WORDS[random.nextInt(WORDS.length)] + " of " +
+                           WORDS[random.nextInt(WORDS.length)] + " " + id;
+            String author = new String("Author " + random.nextInt(authorPool));
+            String genre = new String("Genre " + random.nextInt(genrePool));
+            books.add(new Books(id, title, author, genre, 5 + random.nextInt(5000) / 100.0, random.nextInt(200)));
+        }
+        return books;
+    }
+
+    private static final String[] WORDS = {
+            "Shadow", "River", "Crown", "Garden", "Winter", "Empire", "Silence", "Glass", "Fire", "Harbor",
+            "Memory", "Storm", "Kingdom", "Mirror", "Forest", "Night", "Dragon", "Island", "Secret", "Light"
+    };
+
+    private static Object retained;
+
+    private static void keepAlive(Object o) {
+        retained = o;
+        retained = null;
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    private static long directBytes() {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("direct")) return pool.getMemoryUsed();
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,192 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+// Streams a publisher catalog file (CSV or TSV) into BookstoreInventory.addBooks.
+// The file is read one line at a time and handed to the batch writer lazily,
+// so memory use does not depend on the size of the catalog.
+//
+// Columns follow the Books constructor: bookID, title, author, genre, price, stockQuantity.
+// An optional header line may name the columns in any order; bookID may be empty or 0
+// to have the database assign one.
+public class CatalogImporter {
+    private static final String[] COLUMNS = { "bookid", "title", "author", "genre", "price", "stockquantity" };
+
+    private final BookstoreInventory inventory;
+    private final int batchSize;
+
+    // Constructor - binds the importer to an inventory and a JDBC batch size
+    public CatalogImporter(BookstoreInventory inventory, int batchSize) {
+        this.inventory = inventory;
+        this.batchSize = batchSize;
+    }
+
+    // Import a file, choosing the delimiter from its extension (.tsv = tab, anything else = comma)
+    public BulkImportReport importFile(Path file) throws IOException {
+        char delimiter = file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".tsv") ? '\t' : ',';
+        return importFile(file, delimiter);
+    }
+
+    // Import a file with an explicit delimiter
+    public BulkImportReport importFile(Path file, char delimiter) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            RowIterator rows = new RowIterator(reader, delimiter);
+            BulkImportReport report;
+            try {
+                report = inventory.addBooks(() -> rows, batchSize);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            return report.withSkipped(rows.skipped);
+        }
+    }
+
+    // Lazily parses one Books object per input line
+    private static final class RowIterator implements Iterator<Books> {
+        private final BufferedReader reader;
+        private final char delimiter;
+        private int[] columnIndex = { 0, 1, 2, 3, 4, 5 };  // Position of each of COLUMNS in a row
+        private boolean firstLine = true;
+        private long lineNumber;
+        private long skipped;
+        private Books next;
+
+        RowIterator(BufferedReader reader, char delimiter) {
+            this.reader = reader;
+            this.delimiter = delimiter;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                String line;
+                try {
+                    line = reader.readLine();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (line == null) return false;
+                lineNumber++;
+                if (line.isBlank()) continue;
+
+                List<String> fields = split(line, delimiter);
+                if (firstLine) {
+                    firstLine = false;
+                    if (readHeader(fields)) continue;
+                }
+                next = parse(fields);
+                if (next == null) {
+                    skipped++;
+                    if (skipped <= 10) {
+                        System.out.println("Skipping malformed catalog line " + lineNumber + ": " + line);
+                    }
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Books next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Books book = next;
+            next = null;
+            return book;
+        }
+
+        // Use the first line as a header if it names known columns
+        private boolean readHeader(List<String> fields) {
+            int[] index = { -1, -1, -1, -1, -1, -1 };
+            boolean any = false;
+            for (int i = 0; i < fields.size(); i++) {
+                String name = fields.get(i).trim().toLowerCase(Locale.ROOT);
+                if (name.equals("stock")) name = "stockquantity";
+                if (name.equals("id")) name = "bookid";
+                for (int c = 0; c < COLUMNS.length; c++) {
+                    if (COLUMNS[c].equals(name)) {
+                        index[c] = i;
+                        any = true;
+                    }
+                }
+            }
+            if (any) columnIndex = index;
+            return any;
+        }
+
+        // Convert one row to a Books object, or null if it is malformed
+        private Books parse(List<String> fields) {
+            try {
+                String id    = field(fields, 0);
+                String title = field(fields, 1);
+                if (title == null || title.isEmpty()) return null;
+                String price = field(fields, 4);
+                String stock = field(fields, 5);
+                return new Books(
+                        id == null || id.isEmpty() ? 0 : Integer.parseInt(id),
+                        title,
+                        field(fields, 2),
+                        field(fields, 3),
+                        price == null || price.isEmpty() ? 0.0 : Double.parseDouble(price),
+                        stock == null || stock.isEmpty() ? 0 : Integer.parseInt(stock));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        private String field(List<String> fields, int column) {
+            int i = columnIndex[column];
+            return i < 0 || i >= fields.size() ? null : fields.get(i).trim();
+        }
+    }
+
+    // Split a line on the delimiter, honouring double-quoted fields ("" is an escaped quote)
+    static List<String> split(String line, char delimiter) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        current.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == delimiter) {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+
+    // Usage: java CatalogImporter <catalog.csv|catalog.tsv> [batchSize]
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: java CatalogImporter <catalog.csv|catalog.tsv> [batchSize]");
+            return;
+        }
+        int batchSize = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        CatalogImporter importer = new CatalogImporter(new BookstoreInventory(), batchSize);
+        System.out.println(importer.importFile(Paths.get(args[0])));
+        DatabaseConnection.shutdown();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,497 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// Binary, memory-mapped copy of the books catalog for instant start-up and offline reads.
+//
+// File layout (big-endian):
+//   header   64 bytes: magic, format version, record count, high-water mark (ms), write time (ms),
+//                      offset of the string area
+//   records  40 bytes each, sorted by bookID: bookID, stock, price (double bits), and offset/length
+//            of title, author and genre in the string area (length -1 = null)
+//   strings  UTF-8 bytes
+// Opening a snapshot maps the file and checks the header; nothing else is read until a record is
+// requested, and a lookup is a binary search over the mapped records.
+//
+// Changes made since the file was written live in a small in-memory overlay (changed rows, stock
+// levels, deleted IDs) that is consulted first. write() merges file and overlay into a new file,
+// swaps it in with an atomic rename and drops the overlay entries it captured.
+//
+// Each write produces a new generation, <file>.1, <file>.2, ..., and the newest readable one is
+// mapped on start-up. A file is never replaced while it is mapped (Windows refuses to rename over
+// or delete a mapped file): older generations are deleted once the switch is made, and a delete
+// that fails because the old mapping is still alive is retried on the next write.
+public class CatalogSnapshot {
+    private static final long MAGIC = 0x424B534E41503031L;   // "BKSNAP01"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int RECORD_BYTES = 40;
+    private static final int IO_BUFFER_BYTES = 1 << 16;
+
+    private final Path file;           // Base name of the generation files
+    private volatile Mapped mapped;    // Current file contents (never null; may be empty)
+    private long lastGeneration;       // Highest generation seen on disk or written
+    private Path mappedFile;           // The mapped file, or null
+    private final List<Path> retired = new ArrayList<>();   // Older files still to delete
+    private volatile long highWaterMillis;
+
+    // Overlay of changes newer than the mapped file
+    private final ConcurrentSkipListMap<Integer, Books> changed = new ConcurrentSkipListMap<>();
+    private final Map<Integer, Integer> stockLevels = new ConcurrentHashMap<>();
+    private final Set<Integer> deleted = ConcurrentHashMap.newKeySet();
+
+    // Constructor - maps the newest valid generation of the file, otherwise starts empty
+    public CatalogSnapshot(Path file) {
+        this.file = file;
+        Mapped m = Mapped.EMPTY;
+        TreeMap<Long, Path> found = generations();
+        if (!found.isEmpty()) lastGeneration = found.lastKey();
+        for (Map.Entry<Long, Path> e : found.descendingMap().entrySet()) {
+            if (m == Mapped.EMPTY) {
+                try {
+                    m = Mapped.open(e.getValue());
+                    mappedFile = e.getValue();
+                    continue;
+                } catch (IOException | IllegalStateException ex) {
+                    System.out.println("Ignoring unreadable catalog snapshot " + e.getValue() + ": " + ex.getMessage());
+                }
+            }
+            retired.add(e.getValue());   // Older or unreadable: deleted on the next write
+        }
+        this.mapped = m;
+        this.highWaterMillis = m.highWaterMillis;
+    }
+
+    // Generation files next to the base file by number; a file at the base name itself (written
+    // before generations were used) counts as generation 0
+    private TreeMap<Long, Path> generations() {
+        TreeMap<Long, Path> found = new TreeMap<>();
+        if (Files.isRegularFile(file)) found.put(0L, file);
+        Path dir = file.toAbsolutePath().getParent();
+        String prefix = file.getFileName() + ".";
+        if (dir == null || !Files.isDirectory(dir)) return found;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, prefix + "*")) {
+            for (Path p : files) {
+                String suffix = p.getFileName().toString().substring(prefix.length());
+                if (!suffix.isEmpty() && suffix.chars().allMatch(Character::isDigit) && suffix.length() < 19) {
+                    found.put(Long.parseLong(suffix), p);
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Could not list catalog snapshots in " + dir + ": " + e.getMessage());
+        }
+        return found;
+    }
+
+    // Newest lastModified time covered by the snapshot (0 = none); refresh from here
+    public long getHighWaterMillis() { return highWaterMillis; }
+
+    // When the mapped file was written (0 = no file)
+    public long getWrittenAtMillis() { return mapped.writtenAtMillis; }
+
+    public boolean isEmpty() { return size() == 0; }
+
+    /* ---------- Reads ---------- */
+
+    // The book with this ID, or null
+    public Books get(int bookID) {
+        if (deleted.contains(bookID)) return null;
+        Books book = changed.get(bookID);
+        if (book == null) {
+            Mapped m = mapped;
+            int index = m.indexOf(bookID);
+            if (index < 0) return null;
+            book = m.read(index);
+        }
+        Integer stock = stockLevels.get(bookID);
+        return stock == null ? book : withStock(book, stock);
+    }
+
+    // Number of books
+    public int size() {
+        Mapped m = mapped;
+        int n = m.count;
+        for (Integer id : changed.keySet()) {
+            if (m.indexOf(id) < 0 && !deleted.contains(id)) n++;
+        }
+        for (Integer id : deleted) {
+            if (m.indexOf(id) >= 0) n--;
+        }
+        return n;
+    }
+
+    // Up to pageSize books with bookID > afterBookID, in bookID order
+    public List<Books> page(int afterBookID, int pageSize) {
+        List<Books> page = new ArrayList<>(Math.min(pageSize, 1024));
+        Iterator<Books> it = iterator(afterBookID);
+        while (page.size() < pageSize && it.hasNext()) page.add(it.next());
+        return page;
+    }
+
+    // bookID at a 0-based position of the bookID-ordered catalog, or 0 if out of range
+    public int bookIDAt(int position) {
+        if (position < 0) return 0;
+        Mapped m = mapped;
+        if (changed.isEmpty() && deleted.isEmpty()) {
+            return position < m.count ? m.idAt(position) : 0;   // Direct index, nothing to merge
+        }
+        Iterator<Books> it = iterator(0);
+        for (int i = 0; it.hasNext(); i++) {
+            Books b = it.next();
+            if (i == position) return b.getBookID();
+        }
+        return 0;
+    }
+
+    // Every book, in bookID order
+    public Iterable<Books> books() {
+        return () -> iterator(0);
+    }
+
+    // Merge of mapped records and overlay, skipping deleted IDs
+    private Iterator<Books> iterator(int afterBookID) {
+        Mapped m = mapped;
+        Iterator<Map.Entry<Integer, Books>> overlay = changed.tailMap(afterBookID, false).entrySet().iterator();
+        int start = m.indexOf(afterBookID);
+        int firstIndex = start >= 0 ? start + 1 : -(start + 1);
+
+        return new Iterator<Books>() {
+            private int index = firstIndex;
+            private Map.Entry<Integer, Books> pendingOverlay = overlay.hasNext() ? overlay.next() : null;
+            private Books next = advance();
+
+            private Books advance() {
+                while (true) {
+                    int fileID = index < m.count ? m.idAt(index) : Integer.MAX_VALUE;
+                    int overlayID = pendingOverlay != null ? pendingOverlay.getKey() : Integer.MAX_VALUE;
+                    if (fileID == Integer.MAX_VALUE && pendingOverlay == null) return null;
+
+                    int id;
+                    Books book;
+                    if (overlayID <= fileID) {
+                        id = overlayID;
+                        book = pendingOverlay.getValue();
+                        pendingOverlay = overlay.hasNext() ? overlay.next() : null;
+                        if (overlayID == fileID) index++;   // Overlay replaces the file record
+                    } else {
+                        id = fileID;
+                        book = null;
+                        index++;
+                    }
+                    if (deleted.contains(id)) continue;
+                    if (book == null) book = m.read(index - 1);
+                    Integer stock = stockLevels.get(id);
+                    return stock == null ? book : withStock(book, stock);
+                }
+            }
+
+            @Override
+            public boolean hasNext() { return next != null; }
+
+            @Override
+            public Books next() {
+                if (next == null) throw new NoSuchElementException();
+                Books b = next;
+                next = advance();
+                return b;
+            }
+        };
+    }
+
+    /* ---------- Overlay updates ---------- */
+
+    // A new or changed row (from addBook or a database refresh)
+    public void put(Books book) {
+        changed.put(book.getBookID(), book);
+        stockLevels.remove(book.getBookID());
+        deleted.remove(book.getBookID());
+    }
+
+    // A committed stock level
+    public void updateStock(int bookID, int newStock) {
+        if (changed.computeIfPresent(bookID, (id, b) -> withStock(b, newStock)) == null) {
+            stockLevels.put(bookID, newStock);
+        }
+    }
+
+    // A deleted row
+    public void remove(int bookID) {
+        deleted.add(bookID);
+        changed.remove(bookID);
+        stockLevels.remove(bookID);
+    }
+
+    // Mark every book whose ID is not in present as deleted (after a full ID scan of the database);
+    // returns the number removed
+    public int retainAll(BitSet present) {
+        int removed = 0;
+        Mapped m = mapped;
+        for (int i = 0; i < m.count; i++) {
+            int id = m.idAt(i);
+            if (!present.get(id) && !deleted.contains(id)) {
+                remove(id);
+                removed++;
+            }
+        }
+        for (Integer id : changed.keySet()) {
+            if (!present.get(id)) {
+                if (m.indexOf(id) < 0) removed++;   // Only in the overlay, so not counted above
+                remove(id);
+            }
+        }
+        return removed;
+    }
+
+    // Advance the high-water mark after applying a database refresh
+    public void setHighWaterMillis(long millis) {
+        if (millis > highWaterMillis) highWaterMillis = millis;
+    }
+
+    /* ---------- Writing ---------- */
+
+    // Write file + overlay to a new snapshot file and map it; returns the number of books written.
+    // Overlay changes made while writing stay in the overlay for the next write.
+    public synchronized int write() throws IOException {
+        Map<Integer, Books> capturedRows = new TreeMap<>(changed);
+        Map<Integer, Integer> capturedStock = new HashMap<>(stockLevels);
+        Set<Integer> capturedDeleted = new HashSet<>(deleted);
+        long highWater = highWaterMillis;
+        Mapped m = mapped;
+
+        // First pass only counts (IDs, no decoding) so the string area's offset is known up front
+        int count = merge(m, capturedRows, capturedStock, capturedDeleted, null);
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            RecordWriter writer = new RecordWriter(ch, count);
+            merge(m, capturedRows, capturedStock, capturedDeleted, writer);
+            writer.finish(highWater);
+        }
+        Path next = file.resolveSibling(file.getFileName() + "." + (lastGeneration + 1));
+        Files.move(tmp, next, StandardCopyOption.ATOMIC_MOVE);   // A new name: nothing is replaced
+        mapped = Mapped.open(next);
+        lastGeneration++;
+        if (mappedFile != null) retired.add(mappedFile);
+        mappedFile = next;
+        deleteRetired();
+
+        // Drop what the new file now contains (entries changed meanwhile are kept)
+        capturedRows.forEach(changed::remove);        // remove(key, value): only if unchanged
+        capturedStock.forEach(stockLevels::remove);
+        capturedDeleted.forEach(deleted::remove);
+        return count;
+    }
+
+    // Delete older generations; one still mapped (a reader may hold it) stays listed for the next write
+    private void deleteRetired() {
+        for (Iterator<Path> it = retired.iterator(); it.hasNext(); ) {
+            Path old = it.next();
+            try {
+                Files.deleteIfExists(old);
+                it.remove();
+            } catch (IOException e) {
+                System.out.println("Catalog snapshot " + old + " not deleted yet: " + e.getMessage());
+            }
+        }
+    }
+
+    // Walk file records and captured overlay rows in bookID order; passes each surviving book to
+    // writer (if any) and returns how many there are
+    private static int merge(Mapped m, Map<Integer, Books> rows, Map<Integer, Integer> stock,
+                             Set<Integer> removed, RecordWriter writer) throws IOException {
+        Iterator<Map.Entry<Integer, Books>> overlay = rows.entrySet().iterator();
+        Map.Entry<Integer, Books> pending = overlay.hasNext() ? overlay.next() : null;
+        int i = 0, count = 0;
+        while (i < m.count || pending != null) {
+            int fileID = i < m.count ? m.idAt(i) : Integer.MAX_VALUE;
+            int overlayID = pending != null ? pending.getKey() : Integer.MAX_VALUE;
+            Books book = null;
+            int id;
+            if (overlayID <= fileID) {
+                id = overlayID;
+                book = pending.getValue();
+                pending = overlay.hasNext() ? overlay.next() : null;
+                if (overlayID == fileID) i++;
+            } else {
+                id = fileID;
+                i++;
+            }
+            if (removed.contains(id)) continue;
+            count++;
+            if (writer == null) continue;
+            if (book == null) book = m.read(i - 1);
+            Integer level = stock.get(id);
+            writer.write(level == null ? book : withStock(book, level));
+        }
+        return count;
+    }
+
+    // Streams records and strings to their two areas of a new file through small buffers
+    private static final class RecordWriter {
+        private final FileChannel ch;
+        private final int count;
+        private final long stringsOffset;
+        private final ByteBuffer records = ByteBuffer.allocate(IO_BUFFER_BYTES);
+        private final ByteBuffer strings = ByteBuffer.allocate(IO_BUFFER_BYTES);
+        private long recordPos = HEADER_BYTES;
+        private long stringPos;
+        private int stringBytes;   // Offset within the string area
+        private int written;
+
+        RecordWriter(FileChannel ch, int count) {
+            this.ch = ch;
+            this.count = count;
+            this.stringsOffset = HEADER_BYTES + (long) count * RECORD_BYTES;
+            this.stringPos = stringsOffset;
+        }
+
+        void write(Books b) throws IOException {
+            if (written++ == count) throw new IllegalStateException("more records than counted");
+            if (records.remaining() < RECORD_BYTES) recordPos += drain(ch, records, recordPos);
+            records.putInt(b.getBookID());
+            records.putInt(b.getStockQuantity());
+            records.putLong(Double.doubleToRawLongBits(b.getPrice()));
+            putString(b.getTitle());
+            putString(b.getAuthor());
+            putString(b.getGenre());
+        }
+
+        private void putString(String s) throws IOException {
+            if (s == null) {
+                records.putInt(0).putInt(-1);
+                return;
+            }
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            records.putInt(stringBytes).putInt(bytes.length);
+            stringBytes = Math.addExact(stringBytes, bytes.length);
+            int off = 0;
+            while (off < bytes.length) {
+                if (!strings.hasRemaining()) stringPos += drain(ch, strings, stringPos);
+                int n = Math.min(strings.remaining(), bytes.length - off);
+                strings.put(bytes, off, n);
+                off += n;
+            }
+        }
+
+        // Flush both areas, then write the header last so a torn file never looks valid
+        void finish(long highWater) throws IOException {
+            drain(ch, records, recordPos);
+            drain(ch, strings, stringPos);
+            ch.force(false);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putLong(MAGIC).putInt(FORMAT_VERSION).putInt(count)
+                  .putLong(highWater).putLong(System.currentTimeMillis()).putLong(stringsOffset);
+            header.clear();
+            while (header.hasRemaining()) ch.write(header, header.position());
+            ch.force(true);
+        }
+    }
+
+    // Write the buffer's contents at position; returns the number of bytes written
+    private static int drain(FileChannel ch, ByteBuffer buffer, long position) throws IOException {
+        buffer.flip();
+        int n = buffer.remaining();
+        long pos = position;
+        while (buffer.hasRemaining()) pos += ch.write(buffer, pos);
+        buffer.clear();
+        return n;
+    }
+
+    private static Books withStock(Books b, int stock) {
+        return new Books(b.getBookID(), b.getTitle(), b.getAuthor(), b.getGenre(), b.getPrice(), stock);
+    }
+
+    // Read-only view of one snapshot file
+    private static final class Mapped {
+        static final Mapped EMPTY = new Mapped(null, 0, 0, 0, 0);
+
+        final MappedByteBuffer buffer;
+        final int count;
+        final long highWaterMillis;
+        final long writtenAtMillis;
+        final int stringsOffset;
+
+        private Mapped(MappedByteBuffer buffer, int count, long highWaterMillis, long writtenAtMillis,
+                       int stringsOffset) {
+            this.buffer = buffer;
+            this.count = count;
+            this.highWaterMillis = highWaterMillis;
+            this.writtenAtMillis = writtenAtMillis;
+            this.stringsOffset = stringsOffset;
+        }
+
+        // Map the file and validate the header (the mapping stays valid after the channel closes)
+        static Mapped open(Path path) throws IOException {
+            try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+                long size = ch.size();
+                if (size < HEADER_BYTES) throw new IllegalStateException("file too short");
+                if (size > Integer.MAX_VALUE) throw new IllegalStateException("file larger than 2 GB");
+                MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                if (buf.getLong(0) != MAGIC) throw new IllegalStateException("not a catalog snapshot");
+                if (buf.getInt(8) != FORMAT_VERSION) throw new IllegalStateException("unsupported format version");
+                int count = buf.getInt(12);
+                long stringsOffset = buf.getLong(32);
+                if (count < 0 || stringsOffset != HEADER_BYTES + (long) count * RECORD_BYTES || stringsOffset > size) {
+                    throw new IllegalStateException("corrupt header");
+                }
+                return new Mapped(buf, count, buf.getLong(16), buf.getLong(24), (int) stringsOffset);
+            }
+        }
+
+        int idAt(int index) {
+            return buffer.getInt(HEADER_BYTES + index * RECORD_BYTES);
+        }
+
+        // Index of bookID, or -(insertion point) - 1 if absent
+        int indexOf(int bookID) {
+            int lo = 0, hi = count - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int id = idAt(mid);
+                if (id < bookID) lo = mid + 1;
+                else if (id > bookID) hi = mid - 1;
+                else return mid;
+            }
+            return -(lo + 1);
+        }
+
+        Books read(int index) {
+            int pos = HEADER_BYTES + index * RECORD_BYTES;
+            return new Books(
+                    buffer.getInt(pos),
+                    string(pos + 16),
+                    string(pos + 24),
+                    string(pos + 32),
+                    Double.longBitsToDouble(buffer.getLong(pos + 8)),
+                    buffer.getInt(pos + 4));
+        }
+
+        private String string(int refPos) {
+            int length = buffer.getInt(refPos + 4);
+            if (length < 0) return null;
+            byte[] bytes = new byte[length];
+            buffer.get(stringsOffset + buffer.getInt(refPos), bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+import java.util.ArrayList;
+import java.util.List;
+
+// Pass/fail bookkeeping for the main()-based check harnesses (ConnectionPoolCheck,
+// InventoryRepositoryCheck, SaleJournalCheck, StoreInventoryCheck). Each check is a named block that
+// fails by throwing; expect() is the assertion. finish() prints a summary and returns the exit status.
+final class CheckReport {
+
+    // Body of one check
+    interface Check {
+        void run() throws Exception;
+    }
+
+    private final String suite;
+    private final List<String> failures = new ArrayList<>();
+    private int passed;
+
+    CheckReport(String suite) {
+        this.suite = suite;
+    }
+
+    // Run one check and print PASS or FAIL with the reason
+    void run(String name, Check check) {
+        long start = System.nanoTime();
+        try {
+            check.run();
+            passed++;
+            System.out.printf("PASS %-50s %6.1f ms%n", name, (System.nanoTime() - start) / 1e6);
+        } catch (Exception | AssertionError e) {
+            failures.add(name);
+            System.out.println("FAIL " + name + ": " + e);
+        }
+    }
+
+    // Fail the current check unless condition holds
+    static void expect(boolean condition, String message) {
+        if (!condition) throw new AssertionError(message);
+    }
+
+    static void expectEquals(Object expected, Object actual, String what) {
+        if (expected == null ? actual != null : !expected.equals(actual)) {
+            throw new AssertionError(what + ": expected " + expected + ", got " + actual);
+        }
+    }
+
+    // Print the summary; returns 0 if every check passed, else 1 (for System.exit)
+    int finish() {
+        System.out.println(suite + ": " + passed + " passed, " + failures.size() + " failed" +
+                (failures.isEmpty() ? "" : " " + failures));
+        return failures.isEmpty() ? 0 : 1;
+    }
+}
@@ -0,0 +1,342 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// Compact in-memory catalog for very large inventories (see BookstoreInventory.enableColumnarCatalog).
+//
+// Instead of one Books object per row - each with its own title, author and genre Strings - rows
+// are stored column by column in primitive arrays, ordered by bookID:
+//   ids, stock, priceCents   int[]
+//   author                   int[] codes into a dictionary of distinct authors
+//   genre                    short[] codes into a dictionary of distinct genres
+//   title                    UTF-8 bytes in one ByteBuffer (on-heap, or off-heap if requested) + int[] offsets
+// A row costs about 23 bytes plus its title bytes, against roughly 200 bytes as a List<Books> entry.
+//
+// Rows are read through flyweight Books views that decode a field only when its getter is called.
+// get() and asList() hand out one small view per row; scan() moves a single view across every row.
+//
+// Rows are appended and changed by one writer at a time (synchronized). Readers never lock:
+// appends fill spare capacity and then publish the new size, and growing swaps in a new Columns
+// holder, so a reader sees either the old or the new arrays with the same rows in them. Stock
+// changes to published rows are release stores read back with acquire loads (STOCK).
+// Deleted rows keep their slot with stock DELETED until the catalog is rebuilt.
+public class ColumnarCatalog implements Iterable<Books> {
+    private static final int DELETED = -1;           // Stock value marking a removed row
+    private static final int INITIAL_ROWS = 1024;
+    private static final int INITIAL_TITLE_BYTES = 16 * 1024;
+    private static final VarHandle STOCK = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private final boolean offHeapTitles;
+    private final Dictionary authors = new Dictionary("authors", Integer.MAX_VALUE);
+    private final Dictionary genres = new Dictionary("genres", Short.MAX_VALUE);   // Codes are stored as short
+    private volatile Columns columns;
+    private volatile int rows;       // Rows published to readers
+    private int deletedRows;         // Guarded by this
+
+    // Empty catalog; titles go to a direct (off-heap) buffer if offHeapTitles is set
+    public ColumnarCatalog(boolean offHeapTitles) {
+        this.offHeapTitles = offHeapTitles;
+        this.columns = new Columns(INITIAL_ROWS, allocate(INITIAL_TITLE_BYTES));
+    }
+
+    // Catalog holding books, which must come in ascending bookID order (as streamBooks delivers them)
+    public static ColumnarCatalog of(Iterable<Books> books, boolean offHeapTitles) {
+        ColumnarCatalog catalog = new ColumnarCatalog(offHeapTitles);
+        for (Books b : books) catalog.add(b);
+        catalog.trim();
+        return catalog;
+    }
+
+    /* ---------- Writes ---------- */
+
+    // Append a book; its bookID must be higher than every bookID already present
+    public synchronized void add(Books book) {
+        int row = rows;
+        Columns c = columns;
+        if (row > 0 && book.getBookID() <= c.ids[row - 1]) {
+            throw new IllegalArgumentException("Book ID " + book.getBookID() + " is not above " + c.ids[row - 1]);
+        }
+        byte[] title = book.getTitle() == null ? null : book.getTitle().getBytes(StandardCharsets.UTF_8);
+        int titleBytes = title == null ? 0 : title.length;
+        int titleStart = c.titleEnd[row];   // titleEnd[row] is where the previous title ended
+        if (row + 1 >= c.ids.length || titleStart + titleBytes > c.titles.capacity()) {
+            c = grow(c, row + 2, titleStart + titleBytes);
+        }
+
+        c.ids[row] = book.getBookID();
+        c.stock[row] = book.getStockQuantity();
+        c.priceCents[row] = Math.toIntExact(Math.round(book.getPrice() * 100));
+        c.authorCodes[row] = authors.encode(book.getAuthor());
+        c.genreCodes[row] = (short) genres.encode(book.getGenre());
+        if (title != null) c.titles.put(titleStart, title);
+        c.titleEnd[row + 1] = titleStart + titleBytes;
+        c.titleNull[row] = title == null;
+        rows = row + 1;                     // Volatile write publishes the row
+    }
+
+    // Set a book's stock; returns false if the book is not in the catalog
+    // Synchronized with add() so a write cannot land in arrays that are being replaced.
+    public synchronized boolean updateStock(int bookID, int newStock) {
+        Columns c = columns;
+        int row = indexOf(c, rows, bookID);
+        if (row < 0 || c.stock[row] == DELETED) return false;
+        STOCK.setRelease(c.stock, row, newStock);
+        return true;
+    }
+
+    // Remove a book; returns false if it was not in the catalog
+    public synchronized boolean remove(int bookID) {
+        Columns c = columns;
+        int row = indexOf(c, rows, bookID);
+        if (row < 0 || c.stock[row] == DELETED) return false;
+        STOCK.setRelease(c.stock, row, DELETED);
+        deletedRows++;
+        return true;
+    }
+
+    // Copy every column into arrays (and a title buffer) large enough for the given rows and title bytes
+    private Columns grow(Columns c, int minRows, int minTitleBytes) {
+        int newRows = c.ids.length;
+        while (newRows < minRows) newRows = Math.multiplyExact(newRows, 2);
+        long newTitleBytes = c.titles.capacity();
+        while (newTitleBytes < minTitleBytes) newTitleBytes *= 2;
+        if (newTitleBytes > Integer.MAX_VALUE) throw new IllegalStateException("Titles exceed 2 GB");
+
+        ByteBuffer titles = c.titles;
+        if (newTitleBytes != titles.capacity()) {
+            titles = allocate((int) newTitleBytes);
+            titles.put(0, c.titles, 0, c.titleEnd[rows]);
+        }
+        Columns grown = new Columns(c, newRows, titles);
+        columns = grown;
+        return grown;
+    }
+
+    // Drop the spare capacity left by growing (after a bulk load)
+    public synchronized void trim() {
+        Columns c = columns;
+        int titleBytes = c.titleEnd[rows];
+        if (c.ids.length == rows + 1 && c.titles.capacity() == titleBytes) return;
+        ByteBuffer titles = allocate(Math.max(titleBytes, 1));
+        titles.put(0, c.titles, 0, titleBytes);
+        columns = new Columns(c, rows + 1, titles);
+    }
+
+    // Stock of a row as last published by updateStock or remove (readers do not lock)
+    private static int stockAt(Columns c, int row) {
+        return (int) STOCK.getAcquire(c.stock, row);
+    }
+
+    private ByteBuffer allocate(int bytes) {
+        return offHeapTitles ? ByteBuffer.allocateDirect(bytes) : ByteBuffer.allocate(bytes);
+    }
+
+    /* ---------- Reads ---------- */
+
+    // Number of books (deleted rows excluded)
+    public synchronized int size() {
+        return rows - deletedRows;
+    }
+
+    // View of the book with this ID, or null
+    public Books get(int bookID) {
+        Columns c = columns;
+        int row = indexOf(c, rows, bookID);
+        if (row < 0 || stockAt(c, row) == DELETED) return null;
+        return new View(row);
+    }
+
+    // Books in bookID order, as a read-only list of views; rows removed after this call stay in it
+    public List<Books> asList() {
+        Columns c = columns;
+        int n = rows;
+        int[] live = new int[n];
+        int count = 0;
+        for (int row = 0; row < n; row++) {
+            if (stockAt(c, row) != DELETED) live[count++] = row;
+        }
+        int[] liveRows = count == n ? live : Arrays.copyOf(live, count);
+        return new AbstractList<Books>() {
+            @Override
+            public Books get(int index) {
+                return new View(liveRows[index]);
+            }
+
+            @Override
+            public int size() {
+                return liveRows.length;
+            }
+        };
+    }
+
+    // Iterate with one new view per book
+    @Override
+    public Iterator<Books> iterator() {
+        return asList().iterator();
+    }
+
+    // Visit every book through a single reused view (no allocation per row)
+    // The view is repositioned after the consumer returns, so it must not be kept.
+    public void scan(Consumer<? super Books> consumer) {
+        View cursor = new View(0);
+        int n = rows;
+        for (int row = 0; row < n; row++) {
+            if (stockAt(columns, row) == DELETED) continue;
+            cursor.row = row;
+            consumer.accept(cursor);
+        }
+    }
+
+    // Distinct authors and genres seen (dictionary sizes)
+    public int getAuthorCount() { return authors.size(); }
+    public int getGenreCount() { return genres.size(); }
+
+    // Bytes held on the Java heap by columns and dictionaries (titles too unless off-heap)
+    public long getHeapBytes() {
+        Columns c = columns;
+        long bytes = (long) c.ids.length * (4 + 4 + 4 + 4 + 2 + 4 + 1);
+        bytes += authors.estimatedBytes() + genres.estimatedBytes();
+        if (!offHeapTitles) bytes += c.titles.capacity();
+        return bytes;
+    }
+
+    public boolean isOffHeapTitles() { return offHeapTitles; }
+
+    // Bytes of titles held outside the heap (0 unless off-heap titles are on)
+    public long getOffHeapBytes() {
+        return offHeapTitles ? columns.titles.capacity() : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "ColumnarCatalog books=" + size() + " authors=" + authors.size() + " genres=" + genres.size() +
+               " heapBytes=" + getHeapBytes() + " offHeapBytes=" + getOffHeapBytes();
+    }
+
+    // Row of bookID among the first n rows, or -1
+    private static int indexOf(Columns c, int n, int bookID) {
+        int row = Arrays.binarySearch(c.ids, 0, n, bookID);
+        return row >= 0 ? row : -1;
+    }
+
+    // Flyweight Books: a row number; each getter decodes its own column
+    private final class View extends Books {
+        private int row;
+
+        View(int row) {
+            super(0, null, null, null, 0.0, 0);
+            this.row = row;
+        }
+
+        @Override public int getBookID() { return columns.ids[row]; }
+        @Override public String getAuthor() { return authors.decode(columns.authorCodes[row]); }
+        @Override public String getGenre() { return genres.decode(columns.genreCodes[row]); }
+        @Override public double getPrice() { return columns.priceCents[row] / 100.0; }
+        @Override public int getStockQuantity() { return Math.max(0, stockAt(columns, row)); }
+
+        @Override
+        public String getTitle() {
+            Columns c = columns;
+            if (c.titleNull[row]) return null;
+            int start = c.titleEnd[row];
+            byte[] bytes = new byte[c.titleEnd[row + 1] - start];
+            c.titles.get(start, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void updateStock(int newStock) {
+            ColumnarCatalog.this.updateStock(getBookID(), newStock);
+        }
+
+        @Override
+        public String toString() {
+            return "Book ID: " + getBookID() + ", Title: " + getTitle() + ", Author: " + getAuthor() +
+                   ", Genre: " + getGenre() + ", Price: $" + getPrice() + ", Stock: " + getStockQuantity();
+        }
+    }
+
+    // One generation of column arrays; replaced as a whole when the catalog grows
+    private static final class Columns {
+        final int[] ids;
+        final int[] stock;
+        final int[] priceCents;
+        final int[] authorCodes;
+        final short[] genreCodes;
+        final int[] titleEnd;         // Title of row r spans titleEnd[r] .. titleEnd[r + 1]
+        final boolean[] titleNull;
+        final ByteBuffer titles;
+
+        Columns(int capacity, ByteBuffer titles) {
+            this.ids = new int[capacity];
+            this.stock = new int[capacity];
+            this.priceCents = new int[capacity];
+            this.authorCodes = new int[capacity];
+            this.genreCodes = new short[capacity];
+            this.titleEnd = new int[capacity + 1];
+            this.titleNull = new boolean[capacity];
+            this.titles = titles;
+        }
+
+        Columns(Columns old, int capacity, ByteBuffer titles) {
+            this.ids = Arrays.copyOf(old.ids, capacity);
+            this.stock = Arrays.copyOf(old.stock, capacity);
+            this.priceCents = Arrays.copyOf(old.priceCents, capacity);
+            this.authorCodes = Arrays.copyOf(old.authorCodes, capacity);
+            this.genreCodes = Arrays.copyOf(old.genreCodes, capacity);
+            this.titleEnd = Arrays.copyOf(old.titleEnd, capacity + 1);
+            this.titleNull = Arrays.copyOf(old.titleNull, capacity);
+            this.titles = titles;
+        }
+    }
+
+    // Append-only string dictionary; code 0 is null
+    private static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();   // Guarded by the catalog lock
+        private volatile String[] values = new String[16];
+        private int size = 1;
+        private final String name;
+        private final int maxCodes;
+
+        Dictionary(String name, int maxCodes) {
+            this.name = name;
+            this.maxCodes = maxCodes;
+        }
+
+        int encode(String value) {
+            if (value == null) return 0;
+            Integer code = codes.get(value);
+            if (code != null) return code;
+            if (size == maxCodes) throw new IllegalStateException("Too many distinct " + name);
+            String[] v = values;
+            if (size == v.length) v = Arrays.copyOf(v, size * 2);
+            v[size] = value;
+            values = v;               // Publish before any row uses the code
+            codes.put(value, size);
+            return size++;
+        }
+
+        String decode(int code) {
+            return values[code];
+        }
+
+        int size() {
+            return codes.size();
+        }
+
+        // Strings, the array and the hash map, roughly
+        long estimatedBytes() {
+            long bytes = 16L + 4L * values.length;
+            for (String s : codes.keySet()) bytes += 40 + s.length() + 48;
+            return bytes;
+        }
+    }
+}
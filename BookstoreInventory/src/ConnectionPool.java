@@ -0,0 +1,568 @@
+import java.lang.reflect.InvocationHandler;   // Intercepts close() on borrowed connections
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Bounded JDBC connection pool so operations reuse physical connections instead of
+// paying a TCP handshake and authentication round-trip on every call.
+// Connections handed out are proxies: calling close() returns them to the pool.
+// With a statement cache, prepareStatement(sql) and prepareStatement(sql, autoGeneratedKeys) on a
+// borrowed connection return a statement prepared once per physical connection; closing it only
+// hands it back to that connection's cache.
+public class ConnectionPool implements AutoCloseable {
+    private final String url;
+    private final String user;
+    private final String password;
+
+    private final int minSize;            // Connections kept open even when idle
+    private final int maxSize;            // Hard upper bound on physical connections
+    private final long idleTimeoutMillis; // Idle connections above minSize are closed after this
+    private final long borrowTimeoutMillis; // How long borrowers wait when the pool is exhausted
+    private final int validationTimeoutSeconds; // Timeout for isValid() on borrow
+    private final int statementCacheSize; // Prepared statements kept per physical connection (0 = off)
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();  // LIFO keeps hot connections warm
+    private int totalConnections;   // Open physical connections (idle + borrowed + being created)
+    private int waiters;            // Threads currently blocked in borrow()
+    private boolean closed;
+
+    // Statistics
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong destroyedCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong validationFailures = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong statementHits = new AtomicLong();
+    private final AtomicLong statementMisses = new AtomicLong();
+
+    private final ScheduledExecutorService evictor;
+
+    // Constructor - starts the idle evictor, which also opens the first minSize connections, so creating
+    // a pool never blocks on the database
+    public ConnectionPool(String url, String user, String password,
+                          int minSize, int maxSize,
+                          long idleTimeoutMillis, long borrowTimeoutMillis,
+                          int validationTimeoutSeconds) {
+        this(url, user, password, minSize, maxSize, idleTimeoutMillis, borrowTimeoutMillis,
+                validationTimeoutSeconds, 0);
+    }
+
+    // Constructor - as above, also caching up to statementCacheSize prepared statements per connection
+    public ConnectionPool(String url, String user, String password,
+                          int minSize, int maxSize,
+                          long idleTimeoutMillis, long borrowTimeoutMillis,
+                          int validationTimeoutSeconds, int statementCacheSize) {
+        if (statementCacheSize < 0) {
+            throw new IllegalArgumentException("Invalid statement cache size: " + statementCacheSize);
+        }
+        if (minSize < 0 || maxSize <= 0 || minSize > maxSize) {
+            throw new IllegalArgumentException(
+                    "Invalid pool bounds: min=" + minSize + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.statementCacheSize = statementCacheSize;
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000L, idleTimeoutMillis / 2);
+        evictor.execute(this::fillToMinimum);   // Warm up in the background; borrow() never waits for it
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    // Borrow a connection, waiting up to borrowTimeoutMillis when the pool is exhausted
+    public Connection borrow() throws SQLException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(borrowTimeoutMillis);
+
+        while (true) {
+            PooledConnection candidate = null;
+            boolean create = false;
+
+            lock.lock();
+            try {
+                while (true) {
+                    if (closed) throw new SQLException("Connection pool is closed");
+                    candidate = idle.pollFirst();
+                    if (candidate != null) break;
+                    if (totalConnections < maxSize) {
+                        totalConnections++;   // Reserve the slot before leaving the lock
+                        create = true;
+                        break;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        timeoutCount.incrementAndGet();
+                        throw new SQLException("Timed out after " + borrowTimeoutMillis +
+                                " ms waiting for a pooled connection (max " + maxSize + ")");
+                    }
+                    waiters++;
+                    try {
+                        available.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a pooled connection", e);
+                    } finally {
+                        waiters--;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (create) {
+                try {
+                    candidate = open();
+                } catch (SQLException e) {
+                    releaseSlot();
+                    throw e;
+                }
+            } else if (!validate(candidate)) {
+                validationFailures.incrementAndGet();
+                destroy(candidate);
+                continue;   // Try the next idle connection (or create a fresh one)
+            }
+
+            candidate.borrowed = true;
+            borrowCount.incrementAndGet();
+            totalWaitNanos.addAndGet(System.nanoTime() - start);
+            return candidate.newHandle();
+        }
+    }
+
+    // Return a connection to the idle set (called from the proxy's close())
+    private void release(PooledConnection pc) {
+        if (!pc.borrowed) return;   // close() called twice
+        pc.borrowed = false;
+        pc.returnStatements();
+
+        boolean discard = false;
+        try {
+            if (pc.physical.isClosed()) {
+                discard = true;
+            } else {
+                if (!pc.physical.getAutoCommit()) {
+                    pc.physical.rollback();           // Never leak an open transaction
+                    pc.physical.setAutoCommit(true);
+                }
+                pc.physical.clearWarnings();
+            }
+        } catch (SQLException e) {
+            discard = true;
+        }
+
+        if (discard) {
+            destroy(pc);
+            return;
+        }
+
+        lock.lock();
+        try {
+            if (closed) {
+                discard = true;
+            } else {
+                pc.lastUsedMillis = System.currentTimeMillis();
+                idle.offerFirst(pc);
+                available.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (discard) destroy(pc);
+    }
+
+    // Validation-on-borrow: cheap driver-level ping
+    private boolean validate(PooledConnection pc) {
+        try {
+            return !pc.physical.isClosed() && pc.physical.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    // Open a new physical connection
+    private PooledConnection open() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, user, password);
+        createdCount.incrementAndGet();
+        return new PooledConnection(physical);
+    }
+
+    // Close a physical connection and free its slot
+    private void destroy(PooledConnection pc) {
+        try {
+            pc.physical.close();
+        } catch (SQLException ignored) {
+            // Connection is being discarded anyway
+        }
+        destroyedCount.incrementAndGet();
+        releaseSlot();
+    }
+
+    private void releaseSlot() {
+        lock.lock();
+        try {
+            totalConnections--;
+            available.signal();   // A waiter may now create a replacement
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Close idle connections that have been unused longer than idleTimeoutMillis, keeping minSize
+    private void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+        Deque<PooledConnection> expired = new ArrayDeque<>();
+
+        lock.lock();
+        try {
+            // Oldest connections sit at the tail of the LIFO deque
+            Iterator<PooledConnection> it = idle.descendingIterator();
+            while (it.hasNext() && totalConnections - expired.size() > minSize) {
+                PooledConnection pc = it.next();
+                if (pc.lastUsedMillis >= cutoff) break;
+                it.remove();
+                expired.add(pc);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        for (PooledConnection pc : expired) destroy(pc);
+        if (!closed) fillToMinimum();
+    }
+
+    // Top the pool back up to minSize (used at start-up and after eviction)
+    private void fillToMinimum() {
+        while (true) {
+            lock.lock();
+            try {
+                if (closed || totalConnections >= minSize) return;
+                totalConnections++;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                PooledConnection pc = open();
+                release(markBorrowed(pc));
+            } catch (SQLException e) {
+                releaseSlot();
+                System.out.println("Connection pool warm-up failed: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private static PooledConnection markBorrowed(PooledConnection pc) {
+        pc.borrowed = true;
+        return pc;
+    }
+
+    // Snapshot of the pool's current state and lifetime counters
+    public PoolStats getStats() {
+        lock.lock();
+        try {
+            int idleCount = idle.size();
+            return new PoolStats(totalConnections, idleCount, totalConnections - idleCount, waiters,
+                    borrowCount.get(), createdCount.get(), destroyedCount.get(),
+                    timeoutCount.get(), validationFailures.get(), totalWaitNanos.get(),
+                    statementHits.get(), statementMisses.get());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getMinSize() { return minSize; }
+    public int getMaxSize() { return maxSize; }
+    public int getStatementCacheSize() { return statementCacheSize; }
+
+    // Close every idle connection; borrowed ones are closed when they are returned
+    @Override
+    public void close() {
+        Deque<PooledConnection> toClose;
+        lock.lock();
+        try {
+            if (closed) return;
+            closed = true;
+            toClose = new ArrayDeque<>(idle);
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        evictor.shutdownNow();
+        for (PooledConnection pc : toClose) destroy(pc);
+    }
+
+    // A physical connection owned by the pool
+    private final class PooledConnection {
+        final Connection physical;
+        volatile boolean borrowed;
+        long lastUsedMillis = System.currentTimeMillis();
+        // Statement cache in least-recently-used order; only touched by the current borrower
+        private final LinkedHashMap<String, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        // The cached statement for sql, or a fresh uncached one if it is already in use
+        PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+            String key = autoGeneratedKeys + ":" + sql;
+            CachedStatement cached = statements.get(key);
+            if (cached != null && !cached.inUse && cached.physical.isClosed()) {
+                statements.remove(key);   // Discarded after a failed reset
+                cached = null;
+            }
+            if (cached != null) {
+                if (cached.inUse) return physical.prepareStatement(sql, autoGeneratedKeys);  // Same SQL twice at once
+                statementHits.incrementAndGet();
+                cached.inUse = true;
+                return cached.proxy;
+            }
+            statementMisses.incrementAndGet();
+            PreparedStatement prepared = physical.prepareStatement(sql, autoGeneratedKeys);
+            try {
+                cached = new CachedStatement(prepared);
+            } catch (SQLException e) {
+                prepared.close();
+                throw e;
+            }
+            statements.put(key, cached);
+            cached.inUse = true;
+            evictStatements();
+            return cached.proxy;
+        }
+
+        // Close the least recently used idle statements beyond the cache size
+        private void evictStatements() {
+            Iterator<CachedStatement> it = statements.values().iterator();
+            while (statements.size() > statementCacheSize && it.hasNext()) {
+                CachedStatement oldest = it.next();
+                if (oldest.inUse) continue;
+                it.remove();
+                oldest.closeQuietly();
+            }
+        }
+
+        // Called when the connection goes back to the pool: statements left open become reusable
+        void returnStatements() {
+            for (CachedStatement cached : statements.values()) {
+                if (cached.inUse) cached.reset();
+            }
+        }
+
+        // Each borrow gets its own proxy so a stale reference cannot reach the next borrower
+        Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+                    new Handle(this));
+        }
+    }
+
+    // Proxy behaviour for a borrowed connection: close() returns it to the pool
+    private final class Handle implements InvocationHandler {
+        private final PooledConnection owner;
+        // Set once by close(); read by any thread still holding the proxy
+        private final AtomicBoolean returned = new AtomicBoolean();
+
+        Handle(PooledConnection owner) {
+            this.owner = owner;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (returned.compareAndSet(false, true)) release(owner);
+                    return null;
+                case "isClosed":
+                    return returned.get() || owner.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + owner.physical + "]";
+                case "prepareStatement":
+                    if (statementCacheSize > 0 && !returned.get() && cacheable(args)) {
+                        return owner.prepare((String) args[0],
+                                args.length == 2 ? (Integer) args[1] : Statement.NO_GENERATED_KEYS);
+                    }
+                    return forward(method, args);   // Other overloads (result set type, column lists) are not cached
+                default:
+                    return forward(method, args);
+            }
+        }
+
+        private Object forward(Method method, Object[] args) throws Throwable {
+            if (returned.get()) throw new SQLException("Connection has been returned to the pool");
+            try {
+                return method.invoke(owner.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private boolean cacheable(Object[] args) {
+            return args.length == 1 || (args.length == 2 && args[1] instanceof Integer);
+        }
+    }
+
+    // A prepared statement owned by a physical connection; close() on its proxy keeps it open
+    private static final class CachedStatement implements InvocationHandler {
+        final PreparedStatement physical;
+        final PreparedStatement proxy;
+        // Written by the borrower; volatile so a stale proxy on another thread sees it closed
+        volatile boolean inUse;
+        // Settings as prepared, restored by reset() so one user's tuning does not leak into the next
+        private final int fetchSize;
+        private final int maxRows;
+        private final int queryTimeout;
+
+        CachedStatement(PreparedStatement physical) throws SQLException {
+            this.physical = physical;
+            this.fetchSize = physical.getFetchSize();
+            this.maxRows = physical.getMaxRows();
+            this.queryTimeout = physical.getQueryTimeout();
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(), new Class<?>[] { PreparedStatement.class }, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (inUse) reset();
+                    return null;
+                case "isClosed":
+                    return !inUse || physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + physical + "]";
+                default:
+                    if (!inUse) throw new SQLException("Statement has been closed");
+                    try {
+                        return method.invoke(physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+
+        // Make the statement look freshly prepared for its next user
+        void reset() {
+            inUse = false;
+            try {
+                ResultSet open = physical.getResultSet();
+                if (open != null) open.close();
+                physical.clearParameters();
+                physical.clearBatch();
+                physical.clearWarnings();
+                if (physical.getFetchSize() != fetchSize) physical.setFetchSize(fetchSize);
+                if (physical.getMaxRows() != maxRows) physical.setMaxRows(maxRows);
+                if (physical.getQueryTimeout() != queryTimeout) physical.setQueryTimeout(queryTimeout);
+            } catch (SQLException e) {
+                closeQuietly();   // Broken statement: the next prepare fails and the pool discards the connection
+            }
+        }
+
+        void closeQuietly() {
+            try {
+                physical.close();
+            } catch (SQLException ignored) {
+                // Statement is being discarded anyway
+            }
+        }
+    }
+
+    // Immutable view of pool statistics
+    public static final class PoolStats {
+        private final int total;
+        private final int idle;
+        private final int active;
+        private final int waiting;
+        private final long borrows;
+        private final long created;
+        private final long destroyed;
+        private final long timeouts;
+        private final long validationFailures;
+        private final long totalWaitNanos;
+        private final long statementHits;
+        private final long statementMisses;
+
+        PoolStats(int total, int idle, int active, int waiting, long borrows, long created,
+                  long destroyed, long timeouts, long validationFailures, long totalWaitNanos,
+                  long statementHits, long statementMisses) {
+            this.total = total;
+            this.idle = idle;
+            this.active = active;
+            this.waiting = waiting;
+            this.borrows = borrows;
+            this.created = created;
+            this.destroyed = destroyed;
+            this.timeouts = timeouts;
+            this.validationFailures = validationFailures;
+            this.totalWaitNanos = totalWaitNanos;
+            this.statementHits = statementHits;
+            this.statementMisses = statementMisses;
+        }
+
+        public int getTotal() { return total; }
+        public int getIdle() { return idle; }
+        public int getActive() { return active; }
+        public int getWaiting() { return waiting; }
+        public long getBorrows() { return borrows; }
+        public long getCreated() { return created; }
+        public long getDestroyed() { return destroyed; }
+        public long getTimeouts() { return timeouts; }
+        public long getValidationFailures() { return validationFailures; }
+        public long getStatementHits() { return statementHits; }
+        public long getStatementMisses() { return statementMisses; }
+        public double getAverageWaitMillis() {
+            return borrows == 0 ? 0.0 : totalWaitNanos / 1_000_000.0 / borrows;
+        }
+
+        @Override
+        public String toString() {
+            return "Pool: total=" + total + ", idle=" + idle + ", active=" + active +
+                   ", waiting=" + waiting + ", borrows=" + borrows + ", created=" + created +
+                   ", destroyed=" + destroyed + ", timeouts=" + timeouts +
+                   ", validationFailures=" + validationFailures +
+                   ", statementHits=" + statementHits + ", statementMisses=" + statementMisses +
+                   ", avgWaitMs=" + String.format("%.3f", getAverageWaitMillis());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,374 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+// Repeatable checks for ConnectionPool against an in-process stand-in JDBC driver (jdbc:standin:),
+// so no database is needed: background warm-up, borrow timeouts, validation and eviction of broken
+// connections, transaction clean-up on return, stale handles, idle eviction, statement-cache reuse
+// and the reset of cached statements.
+// The stand-in records what the pool did to each physical connection and lets a check break one.
+//
+//   java ConnectionPoolCheck        (exit status 1 if any check fails)
+public class ConnectionPoolCheck {
+    private static final String URL = "jdbc:standin:pool";
+    private static final String SQL = "SELECT * FROM books WHERE bookID = ?";
+
+    private static final StandInDriver driver = new StandInDriver();
+
+    public static void main(String[] args) throws SQLException {
+        DriverManager.registerDriver(driver);
+        CheckReport report = new CheckReport("ConnectionPoolCheck");
+
+        report.run("warms up to minSize in the background", () -> {
+            try (ConnectionPool pool = pool(2, 4, 200, 0)) {
+                awaitIdle(pool, 2);
+                CheckReport.expectEquals(2, driver.opened.size(), "physical connections");
+            }
+        });
+
+        report.run("borrow times out when the pool is exhausted", () -> {
+            try (ConnectionPool pool = pool(0, 2, 200, 0)) {
+                Connection a = pool.borrow();
+                Connection b = pool.borrow();
+                long start = System.nanoTime();
+                try {
+                    pool.borrow().close();
+                    throw new AssertionError("third borrow succeeded");
+                } catch (SQLException expected) {
+                    long waitedMillis = (System.nanoTime() - start) / 1_000_000;
+                    CheckReport.expect(waitedMillis >= 150 && waitedMillis < 2_000,
+                            "waited " + waitedMillis + " ms for a 200 ms timeout");
+                }
+                CheckReport.expectEquals(1L, pool.getStats().getTimeouts(), "timeouts");
+                a.close();
+                pool.borrow().close();   // A returned connection is lent again at once
+                b.close();
+                CheckReport.expectEquals(2, driver.opened.size(), "physical connections");
+            }
+        });
+
+        report.run("waiting borrower gets a returned connection", () -> {
+            try (ConnectionPool pool = pool(0, 1, 5_000, 0)) {
+                Connection held = pool.borrow();
+                Connection[] got = new Connection[1];
+                Thread waiter = new Thread(() -> {
+                    try {
+                        got[0] = pool.borrow();
+                    } catch (SQLException e) {
+                        System.out.println("Waiter failed: " + e.getMessage());
+                    }
+                });
+                waiter.start();
+                Thread.sleep(100);
+                held.close();
+                waiter.join(2_000);
+                CheckReport.expect(got[0] != null, "waiter did not get the returned connection");
+                got[0].close();
+                CheckReport.expectEquals(1, driver.opened.size(), "physical connections");
+            }
+        });
+
+        report.run("broken idle connection is replaced on borrow", () -> {
+            try (ConnectionPool pool = pool(0, 2, 200, 0)) {
+                pool.borrow().close();
+                StandInConnection first = driver.opened.get(0);
+                first.valid = false;                       // e.g. the server dropped it while idle
+                try (Connection conn = pool.borrow()) {
+                    CheckReport.expect(!conn.isClosed(), "borrowed connection is closed");
+                }
+                CheckReport.expect(first.closed, "broken connection was not closed");
+                CheckReport.expectEquals(2, driver.opened.size(), "physical connections");
+                CheckReport.expectEquals(1L, pool.getStats().getValidationFailures(), "validation failures");
+                CheckReport.expectEquals(1L, pool.getStats().getDestroyed(), "destroyed");
+            }
+        });
+
+        report.run("connection that died while borrowed is discarded", () -> {
+            try (ConnectionPool pool = pool(0, 2, 200, 0)) {
+                Connection conn = pool.borrow();
+                driver.opened.get(0).closed = true;
+                conn.close();
+                CheckReport.expectEquals(0, pool.getStats().getIdle(), "idle connections");
+                CheckReport.expectEquals(0, pool.getStats().getTotal(), "open connections");
+            }
+        });
+
+        report.run("open transaction is rolled back on return", () -> {
+            try (ConnectionPool pool = pool(0, 1, 200, 0)) {
+                Connection conn = pool.borrow();
+                conn.setAutoCommit(false);
+                conn.close();
+                StandInConnection physical = driver.opened.get(0);
+                CheckReport.expectEquals(1, physical.rollbacks, "rollbacks");
+                CheckReport.expect(physical.autoCommit, "auto-commit was not restored");
+            }
+        });
+
+        report.run("returned handle cannot reach the next borrower", () -> {
+            try (ConnectionPool pool = pool(0, 1, 200, 0)) {
+                Connection stale = pool.borrow();
+                stale.close();
+                try (Connection current = pool.borrow()) {
+                    CheckReport.expect(stale.isClosed() && !current.isClosed(), "handles share state");
+                    try {
+                        stale.setAutoCommit(false);
+                        throw new AssertionError("stale handle was usable");
+                    } catch (SQLException expected) {
+                        CheckReport.expect(driver.opened.get(0).autoCommit, "stale handle changed the connection");
+                    }
+                }
+            }
+        });
+
+        report.run("statement cache reuses prepared statements", () -> {
+            try (ConnectionPool pool = pool(0, 1, 200, 8)) {
+                for (int i = 0; i < 3; i++) {
+                    try (Connection conn = pool.borrow();
+                         PreparedStatement stmt = conn.prepareStatement(SQL)) {
+                        stmt.setInt(1, i);
+                    }
+                }
+                CheckReport.expectEquals(1, driver.prepares.get(), "statements prepared by the driver");
+                CheckReport.expectEquals(2L, pool.getStats().getStatementHits(), "cache hits");
+                CheckReport.expectEquals(1L, pool.getStats().getStatementMisses(), "cache misses");
+
+                try (Connection conn = pool.borrow();
+                     PreparedStatement first = conn.prepareStatement(SQL);
+                     PreparedStatement second = conn.prepareStatement(SQL)) {
+                    CheckReport.expect(first != second, "same statement handed out twice at once");
+                }
+                CheckReport.expectEquals(2, driver.prepares.get(), "statements prepared by the driver");
+            }
+        });
+
+        report.run("cached statement is reset for its next user", () -> {
+            try (ConnectionPool pool = pool(0, 1, 200, 8)) {
+                try (Connection conn = pool.borrow()) {
+                    PreparedStatement stmt = conn.prepareStatement(SQL);
+                    stmt.setFetchSize(500);
+                    stmt.setMaxRows(10);
+                    stmt.setQueryTimeout(7);
+                    stmt.addBatch();
+                    // Left open on purpose: returning the connection must reset it too
+                }
+                try (Connection conn = pool.borrow();
+                     PreparedStatement stmt = conn.prepareStatement(SQL)) {
+                    CheckReport.expectEquals(1, driver.prepares.get(), "statements prepared by the driver");
+                    CheckReport.expectEquals(0, stmt.getFetchSize(), "fetch size");
+                    CheckReport.expectEquals(0, stmt.getMaxRows(), "max rows");
+                    CheckReport.expectEquals(0, stmt.getQueryTimeout(), "query timeout");
+                    CheckReport.expectEquals(0, driver.statements.get(0).batched, "batched rows");
+                }
+            }
+        });
+
+        report.run("statement cache evicts beyond its size", () -> {
+            try (ConnectionPool pool = pool(0, 1, 200, 2)) {
+                try (Connection conn = pool.borrow()) {
+                    for (int i = 0; i < 3; i++) conn.prepareStatement(SQL + " -- " + i).close();
+                }
+                CheckReport.expect(driver.statements.get(0).closed, "least recently used statement still open");
+                CheckReport.expect(!driver.statements.get(2).closed, "newest statement was closed");
+            }
+        });
+
+        report.run("idle connections above minSize are evicted", () -> {
+            try (ConnectionPool pool = pool(1, 3, 200, 0, 100)) {
+                Connection a = pool.borrow(), b = pool.borrow(), c = pool.borrow();
+                a.close();
+                b.close();
+                c.close();
+                long deadline = System.currentTimeMillis() + 5_000;   // The evictor runs every second
+                while (pool.getStats().getTotal() > 1 && System.currentTimeMillis() < deadline) Thread.sleep(50);
+                CheckReport.expectEquals(1, pool.getStats().getTotal(), "open connections");
+            }
+        });
+
+        report.run("closed pool refuses to lend", () -> {
+            ConnectionPool pool = pool(0, 1, 200, 0);
+            Connection held = pool.borrow();
+            pool.close();
+            try {
+                pool.borrow().close();
+                throw new AssertionError("closed pool lent a connection");
+            } catch (SQLException expected) {
+                // As intended
+            }
+            held.close();   // Returned after close: destroyed rather than pooled
+            CheckReport.expect(driver.opened.get(0).closed, "connection returned after close() is still open");
+        });
+
+        DriverManager.deregisterDriver(driver);
+        System.exit(report.finish());
+    }
+
+    private static ConnectionPool pool(int min, int max, long borrowTimeoutMillis, int statementCache) {
+        return pool(min, max, borrowTimeoutMillis, statementCache, 60_000);
+    }
+
+    // A fresh pool on a fresh stand-in database
+    private static ConnectionPool pool(int min, int max, long borrowTimeoutMillis, int statementCache,
+                                       long idleTimeoutMillis) {
+        driver.reset();
+        return new ConnectionPool(URL, "user", "password", min, max, idleTimeoutMillis, borrowTimeoutMillis,
+                1, statementCache);
+    }
+
+    private static void awaitIdle(ConnectionPool pool, int idle) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2_000;
+        while (pool.getStats().getIdle() < idle && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        CheckReport.expectEquals(idle, pool.getStats().getIdle(), "idle connections");
+    }
+
+    /* ---------- Stand-in JDBC driver ---------- */
+
+    // Accepts jdbc:standin: URLs and hands out recording connections
+    private static final class StandInDriver implements Driver {
+        final List<StandInConnection> opened = Collections.synchronizedList(new ArrayList<>());
+        final List<StandInStatement> statements = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger prepares = new AtomicInteger();
+
+        void reset() {
+            opened.clear();
+            statements.clear();
+            prepares.set(0);
+        }
+
+        @Override
+        public Connection connect(String url, Properties info) {
+            if (!acceptsURL(url)) return null;
+            StandInConnection conn = new StandInConnection(this);
+            opened.add(conn);
+            return conn.proxy;
+        }
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return url.startsWith("jdbc:standin:");
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() { return 1; }
+
+        @Override
+        public int getMinorVersion() { return 0; }
+
+        @Override
+        public boolean jdbcCompliant() { return false; }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+    }
+
+    // A physical connection; checks flip valid/closed to simulate failures
+    private static final class StandInConnection implements InvocationHandler {
+        final StandInDriver driver;
+        final Connection proxy;
+        volatile boolean valid = true;
+        volatile boolean closed;
+        volatile boolean autoCommit = true;
+        volatile int rollbacks;
+
+        StandInConnection(StandInDriver driver) {
+            this.driver = driver;
+            this.proxy = (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws SQLException {
+            switch (method.getName()) {
+                case "close":          closed = true; return null;
+                case "isClosed":       return closed;
+                case "isValid":        return valid && !closed;
+                case "getAutoCommit":  return autoCommit;
+                case "setAutoCommit":  autoCommit = (Boolean) args[0]; return null;
+                case "rollback":       rollbacks++; return null;
+                case "equals":         return proxy == args[0];
+                case "hashCode":       return System.identityHashCode(proxy);
+                case "toString":       return "StandInConnection@" + System.identityHashCode(proxy);
+                case "prepareStatement": {
+                    if (closed) throw new SQLException("Connection is closed");
+                    driver.prepares.incrementAndGet();
+                    StandInStatement stmt = new StandInStatement();
+                    driver.statements.add(stmt);
+                    return stmt.proxy;
+                }
+                default:
+                    if (closed) throw new SQLException("Connection is closed");
+                    return defaultValue(method.getReturnType());
+            }
+        }
+    }
+
+    // A prepared statement that keeps the settings the pool must reset
+    private static final class StandInStatement implements InvocationHandler {
+        final PreparedStatement proxy;
+        int fetchSize;
+        int maxRows;
+        int queryTimeout;
+        int batched;
+        boolean closed;
+
+        StandInStatement() {
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(), new Class<?>[] { PreparedStatement.class }, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws SQLException {
+            String name = method.getName();
+            if (closed && !name.equals("isClosed") && !name.equals("close")) {
+                throw new SQLException("Statement is closed");
+            }
+            switch (name) {
+                case "close":           closed = true; return null;
+                case "isClosed":        return closed;
+                case "getFetchSize":    return fetchSize;
+                case "setFetchSize":    fetchSize = (Integer) args[0]; return null;
+                case "getMaxRows":      return maxRows;
+                case "setMaxRows":      maxRows = (Integer) args[0]; return null;
+                case "getQueryTimeout": return queryTimeout;
+                case "setQueryTimeout": queryTimeout = (Integer) args[0]; return null;
+                case "addBatch":        batched++; return null;
+                case "clearBatch":      batched = 0; return null;
+                case "equals":          return proxy == args[0];
+                case "hashCode":        return System.identityHashCode(proxy);
+                default:                return defaultValue(method.getReturnType());
+            }
+        }
+    }
+
+    // What an unrecorded JDBC call returns: nothing, zero or false
+    private static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) return null;
+        if (type == boolean.class) return false;
+        if (type == long.class) return 0L;
+        if (type == double.class) return 0.0;
+        if (type == float.class) return 0.0f;
+        if (type == short.class) return (short) 0;
+        if (type == byte.class) return (byte) 0;
+        if (type == char.class) return '\0';
+        return 0;
+    }
+}
@@ -1,22 +1,73 @@
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 // Class to manage MySQL database connection
+// Connections come from a shared ConnectionPool; closing them returns them to the pool.
+// Settings can be overridden with -Dbookstore.db.url=..., -Dbookstore.pool.max=..., etc.
 public class DatabaseConnection {
-    private static final String URL = "jdbc:mysql://localhost:3306/book_inventory_management";
-    private static final String USER = "root";
-    private static final String PASSWORD = "UC4+z7pRja";  
+    private static final String URL =
+            System.getProperty("bookstore.db.url",
+                    "jdbc:mysql://localhost:3306/book_inventory_management" +
+                    "?rewriteBatchedStatements=true" +  // Send JDBC batches as multi-row INSERTs
+                    "&useCursorFetch=true");            // Honour setFetchSize with server-side cursors
+    private static final String USER = System.getProperty("bookstore.db.user", "root");
+    private static final String PASSWORD = System.getProperty("bookstore.db.password", "UC4+z7pRja");
 
-    // Method to establish connection with MySQL
+    // Pool sizing and timeouts
+    private static final int POOL_MIN = Integer.getInteger("bookstore.pool.min", 2);
+    private static final int POOL_MAX = Integer.getInteger("bookstore.pool.max", 10);
+    private static final long POOL_IDLE_TIMEOUT_MS = Long.getLong("bookstore.pool.idleTimeoutMs", 300_000L);
+    private static final long POOL_BORROW_TIMEOUT_MS = Long.getLong("bookstore.pool.borrowTimeoutMs", 5_000L);
+    private static final int POOL_VALIDATION_TIMEOUT_S = Integer.getInteger("bookstore.pool.validationTimeoutS", 2);
+    private static final int POOL_STATEMENT_CACHE = Integer.getInteger("bookstore.pool.statementCache", 64);  // Per connection
+
+    private static volatile ConnectionPool pool;  // Created on first use
+
+    // Method to borrow a pooled connection to MySQL
     public static Connection getConnection() {
+        long timer = InventoryMetrics.CONNECTION_ACQUIRE.start();
+        boolean ok = false;
         try {
-            Connection conn = DriverManager.getConnection(URL, USER, PASSWORD);
-            System.out.println("Connected to MySQL database successfully!");
+            Connection conn = getPool().borrow();
+            ok = true;
             return conn;
         } catch (SQLException e) {
             System.out.println("Database connection failed: " + e.getMessage());
             return null;
+        } finally {
+            InventoryMetrics.CONNECTION_ACQUIRE.stop(timer, ok);
+        }
+    }
+
+    // Shared pool used by BookstoreInventory
+    public static ConnectionPool getPool() {
+        ConnectionPool p = pool;
+        if (p == null) {
+            synchronized (DatabaseConnection.class) {
+                p = pool;
+                if (p == null) {
+                    p = new ConnectionPool(URL, USER, PASSWORD, POOL_MIN, POOL_MAX,
+                            POOL_IDLE_TIMEOUT_MS, POOL_BORROW_TIMEOUT_MS, POOL_VALIDATION_TIMEOUT_S,
+                            POOL_STATEMENT_CACHE);
+                    pool = p;
+                }
+            }
+        }
+        return p;
+    }
+
+    // The shared pool if something has already used it, else null (for stats that must not open connections)
+    public static ConnectionPool getPoolIfCreated() {
+        return pool;
+    }
+
+    // Close all pooled connections (e.g. on application shutdown)
+    public static void shutdown() {
+        synchronized (DatabaseConnection.class) {
+            if (pool != null) {
+                pool.close();
+                pool = null;
+            }
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,597 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.stream.Stream;
+
+// InventoryRepository held entirely in memory, for tests, demos and load generation without MySQL.
+// Each book's stock and version live together in one AtomicLong (version in the high 32 bits, stock
+// in the low 32), so adjustStock is a lock-free compare-and-set just like the version check in the
+// JDBC repository. Writes that must look atomic together - a sale with its invoice, a stock count,
+// a delete - take one of LOCK_STRIPES locks chosen by bookID, which plays the part of the row lock;
+// writes that span several books take their stripes in ascending order, as the JDBC repository
+// locks rows in bookID order, so they cannot deadlock.
+// Nothing is persisted; close() simply drops the data.
+public class InMemoryInventoryRepository implements InventoryRepository {
+    private static final int LOCK_STRIPES = 64;
+    private static final long DELETED = -1L;   // State of a row that has been deleted
+
+    private final ConcurrentSkipListMap<Integer, Row> books = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<Integer, Invoice> invoices = new ConcurrentSkipListMap<>();
+    private final Map<Integer, ReorderRequest> reorders = new ConcurrentHashMap<>();
+    private final Set<String> saleKeys = ConcurrentHashMap.newKeySet();   // Keys of applied journaled sales
+    private final AtomicInteger nextBookID = new AtomicInteger();
+    private final AtomicInteger nextInvoiceID = new AtomicInteger();
+    private final AtomicInteger nextRequestID = new AtomicInteger();
+    private final AtomicInteger bookCount = new AtomicInteger();
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    // Everything about a book but its stock; replaced as a whole when the book is updated
+    private static final class Details {
+        final String title;
+        final String author;
+        final String genre;
+        final double price;
+
+        Details(Books book) {
+            this.title = book.getTitle();
+            this.author = book.getAuthor();
+            this.genre = book.getGenre();
+            this.price = book.getPrice();
+        }
+    }
+
+    // One book
+    private static final class Row {
+        final int bookID;
+        volatile Details details;
+        final AtomicLong state;   // version << 32 | stock, or DELETED
+        volatile long modifiedMillis;   // Like books.lastModified: set by every write
+
+        Row(int bookID, Books book) {
+            this.bookID = bookID;
+            this.details = new Details(book);
+            this.state = new AtomicLong(pack(0, book.getStockQuantity()));
+            this.modifiedMillis = System.currentTimeMillis();
+        }
+
+        Books toBooks(long s) {
+            Details d = details;
+            return new Books(bookID, d.title, d.author, d.genre, d.price, stock(s));
+        }
+
+        void touch() {
+            modifiedMillis = System.currentTimeMillis();
+        }
+    }
+
+    public InMemoryInventoryRepository() {
+        for (int i = 0; i < locks.length; i++) locks[i] = new ReentrantLock();
+    }
+
+    // Constructor - starts with a copy of the given books (bookIDs > 0 are kept, others are assigned)
+    public InMemoryInventoryRepository(Iterable<Books> initial) {
+        this();
+        for (Books book : initial) {
+            int id = book.getBookID() > 0 ? book.getBookID() : nextBookID.incrementAndGet();
+            nextBookID.accumulateAndGet(id, Math::max);
+            if (books.put(id, new Row(id, book)) == null) bookCount.incrementAndGet();
+        }
+    }
+
+    /* ---------- Books ---------- */
+
+    @Override
+    public Books findBook(int bookID) {
+        Row row = books.get(bookID);
+        if (row == null) return null;
+        long s = row.state.get();
+        return s == DELETED ? null : row.toBooks(s);
+    }
+
+    @Override
+    public List<Books> findBooksAfter(int afterBookID, int limit) {
+        List<Books> page = new ArrayList<>(Math.min(limit, 1024));
+        for (Row row : books.tailMap(afterBookID, false).values()) {
+            if (page.size() == limit) break;
+            long s = row.state.get();
+            if (s != DELETED) page.add(row.toBooks(s));
+        }
+        return page;
+    }
+
+    @Override
+    public Stream<Books> streamBooks() {
+        return books.values().stream()
+                .map(row -> {
+                    long s = row.state.get();
+                    return s == DELETED ? null : row.toBooks(s);
+                })
+                .filter(book -> book != null);
+    }
+
+    @Override
+    public int countBooks() {
+        return bookCount.get();
+    }
+
+    // A walk of the sorted key set, as OFFSET is a walk of the primary key index
+    @Override
+    public int idAt(int position) {
+        if (position < 0) return 0;
+        int i = 0;
+        for (int bookID : books.keySet()) {
+            if (i++ == position) return bookID;
+        }
+        return 0;
+    }
+
+    @Override
+    public void scanBookIDs(IntConsumer action) {
+        for (int bookID : books.keySet()) action.accept(bookID);
+    }
+
+    @Override
+    public long findBooksModifiedSince(long sinceMillis, Consumer<Books> action) {
+        List<Row> changed = new ArrayList<>();
+        for (Row row : books.values()) {
+            if (row.modifiedMillis >= sinceMillis) changed.add(row);
+        }
+        changed.sort(Comparator.comparingLong(row -> row.modifiedMillis));
+        long latest = 0;
+        for (Row row : changed) {
+            long modified = row.modifiedMillis;
+            long s = row.state.get();
+            if (s == DELETED) continue;
+            action.accept(row.toBooks(s));
+            latest = Math.max(latest, modified);
+        }
+        return latest;
+    }
+
+    @Override
+    public int insertBook(Books book) {
+        int id = nextBookID.incrementAndGet();
+        books.put(id, new Row(id, book));
+        bookCount.incrementAndGet();
+        return id;
+    }
+
+    @Override
+    public boolean deleteBook(int bookID) {
+        ReentrantLock lock = lockFor(bookID);
+        lock.lock();
+        try {
+            Row row = books.remove(bookID);
+            if (row == null) return false;
+            row.state.set(DELETED);   // A compare-and-set still holding the row now fails
+            bookCount.decrementAndGet();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Every book in the batch is locked for the whole batch, so nobody sees half of it
+    @Override
+    public void upsertBooks(List<Books> batch) {
+        List<Integer> ids = new ArrayList<>();
+        for (Books book : batch) {
+            if (book.getBookID() > 0) ids.add(book.getBookID());
+        }
+        int[] stripes = lockAll(ids);
+        try {
+            for (Books book : batch) {
+                int id = book.getBookID();
+                Row row = id > 0 ? books.get(id) : null;
+                if (row == null) {
+                    if (id <= 0) id = nextBookID.incrementAndGet();
+                    else nextBookID.accumulateAndGet(id, Math::max);
+                    books.put(id, new Row(id, book));
+                    bookCount.incrementAndGet();
+                    continue;
+                }
+                row.details = new Details(book);
+                long s;
+                do {
+                    s = row.state.get();
+                } while (!row.state.compareAndSet(s, pack(version(s) + 1, book.getStockQuantity())));
+                row.touch();
+            }
+        } finally {
+            unlockAll(stripes);
+        }
+    }
+
+    /* ---------- Stock ---------- */
+
+    @Override
+    public long setStock(int bookID, int newStock) {
+        ReentrantLock lock = lockFor(bookID);
+        lock.lock();
+        try {
+            Row row = books.get(bookID);
+            if (row == null) return -1;
+            while (true) {
+                long s = row.state.get();
+                if (s == DELETED) return -1;
+                long next = pack(version(s) + 1, newStock);
+                if (row.state.compareAndSet(s, next)) {
+                    row.touch();
+                    return version(next);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Lock-free: retried until the compare-and-set wins, so there is never a CONFLICT result
+    @Override
+    public StockAdjustResult adjustStock(int bookID, int delta) {
+        Row row = books.get(bookID);
+        if (row == null) return StockAdjustResult.notFound(bookID, delta);
+        int attempt = 0;
+        while (true) {
+            attempt++;
+            long s = row.state.get();
+            if (s == DELETED) return StockAdjustResult.notFound(bookID, delta);
+            long newStock = (long) stock(s) + delta;
+            if (newStock < 0) return StockAdjustResult.insufficientStock(bookID, delta, stock(s), version(s), attempt);
+            if (newStock > Integer.MAX_VALUE) throw new ArithmeticException("Stock overflow for Book ID " + bookID);
+            if (row.state.compareAndSet(s, pack(version(s) + 1, (int) newStock))) {
+                row.touch();
+                return StockAdjustResult.applied(bookID, delta, (int) newStock, nextVersion(s), attempt);
+            }
+        }
+    }
+
+    @Override
+    public Map<Integer, StockLevel> addStock(Map<Integer, Integer> quantities) {
+        Map<Integer, StockLevel> levels = new HashMap<>();
+        int[] stripes = lockAll(quantities.keySet());
+        try {
+            for (Map.Entry<Integer, Integer> e : quantities.entrySet()) {
+                Row row = books.get(e.getKey());
+                long s = row == null ? DELETED : addToStock(row, e.getValue());
+                if (s != DELETED) levels.put(e.getKey(), new StockLevel(stock(s), version(s)));
+            }
+        } finally {
+            unlockAll(stripes);
+        }
+        return levels;
+    }
+
+    /* ---------- Sales and invoices ---------- */
+
+    @Override
+    public Sale sell(int bookID, int quantity, long saleTimeMillis) {
+        ReentrantLock lock = lockFor(bookID);
+        lock.lock();
+        try {
+            Row row = books.get(bookID);
+            if (row == null) return Sale.rejected(SaleResult.notFound(bookID, quantity));
+            Details d = row.details;
+            long s;
+            do {
+                s = row.state.get();
+                if (s == DELETED) return Sale.rejected(SaleResult.notFound(bookID, quantity));
+                if (stock(s) < quantity) {
+                    return Sale.rejected(SaleResult.insufficientStock(bookID, d.title, quantity, stock(s)));
+                }
+            } while (!row.state.compareAndSet(s, pack(version(s) + 1, stock(s) - quantity)));   // adjustStock does not lock
+            row.touch();
+
+            double total = d.price * quantity;
+            int invoiceID = addInvoice(saleTimeMillis, bookID, d.title, quantity, total);
+            return new Sale(SaleResult.success(bookID, d.title, quantity, d.price, total, stock(s) - quantity),
+                    invoiceID, d.genre, nextVersion(s));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Sale[] sellGroup(int bookID, int[] quantities, long saleTimeMillis) {
+        Sale[] sales = new Sale[quantities.length];
+        ReentrantLock lock = lockFor(bookID);
+        lock.lock();
+        try {
+            Row row = books.get(bookID);
+            long s = row == null ? DELETED : row.state.get();
+            if (s == DELETED) {
+                for (int i = 0; i < quantities.length; i++) {
+                    sales[i] = Sale.rejected(SaleResult.notFound(bookID, quantities[i]));
+                }
+                return sales;
+            }
+            Details d = row.details;
+            int left;
+            int accepted;
+            do {   // adjustStock does not lock, so the group is decided against one snapshot of the state
+                s = row.state.get();
+                left = stock(s);
+                accepted = 0;
+                for (int qty : quantities) {
+                    if (qty <= left - accepted) accepted += qty;
+                }
+            } while (accepted > 0 && !row.state.compareAndSet(s, pack(version(s) + 1, left - accepted)));
+            if (accepted > 0) row.touch();
+            long written = nextVersion(s);
+
+            for (int i = 0; i < quantities.length; i++) {
+                int qty = quantities[i];
+                if (qty <= left) {
+                    left -= qty;
+                    double total = d.price * qty;
+                    int invoiceID = addInvoice(saleTimeMillis, bookID, d.title, qty, total);
+                    sales[i] = new Sale(SaleResult.success(bookID, d.title, qty, d.price, total, left),
+                            invoiceID, d.genre, written);
+                } else {
+                    sales[i] = Sale.rejected(SaleResult.insufficientStock(bookID, d.title, qty, left));
+                }
+            }
+            return sales;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Entries of different books cannot affect each other, so each book is decided and written on
+    // its own, the same way as sellGroup
+    @Override
+    public Sale[] applySales(List<SaleJournal.Entry> entries, String journalID) {
+        Sale[] sales = new Sale[entries.size()];
+        Map<Integer, List<Integer>> byBook = new LinkedHashMap<>();   // bookID -> entry indexes, in LSN order
+        for (int i = 0; i < entries.size(); i++) {
+            byBook.computeIfAbsent(entries.get(i).getBookID(), id -> new ArrayList<>()).add(i);
+        }
+        int[] stripes = lockAll(byBook.keySet());
+        try {
+            for (Map.Entry<Integer, List<Integer>> group : byBook.entrySet()) {
+                int bookID = group.getKey();
+                List<Integer> pending = new ArrayList<>();
+                for (int i : group.getValue()) {
+                    if (!saleKeys.contains(entries.get(i).key(journalID))) pending.add(i);   // Else applied before a crash
+                }
+                Row row = books.get(bookID);
+                long s = row == null ? DELETED : row.state.get();
+                if (s == DELETED) {
+                    for (int i : pending) sales[i] = Sale.rejected(SaleResult.notFound(bookID, entries.get(i).getQuantity()));
+                    continue;
+                }
+                Details d = row.details;
+                int left;
+                int accepted;
+                do {   // adjustStock does not lock, so the group is decided against one snapshot of the state
+                    s = row.state.get();
+                    left = stock(s);
+                    accepted = 0;
+                    for (int i : pending) {
+                        if (entries.get(i).getQuantity() <= left - accepted) accepted += entries.get(i).getQuantity();
+                    }
+                } while (accepted > 0 && !row.state.compareAndSet(s, pack(version(s) + 1, left - accepted)));
+                if (accepted > 0) row.touch();
+                long written = nextVersion(s);
+
+                for (int i : pending) {
+                    SaleJournal.Entry e = entries.get(i);
+                    int qty = e.getQuantity();
+                    if (qty <= left) {
+                        left -= qty;
+                        double total = e.getUnitPrice() * qty;
+                        int invoiceID = addInvoice(e.getTimeMillis(), bookID, d.title, qty, total);
+                        saleKeys.add(e.key(journalID));
+                        sales[i] = new Sale(SaleResult.success(bookID, d.title, qty, e.getUnitPrice(), total, left),
+                                invoiceID, d.genre, written);
+                    } else {
+                        sales[i] = Sale.rejected(SaleResult.insufficientStock(bookID, d.title, qty, left));
+                    }
+                }
+            }
+            return sales;
+        } finally {
+            unlockAll(stripes);
+        }
+    }
+
+    @Override
+    public List<Sale> checkoutBasket(SortedMap<Integer, Integer> basket, long saleTimeMillis) {
+        int[] stripes = lockAll(basket.keySet());
+        try {
+            /* ---------- Every book must exist ---------- */
+            for (Map.Entry<Integer, Integer> e : basket.entrySet()) {
+                Row row = books.get(e.getKey());
+                long s = row == null ? DELETED : row.state.get();
+                if (s == DELETED) {
+                    return List.of(Sale.rejected(SaleResult.notFound(e.getKey(), e.getValue())));
+                }
+            }
+
+            /* ---------- Take the stock in bookID order; put it back if any book is short ---------- */
+            Map<Integer, Long> taken = new HashMap<>();
+            for (Map.Entry<Integer, Integer> e : basket.entrySet()) {
+                Row row = books.get(e.getKey());
+                long s;
+                do {
+                    s = row.state.get();
+                    if (stock(s) < e.getValue()) {
+                        for (int bookID : taken.keySet()) addToStock(books.get(bookID), basket.get(bookID));
+                        return List.of(Sale.rejected(SaleResult.insufficientStock(e.getKey(), row.details.title,
+                                e.getValue(), stock(s))));
+                    }
+                } while (!row.state.compareAndSet(s, pack(version(s) + 1, stock(s) - e.getValue())));
+                taken.put(e.getKey(), s);
+            }
+
+            List<Sale> sales = new ArrayList<>(basket.size());
+            for (Map.Entry<Integer, Integer> e : basket.entrySet()) {
+                int bookID = e.getKey();
+                int qty = e.getValue();
+                Row row = books.get(bookID);
+                row.touch();
+                Details d = row.details;
+                double total = d.price * qty;
+                int invoiceID = addInvoice(saleTimeMillis, bookID, d.title, qty, total);
+                sales.add(new Sale(SaleResult.success(bookID, d.title, qty, d.price, total,
+                        stock(taken.get(bookID)) - qty), invoiceID, d.genre, nextVersion(taken.get(bookID))));
+            }
+            return sales;
+        } finally {
+            unlockAll(stripes);
+        }
+    }
+
+    @Override
+    public List<Invoice> findInvoicesAfter(int afterInvoiceID, int limit) {
+        List<Invoice> page = new ArrayList<>(Math.min(limit, 1024));
+        for (Invoice invoice : invoices.tailMap(afterInvoiceID, false).values()) {
+            if (page.size() == limit) break;
+            page.add(invoice);
+        }
+        return page;
+    }
+
+    @Override
+    public long maxInvoiceID() {
+        return invoices.isEmpty() ? 0 : invoices.lastKey();
+    }
+
+    @Override
+    public void scanInvoices(long fromID, long toID, BiConsumer<Invoice, String> action) {
+        int from = (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, fromID));
+        int to = (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, toID));
+        if (from >= to) return;
+        for (Invoice invoice : invoices.subMap(from, true, to, false).values()) {
+            Row row = books.get(invoice.getBookID());
+            action.accept(invoice, row == null ? null : row.details.genre);
+        }
+    }
+
+    /* ---------- Reorder requests ---------- */
+
+    @Override
+    public List<ReorderRequest> findOpenReorders() {
+        List<ReorderRequest> open = new ArrayList<>();
+        for (ReorderRequest r : reorders.values()) {
+            if (r.isPending() || r.isApproved()) open.add(copy(r, r.getStatus()));
+        }
+        return open;
+    }
+
+    // Stored as copies, so callers can keep changing their own objects
+    @Override
+    public void insertReorders(List<ReorderRequest> requests) {
+        for (ReorderRequest r : requests) {
+            r.setRequestID(nextRequestID.incrementAndGet());
+            reorders.put(r.getRequestID(), copy(r, r.getStatus()));
+        }
+    }
+
+    @Override
+    public int updateReorderStatus(List<Integer> requestIDs, String fromStatus, String toStatus) {
+        int changed = 0;
+        for (int requestID : requestIDs) {
+            boolean[] hit = new boolean[1];
+            reorders.computeIfPresent(requestID, (id, r) -> {
+                if (!r.getStatus().equals(fromStatus)) return r;
+                hit[0] = true;
+                return copy(r, toStatus);
+            });
+            if (hit[0]) changed++;
+        }
+        return changed;
+    }
+
+    @Override
+    public void close() {
+        books.clear();
+        invoices.clear();
+        reorders.clear();
+        saleKeys.clear();
+        bookCount.set(0);
+    }
+
+    // Add quantity to the row's stock; returns the new state, or DELETED if the row is gone.
+    // A compare-and-set loop, since adjustStock does not lock.
+    private static long addToStock(Row row, int quantity) {
+        while (true) {
+            long s = row.state.get();
+            if (s == DELETED) return DELETED;
+            long next = pack(version(s) + 1, Math.addExact(stock(s), quantity));
+            if (row.state.compareAndSet(s, next)) {
+                row.touch();
+                return next;
+            }
+        }
+    }
+
+    private int addInvoice(long saleTimeMillis, int bookID, String title, int quantity, double total) {
+        int invoiceID = nextInvoiceID.incrementAndGet();
+        invoices.put(invoiceID, new Invoice(invoiceID, new Date(saleTimeMillis), bookID, title, quantity, total));
+        return invoiceID;
+    }
+
+    private ReentrantLock lockFor(int bookID) {
+        return locks[stripe(bookID)];
+    }
+
+    private static int stripe(int bookID) {
+        return Math.floorMod(bookID, LOCK_STRIPES);
+    }
+
+    // Lock the stripes of all these books, each once and in ascending order; returns them for unlockAll
+    private int[] lockAll(Collection<Integer> bookIDs) {
+        int[] stripes = bookIDs.stream().mapToInt(InMemoryInventoryRepository::stripe).distinct().sorted().toArray();
+        for (int i = 0; i < stripes.length; i++) {
+            try {
+                locks[stripes[i]].lock();
+            } catch (RuntimeException | Error e) {
+                unlockAll(Arrays.copyOf(stripes, i));
+                throw e;
+            }
+        }
+        return stripes;
+    }
+
+    private void unlockAll(int[] stripes) {
+        for (int i = stripes.length - 1; i >= 0; i--) locks[stripes[i]].unlock();
+    }
+
+    private static ReorderRequest copy(ReorderRequest r, String status) {
+        return new ReorderRequest(r.getRequestID(), r.getBookID(), r.getBookTitle(), r.getQuantityRequested(),
+                r.getSupplierName(), status, r.getRequestDate());
+    }
+
+    private static long pack(long version, int stock) {
+        return (version & 0x7FFF_FFFFL) << 32 | (stock & 0xFFFF_FFFFL);   // Version wraps, never reaches DELETED
+    }
+
+    private static int stock(long state) {
+        return (int) state;
+    }
+
+    private static long version(long state) {
+        return state >>> 32;
+    }
+
+    // Version a write replacing this state is stored with
+    private static long nextVersion(long state) {
+        return version(pack(version(state) + 1, 0));
+    }
+}
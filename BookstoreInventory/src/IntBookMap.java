@@ -0,0 +1,257 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Open-addressing hash map from a primitive int bookID to a Books record.
+// Keys live in an int[] (no Integer boxing) and the map holds at most maxEntries
+// records: when full, an entry is evicted with the CLOCK (second-chance) policy,
+// so recently read books survive while cold ones are dropped.
+// Besides the record, every entry carries primitive bookkeeping for InventoryCache: the row
+// version of the stock level it holds, the stamp of the last write, flags, and a stock for
+// entries that have no record (a stock level committed for a book that was not cached).
+// Not thread-safe; InventoryCache guards it.
+public class IntBookMap {
+    private static final int FREE = 0;  // bookIDs are AUTO_INCREMENT, so 0 never occurs as a key
+
+    // Entry flags
+    public static final byte VERSIONED = 1;   // versionAt() holds the row version of the stock level
+    public static final byte DELETED = 2;     // The book was deleted; the entry has no record
+    public static final byte PUSHING = 4;     // A thread is pushing this book's stock to other views
+
+    private final int maxEntries;
+    private final int mask;
+    private final int[] keys;
+    private final Books[] values;
+    private final boolean[] referenced;  // CLOCK reference bits, set on every hit
+    private final long[] versions;
+    private final long[] stamps;
+    private final int[] stocks;          // Stock of entries without a record
+    private final byte[] flags;
+    private int size;
+    private int clockHand;
+    private long evictions;
+    private long maxEvictedStamp;        // Highest stamp of any entry dropped by eviction
+
+    // Constructor - sizes the table so it never exceeds a 50% load factor
+    public IntBookMap(int maxEntries) {
+        if (maxEntries <= 0) throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        this.maxEntries = maxEntries;
+        int capacity = Integer.highestOneBit(Math.max(2, maxEntries) * 2 - 1) << 1;
+        this.mask = capacity - 1;
+        this.keys = new int[capacity];
+        this.values = new Books[capacity];
+        this.referenced = new boolean[capacity];
+        this.versions = new long[capacity];
+        this.stamps = new long[capacity];
+        this.stocks = new int[capacity];
+        this.flags = new byte[capacity];
+    }
+
+    // Look up a book, marking it as recently used; returns null if absent or the entry has no record
+    public Books get(int bookID) {
+        int slot = find(bookID);
+        if (slot < 0) return null;
+        referenced[slot] = true;
+        return values[slot];
+    }
+
+    public boolean containsKey(int bookID) {
+        return find(bookID) >= 0;
+    }
+
+    // Insert or replace a book's record; returns true if another entry had to be evicted
+    public boolean put(int bookID, Books book) {
+        if (bookID == FREE) throw new IllegalArgumentException("bookID 0 cannot be cached");
+        int slot = find(bookID);
+        if (slot >= 0) {
+            values[slot] = book;
+            referenced[slot] = true;
+            return false;
+        }
+        boolean evicted = size == maxEntries;
+        slot = insert(bookID);
+        values[slot] = book;
+        return evicted;
+    }
+
+    // Remove a book; returns the removed record or null
+    public Books remove(int bookID) {
+        int slot = find(bookID);
+        if (slot < 0) return null;
+        Books old = values[slot];
+        deleteSlot(slot);
+        return old;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, FREE);
+        Arrays.fill(values, null);
+        Arrays.fill(referenced, false);
+        Arrays.fill(flags, (byte) 0);
+        size = 0;
+        clockHand = 0;
+    }
+
+    // Drop every entry whose stamp is at most the given one, except entries being pushed. With
+    // keepRecords false the survivors lose their records too and keep only their stock.
+    public void clearStampedUpTo(long stamp, boolean keepRecords) {
+        int kept = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (survives(i, stamp)) kept++;
+        }
+        if (kept == 0) {
+            clear();
+            return;
+        }
+        int[] k = new int[kept];
+        Books[] v = new Books[kept];
+        long[] ver = new long[kept], st = new long[kept];
+        int[] sto = new int[kept];
+        byte[] fl = new byte[kept];
+        int n = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (survives(i, stamp)) {
+                k[n] = keys[i]; v[n] = keepRecords ? values[i] : null; ver[n] = versions[i];
+                st[n] = stamps[i]; sto[n] = stockAt(i); fl[n] = flags[i];
+                n++;
+            }
+        }
+        clear();
+        for (int i = 0; i < kept; i++) {
+            int slot = insert(k[i]);
+            set(slot, v[i], sto[i], ver[i], st[i], fl[i]);
+        }
+    }
+
+    private boolean survives(int slot, long stamp) {
+        return keys[slot] != FREE && (stamps[slot] > stamp || (flags[slot] & PUSHING) != 0);
+    }
+
+    /* ---------- Slot access (valid until the next insert or removal) ---------- */
+
+    // Slot of a book, or -1 if absent (does not touch the CLOCK bit)
+    public int slotOf(int bookID) {
+        return bookID == FREE ? -1 : find(bookID);
+    }
+
+    // Add an empty entry for a book that is not in the map, evicting one if full; returns its slot
+    public int insert(int bookID) {
+        if (bookID == FREE) throw new IllegalArgumentException("bookID 0 cannot be cached");
+        if (size == maxEntries) evictOne();
+        int slot = indexFor(bookID);
+        while (keys[slot] != FREE) slot = (slot + 1) & mask;
+        keys[slot] = bookID;
+        values[slot] = null;
+        referenced[slot] = false;  // New entries must earn their second chance
+        versions[slot] = 0;
+        stamps[slot] = 0;
+        stocks[slot] = 0;
+        flags[slot] = 0;
+        size++;
+        return slot;
+    }
+
+    public void set(int slot, Books book, int stock, long version, long stamp, byte entryFlags) {
+        values[slot] = book;
+        stocks[slot] = stock;
+        versions[slot] = version;
+        stamps[slot] = stamp;
+        flags[slot] = entryFlags;
+    }
+
+    public Books valueAt(int slot) { return values[slot]; }
+    public long versionAt(int slot) { return versions[slot]; }
+    public long stampAt(int slot) { return stamps[slot]; }
+    public byte flagsAt(int slot) { return flags[slot]; }
+
+    // Stock held by an entry: the record's if it has one
+    public int stockAt(int slot) {
+        Books book = values[slot];
+        return book != null ? book.getStockQuantity() : stocks[slot];
+    }
+
+    public void setFlagsAt(int slot, byte entryFlags) { flags[slot] = entryFlags; }
+
+    public int size() { return size; }
+    public int maxEntries() { return maxEntries; }
+    public long evictions() { return evictions; }
+    public long maxEvictedStamp() { return maxEvictedStamp; }
+
+    // All cached records, in table order (entries without a record are skipped)
+    public List<Books> values() {
+        List<Books> list = new ArrayList<>(size);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE && values[i] != null) list.add(values[i]);
+        }
+        return list;
+    }
+
+    // True if some entry has neither a record nor a deletion behind it
+    public boolean hasStockOnlyEntries() {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE && values[i] == null && (flags[i] & DELETED) == 0) return true;
+        }
+        return false;
+    }
+
+    // Advance the clock hand until an entry without its reference bit is found, and drop it.
+    // Entries being pushed are passed over for two full sweeps so a push is not cut short.
+    private void evictOne() {
+        int passedOver = 0;
+        while (true) {
+            int slot = clockHand;
+            clockHand = (clockHand + 1) & mask;
+            if (keys[slot] == FREE) continue;
+            if (referenced[slot]) {
+                referenced[slot] = false;
+                continue;
+            }
+            if ((flags[slot] & PUSHING) != 0 && passedOver++ < 2 * keys.length) continue;
+            maxEvictedStamp = Math.max(maxEvictedStamp, stamps[slot]);
+            deleteSlot(slot);
+            evictions++;
+            return;
+        }
+    }
+
+    private int find(int bookID) {
+        int slot = indexFor(bookID);
+        while (true) {
+            int k = keys[slot];
+            if (k == bookID) return slot;
+            if (k == FREE) return -1;
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    // Backward-shift deletion keeps linear-probe chains intact without tombstones
+    private void deleteSlot(int slot) {
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (keys[next] != FREE) {
+            int home = indexFor(keys[next]);
+            // Move the entry into the gap if its home slot is not between gap and next (cyclically)
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                referenced[gap] = referenced[next];
+                versions[gap] = versions[next];
+                stamps[gap] = stamps[next];
+                stocks[gap] = stocks[next];
+                flags[gap] = flags[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = FREE;
+        values[gap] = null;
+        referenced[gap] = false;
+        flags[gap] = 0;
+        size--;
+    }
+
+    private int indexFor(int bookID) {
+        int h = bookID * 0x9E3779B9;  // Fibonacci hashing spreads sequential IDs
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
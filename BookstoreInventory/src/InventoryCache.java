@@ -0,0 +1,293 @@
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Write-through, size-bounded cache of book records used by BookstoreInventory.
+// Every successful write in BookstoreInventory updates or invalidates the matching entry
+// after commit, so price lookups and listings can be answered without a query.
+// A full listing is only served from memory while the cache is "complete", i.e. it was
+// loaded with the whole table and nothing has been evicted or invalidated in bulk since.
+// Cached Books objects are never mutated; treat the ones returned as read-only.
+//
+// Staleness is tracked per book. Every write stamps its entry from a write counter, and a write to
+// a book that is not cached leaves an entry behind without a record (its stock, or the fact that it
+// was deleted). A database read stamped before such a write keeps the newer stock, or is dropped for
+// a deleted book; reads of untouched books land as they are. An entry dropped by eviction or
+// invalidateAll() takes its stamp with it, so reads that began before that are not cached.
+//
+// Each entry also holds the row version of its stock level, so a level that commits late is not
+// applied over a newer one, and marks the one thread that pushes the book's levels to the other
+// in-memory views (see updateStock and stockPushed).
+public class InventoryCache {
+    private final IntBookMap books;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private boolean complete;  // True while the cache holds every row of the books table
+    private long writeStamp;   // Stamp of the latest write; entries carry the stamp of their last write
+    private long clearedStamp; // writeStamp at the last invalidateAll()
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder listingHits = new LongAdder();
+    private final LongAdder listingMisses = new LongAdder();
+
+    // Constructor - creates an empty cache holding at most maxBooks records
+    public InventoryCache(int maxBooks) {
+        this.books = new IntBookMap(maxBooks);
+    }
+
+    // Cached record for a book, or null on a miss
+    public Books get(int bookID) {
+        lock.readLock().lock();
+        try {
+            Books book = books.get(bookID);   // Only touches the CLOCK bit; benign under the read lock
+            if (book != null) hits.increment(); else misses.increment();
+            return book;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Every cached record sorted by bookID, or null if the cache does not hold the whole table
+    public List<Books> getAll() {
+        lock.readLock().lock();
+        try {
+            if (!complete) {
+                listingMisses.increment();
+                return null;
+            }
+            listingHits.increment();
+            List<Books> list = books.values();
+            list.sort(Comparator.comparingInt(Books::getBookID));
+            return list;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Stamp to capture before reading from the database; pass it to fill()/loadAll()
+    public long beginRead() {
+        lock.readLock().lock();
+        try {
+            return writeStamp;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Cache a record read from the database, keeping any write made to the book since beginRead()
+    public void fill(Books book, long stamp) {
+        lock.writeLock().lock();
+        try {
+            if (merge(book, stamp) == EVICTED) complete = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Store a record that was just written to the database (a new book starts at row version 0; a
+    // sale that committed on it before this call keeps its stock level)
+    public void put(Books book) {
+        lock.writeLock().lock();
+        try {
+            int slot = books.slotOf(book.getBookID());
+            byte flags = 0;
+            if (slot >= 0) {
+                flags = books.flagsAt(slot);
+            } else {
+                if (books.size() == books.maxEntries()) complete = false;
+                slot = books.insert(book.getBookID());
+            }
+            if ((flags & IntBookMap.VERSIONED) != 0 && (flags & IntBookMap.DELETED) == 0) {
+                int stock = books.stockAt(slot);
+                books.set(slot, withStock(book, stock), stock, books.versionAt(slot), ++writeStamp, flags);
+            } else {
+                books.set(slot, book, 0, 0, ++writeStamp,
+                        (byte) (IntBookMap.VERSIONED | (flags & IntBookMap.PUSHING)));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Bring the cache to a full table read; marks the cache complete if it all fits. Books written
+    // since beginRead() keep their newer state, so the load lands under concurrent sales.
+    public void loadAll(List<Books> all, long stamp) {
+        lock.writeLock().lock();
+        try {
+            books.clearStampedUpTo(stamp, true);   // Rows the read did not return were deleted
+            boolean missed = false;
+            for (Books book : all) {
+                missed |= merge(book, stamp) != MERGED;
+            }
+            complete = !missed && !books.hasStockOnlyEntries();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static final int MERGED = 0, SKIPPED = 1, EVICTED = 2;
+
+    // Fold a database read into the book's entry; the caller holds the write lock
+    private int merge(Books read, long stamp) {
+        int bookID = read.getBookID();
+        int slot = books.slotOf(bookID);
+        if (slot < 0) {
+            // A write to this book since the read may have gone with a dropped entry
+            if (Math.max(books.maxEvictedStamp(), clearedStamp) > stamp) return SKIPPED;
+            boolean full = books.size() == books.maxEntries();
+            books.put(bookID, read);
+            return full ? EVICTED : MERGED;
+        }
+        byte flags = books.flagsAt(slot);
+        if (books.stampAt(slot) <= stamp) {
+            // Nothing written since the read began, so the read is at least as new
+            books.set(slot, read, 0, books.versionAt(slot), books.stampAt(slot),
+                    (byte) (flags & ~IntBookMap.DELETED));
+        } else if ((flags & IntBookMap.DELETED) != 0) {
+            return SKIPPED;
+        } else if (books.valueAt(slot) == null) {
+            // Only the stock was written: complete the record with it
+            books.set(slot, withStock(read, books.stockAt(slot)), 0, books.versionAt(slot),
+                    books.stampAt(slot), flags);
+        }
+        books.get(bookID);   // Counts as a use for CLOCK
+        return MERGED;
+    }
+
+    // Apply a committed stock level unless the book already holds a newer one. Returns true if the
+    // caller must now push the level to the other views; it then calls stockPushed() until that
+    // returns null. While one thread pushes a book, later levels only update the entry and are
+    // picked up by that thread, so the views see each book's levels in version order.
+    public boolean updateStock(int bookID, int newStock, long version) {
+        lock.writeLock().lock();
+        try {
+            int slot = books.slotOf(bookID);
+            byte flags = 0;
+            if (slot >= 0) {
+                flags = books.flagsAt(slot);
+                if ((flags & IntBookMap.DELETED) != 0) return false;
+                if ((flags & IntBookMap.VERSIONED) != 0 && !isNewer(version, books.versionAt(slot))) return false;
+            } else {
+                if (books.size() == books.maxEntries()) complete = false;
+                slot = books.insert(bookID);
+            }
+            Books old = books.valueAt(slot);
+            books.set(slot, old == null ? null : withStock(old, newStock), newStock, version, ++writeStamp,
+                    (byte) (flags | IntBookMap.VERSIONED | IntBookMap.PUSHING));
+            return (flags & IntBookMap.PUSHING) == 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Called by the pushing thread after it pushed the level with the given version: returns a
+    // newer level to push next, or null once the views are current (the book is released)
+    public InventoryRepository.StockLevel stockPushed(int bookID, long version) {
+        lock.writeLock().lock();
+        try {
+            int slot = books.slotOf(bookID);
+            if (slot < 0) return null;
+            byte flags = books.flagsAt(slot);
+            if ((flags & IntBookMap.DELETED) == 0 && books.versionAt(slot) != version) {
+                return new InventoryRepository.StockLevel(books.stockAt(slot), books.versionAt(slot));
+            }
+            books.setFlagsAt(slot, (byte) (flags & ~IntBookMap.PUSHING));
+            return null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Release a book whose push failed part-way, so later levels are pushed again
+    public void abandonPush(int bookID) {
+        lock.writeLock().lock();
+        try {
+            int slot = books.slotOf(bookID);
+            if (slot >= 0) books.setFlagsAt(slot, (byte) (books.flagsAt(slot) & ~IntBookMap.PUSHING));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Versions of one book grow by one per write and wrap at 31 bits in InMemoryInventoryRepository;
+    // two levels of one book that commit out of order are never 2^30 writes apart
+    private static boolean isNewer(long version, long applied) {
+        long ahead = (version - applied) & 0x7FFF_FFFFL;
+        return ahead != 0 && ahead < 0x4000_0000L;
+    }
+
+    private static Books withStock(Books book, int stock) {
+        return new Books(book.getBookID(), book.getTitle(), book.getAuthor(),
+                book.getGenre(), book.getPrice(), stock);
+    }
+
+    // Drop a single record after a delete; the entry stays behind as a deletion so a read that
+    // began earlier cannot bring the book back
+    public void invalidate(int bookID) {
+        lock.writeLock().lock();
+        try {
+            int slot = books.slotOf(bookID);
+            byte pushing = 0;
+            if (slot >= 0) {
+                pushing = (byte) (books.flagsAt(slot) & IntBookMap.PUSHING);
+            } else {
+                if (books.size() == books.maxEntries()) complete = false;
+                slot = books.insert(bookID);
+            }
+            books.set(slot, null, 0, 0, ++writeStamp, (byte) (IntBookMap.DELETED | pushing));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Drop everything (e.g. after a bulk import that changed an unknown set of rows)
+    public void invalidateAll() {
+        lock.writeLock().lock();
+        try {
+            clearedStamp = ++writeStamp;
+            books.clearStampedUpTo(Long.MAX_VALUE, false);   // Books being pushed keep their stock
+            complete = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Statistics
+    public long getHits() { return hits.sum(); }
+    public long getMisses() { return misses.sum(); }
+    public long getListingHits() { return listingHits.sum(); }
+    public long getListingMisses() { return listingMisses.sum(); }
+    public int getMaxBooks() { return books.maxEntries(); }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return books.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getEvictions() {
+        lock.readLock().lock();
+        try {
+            return books.evictions();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public double getHitRatio() {
+        long h = getHits(), total = h + getMisses();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    @Override
+    public String toString() {
+        return "Cache: size=" + size() + "/" + getMaxBooks() + ", hits=" + getHits() +
+               ", misses=" + getMisses() + ", listingHits=" + getListingHits() +
+               ", listingMisses=" + getListingMisses() + ", evictions=" + getEvictions() +
+               String.format(", hitRatio=%.3f", getHitRatio());
+    }
+}
\ No newline at end of file
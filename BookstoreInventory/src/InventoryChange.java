@@ -0,0 +1,105 @@
+// One committed inventory change, as delivered to InventoryChangeBus subscribers.
+// Unlike InventoryEvent (a reused log slot) a change is immutable and may be held on to: every
+// subscriber receives the same instance. Fields that do not apply to a type are 0 or null.
+// Changes of one book committed on different threads can reach the bus in either order, so stock
+// changes carry the row version the level was written with: a subscriber that tracks stock keeps
+// the highest version it has applied per book and ignores changes with a lower one.
+public final class InventoryChange {
+
+    // Kinds of changes BookstoreInventory publishes after commit
+    public enum Type {
+        BOOK_ADDED,      // book = the new row
+        STOCK_CHANGED,   // stock = new level (updates, adjustments, shipments)
+        BOOK_DELETED,    // bookID only
+        SALE_COMMITTED   // quantity, total, stock = level left after the sale, invoiceID
+    }
+
+    private final Type type;
+    private final long timestampMillis;
+    private final int bookID;
+    private final int stock;
+    private final int quantity;
+    private final double total;
+    private final long invoiceID;
+    private final long version;
+    private final String title;
+    private final Books book;
+    long sequence;   // Position on the bus, set when published
+
+    private InventoryChange(Type type, int bookID, int stock, int quantity, double total,
+                            long invoiceID, long version, String title, Books book) {
+        this.type = type;
+        this.timestampMillis = System.currentTimeMillis();
+        this.bookID = bookID;
+        this.stock = stock;
+        this.quantity = quantity;
+        this.total = total;
+        this.invoiceID = invoiceID;
+        this.version = version;
+        this.title = title;
+        this.book = book;
+    }
+
+    // Static factory methods for each type
+    public static InventoryChange bookAdded(Books book) {
+        return new InventoryChange(Type.BOOK_ADDED, book.getBookID(), book.getStockQuantity(), 0, 0.0, 0, 0,
+                book.getTitle(), book);
+    }
+
+    public static InventoryChange stockChanged(int bookID, int newStock, long version) {
+        return new InventoryChange(Type.STOCK_CHANGED, bookID, newStock, 0, 0.0, 0, version, null, null);
+    }
+
+    public static InventoryChange bookDeleted(int bookID) {
+        return new InventoryChange(Type.BOOK_DELETED, bookID, 0, 0, 0.0, 0, 0, null, null);
+    }
+
+    public static InventoryChange saleCommitted(int bookID, String title, int quantity, double total,
+                                                int stockLeft, long invoiceID, long version) {
+        return new InventoryChange(Type.SALE_COMMITTED, bookID, stockLeft, quantity, total, invoiceID, version,
+                title, null);
+    }
+
+    // Getter methods
+    public Type getType() { return type; }
+    public long getSequence() { return sequence; }
+    public long getTimestampMillis() { return timestampMillis; }
+    public int getBookID() { return bookID; }
+    public int getQuantity() { return quantity; }
+    public double getTotal() { return total; }
+    public long getInvoiceID() { return invoiceID; }
+    public String getTitle() { return title; }
+    public Books getBook() { return book; }
+
+    // Stock level after the change (not meaningful for BOOK_DELETED)
+    public int getStock() { return stock; }
+
+    // Row version the stock level was written with (0 for BOOK_ADDED and BOOK_DELETED)
+    public long getVersion() { return version; }
+
+    // True for changes that leave a new stock level for the book
+    public boolean changesStock() {
+        return type != Type.BOOK_DELETED;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append('#').append(sequence).append(' ').append(type).append(" bookID=").append(bookID);
+        switch (type) {
+            case SALE_COMMITTED:
+                sb.append(" qty=").append(quantity).append(" total=").append(total).append(" stock=").append(stock)
+                        .append(" version=").append(version);
+                break;
+            case STOCK_CHANGED:
+                sb.append(" stock=").append(stock).append(" version=").append(version);
+                break;
+            case BOOK_ADDED:
+                sb.append(" stock=").append(stock).append(" title=\"").append(title).append('"');
+                break;
+            default:
+                break;
+        }
+        return sb.toString();
+    }
+}
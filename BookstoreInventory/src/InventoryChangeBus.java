@@ -0,0 +1,276 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// In-process bus for committed inventory changes (see BookstoreInventory.getChangeBus).
+// Producers claim a sequence in a bounded ring with a CAS and store the change - no lock, and no
+// work at all while nobody is subscribed. Every subscriber has its own thread and cursor into the
+// same ring, takes whatever has been published (up to its batch size) and gets it as one list, so
+// a burst of sales costs a consumer one call, not one per sale.
+//
+// Backpressure is chosen per subscriber:
+//   BLOCK  - the ring never overwrites a change this subscriber has not finished with; producers
+//            wait for it when the ring is full. For consumers that must see every change.
+//   RESYNC - producers never wait for this subscriber. If it falls a whole ring behind it skips to
+//            the newest change and is told how many it missed, so it can reload its state instead
+//            (the UI does this).
+public class InventoryChangeBus implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(InventoryChangeBus.class.getName());
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long IN_PROGRESS = -1L;   // published[] value while a slot is being rewritten
+
+    // What producers do about a subscriber that falls behind
+    public enum Backpressure { BLOCK, RESYNC }
+
+    // Receives changes on the subscription's own thread, in sequence order
+    public interface Listener {
+        void onChanges(List<InventoryChange> changes);
+
+        // RESYNC subscribers only: count changes were skipped, state built from deltas is stale
+        default void onMissed(long count) {
+        }
+    }
+
+    private final AtomicReferenceArray<InventoryChange> slots;
+    private final AtomicLongArray published;   // Sequence number last published into each slot
+    private final int capacity;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong();  // Next sequence to hand to a producer
+    private volatile long gate;                 // Lowest BLOCK cursor last seen by a producer
+    private volatile Subscription[] subscriptions = new Subscription[0];  // Copy-on-write
+    private volatile boolean closed;
+
+    private final LongAdder publishedCount = new LongAdder();
+    private final LongAdder blockedCount = new LongAdder();
+
+    // Constructor - capacity is the number of changes the ring holds (a power of two)
+    public InventoryChangeBus(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) published.set(i, IN_PROGRESS);
+    }
+
+    // True if anyone is listening; publishers can skip building changes otherwise
+    public boolean hasSubscribers() {
+        return subscriptions.length > 0;
+    }
+
+    // Publish a committed change to every subscriber; waits only while a BLOCK subscriber is a ring behind
+    public void publish(InventoryChange change) {
+        Subscription[] subs = subscriptions;
+        if (subs.length == 0 || closed) return;
+
+        long seq;
+        boolean waited = false;
+        while (true) {
+            seq = claimed.get();
+            if (seq - gate >= capacity) {
+                long lowest = lowestBlockingCursor(seq);
+                gate = lowest;
+                if (seq - lowest >= capacity) {          // Ring is full
+                    if (closed) return;
+                    if (!waited) {
+                        blockedCount.increment();
+                        waited = true;
+                    }
+                    wake(subscriptions);
+                    Thread.onSpinWait();
+                    continue;
+                }
+            }
+            if (claimed.compareAndSet(seq, seq + 1)) break;
+        }
+
+        int index = (int) (seq & mask);
+        change.sequence = seq;
+        published.set(index, IN_PROGRESS);   // A lapped RESYNC reader must not take the old change for this one
+        slots.set(index, change);
+        published.lazySet(index, seq);       // Release the slot to subscribers
+        publishedCount.increment();
+        wake(subs);
+    }
+
+    // Subscribe a listener; it receives changes published from now on, at most maxBatch per call
+    public synchronized Subscription subscribe(String name, Backpressure backpressure, int maxBatch,
+                                               Listener listener) {
+        if (maxBatch <= 0) throw new IllegalArgumentException("maxBatch must be positive: " + maxBatch);
+        if (closed) throw new IllegalStateException("Change bus is closed");
+        Subscription sub = new Subscription(name, backpressure, maxBatch, listener, claimed.get());
+        Subscription[] subs = Arrays.copyOf(subscriptions, subscriptions.length + 1);
+        subs[subs.length - 1] = sub;
+        subscriptions = subs;
+        sub.thread.start();
+        return sub;
+    }
+
+    private synchronized void unsubscribe(Subscription sub) {
+        List<Subscription> subs = new ArrayList<>(Arrays.asList(subscriptions));
+        subs.remove(sub);
+        subscriptions = subs.toArray(new Subscription[0]);
+    }
+
+    private long lowestBlockingCursor(long seq) {
+        long lowest = seq;
+        for (Subscription s : subscriptions) {
+            if (s.backpressure == Backpressure.BLOCK) lowest = Math.min(lowest, s.cursor);
+        }
+        return lowest;
+    }
+
+    private static void wake(Subscription[] subs) {
+        for (Subscription s : subs) {
+            if (s.parked) LockSupport.unpark(s.thread);
+        }
+    }
+
+    // Changes published since the bus was created
+    public long getPublishedCount() { return publishedCount.sum(); }
+
+    // Publishes that had to wait for a BLOCK subscriber
+    public long getBlockedCount() { return blockedCount.sum(); }
+
+    public int getCapacity() { return capacity; }
+
+    // Deliver what has been published and stop every subscription
+    @Override
+    public void close() {
+        closed = true;
+        for (Subscription s : subscriptions) s.close();
+    }
+
+    // One subscriber: its cursor, thread and counters
+    public final class Subscription implements AutoCloseable {
+        private final String name;
+        private final Backpressure backpressure;
+        private final int maxBatch;
+        private final Listener listener;
+        private final Thread thread;
+        private volatile long cursor;          // Next sequence to deliver
+        private volatile boolean parked;
+        private volatile boolean running = true;
+
+        private final LongAdder delivered = new LongAdder();
+        private final LongAdder batches = new LongAdder();
+        private final LongAdder missed = new LongAdder();
+
+        private Subscription(String name, Backpressure backpressure, int maxBatch, Listener listener, long start) {
+            this.name = name;
+            this.backpressure = backpressure;
+            this.maxBatch = maxBatch;
+            this.listener = listener;
+            this.cursor = start;
+            this.thread = new Thread(this::deliverLoop, "change-bus-" + name);
+            thread.setDaemon(true);
+        }
+
+        // Runs on the subscription thread: take contiguous published changes and hand them over in batches
+        private void deliverLoop() {
+            List<InventoryChange> batch = new ArrayList<>(Math.min(maxBatch, 1024));
+            while (true) {
+                long next = cursor;
+                long skipTo = -1;
+                while (batch.size() < maxBatch) {
+                    int index = (int) (next & mask);
+                    long seq = published.get(index);
+                    if (seq == next) {
+                        InventoryChange change = slots.get(index);
+                        if (published.get(index) == next) {   // Not overwritten while we read it
+                            batch.add(change);
+                            next++;
+                            continue;
+                        }
+                        seq = published.get(index);
+                    }
+                    if (backpressure == Backpressure.RESYNC && (seq > next || claimed.get() - next > capacity)) {
+                        skipTo = claimed.get();               // Lapped: resume at the newest change
+                    }
+                    break;
+                }
+
+                boolean progressed = !batch.isEmpty();
+                if (progressed) {
+                    deliver(batch);
+                    cursor = next;   // Only now may producers reuse these slots
+                    batch.clear();
+                }
+                if (skipTo >= 0) {
+                    long count = skipTo - next;
+                    missed.add(count);
+                    cursor = skipTo;
+                    try {
+                        listener.onMissed(count);
+                    } catch (RuntimeException e) {
+                        logger.log(Level.WARNING, "Change subscriber " + name + " failed: " + e.getMessage(), e);
+                    }
+                    continue;
+                }
+                if (progressed) continue;   // Look again before parking
+
+                if (!running) return;
+                parked = true;
+                int index = (int) (next & mask);
+                if (published.get(index) != next && running) LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                parked = false;
+            }
+        }
+
+        private void deliver(List<InventoryChange> batch) {
+            try {
+                listener.onChanges(batch.size() == 1 ? List.of(batch.get(0)) : List.copyOf(batch));
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "Change subscriber " + name + " failed: " + e.getMessage(), e);
+            }
+            delivered.add(batch.size());
+            batches.increment();
+        }
+
+        public String getName() { return name; }
+        public Backpressure getBackpressure() { return backpressure; }
+
+        // Changes delivered, calls to the listener, and changes skipped after falling behind
+        public long getDeliveredCount() { return delivered.sum(); }
+        public long getBatchCount() { return batches.sum(); }
+        public long getMissedCount() { return missed.sum(); }
+
+        // Changes published but not yet delivered
+        public long getLag() {
+            return Math.max(0, claimed.get() - cursor);
+        }
+
+        // Deliver what is already published, then stop; producers no longer wait for this subscriber
+        @Override
+        public void close() {
+            if (!running) return;
+            running = false;
+            LockSupport.unpark(thread);
+            if (Thread.currentThread() != thread) {
+                try {
+                    thread.join(TimeUnit.SECONDS.toMillis(5));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            unsubscribe(this);
+        }
+
+        @Override
+        public String toString() {
+            return "Subscription " + name + " (" + backpressure + "): delivered=" + getDeliveredCount() +
+                   ", batches=" + getBatchCount() + ", missed=" + getMissedCount() + ", lag=" + getLag();
+        }
+    }
+}
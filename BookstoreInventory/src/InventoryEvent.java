@@ -0,0 +1,59 @@
+// Structured record of one inventory change, as stored in the InventoryEventLog ring buffer.
+// Slots are preallocated and reused: producers fill in primitive fields (and at most a reference
+// to an existing title String), so logging an event builds no strings on the caller's thread.
+public class InventoryEvent {
+
+    // Kinds of events written to the inventory log
+    public enum Type {
+        SALE,           // bookID, quantity, amount = total price
+        STOCK_UPDATE,   // bookID, stock = new stock level
+        BOOK_ADDED,     // bookID, title, stock
+        BOOK_DELETED    // bookID
+    }
+
+    Type type;
+    long timestampMillis;
+    int bookID;
+    int quantity;
+    int stock;
+    double amount;
+    String title;
+
+    // Getter methods
+    public Type getType() { return type; }
+    public long getTimestampMillis() { return timestampMillis; }
+    public int getBookID() { return bookID; }
+    public int getQuantity() { return quantity; }
+    public int getStock() { return stock; }
+    public double getAmount() { return amount; }
+    public String getTitle() { return title; }
+
+    // Fill every field of a slot
+    void set(Type type, long timestampMillis, int bookID, int quantity, int stock, double amount, String title) {
+        this.type = type;
+        this.timestampMillis = timestampMillis;
+        this.bookID = bookID;
+        this.quantity = quantity;
+        this.stock = stock;
+        this.amount = amount;
+        this.title = title;
+    }
+
+    // Append this event as one key=value log line (called on the writer thread only)
+    void appendTo(StringBuilder sb) {
+        sb.append(type.name()).append(" bookID=").append(bookID);
+        switch (type) {
+            case SALE:
+                sb.append(" qty=").append(quantity).append(" total=").append(amount);
+                break;
+            case STOCK_UPDATE:
+                sb.append(" stock=").append(stock);
+                break;
+            case BOOK_ADDED:
+                sb.append(" stock=").append(stock).append(" title=\"").append(title).append('"');
+                break;
+            default:
+                break;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,256 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Asynchronous inventory event log.
+// Producers claim a slot in a bounded, preallocated ring buffer with a CAS, copy primitive fields
+// into it and return; a single background thread formats the events and writes them to the log
+// file, flushing once per drained batch. Callers never touch the disk.
+// When the ring is full the overflow policy decides: DROP discards the event and counts it,
+// BLOCK makes the producer wait for space.
+// If the log file cannot be opened the default log still starts, echoing events to the console only.
+//
+// Settings (system properties): bookstore.log.file, bookstore.log.capacity,
+// bookstore.log.overflow (DROP|BLOCK), bookstore.log.flushMs, bookstore.log.console (true|false).
+public class InventoryEventLog implements AutoCloseable {
+
+    // What to do when the ring buffer is full
+    public enum OverflowPolicy { DROP, BLOCK }
+
+    private static final DateTimeFormatter TIME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+    private static final int MAX_BATCH = 1024;  // Events written between flushes at most
+    private static final long MIN_PARK_NANOS = 1_000_000L;  // An idle writer sleeps at least 1 ms
+
+    private static volatile InventoryEventLog defaultLog;
+
+    private final InventoryEvent[] slots;
+    private final AtomicLongArray published;   // Sequence number last published into each slot
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong();  // Next sequence to hand to a producer
+    private volatile long consumed;                       // Next sequence the writer will read
+    private final OverflowPolicy overflowPolicy;
+    private final long flushIntervalNanos;
+    private final boolean echoToConsole;
+    private final Writer out;                // null = console only
+
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private volatile Thread writer;          // Set by start()
+    private volatile boolean writerParked;
+    private volatile boolean running = true;
+
+    // Constructor - opens (appends to) the log file; events are buffered until start()
+    public InventoryEventLog(String fileName, int capacity, OverflowPolicy overflowPolicy,
+                             long flushIntervalMillis, boolean echoToConsole) throws IOException {
+        this(openLogFile(fileName), capacity, overflowPolicy, flushIntervalMillis, echoToConsole);
+    }
+
+    // Log that writes to the console only, for when no log file can be opened
+    public static InventoryEventLog consoleOnly(int capacity, OverflowPolicy overflowPolicy, long flushIntervalMillis) {
+        return new InventoryEventLog((Writer) null, capacity, overflowPolicy, flushIntervalMillis, true);
+    }
+
+    private InventoryEventLog(Writer out, int capacity, OverflowPolicy overflowPolicy,
+                              long flushIntervalMillis, boolean echoToConsole) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        this.slots = new InventoryEvent[capacity];
+        for (int i = 0; i < capacity; i++) slots[i] = new InventoryEvent();
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) published.set(i, -1L);
+        this.mask = capacity - 1;
+        this.overflowPolicy = overflowPolicy;
+        this.flushIntervalNanos = Math.max(0, flushIntervalMillis) * 1_000_000L;
+        this.echoToConsole = echoToConsole;
+        this.out = out;
+    }
+
+    private static Writer openLogFile(String fileName) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(
+                Files.newOutputStream(Paths.get(fileName),
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE),
+                StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    // Start the writer thread (no-op if already started); returns this log
+    public synchronized InventoryEventLog start() {
+        if (writer == null) {
+            Thread t = new Thread(this::writeLoop, "inventory-event-log");
+            t.setDaemon(true);
+            writer = t;
+            t.start();
+        }
+        return this;
+    }
+
+    // Shared log used by BookstoreInventory, created on first use and drained on JVM exit
+    public static InventoryEventLog getDefault() {
+        InventoryEventLog log = defaultLog;
+        if (log == null) {
+            synchronized (InventoryEventLog.class) {
+                log = defaultLog;
+                if (log == null) {
+                    int capacity = Integer.getInteger("bookstore.log.capacity", 8192);
+                    OverflowPolicy policy = OverflowPolicy.valueOf(System.getProperty("bookstore.log.overflow", "DROP"));
+                    long flushMs = Long.getLong("bookstore.log.flushMs", 200L);
+                    try {
+                        log = new InventoryEventLog(System.getProperty("bookstore.log.file", "bookstore_logs.txt"),
+                                capacity, policy, flushMs, Boolean.getBoolean("bookstore.log.console")).start();
+                    } catch (IOException e) {
+                        System.out.println("Error opening event log file, logging to the console only: " + e.getMessage());
+                        log = consoleOnly(capacity, policy, flushMs).start();
+                    }
+                    InventoryEventLog created = log;
+                    Runtime.getRuntime().addShutdownHook(new Thread(created::close, "inventory-event-log-shutdown"));
+                    defaultLog = log;
+                }
+            }
+        }
+        return log;
+    }
+
+    // Structured event helpers - cheap enough to call on the sale path
+    public void logSale(int bookID, int quantity, double total) {
+        publish(InventoryEvent.Type.SALE, bookID, quantity, 0, total, null);
+    }
+
+    public void logStockUpdate(int bookID, int newStock) {
+        publish(InventoryEvent.Type.STOCK_UPDATE, bookID, 0, newStock, 0.0, null);
+    }
+
+    public void logBookAdded(int bookID, String title, int stock) {
+        publish(InventoryEvent.Type.BOOK_ADDED, bookID, 0, stock, 0.0, title);
+    }
+
+    public void logBookDeleted(int bookID) {
+        publish(InventoryEvent.Type.BOOK_DELETED, bookID, 0, 0, 0.0, null);
+    }
+
+    // Claim a slot, fill it and publish it; returns false if the event was dropped
+    private boolean publish(InventoryEvent.Type type, int bookID, int quantity, int stock,
+                            double amount, String title) {
+        if (!running) {
+            dropped.increment();
+            return false;
+        }
+        long seq;
+        while (true) {
+            seq = claimed.get();
+            if (seq - consumed >= slots.length) {        // Ring is full
+                if (!running || overflowPolicy == OverflowPolicy.DROP) {
+                    if (writerParked) LockSupport.unpark(writer);
+                    dropped.increment();
+                    return false;
+                }
+                LockSupport.unpark(writer);
+                Thread.onSpinWait();
+                continue;
+            }
+            if (claimed.compareAndSet(seq, seq + 1)) break;
+        }
+        int index = (int) (seq & mask);
+        slots[index].set(type, System.currentTimeMillis(), bookID, quantity, stock, amount, title);
+        published.lazySet(index, seq);                    // Release the slot to the writer
+        if (writerParked) LockSupport.unpark(writer);
+        return true;
+    }
+
+    // Writer thread: drain published events, format them, and flush once per batch
+    private void writeLoop() {
+        StringBuilder line = new StringBuilder(128);
+        long lastFlush = System.nanoTime();
+        boolean dirty = false;
+
+        while (running || consumed < claimed.get()) {
+            int batch = 0;
+            long next = consumed;
+            while (batch < MAX_BATCH && published.get((int) (next & mask)) == next) {
+                InventoryEvent event = slots[(int) (next & mask)];
+                line.setLength(0);
+                line.append(TIME_FORMAT.format(Instant.ofEpochMilli(event.timestampMillis))).append(' ');
+                event.appendTo(line);
+                event.title = null;                      // Do not pin titles in the ring
+                consumed = ++next;                       // Slot may now be reused by producers
+                line.append(System.lineSeparator());
+                if (out != null) {
+                    try {
+                        out.append(line);
+                    } catch (IOException e) {
+                        System.out.println("Error writing event log: " + e.getMessage());
+                    }
+                }
+                if (echoToConsole) System.out.print(line);
+                batch++;
+            }
+            written.add(batch);
+            dirty |= batch > 0;
+
+            long now = System.nanoTime();
+            if (dirty && (batch < MAX_BATCH || now - lastFlush >= flushIntervalNanos)) {
+                flush();
+                dirty = false;
+                lastFlush = now;
+            }
+
+            if (batch == 0) {
+                writerParked = true;
+                if (published.get((int) (consumed & mask)) != consumed && running) {
+                    LockSupport.parkNanos(this, Math.max(flushIntervalNanos, MIN_PARK_NANOS));
+                }
+                writerParked = false;
+            }
+        }
+        flush();
+    }
+
+    private void flush() {
+        if (out == null) return;
+        try {
+            out.flush();
+        } catch (IOException e) {
+            System.out.println("Error flushing event log: " + e.getMessage());
+        }
+    }
+
+    // Statistics
+    public long getDroppedCount() { return dropped.sum(); }
+    public long getWrittenCount() { return written.sum(); }
+    public long getPendingCount() { return claimed.get() - consumed; }
+    public OverflowPolicy getOverflowPolicy() { return overflowPolicy; }
+
+    // Stop accepting events, write out everything already queued and close the file
+    @Override
+    public void close() {
+        if (!running) return;
+        running = false;
+        Thread t = writer;
+        if (t != null) {
+            LockSupport.unpark(t);
+            try {
+                t.join(5_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (out == null) return;
+        try {
+            out.close();
+        } catch (IOException e) {
+            System.out.println("Error closing event log: " + e.getMessage());
+        }
+    }
+}
\ No newline at end of file
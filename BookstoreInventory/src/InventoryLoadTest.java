@@ -0,0 +1,120 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+// Load-test client for InventoryServer: simulates many POS terminals, each a virtual thread that
+// sends requests back to back (plus optional think time) for a fixed duration.
+// The mix is sales, single-book lookups and occasional listing pages over books 1..--books.
+// Reports throughput, latency percentiles and the count of each HTTP status.
+//
+//   java InventoryLoadTest --url=http://localhost:8080 --terminals=500 --seconds=30 --books=1000
+//
+// Options: --url=URL --terminals=N --seconds=N --books=N --sales=FRACTION --listing=FRACTION --thinkMs=N
+public class InventoryLoadTest {
+
+    public static void main(String[] args) throws InterruptedException {
+        String url = "http://localhost:8080";
+        int terminals = 200, seconds = 20, books = 1000, thinkMs = 0;
+        double salesShare = 0.3, listingShare = 0.05;
+
+        for (String arg : args) {
+            String[] kv = arg.split("=", 2);
+            switch (kv[0]) {
+                case "--url":       url = kv[1]; break;
+                case "--terminals": terminals = Integer.parseInt(kv[1]); break;
+                case "--seconds":   seconds = Integer.parseInt(kv[1]); break;
+                case "--books":     books = Integer.parseInt(kv[1]); break;
+                case "--sales":     salesShare = Double.parseDouble(kv[1]); break;
+                case "--listing":   listingShare = Double.parseDouble(kv[1]); break;
+                case "--thinkMs":   thinkMs = Integer.parseInt(kv[1]); break;
+                default:
+                    System.out.println("Unknown option: " + arg);
+                    return;
+            }
+        }
+
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        LatencyHistogram latency = new LatencyHistogram();
+        Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        LongAdder failures = new LongAdder();   // No response at all (connection refused, timeout...)
+        long endAt = System.nanoTime() + seconds * 1_000_000_000L;
+        CountDownLatch done = new CountDownLatch(terminals);
+
+        final String base = url;
+        final int bookCount = books, think = thinkMs;
+        final double sales = salesShare, listing = listingShare;
+        long begin = System.nanoTime();
+        try (ExecutorService terminalThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < terminals; i++) {
+                terminalThreads.execute(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    try {
+                        while (System.nanoTime() < endAt) {
+                            HttpRequest request = nextRequest(base, random, bookCount, sales, listing);
+                            long t0 = System.nanoTime();
+                            try {
+                                HttpResponse<Void> response =
+                                        client.send(request, HttpResponse.BodyHandlers.discarding());
+                                latency.record(System.nanoTime() - t0);
+                                statuses.computeIfAbsent(response.statusCode(), s -> new LongAdder()).increment();
+                            } catch (IOException e) {
+                                failures.increment();
+                            }
+                            if (think > 0) Thread.sleep(think);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            done.await();
+        }
+        double elapsed = (System.nanoTime() - begin) / 1e9;
+
+        System.out.printf(Locale.ROOT, "Terminals: %d, duration: %.1f s, requests: %d (%.1f req/s)%n",
+                terminals, elapsed, latency.getCount(), latency.getCount() / elapsed);
+        System.out.printf(Locale.ROOT, "Latency us  p50 %.1f  p90 %.1f  p99 %.1f  p999 %.1f  max %.1f%n",
+                latency.getPercentileNanos(50) / 1e3, latency.getPercentileNanos(90) / 1e3,
+                latency.getPercentileNanos(99) / 1e3, latency.getPercentileNanos(99.9) / 1e3,
+                latency.getMaxNanos() / 1e3);
+        Map<Integer, LongAdder> sorted = new TreeMap<>(statuses);
+        sorted.forEach((status, count) -> System.out.println("HTTP " + status + ": " + count.sum()));
+        System.out.println("No response: " + failures.sum());
+    }
+
+    // One request drawn from the operation mix
+    private static HttpRequest nextRequest(String base, ThreadLocalRandom random, int books,
+                                           double salesShare, double listingShare) {
+        int bookID = 1 + random.nextInt(books);
+        double pick = random.nextDouble();
+        HttpRequest.Builder builder = HttpRequest.newBuilder().timeout(Duration.ofSeconds(30));
+        if (pick < salesShare) {
+            String body = "{\"bookID\":" + bookID + ",\"quantity\":1}";
+            return builder.uri(URI.create(base + "/sales"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+        }
+        if (pick < salesShare + listingShare) {
+            return builder.uri(URI.create(base + "/books?after=" + random.nextInt(books) + "&limit=50")).GET().build();
+        }
+        return builder.uri(URI.create(base + "/books/" + bookID)).GET().build();
+    }
+}
@@ -0,0 +1,97 @@
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Per-operation metrics for the inventory system.
+// Each operation is registered with the platform MBean server as
+// bookstore:type=Operation,name=<operation>, so it can be watched in JConsole/VisualVM
+// or scraped by a JMX exporter. A periodic text snapshot can also be written to the log
+// (-Dbookstore.metrics.dumpSeconds=N, 0 = off).
+public final class InventoryMetrics {
+    private static final Logger logger = Logger.getLogger(InventoryMetrics.class.getName());
+
+    public static final OperationMetrics PROCESS_SALE = new OperationMetrics("processSale");
+    public static final OperationMetrics SALE_GROUP_FLUSH = new OperationMetrics("saleGroupFlush");
+    public static final OperationMetrics JOURNAL_SYNC = new OperationMetrics("journalSync");
+    public static final OperationMetrics JOURNAL_REPLAY = new OperationMetrics("journalReplay");
+    public static final OperationMetrics CHECKOUT = new OperationMetrics("checkout");
+    public static final OperationMetrics ADD_BOOK = new OperationMetrics("addBook");
+    public static final OperationMetrics ADD_BOOKS = new OperationMetrics("addBooks");
+    public static final OperationMetrics UPDATE_STOCK = new OperationMetrics("updateStock");
+    public static final OperationMetrics ADJUST_STOCK = new OperationMetrics("adjustStock");
+    public static final OperationMetrics RECEIVE_SHIPMENT = new OperationMetrics("receiveShipment");
+    public static final OperationMetrics DELETE_BOOK = new OperationMetrics("deleteBook");
+    public static final OperationMetrics GET_BOOK = new OperationMetrics("getBook");
+    public static final OperationMetrics GET_BOOKS_LIST = new OperationMetrics("getBooksList");
+    public static final OperationMetrics GET_BOOKS_PAGE = new OperationMetrics("getBooksPage");
+    public static final OperationMetrics STORE_SALE = new OperationMetrics("storeSale");
+    public static final OperationMetrics STORE_TRANSFER = new OperationMetrics("storeTransfer");
+    public static final OperationMetrics STORE_AVAILABILITY = new OperationMetrics("storeAvailability");
+    public static final OperationMetrics CONNECTION_ACQUIRE = new OperationMetrics("connectionAcquire");
+
+    private static final List<OperationMetrics> ALL = Arrays.asList(
+            PROCESS_SALE, SALE_GROUP_FLUSH, JOURNAL_SYNC, JOURNAL_REPLAY, CHECKOUT, ADD_BOOK, ADD_BOOKS,
+            UPDATE_STOCK, ADJUST_STOCK, RECEIVE_SHIPMENT, DELETE_BOOK, GET_BOOK, GET_BOOKS_LIST, GET_BOOKS_PAGE,
+            STORE_SALE, STORE_TRANSFER, STORE_AVAILABILITY, CONNECTION_ACQUIRE);
+
+    private static ScheduledExecutorService dumper;
+
+    static {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (OperationMetrics m : ALL) {
+            try {
+                ObjectName name = new ObjectName("bookstore:type=Operation,name=" + m.getOperation());
+                if (!server.isRegistered(name)) server.registerMBean(m, name);
+            } catch (JMException e) {
+                logger.log(Level.WARNING, "Could not register MBean for " + m.getOperation() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private InventoryMetrics() {
+    }
+
+    // Every registered operation
+    public static List<OperationMetrics> all() {
+        return ALL;
+    }
+
+    // Multi-line snapshot of every operation plus the connection pool, if one is open
+    public static String snapshot() {
+        StringBuilder sb = new StringBuilder("---- Inventory metrics ----");
+        for (OperationMetrics m : ALL) {
+            sb.append(System.lineSeparator()).append(m);
+        }
+        ConnectionPool pool = DatabaseConnection.getPoolIfCreated();  // In-memory backends never create one
+        if (pool != null) sb.append(System.lineSeparator()).append(pool.getStats());
+        return sb.toString();
+    }
+
+    // Start writing snapshot() to the log every periodSeconds (no-op if already running or period <= 0)
+    public static synchronized void startSnapshotDump(long periodSeconds) {
+        if (dumper != null || periodSeconds <= 0) return;
+        dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "inventory-metrics-dump");
+            t.setDaemon(true);
+            return t;
+        });
+        dumper.scheduleAtFixedRate(() -> logger.log(Level.INFO, snapshot()),
+                periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    // Stop the periodic snapshot
+    public static synchronized void stopSnapshotDump() {
+        if (dumper != null) {
+            dumper.shutdownNow();
+            dumper = null;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,165 @@
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.stream.Stream;
+
+// Storage behind BookstoreInventory: books, stock, sales with their invoices, and reorder requests.
+// BookstoreInventory keeps the caches, indexes, metrics and event log and calls the repository for
+// the data itself, so the same inventory runs on MySQL (JdbcInventoryRepository) or entirely in
+// memory (InMemoryInventoryRepository). Implementations must be safe for concurrent use, and every
+// write must be atomic: a sale either takes the stock and writes its invoice, or changes nothing.
+// Every read and write BookstoreInventory makes - bulk imports, shipments, baskets, group-committed
+// and journaled sales, snapshot refreshes and the analytics backfill included - goes through here.
+// InventoryRepositoryCheck runs the same conformance checks against each implementation.
+public interface InventoryRepository extends AutoCloseable {
+
+    /* ---------- Books ---------- */
+
+    // The book with this ID, or null if there is none
+    Books findBook(int bookID) throws SQLException;
+
+    // Up to limit books with an ID above afterBookID, in bookID order
+    List<Books> findBooksAfter(int afterBookID, int limit) throws SQLException;
+
+    // Every book in bookID order, read lazily; close the stream when done.
+    // Errors while reading are thrown as UncheckedSQLException.
+    Stream<Books> streamBooks();
+
+    int countBooks() throws SQLException;
+
+    // The bookID at a 0-based position of the bookID-ordered catalog, or 0 if out of range
+    int idAt(int position) throws SQLException;
+
+    // Every bookID, in no particular order (cheaper than streamBooks when only IDs are needed)
+    void scanBookIDs(IntConsumer action) throws SQLException;
+
+    // Hand every book changed (added, updated, restocked or sold) at or after sinceMillis to action, oldest
+    // change first. Returns the latest change time seen, or 0 if there was none.
+    long findBooksModifiedSince(long sinceMillis, Consumer<Books> action) throws SQLException;
+
+    // Store a new book (its bookID is ignored); returns the generated ID, or 0 if it is not known
+    int insertBook(Books book) throws SQLException;
+
+    // Returns false if there was no such book
+    boolean deleteBook(int bookID) throws SQLException;
+
+    // Insert or update a batch of books in one transaction: a book with bookID > 0 replaces the row
+    // with that ID (or is inserted under it), the others get generated IDs. Matching is by bookID
+    // only - there is no natural key - so a book without an ID is always a new row, even if the
+    // same title and author are already stored; pass explicit IDs to make a re-import idempotent.
+    // All or nothing; a batch the database rejects is rolled back and thrown as BatchUpdateException.
+    void upsertBooks(List<Books> batch) throws SQLException;
+
+    /* ---------- Stock ---------- */
+
+    // Overwrite the stock level; returns the row version it was written with, or -1 if there is no such book
+    long setStock(int bookID, int newStock) throws SQLException;
+
+    // Change the stock level by delta without going below zero; never returns an ERROR result,
+    // failures are thrown instead
+    StockAdjustResult adjustStock(int bookID, int delta) throws SQLException;
+
+    // Add each quantity (all > 0) to its book's stock in one transaction. Returns the new stock (and
+    // row version) of every book that was updated; unknown IDs are left out.
+    Map<Integer, StockLevel> addStock(Map<Integer, Integer> quantities) throws SQLException;
+
+    /* ---------- Sales and invoices ---------- */
+
+    // Sell quantity copies (quantity > 0) and record the invoice, atomically. The result is
+    // SUCCESS, NOT_FOUND or INSUFFICIENT_STOCK; failures are thrown.
+    Sale sell(int bookID, int quantity, long saleTimeMillis) throws SQLException;
+
+    // Several sales of one book (quantities all > 0) in one transaction, accepted in order while
+    // stock lasts. Returns one Sale per quantity; each result reports the stock left after the sales
+    // processed so far, so the last one holds the final level; all of them carry the version of that level.
+    Sale[] sellGroup(int bookID, int[] quantities, long saleTimeMillis) throws SQLException;
+
+    // Journaled sales in one transaction, in list (LSN) order while stock lasts, each at the unit
+    // price and time it was journaled with. An entry whose key(journalID) already has an invoice was
+    // applied before and gets null, so replaying a batch is harmless. Returns one Sale (or null) per entry.
+    Sale[] applySales(List<SaleJournal.Entry> entries, String journalID) throws SQLException;
+
+    // A basket (bookID -> quantity, all > 0) as one all-or-nothing transaction. Returns one Sale per
+    // book in bookID order; if any book is missing or short, nothing changes and the list holds only
+    // that book's rejected Sale.
+    List<Sale> checkoutBasket(SortedMap<Integer, Integer> basket, long saleTimeMillis) throws SQLException;
+
+    // Up to limit invoices with an ID above afterInvoiceID, in invoiceID order
+    List<Invoice> findInvoicesAfter(int afterInvoiceID, int limit) throws SQLException;
+
+    // Highest invoiceID so far, or 0 if there are no invoices
+    long maxInvoiceID() throws SQLException;
+
+    // Hand every invoice with fromID <= invoiceID < toID to action together with its book's genre
+    // (null if the book is gone). Called from several threads at once for disjoint ranges.
+    void scanInvoices(long fromID, long toID, BiConsumer<Invoice, String> action) throws SQLException;
+
+    // How many scanInvoices calls may usefully run at once without starving other callers
+    default int scanParallelism() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /* ---------- Reorder requests ---------- */
+
+    // Requests that are still Pending or Approved
+    List<ReorderRequest> findOpenReorders() throws SQLException;
+
+    // Store new requests in one transaction and assign their request IDs
+    void insertReorders(List<ReorderRequest> requests) throws SQLException;
+
+    // Move requests from one status to another; requests not in fromStatus are left alone.
+    // Returns the number of requests changed.
+    int updateReorderStatus(List<Integer> requestIDs, String fromStatus, String toStatus) throws SQLException;
+
+    // Release whatever the repository holds (connections, statements); no checked exception
+    @Override
+    void close();
+
+    // Outcome of one sale: the sale result plus what the caller needs for analytics and ordering
+    final class Sale {
+        private final SaleResult result;
+        private final long invoiceID;   // 0 unless the sale succeeded
+        private final String genre;     // null unless the sale succeeded
+        private final long version;     // Row version the remaining stock was written with; 0 unless the sale succeeded
+
+        Sale(SaleResult result, long invoiceID, String genre, long version) {
+            this.result = result;
+            this.invoiceID = invoiceID;
+            this.genre = genre;
+            this.version = version;
+        }
+
+        static Sale rejected(SaleResult result) {
+            return new Sale(result, 0, null, 0);
+        }
+
+        public SaleResult getResult() { return result; }
+        public long getInvoiceID() { return invoiceID; }
+        public String getGenre() { return genre; }
+        public long getVersion() { return version; }
+    }
+
+    // A stock level together with the row version it was written with. Commits of the same book can
+    // finish in any order; of two levels, the one with the higher version is the later one.
+    final class StockLevel {
+        private final int stock;
+        private final long version;
+
+        StockLevel(int stock, long version) {
+            this.stock = stock;
+            this.version = version;
+        }
+
+        public int getStock() { return stock; }
+        public long getVersion() { return version; }
+
+        @Override
+        public String toString() {
+            return stock + " (version " + version + ")";
+        }
+    }
+}
@@ -0,0 +1,360 @@
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// The same conformance checks for every InventoryRepository, so the in-memory repository cannot drift
+// from the JDBC one: oversell guards, all-or-nothing baskets, ordered group sales, idempotent
+// journaled sales, upserts, shipments, positions, modified-since reads, invoice scans and the row
+// versions returned with every stock write, plus a concurrent sale run that reports throughput and
+// checks that no copy is sold twice.
+// InMemoryInventoryRepository is always checked. Given a JDBC URL, JdbcInventoryRepository is checked
+// too: the books and invoices tables are created if missing and SchemaMigration is applied, and
+// every check empties both tables - point it at a scratch database (an H2 database in MySQL mode
+// will do), never at the shop's own.
+//
+//   java InventoryRepositoryCheck [jdbc-url [user password]]     (exit status 1 if any check fails)
+public class InventoryRepositoryCheck {
+    private static final int SELL_THREADS = 8;
+    private static final int SELLS_PER_THREAD = 500;
+    private static final int HOT_BOOKS = 4;
+
+    // Hands each check an empty repository
+    interface Backend {
+        InventoryRepository fresh() throws SQLException;
+    }
+
+    public static void main(String[] args) throws SQLException {
+        CheckReport report = new CheckReport("InventoryRepositoryCheck");
+        checkAll(report, "memory", InMemoryInventoryRepository::new);
+
+        if (args.length > 0) {
+            try (ConnectionPool pool = new ConnectionPool(args[0],
+                    args.length > 1 ? args[1] : "", args.length > 2 ? args[2] : "",
+                    0, SELL_THREADS + 2, 60_000L, 10_000L, 2, 32)) {
+                createSchema(pool);
+                checkAll(report, "jdbc", () -> {
+                    try (Connection conn = pool.borrow(); Statement stmt = conn.createStatement()) {
+                        stmt.execute("DELETE FROM invoices");
+                        stmt.execute("DELETE FROM books");
+                    }
+                    return new JdbcInventoryRepository(pool);
+                });
+            }
+        }
+        System.exit(report.finish());
+    }
+
+    private static void checkAll(CheckReport report, String name, Backend backend) {
+        String p = "[" + name + "] ";
+
+        report.run(p + "insert, find, count, idAt, scan and delete", () -> {
+            try (InventoryRepository repo = backend.fresh()) {
+                int a = repo.insertBook(book("A", 5));
+                int b = repo.insertBook(book("B", 7));
+                int c = repo.insertBook(book("C", 9));
+                CheckReport.expect(a > 0 && a < b && b < c, "generated IDs " + a + ", " + b + ", " + c);
+                CheckReport.expectEquals("B", repo.findBook(b).getTitle(), "title of B");
+                CheckReport.expectEquals(3, repo.countBooks(), "count");
+                CheckReport.expectEquals(b, repo.idAt(1), "ID at position 1");
+                CheckReport.expectEquals(0, repo.idAt(3), "ID past the end");
+                CheckReport.expect(repo.deleteBook(b), "delete B");
+                CheckReport.expect(!repo.deleteBook(b), "second delete of B reported a row");
+                CheckReport.expect(repo.findBook(b) == null, "B still found after delete");
+                CheckReport.expectEquals(c, repo.idAt(1), "ID at position 1 after delete");
+                List<Integer> ids = new ArrayList<>();
+                repo.scanBookIDs(ids::add);
+                ids.sort(null);
+                CheckReport.expectEquals(List.of(a, c), ids, "scanned IDs");
+            }
+        });
+
+        report.run(p + "upsertBooks inserts new and replaces existing", () -> {
+            try (InventoryRepository repo = backend.fresh()) {
+                int a = repo.insertBook(book("A", 5));
+                repo.upsertBooks(List.of(
+                        new Books(a, "A2", "Author", "Drama", 12.5, 8),
+                        book("New 1", 1),
+                        book("New 2", 2)));
+                Books replaced = repo.findBook(a);
+                CheckReport.expectEquals("A2", replaced.getTitle(), "replaced title");
+                CheckReport.expectEquals(12.5, replaced.getPrice(), "replaced price");
+                CheckReport.expectEquals(8, replaced.getStockQuantity(), "replaced stock");
+                CheckReport.expectEquals(3, repo.countBooks(), "count");
+                CheckReport.expect(repo.idAt(2) > a, "generated ID not above the existing one");
+            }
+        });
+
+        report.run(p + "addStock adds and skips unknown IDs", () -> {
+            try (InventoryRepository repo = backend.fresh()) {
+                int a = repo.insertBook(book("A", 5));
+                int b = repo.insertBook(book("B", 0));
+                Map<Integer, Integer> shipment = new TreeMap<>(Map.of(a, 3, b, 10, b + 1000, 4));
+                Map<Integer, InventoryRepository.StockLevel> levels = repo.addStock(shipment);
+                CheckReport.expectEquals(Set.of(a, b), levels.keySet(), "books updated");
+                CheckReport.expectEquals(8, levels.get(a).getStock(), "new level of A");
+                CheckReport.expectEquals(10, levels.get(b).getStock(), "new level of B");
+                CheckReport.expectEquals(8, repo.findBook(a).getStockQuantity(), "stock of A");
+
+                Map<Integer, Integer> large = new TreeMap<>();   // Several padded UPDATE chunks
+                for (int i = 0; i < 150; i++) large.put(repo.insertBook(book("L" + i, i)), 2);
+                Map<Integer, InventoryRepository.StockLevel> largeLevels = repo.addStock(large);
+                CheckReport.expectEquals(large.keySet(), largeLevels.keySet(), "books of the large shipment");
+                int last = ((TreeMap<Integer, Integer>) large).lastKey();
+                CheckReport.expectEquals(151, repo.findBook(last).getStockQuantity(), "stock of the last book");
+            }
+        });
+
+        report.run(p + "every stock write returns a higher row version", () -> {
+            try (InventoryRepository repo = backend.fresh()) {
+                int a = repo.insertBook(book("A", 20));
+                int b = repo.insertBook(book("B", 20));
+                long t = System.currentTimeMillis();
+                List<Long> versions = new ArrayList<>();
+                versions.add(repo.setStock(a, 30));
+                versions.add(repo.adjustStock(a, -1).getVersion());
+                versions.add(repo.addStock(Map.of(a, 1)).get(a).getVersion());
+                versions.add(repo.sell(a, 1, t).getVersion());
+                InventoryRepository.Sale[] group = repo.sellGroup(a, new int[] {1, 100, 2}, t);
+                CheckReport.expectEquals(group[0].getVersion(), group[2].getVersion(), "versions within a group");
+                versions.add(group[2].getVersion());
+                versions.add(repo.checkoutBasket(new TreeMap<>(Map.of(a, 1, b, 1)), t).get(0).getVersion());
+                versions.add(repo.applySales(List.of(new SaleJournal.Entry(1, t, a, 1, 1.0)), "v")[0].getVersion());
+                for (int i = 1; i < versions.size(); i++) {
+                    CheckReport.expect(versions.get(i) > versions.get(i - 1), "versions not increasing: " + versions);
+                }
+                CheckReport.expectEquals(-1L, repo.setStock(b + 1000, 1), "version for an unknown book");
+            }
+        });
+
+        report.run(p + "sell never oversells and writes one invoice", () -> {
+            try (InventoryRepository repo = backend.fresh()) {
+                int a = repo.insertBook(book("A", 3));
+                InventoryRepository.Sale sold = repo.sell(a, 2, System.currentTimeMillis());
+                CheckReport.expect(sold.getResult().isSuccess(), "sale of 2 of 3: " + sold.getResult());
+                CheckReport.expectEquals(1, sold.getResult().getRemainingStock(), "remaining");
+                CheckReport.expect(sold.getInvoiceID() > 0, "no invoice ID");
+                CheckReport.expectEquals("Fiction", sold.getGenre(), "genre");
+                InventoryRepository.Sale refused = repo.sell(a, 2, System.currentTimeMillis());
+                CheckReport.expectEquals(SaleResult.Status.INSUFFICIENT_STOCK, refused.getResult().getStatus(), "oversell");
+                CheckReport.expectEquals(SaleResult.Status.BOOK_NOT_FOUND,
+                        repo.sell(a + 1000, 1, System.currentTimeMillis()).getResult().getStatus(), "unknown book");
+                CheckReport.expectEquals(1, repo.findBook(a).getStockQuantity(), "stock");
+                CheckReport.expectEquals(1, invoiceCount(repo), "invoices");
+            }
+        });
+
+        report.run(p + "sellGroup accepts in order while stock lasts", () -> {
+            try (InventoryRepository repo = backend.fresh()) {
+                int a = repo.insertBook(book("A", 6));
+                InventoryRepository.Sale[] sales = repo.sellGroup(a, new int[] {3, 5, 2}, System.currentTimeMillis());
+                CheckReport.expect(sales[0].getResult().isSuccess(), "first: " + sales[0].getResult());
+                CheckReport.expectEquals(3, sales[0].getResult().getRemainingStock(), "left after first");
+                CheckReport.expectEquals(SaleResult.Status.INSUFFICIENT_STOCK, sales[1].getResult().getStatus(), "second");
+                CheckReport.expect(sales[2].getResult().isSuccess(), "third: " + sales[2].getResult());
+                CheckReport.expectEquals(1, sales[2].getResult().getRemainingStock(), "left after third");
+                CheckReport.expect(sales[0].getInvoiceID() > 0 && sales[2].getInvoiceID() > sales[0].getInvoiceID(),
+                        "invoice IDs " + sales[0].getInvoiceID() + ", " + sales[2].getInvoiceID());
+                CheckReport.expectEquals(1, repo.findBook(a).getStockQuantity(), "stock");
+                CheckReport.expectEquals(2, invoiceCount(repo), "invoices");
+                InventoryRepository.Sale[] missing = repo.sellGroup(a + 1000, new int[] {1, 1}, System.currentTimeMillis());
+                CheckReport.expectEquals(SaleResult.Status.BOOK_NOT_FOUND, missing[1].getResult().getStatus(), "unknown book");
+            }
+        });
+
+        report.run(p + "checkoutBasket is all or nothing", () -> {
+            try (InventoryRepository repo = backend.fresh()) {
+                int a = repo.insertBook(book("A", 5));
+                int b = repo.insertBook(book("B", 1));
+                List<InventoryRepository.Sale> refused = repo.checkoutBasket(
+                        new TreeMap<>(Map.of(a, 2, b, 2)), System.currentTimeMillis());
+                CheckReport.expectEquals(1, refused.size(), "rejected sales");
+                CheckReport.expectEquals(SaleResult.Status.INSUFFICIENT_STOCK, refused.get(0).getResult().getStatus(), "short book");
+                CheckReport.expectEquals(b, refused.get(0).getResult().getBookID(), "short book ID");
+                refused = repo.checkoutBasket(new TreeMap<>(Map.of(a, 1, b + 1000, 1)), System.currentTimeMillis());
+                CheckReport.expectEquals(SaleResult.Status.BOOK_NOT_FOUND, refused.get(0).getResult().getStatus(), "missing book");
+                CheckReport.expectEquals(5, repo.findBook(a).getStockQuantity(), "stock of A after rejections");
+                CheckReport.expectEquals(0, invoiceCount(repo), "invoices after rejections");
+
+                List<InventoryRepository.Sale> sold = repo.checkoutBasket(
+                        new TreeMap<>(Map.of(a, 2, b, 1)), System.currentTimeMillis());
+                CheckReport.expectEquals(2, sold.size(), "sales");
+                CheckReport.expectEquals(a, sold.get(0).getResult().getBookID(), "first book");
+                CheckReport.expectEquals(3, sold.get(0).getResult().getRemainingStock(), "left of A");
+                CheckReport.expectEquals(0, sold.get(1).getResult().getRemainingStock(), "left of B");
+                CheckReport.expect(sold.get(1).getInvoiceID() > sold.get(0).getInvoiceID(), "invoice IDs out of order");
+                CheckReport.expectEquals(2, invoiceCount(repo), "invoices");
+            }
+        });
+
+        report.run(p + "applySales applies a replayed batch once", () -> {
+            try (InventoryRepository repo = backend.fresh()) {
+                int a = repo.insertBook(book("A", 4));
+                int b = repo.insertBook(book("B", 1));
+                long t = System.currentTimeMillis();
+                List<SaleJournal.Entry> batch = List.of(
+                        new SaleJournal.Entry(1, t, a, 3, 2.0),
+                        new SaleJournal.Entry(2, t, b, 2, 2.0),
+                        new SaleJournal.Entry(3, t, a, 1, 2.0),
+                        new SaleJournal.Entry(4, t, b + 1000, 1, 2.0));
+                InventoryRepository.Sale[] first = repo.applySales(batch, "check");
+                CheckReport.expect(first[0].getResult().isSuccess() && first[2].getResult().isSuccess(), "sales of A");
+                CheckReport.expectEquals(0, first[2].getResult().getRemainingStock(), "left of A");
+                CheckReport.expectEquals(6.0, first[0].getResult().getTotalPrice(), "journaled unit price");
+                CheckReport.expectEquals(SaleResult.Status.INSUFFICIENT_STOCK, first[1].getResult().getStatus(), "sale of B");
+                CheckReport.expectEquals(SaleResult.Status.BOOK_NOT_FOUND, first[3].getResult().getStatus(), "unknown book");
+
+                InventoryRepository.Sale[] again = repo.applySales(batch, "check");
+                CheckReport.expect(again[0] == null && again[2] == null, "applied entries not skipped on replay");
+                CheckReport.expectEquals(0, repo.findBook(a).getStockQuantity(), "stock of A after replay");
+                CheckReport.expectEquals(2, invoiceCount(repo), "invoices after replay");
+                InventoryRepository.Sale[] other = repo.applySales(batch.subList(0, 1), "other");
+                CheckReport.expectEquals(SaleResult.Status.INSUFFICIENT_STOCK, other[0].getResult().getStatus(),
+                        "same LSN of another journal");
+            }
+        });
+
+        report.run(p + "applySales handles empty and multi-chunk batches", () -> {
+            try (InventoryRepository repo = backend.fresh()) {
+                CheckReport.expectEquals(0, repo.applySales(List.of(), "check").length, "empty batch");
+                List<Integer> ids = new ArrayList<>();
+                for (int i = 0; i < 200; i++) ids.add(repo.insertBook(book("B" + i, 2)));
+                long t = System.currentTimeMillis();
+                List<SaleJournal.Entry> batch = new ArrayList<>();
+                for (int i = 0; i < 301; i++) batch.add(new SaleJournal.Entry(i + 1, t, ids.get(i % ids.size()), 1, 1.0));
+                InventoryRepository.Sale[] sales = repo.applySales(batch, "chunks");
+                int sold = 0;
+                for (InventoryRepository.Sale sale : sales) if (sale != null && sale.getResult().isSuccess()) sold++;
+                CheckReport.expectEquals(301, sold, "sales applied");
+                CheckReport.expectEquals(0, repo.findBook(ids.get(0)).getStockQuantity(), "stock of the first book");
+                CheckReport.expectEquals(1, repo.findBook(ids.get(199)).getStockQuantity(), "stock of the last book");
+                InventoryRepository.Sale[] again = repo.applySales(batch, "chunks");
+                for (InventoryRepository.Sale sale : again) CheckReport.expect(sale == null, "entry not skipped on replay");
+                CheckReport.expectEquals(301, invoiceCount(repo), "invoices");
+            }
+        });
+
+        report.run(p + "findBooksModifiedSince returns only later changes", () -> {
+            try (InventoryRepository repo = backend.fresh()) {
+                int a = repo.insertBook(book("A", 5));
+                int b = repo.insertBook(book("B", 5));
+                Thread.sleep(50);
+                long since = System.currentTimeMillis();
+                Thread.sleep(10);
+                repo.setStock(b, 9);
+                List<Integer> changed = new ArrayList<>();
+                long latest = repo.findBooksModifiedSince(since, book -> changed.add(book.getBookID()));
+                CheckReport.expectEquals(List.of(b), changed, "changed books");
+                CheckReport.expect(latest >= since, "latest change " + latest + " before " + since);
+                CheckReport.expect(repo.findBooksModifiedSince(0, book -> { }) >= latest, "latest of a full read");
+                changed.clear();
+                repo.findBooksModifiedSince(0, book -> changed.add(book.getBookID()));
+                CheckReport.expect(changed.contains(a) && changed.contains(b), "full read " + changed);
+            }
+        });
+
+        report.run(p + "maxInvoiceID and scanInvoices cover every invoice", () -> {
+            try (InventoryRepository repo = backend.fresh()) {
+                CheckReport.expectEquals(0L, repo.maxInvoiceID(), "max of no invoices");
+                int a = repo.insertBook(book("A", 10));
+                int b = repo.insertBook(book("B", 10));
+                long first = repo.sell(a, 1, System.currentTimeMillis()).getInvoiceID();
+                repo.sell(b, 2, System.currentTimeMillis());
+                long last = repo.sell(a, 3, System.currentTimeMillis()).getInvoiceID();
+                repo.deleteBook(b);
+                CheckReport.expectEquals(last, repo.maxInvoiceID(), "max invoice ID");
+
+                Map<Integer, String> genres = new TreeMap<>();
+                int[] copies = new int[1];
+                repo.scanInvoices(first, last + 1, (invoice, genre) -> {
+                    genres.put(invoice.getBookID(), genre);
+                    copies[0] += invoice.getQuantity();
+                });
+                CheckReport.expectEquals(6, copies[0], "copies in the scan");
+                CheckReport.expectEquals("Fiction", genres.get(a), "genre of A");
+                CheckReport.expect(genres.containsKey(b) && genres.get(b) == null, "genre of deleted B: " + genres);
+                copies[0] = 0;
+                repo.scanInvoices(first, last, (invoice, genre) -> copies[0] += invoice.getQuantity());
+                CheckReport.expectEquals(3, copies[0], "copies below the last invoice");
+            }
+        });
+
+        report.run(p + "concurrent sales and baskets never oversell", () -> {
+            try (InventoryRepository repo = backend.fresh()) {
+                int initial = SELL_THREADS * SELLS_PER_THREAD / 2;   // Enough for about half the demand
+                int[] ids = new int[HOT_BOOKS];
+                for (int i = 0; i < HOT_BOOKS; i++) ids[i] = repo.insertBook(book("Hot " + i, initial));
+
+                AtomicInteger sold = new AtomicInteger();
+                ExecutorService threads = Executors.newFixedThreadPool(SELL_THREADS);
+                List<Future<?>> done = new ArrayList<>();
+                long start = System.nanoTime();
+                for (int t = 0; t < SELL_THREADS; t++) {
+                    int thread = t;
+                    done.add(threads.submit(() -> {
+                        for (int n = 0; n < SELLS_PER_THREAD; n++) {
+                            int id = ids[(thread + n) % HOT_BOOKS];
+                            if (n % 10 == 0) {   // A two-book basket, locked in the opposite order half the time
+                                int other = ids[(thread + n + 1) % HOT_BOOKS];
+                                List<InventoryRepository.Sale> sales = repo.checkoutBasket(
+                                        new TreeMap<>(Map.of(id, 1, other, 1)), System.currentTimeMillis());
+                                if (sales.get(0).getResult().isSuccess()) sold.addAndGet(2);
+                            } else if (repo.sell(id, 1, System.currentTimeMillis()).getResult().isSuccess()) {
+                                sold.incrementAndGet();
+                            }
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> f : done) f.get();
+                long nanos = System.nanoTime() - start;
+                threads.shutdown();
+                threads.awaitTermination(10, TimeUnit.SECONDS);
+
+                int left = 0;
+                for (int id : ids) {
+                    int stock = repo.findBook(id).getStockQuantity();
+                    CheckReport.expect(stock >= 0, "negative stock " + stock);
+                    left += stock;
+                }
+                CheckReport.expectEquals(HOT_BOOKS * initial - sold.get(), left, "stock left");
+                int copies = 0;
+                for (Invoice invoice : repo.findInvoicesAfter(0, Integer.MAX_VALUE)) copies += invoice.getQuantity();
+                CheckReport.expectEquals(sold.get(), copies, "copies invoiced");
+                System.out.printf("     %d sales and baskets on %d threads: %.0f ops/s%n",
+                        SELL_THREADS * SELLS_PER_THREAD, SELL_THREADS,
+                        SELL_THREADS * SELLS_PER_THREAD / (nanos / 1e9));
+            }
+        });
+    }
+
+    // Base tables as the application expects them before SchemaMigration, then the migration itself
+    private static void createSchema(ConnectionPool pool) throws SQLException {
+        try (Connection conn = pool.borrow(); Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS books (" +
+                    "bookID INT AUTO_INCREMENT PRIMARY KEY, title VARCHAR(255), author VARCHAR(255), " +
+                    "genre VARCHAR(255), price DOUBLE, stockQuantity INT)");
+            stmt.execute("CREATE TABLE IF NOT EXISTS invoices (" +
+                    "invoiceID INT AUTO_INCREMENT PRIMARY KEY, saleDate TIMESTAMP, bookID INT, " +
+                    "bookTitle VARCHAR(255), quantity INT, totalPrice DOUBLE)");
+            SchemaMigration.migrate(conn);
+        }
+    }
+
+    private static Books book(String title, int stock) {
+        return new Books(0, title, "Author", "Fiction", 10.0, stock);
+    }
+
+    private static int invoiceCount(InventoryRepository repo) throws SQLException {
+        return repo.findInvoicesAfter(0, Integer.MAX_VALUE).size();
+    }
+}
@@ -0,0 +1,529 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Embedded HTTP/JSON service so many POS terminals can share one inventory (and one small
+// connection pool) instead of each running its own JVM. Built on the JDK HTTP server with one
+// virtual thread per request: a request waiting on MySQL or on a pooled connection parks its
+// virtual thread instead of holding a platform thread, so hundreds of terminals need only as many
+// database connections as there are statements actually running.
+//
+// Endpoints:
+//   GET  /health                       server counters
+//   GET  /books?after=ID&limit=N       keyset-paged listing
+//   GET  /books/{id}                   lookup
+//   POST /books/{id}/stock  {"stock": N} (set) or {"delta": N} (adjust)
+//   POST /shipments         {"lines": [{"bookID": 1, "quantity": 20}, ...]}
+//   POST /sales             {"bookID": 1, "quantity": 2}  (202 when acknowledged by the sale journal)
+//   POST /checkout          {"lines": [{"bookID": 1, "quantity": 2}, ...]}
+//   GET  /books/{id}/availability      copies in every store (needs a StoreInventory)
+//   POST /stores/{id}/sales  {"bookID": 1, "quantity": 2}  sale from one store's stock
+//   POST /transfers          {"fromStore": 1, "toStore": 3, "bookID": 1, "quantity": 5}
+//
+// Backpressure: at most maxInFlight requests are processed at once; a request that cannot get a
+// slot within queueTimeoutMillis is answered 503 with Retry-After. shutdown() stops accepting,
+// lets in-flight requests finish within a grace period and then stops the executor.
+public class InventoryServer {
+    private static final Logger logger = Logger.getLogger(InventoryServer.class.getName());
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final int MAX_PAGE_SIZE = 500;
+
+    private final BookstoreInventory inventory;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final int maxInFlight;
+    private final Semaphore slots;
+    private final long queueTimeoutMillis;
+    private volatile boolean accepting = true;
+    private volatile StoreInventory stores;   // Per-store stock; null = store endpoints answer 404
+
+    private final LongAdder served = new LongAdder();
+    private final LongAdder rejected = new LongAdder();   // 503s from backpressure or shutdown
+
+    // Constructor - binds the port; call start() to begin serving
+    public InventoryServer(BookstoreInventory inventory, int port, int maxInFlight, long queueTimeoutMillis)
+            throws IOException {
+        if (maxInFlight <= 0) throw new IllegalArgumentException("maxInFlight must be positive");
+        this.inventory = inventory;
+        this.maxInFlight = maxInFlight;
+        this.slots = new Semaphore(maxInFlight);
+        this.queueTimeoutMillis = queueTimeoutMillis;
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    public void start() {
+        server.start();
+        logger.log(Level.INFO, "Inventory HTTP API listening on port " + getPort());
+    }
+
+    // Serve the per-store endpoints from this store inventory
+    public void setStoreInventory(StoreInventory stores) {
+        this.stores = stores;
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // Stop accepting, wait up to graceSeconds in total for in-flight requests, then stop the executor
+    public void shutdown(int graceSeconds) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(graceSeconds);
+        accepting = false;
+        server.stop(graceSeconds);   // Closes the listener and waits for open exchanges
+        executor.shutdown();
+        try {
+            long remaining = Math.max(0, deadline - System.nanoTime());
+            if (!executor.awaitTermination(remaining, TimeUnit.NANOSECONDS)) executor.shutdownNow();
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        logger.log(Level.INFO, "Inventory HTTP API stopped after serving " + served.sum() + " requests");
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!accepting || !acquireSlot()) {
+                rejected.increment();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                send(exchange, 503, error(accepting ? "Server busy" : "Server shutting down"));
+                return;
+            }
+            try {
+                route(exchange);
+            } catch (IllegalArgumentException e) {
+                send(exchange, 400, error(e.getMessage()));
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "Request failed: " + exchange.getRequestURI() + ": " + e);
+                send(exchange, 500, error("Internal error"));
+            } finally {
+                slots.release();
+                served.increment();
+            }
+        }
+    }
+
+    private boolean acquireSlot() {
+        try {
+            return slots.tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void route(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String[] path = exchange.getRequestURI().getPath().split("/");   // ["", "books", "7", "stock"]
+        String root = path.length > 1 ? path[1] : "";
+
+        if (method.equals("GET") && root.equals("health") && path.length == 2) {
+            health(exchange);
+        } else if (method.equals("GET") && root.equals("books") && path.length == 2) {
+            listBooks(exchange);
+        } else if (method.equals("GET") && root.equals("books") && path.length == 3) {
+            lookup(exchange, parseID(path[2]));
+        } else if (method.equals("POST") && root.equals("books") && path.length == 4 && path[3].equals("stock")) {
+            setStock(exchange, parseID(path[2]));
+        } else if (method.equals("GET") && root.equals("books") && path.length == 4 && path[3].equals("availability")) {
+            availability(exchange, parseID(path[2]));
+        } else if (method.equals("POST") && root.equals("stores") && path.length == 4 && path[3].equals("sales")) {
+            storeSale(exchange, parseInt(path[2], "store ID"));
+        } else if (method.equals("POST") && root.equals("transfers") && path.length == 2) {
+            transfer(exchange);
+        } else if (method.equals("POST") && root.equals("sales") && path.length == 2) {
+            sale(exchange);
+        } else if (method.equals("POST") && root.equals("checkout") && path.length == 2) {
+            checkout(exchange);
+        } else if (method.equals("POST") && root.equals("shipments") && path.length == 2) {
+            shipment(exchange);
+        } else {
+            send(exchange, 404, error("No such endpoint: " + method + " " + exchange.getRequestURI().getPath()));
+        }
+    }
+
+    /* ---------- Handlers ---------- */
+
+    private void health(HttpExchange exchange) throws IOException {
+        StringBuilder sb = new StringBuilder("{\"status\":\"UP\"");
+        sb.append(",\"served\":").append(served.sum());
+        sb.append(",\"rejected\":").append(rejected.sum());
+        sb.append(",\"inFlight\":").append(inFlight());
+        ConnectionPool pool = DatabaseConnection.getPoolIfCreated();
+        if (pool != null) {
+            sb.append(",\"pool\":");
+            Json.quote(sb, pool.getStats().toString());
+        }
+        send(exchange, 200, sb.append('}').toString());
+    }
+
+    private void listBooks(HttpExchange exchange) throws IOException {
+        int after = 0;
+        int limit = 50;
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query != null) {
+            for (String param : query.split("&")) {
+                String[] kv = param.split("=", 2);
+                if (kv.length < 2) continue;
+                if (kv[0].equals("after")) after = parseInt(kv[1], "after");
+                if (kv[0].equals("limit")) limit = parseInt(kv[1], "limit");
+            }
+        }
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        BooksPage page = inventory.getBooksPage(after, limit);   // UncheckedSQLException: logged, 500 in handle()
+        StringBuilder sb = new StringBuilder("{\"books\":[");
+        List<Books> books = page.getBooks();
+        for (int i = 0; i < books.size(); i++) {
+            if (i > 0) sb.append(',');
+            appendBook(sb, books.get(i));
+        }
+        sb.append("],\"nextCursor\":").append(page.getNextCursor());
+        sb.append(",\"hasMore\":").append(page.hasMore()).append('}');
+        send(exchange, 200, sb.toString());
+    }
+
+    private void lookup(HttpExchange exchange, int bookID) throws IOException {
+        Books book = inventory.getBook(bookID);
+        if (book == null) {
+            send(exchange, 404, error("Book ID " + bookID + " not found"));
+            return;
+        }
+        send(exchange, 200, appendBook(new StringBuilder(), book).toString());
+    }
+
+    private void setStock(HttpExchange exchange, int bookID) throws IOException {
+        Map<String, Object> body = Json.parseObject(readBody(exchange));
+        if (body.containsKey("delta")) {
+            adjustStock(exchange, bookID, Json.intField(body, "delta"));
+            return;
+        }
+        int stock = Json.intField(body, "stock");
+        if (stock < 0) throw new IllegalArgumentException("stock must not be negative");
+        if (inventory.getBook(bookID) == null) {
+            send(exchange, 404, error("Book ID " + bookID + " not found"));
+            return;
+        }
+        inventory.updateStock(bookID, stock);
+        lookup(exchange, bookID);
+    }
+
+    private void adjustStock(HttpExchange exchange, int bookID, int delta) throws IOException {
+        if (delta == 0) throw new IllegalArgumentException("delta must not be zero");
+        StockAdjustResult result = inventory.adjustStock(bookID, delta);
+        int status;
+        switch (result.getStatus()) {
+            case APPLIED:            status = 200; break;
+            case BOOK_NOT_FOUND:     status = 404; break;
+            case INSUFFICIENT_STOCK: status = 409; break;
+            case CONFLICT:           status = 409; break;
+            default:                 status = 500; break;
+        }
+        StringBuilder sb = new StringBuilder("{\"status\":\"").append(result.getStatus()).append('"');
+        sb.append(",\"bookID\":").append(bookID);
+        sb.append(",\"delta\":").append(delta);
+        sb.append(",\"stock\":").append(result.getNewStock());
+        sb.append(",\"version\":").append(result.getVersion());
+        sb.append(",\"attempts\":").append(result.getAttempts());
+        if (result.getMessage() != null) {
+            sb.append(",\"message\":");
+            Json.quote(sb, result.getMessage());
+        }
+        send(exchange, status, sb.append('}').toString());
+    }
+
+    private void shipment(HttpExchange exchange) throws IOException {
+        Map<Integer, Integer> quantities = new HashMap<>();
+        for (SaleLine line : parseLines(exchange)) {
+            if (line.getQuantity() <= 0) throw new IllegalArgumentException("Quantities must be positive");
+            quantities.merge(line.getBookID(), line.getQuantity(), Integer::sum);
+        }
+        Map<Integer, Integer> levels = inventory.receiveShipment(quantities);
+        StringBuilder sb = new StringBuilder("{\"updated\":{");
+        boolean first = true;
+        for (Map.Entry<Integer, Integer> e : new TreeMap<>(levels).entrySet()) {
+            if (!first) sb.append(',');
+            sb.append('"').append(e.getKey()).append("\":").append(e.getValue());
+            first = false;
+        }
+        sb.append("},\"unknown\":[");
+        first = true;
+        for (int bookID : new TreeMap<>(quantities).keySet()) {
+            if (levels.containsKey(bookID)) continue;
+            if (!first) sb.append(',');
+            sb.append(bookID);
+            first = false;
+        }
+        send(exchange, levels.isEmpty() ? 409 : 200, sb.append("]}").toString());
+    }
+
+    private void sale(HttpExchange exchange) throws IOException {
+        Map<String, Object> body = Json.parseObject(readBody(exchange));
+        SaleResult result = inventory.processSaleAsync(Json.intField(body, "bookID"),
+                                                       Json.intField(body, "quantity")).join();
+        int status;
+        switch (result.getStatus()) {
+            case SUCCESS:            status = 200; break;
+            case JOURNALED:          status = 202; break;
+            case BOOK_NOT_FOUND:     status = 404; break;
+            case INSUFFICIENT_STOCK: status = 409; break;
+            case INVALID_QUANTITY:   status = 400; break;
+            default:                 status = 500; break;
+        }
+        send(exchange, status, appendSaleResult(new StringBuilder(), result).toString());
+    }
+
+    private void checkout(HttpExchange exchange) throws IOException {
+        List<SaleLine> lines = parseLines(exchange);
+        List<Invoice> invoices = inventory.checkout(lines);
+        if (invoices.isEmpty()) {
+            send(exchange, 409, error("Checkout rejected: unknown book, insufficient stock or database error"));
+            return;
+        }
+        StringBuilder sb = new StringBuilder("{\"invoices\":[");
+        double total = 0;
+        for (int i = 0; i < invoices.size(); i++) {
+            Invoice inv = invoices.get(i);
+            if (i > 0) sb.append(',');
+            sb.append("{\"invoiceID\":").append(inv.getInvoiceID());
+            sb.append(",\"bookID\":").append(inv.getBookID());
+            sb.append(",\"title\":");
+            Json.quote(sb, inv.getBookTitle());
+            sb.append(",\"quantity\":").append(inv.getQuantity());
+            sb.append(",\"totalPrice\":").append(inv.getTotalPrice()).append('}');
+            total += inv.getTotalPrice();
+        }
+        sb.append("],\"total\":").append(total).append('}');
+        send(exchange, 200, sb.toString());
+    }
+
+    private void availability(HttpExchange exchange, int bookID) throws IOException {
+        StoreInventory stores = this.stores;
+        if (stores == null) {
+            send(exchange, 404, error("Store inventory not configured"));
+            return;
+        }
+        StoreAvailability a = stores.availability(bookID);
+        StringBuilder sb = new StringBuilder("{\"bookID\":").append(bookID);
+        sb.append(",\"total\":").append(a.getTotal());
+        sb.append(",\"stores\":{");
+        boolean first = true;
+        for (Map.Entry<Integer, Integer> e : a.getByStore().entrySet()) {
+            if (!first) sb.append(',');
+            sb.append('"').append(e.getKey()).append("\":").append(e.getValue());
+            first = false;
+        }
+        sb.append("},\"complete\":").append(a.isComplete());
+        sb.append(",\"unavailableShards\":[");
+        for (int i = 0; i < a.getUnavailableShards().size(); i++) {
+            if (i > 0) sb.append(',');
+            Json.quote(sb, a.getUnavailableShards().get(i));
+        }
+        send(exchange, 200, sb.append("]}").toString());
+    }
+
+    private void storeSale(HttpExchange exchange, int storeID) throws IOException {
+        StoreInventory stores = this.stores;
+        if (stores == null || !stores.getShardMap().hasStore(storeID)) {
+            send(exchange, 404, error("Store " + storeID + " not found"));
+            return;
+        }
+        Map<String, Object> body = Json.parseObject(readBody(exchange));
+        SaleResult result = stores.processStoreSale(storeID, Json.intField(body, "bookID"),
+                                                    Json.intField(body, "quantity"));
+        int status;
+        switch (result.getStatus()) {
+            case SUCCESS:            status = 200; break;
+            case BOOK_NOT_FOUND:     status = 404; break;
+            case INSUFFICIENT_STOCK: status = 409; break;
+            case INVALID_QUANTITY:   status = 400; break;
+            default:                 status = 500; break;
+        }
+        send(exchange, status, appendSaleResult(new StringBuilder(), result).toString());
+    }
+
+    private void transfer(HttpExchange exchange) throws IOException {
+        StoreInventory stores = this.stores;
+        if (stores == null) {
+            send(exchange, 404, error("Store inventory not configured"));
+            return;
+        }
+        Map<String, Object> body = Json.parseObject(readBody(exchange));
+        TransferResult result = stores.transfer(Json.intField(body, "fromStore"), Json.intField(body, "toStore"),
+                                                Json.intField(body, "bookID"), Json.intField(body, "quantity"));
+        int status;
+        switch (result.getStatus()) {
+            case COMPLETED:          status = 200; break;
+            case IN_TRANSIT:         status = 202; break;
+            case INSUFFICIENT_STOCK: status = 409; break;
+            case INVALID:            status = 400; break;
+            default:                 status = 500; break;
+        }
+        StringBuilder sb = new StringBuilder("{\"status\":\"").append(result.getStatus()).append('"');
+        if (result.getTransferID() != null) {
+            sb.append(",\"transferID\":");
+            Json.quote(sb, result.getTransferID());
+        }
+        sb.append(",\"fromStore\":").append(result.getFromStore());
+        sb.append(",\"toStore\":").append(result.getToStore());
+        sb.append(",\"bookID\":").append(result.getBookID());
+        sb.append(",\"quantity\":").append(result.getQuantity());
+        if (result.isAccepted() || result.getStatus() == TransferResult.Status.INSUFFICIENT_STOCK) {
+            sb.append(",\"sourceStock\":").append(result.getSourceStock());
+        }
+        if (result.getMessage() != null) {
+            sb.append(",\"message\":");
+            Json.quote(sb, result.getMessage());
+        }
+        send(exchange, status, sb.append('}').toString());
+    }
+
+    /* ---------- JSON and HTTP helpers ---------- */
+
+    // The "lines" array of a checkout or shipment body
+    private static List<SaleLine> parseLines(HttpExchange exchange) throws IOException {
+        Object linesValue = Json.parseObject(readBody(exchange)).get("lines");
+        if (!(linesValue instanceof List)) throw new IllegalArgumentException("Missing array field: lines");
+        List<SaleLine> lines = new ArrayList<>();
+        for (Object line : (List<?>) linesValue) {
+            if (!(line instanceof Map)) throw new IllegalArgumentException("Each line must be an object");
+            @SuppressWarnings("unchecked")
+            Map<String, Object> fields = (Map<String, Object>) line;
+            lines.add(new SaleLine(Json.intField(fields, "bookID"), Json.intField(fields, "quantity")));
+        }
+        if (lines.isEmpty()) throw new IllegalArgumentException("No lines given");
+        return lines;
+    }
+
+    private static StringBuilder appendBook(StringBuilder sb, Books book) {
+        sb.append("{\"bookID\":").append(book.getBookID());
+        sb.append(",\"title\":");
+        Json.quote(sb, book.getTitle());
+        sb.append(",\"author\":");
+        Json.quote(sb, book.getAuthor());
+        sb.append(",\"genre\":");
+        Json.quote(sb, book.getGenre());
+        sb.append(",\"price\":").append(book.getPrice());
+        sb.append(",\"stock\":").append(book.getStockQuantity());
+        return sb.append('}');
+    }
+
+    private static StringBuilder appendSaleResult(StringBuilder sb, SaleResult r) {
+        sb.append("{\"status\":\"").append(r.getStatus()).append('"');
+        sb.append(",\"bookID\":").append(r.getBookID());
+        sb.append(",\"title\":");
+        Json.quote(sb, r.getBookTitle());
+        sb.append(",\"quantity\":").append(r.getQuantity());
+        if (r.isAccepted()) {
+            sb.append(",\"unitPrice\":").append(r.getUnitPrice());
+            sb.append(",\"totalPrice\":").append(r.getTotalPrice());
+        }
+        if (r.isAccepted() || r.getStatus() == SaleResult.Status.INSUFFICIENT_STOCK) {
+            sb.append(",\"remainingStock\":").append(r.getRemainingStock());
+        }
+        if (r.getMessage() != null) {
+            sb.append(",\"message\":");
+            Json.quote(sb, r.getMessage());
+        }
+        return sb.append('}');
+    }
+
+    private static String error(String message) {
+        return Json.quote(new StringBuilder("{\"error\":"), message).append('}').toString();
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+                if (out.size() > MAX_BODY_BYTES) throw new IllegalArgumentException("Request body too large");
+            }
+            return out.toString(StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static int parseID(String segment) {
+        return parseInt(segment, "book ID");
+    }
+
+    private static int parseInt(String value, String name) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + value);
+        }
+    }
+
+    private int inFlight() {
+        return maxInFlight - slots.availablePermits();
+    }
+
+    // Run the service: -Dbookstore.http.port=8080 -Dbookstore.http.maxInFlight=256
+    // -Dbookstore.http.queueTimeoutMs=200 -Dbookstore.http.groupCommitMs=0 (>0 turns on sale aggregation)
+    // -Dbookstore.shards.file=shards.properties (per-store stock, see ShardMap)
+    public static void main(String[] args) throws IOException {
+        int port = Integer.getInteger("bookstore.http.port", 8080);
+        int maxInFlight = Integer.getInteger("bookstore.http.maxInFlight", 256);
+        long queueTimeout = Long.getLong("bookstore.http.queueTimeoutMs", 200L);
+        long groupCommitMs = Long.getLong("bookstore.http.groupCommitMs", 0L);
+        String journalDir = System.getProperty("bookstore.journal.dir");   // Unset = no sale journal
+        String shardsFile = System.getProperty("bookstore.shards.file");   // Unset = no store endpoints
+
+        BookstoreInventory inventory = new BookstoreInventory();
+        if (groupCommitMs > 0) inventory.enableSaleAggregation(groupCommitMs, 64, 4);
+        if (journalDir != null) inventory.enableSaleJournal(Paths.get(journalDir));
+
+        ShardMap shardMap = shardsFile != null ? ShardMap.load(Paths.get(shardsFile)) : null;
+        StoreInventory stores = shardMap != null ? new StoreInventory(inventory, shardMap).start() : null;
+
+        InventoryServer server = new InventoryServer(inventory, port, maxInFlight, queueTimeout);
+        server.setStoreInventory(stores);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.shutdown(10);
+            inventory.disableSaleJournal();
+            inventory.disableSaleAggregation();
+            if (stores != null) {
+                stores.close();
+                shardMap.close();
+            }
+            DatabaseConnection.shutdown();
+        }, "inventory-http-shutdown"));
+        server.start();
+    }
+}
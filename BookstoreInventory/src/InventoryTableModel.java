@@ -0,0 +1,239 @@
+import javax.swing.SwingWorker;               // Background page loading off the EDT
+import javax.swing.table.AbstractTableModel;  // Base class for the lazy table model
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Lazy, paged TableModel for the inventory JTable.
+// Only the pages the user actually scrolls to are fetched, each with a keyset query on a
+// background SwingWorker; the EDT never touches the database. Loaded pages are kept in a
+// small LRU, and single-book changes repaint only the affected row. Changes from the inventory's
+// change bus (see applyChanges) are patched into loaded pages without any query.
+// All methods must be called on the event dispatch thread.
+public class InventoryTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+
+    private static final String[] COLUMNS = { "Book ID", "Title", "Author", "Genre", "Price", "Stock" };
+    private static final Class<?>[] TYPES = { Integer.class, String.class, String.class, String.class,
+                                              Double.class, Integer.class };
+
+    private final transient BookstoreInventory inventory;
+    private final int pageSize;
+    private final int maxCachedPages;
+
+    private int rowCount;
+    private int generation;  // Bumped on refresh so results of older workers are discarded
+    private boolean counting; // A refresh is waiting for the row count
+
+    // Loaded pages, least recently used first
+    private final transient Map<Integer, List<Books>> pages;
+    // Known keyset cursors: page index -> bookID just before the page
+    private final transient Map<Integer, Integer> cursors = new HashMap<>();
+    // Pages with a worker in flight
+    private final transient Set<Integer> loading = new HashSet<>();
+    // Row versions applied from the change bus to loaded pages: page index -> version per row
+    // (0 = none yet). Older stock changes are ignored; dropped with the page.
+    private final transient Map<Integer, long[]> stockVersions = new HashMap<>();
+
+    // Constructor - the model starts empty; call refresh() to load the row count
+    public InventoryTableModel(BookstoreInventory inventory, int pageSize, int maxCachedPages) {
+        this.inventory = inventory;
+        this.pageSize = pageSize;
+        this.maxCachedPages = maxCachedPages;
+        this.pages = new LinkedHashMap<Integer, List<Books>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<Books>> eldest) {
+                if (size() <= InventoryTableModel.this.maxCachedPages) return false;
+                stockVersions.remove(eldest.getKey());
+                return true;
+            }
+        };
+    }
+
+    @Override
+    public int getRowCount() { return rowCount; }
+
+    @Override
+    public int getColumnCount() { return COLUMNS.length; }
+
+    @Override
+    public String getColumnName(int column) { return COLUMNS[column]; }
+
+    @Override
+    public Class<?> getColumnClass(int column) { return TYPES[column]; }
+
+    // Returns the cell if its page is loaded; otherwise schedules the page and shows a placeholder
+    @Override
+    public Object getValueAt(int row, int column) {
+        int pageIndex = row / pageSize;
+        List<Books> page = pages.get(pageIndex);
+        if (page == null) {
+            loadPage(pageIndex);
+            return column == 1 ? "Loading..." : null;
+        }
+        int offset = row % pageSize;
+        if (offset >= page.size()) return null;  // Rows shifted by a concurrent delete
+        Books b = page.get(offset);
+        switch (column) {
+            case 0: return b.getBookID();
+            case 1: return b.getTitle();
+            case 2: return b.getAuthor();
+            case 3: return b.getGenre();
+            case 4: return b.getPrice();
+            default: return b.getStockQuantity();
+        }
+    }
+
+    // Re-read the row count and drop all loaded pages (after books are added or deleted)
+    public void refresh() {
+        final int gen = ++generation;
+        pages.clear();
+        stockVersions.clear();
+        cursors.clear();
+        loading.clear();
+        counting = true;
+        new SwingWorker<Integer, Void>() {
+            @Override
+            protected Integer doInBackground() {
+                return inventory.countBooks();
+            }
+
+            @Override
+            protected void done() {
+                if (gen != generation) return;
+                counting = false;
+                try {
+                    rowCount = get();
+                } catch (Exception e) {
+                    System.out.println("Error refreshing inventory table: " + e.getMessage());
+                    rowCount = 0;
+                }
+                fireTableDataChanged();
+            }
+        }.execute();
+    }
+
+    // Apply committed changes from the change bus without re-reading the database
+    // Stock levels are patched into loaded pages (unless a later version of the book's level has been
+    // applied already) and new books (always the highest IDs) are appended; a deletion shifts every
+    // later row, so it reloads the table - once per batch.
+    public void applyChanges(List<InventoryChange> changes) {
+        boolean reload = false;
+        for (InventoryChange change : changes) {
+            switch (change.getType()) {
+                case STOCK_CHANGED:
+                case SALE_COMMITTED:
+                    updateStock(change.getBookID(), change.getStock(), change.getVersion());
+                    break;
+                case BOOK_DELETED:
+                    reload = true;
+                    break;
+                case BOOK_ADDED:
+                    reload |= !appendRow(change.getBook());
+                    break;
+                default:
+                    reload = true;
+                    break;
+            }
+        }
+        if (reload) refresh();
+    }
+
+    // Swap in a fresh copy of a book if its page is loaded, and repaint that row
+    private void replaceRow(Books updated) {
+        int row = locate(updated.getBookID());
+        if (row < 0) return;
+        pages.get(row / pageSize).set(row % pageSize, updated);
+        fireTableRowsUpdated(row, row);
+    }
+
+    // Set a book's stock in its loaded row, if any, unless a later version is shown already
+    private void updateStock(int bookID, int newStock, long version) {
+        int row = locate(bookID);
+        if (row < 0) return;
+        long[] versions = stockVersions.computeIfAbsent(row / pageSize, p -> new long[pageSize]);
+        if (versions[row % pageSize] > version) return;
+        versions[row % pageSize] = version;
+        Books b = pages.get(row / pageSize).get(row % pageSize);
+        replaceRow(new Books(b.getBookID(), b.getTitle(), b.getAuthor(), b.getGenre(), b.getPrice(), newStock));
+    }
+
+    // Add a new last row; returns false if the table has to be reloaded instead
+    private boolean appendRow(Books added) {
+        if (counting) return false;   // Unknown whether the pending count includes it
+        if (rowCount > 0) {
+            List<Books> last = pages.get((rowCount - 1) / pageSize);
+            if (last != null && (last.isEmpty() || last.get(last.size() - 1).getBookID() >= added.getBookID())) {
+                return false;   // Not after the current last row
+            }
+        }
+        int row = rowCount;
+        List<Books> page = pages.get(row / pageSize);
+        if (page != null) {
+            if (page.size() != row % pageSize) return false;   // Page no longer lines up with the row count
+            page.add(added);
+        }
+        rowCount++;
+        fireTableRowsInserted(row, row);
+        return true;
+    }
+
+    // Row index of a book in the loaded pages, or -1 if its page is not loaded
+    private int locate(int bookID) {
+        for (Map.Entry<Integer, List<Books>> entry : pages.entrySet()) {
+            List<Books> page = entry.getValue();
+            if (page.isEmpty()) continue;
+            if (bookID < page.get(0).getBookID() || bookID > page.get(page.size() - 1).getBookID()) continue;
+
+            int lo = 0, hi = page.size() - 1;  // Pages are sorted by bookID
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int id = page.get(mid).getBookID();
+                if (id < bookID) lo = mid + 1;
+                else if (id > bookID) hi = mid - 1;
+                else return entry.getKey() * pageSize + mid;
+            }
+            return -1;
+        }
+        return -1;
+    }
+
+    // Fetch one page in the background, resolving its keyset cursor first if it is not known
+    private void loadPage(int pageIndex) {
+        if (!loading.add(pageIndex)) return;
+        final int gen = generation;
+        final Integer knownCursor = pageIndex == 0 ? Integer.valueOf(0) : cursors.get(pageIndex);
+
+        new SwingWorker<BooksPage, Void>() {
+            @Override
+            protected BooksPage doInBackground() {
+                int after = knownCursor != null
+                        ? knownCursor
+                        : inventory.bookIDAt(pageIndex * pageSize - 1);
+                return inventory.getBooksPage(after, pageSize);
+            }
+
+            @Override
+            protected void done() {
+                if (gen != generation) return;
+                loading.remove(pageIndex);
+                try {
+                    BooksPage page = get();
+                    pages.put(pageIndex, page.getBooks());
+                    stockVersions.remove(pageIndex);   // Fresh rows; versions of the old copy do not apply
+                    cursors.put(pageIndex + 1, page.getNextCursor());
+                    int first = pageIndex * pageSize;
+                    int last = Math.min(rowCount, first + pageSize) - 1;
+                    if (last >= first) fireTableRowsUpdated(first, last);
+                } catch (Exception e) {
+                    System.out.println("Error loading inventory page " + pageIndex + ": " + e.getMessage());
+                }
+            }
+        }.execute();
+    }
+}
\ No newline at end of file
@@ -2,14 +2,15 @@ import java.util.Date;  // Import Date class to track invoice creation date
 
 // Represents an invoice for a book sale transaction
 public class Invoice {
-    private int invoiceID;    // Unique identifier for each invoice
+    private long invoiceID;   // Unique identifier for each invoice
+    private int bookID;       // ID of the book that was sold (0 if unknown)
     private Date date;        // Date when the invoice was created
     private String bookTitle; // Title of the book being sold
     private int quantity;     // Number of copies purchased
     private double totalPrice; // Total amount paid for the purchase
 
     // Constructor - Creates an invoice when a book is sold
-    public Invoice(int invoiceID, Date date, String bookTitle, int quantity, double totalPrice) {
+    public Invoice(long invoiceID, Date date, String bookTitle, int quantity, double totalPrice) {
         this.invoiceID = invoiceID;  // Assigns a unique invoice number
         this.date = date;            // Sets the purchase date
         this.bookTitle = bookTitle;  // Stores the title of the purchased book
@@ -17,9 +18,16 @@ public class Invoice {
         this.totalPrice = totalPrice; // Calculates the total cost of the sale
     }
 
+    // Constructor - Creates an invoice that also records which book was sold
+    public Invoice(long invoiceID, Date date, int bookID, String bookTitle, int quantity, double totalPrice) {
+        this(invoiceID, date, bookTitle, quantity, totalPrice);
+        this.bookID = bookID;        // Stores the ID of the purchased book
+    }
+
     // Getter methods - Allow access to invoice details
-    public int getInvoiceID() { return invoiceID; }  // Returns invoice ID
+    public long getInvoiceID() { return invoiceID; }  // Returns invoice ID
     public Date getDate() { return date; }  // Returns invoice date
+    public int getBookID() { return bookID; }  // Returns ID of the book sold
     public String getBookTitle() { return bookTitle; }  // Returns book title
     public int getQuantity() { return quantity; }  // Returns quantity sold
     public double getTotalPrice() { return totalPrice; }  // Returns total sale amount
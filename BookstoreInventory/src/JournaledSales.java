@@ -0,0 +1,200 @@
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Sales acknowledged from a local write-ahead journal (opt-in, see BookstoreInventory.enableSaleJournal).
+//
+// submit() checks the sale against the last committed stock minus the quantity of sales journaled
+// but not yet applied, appends it to the SaleJournal and completes with a JOURNALED result once
+// the record is on disk - no MySQL round-trip on the caller's path, and a database outage no
+// longer loses the sale. A replayer thread takes durable entries in LSN order, applies them in
+// batches through BookstoreInventory.applyJournaledSales (retrying with backoff while MySQL is
+// unavailable) and then checkpoints the journal. Every invoice carries the entry's idempotency
+// key, so a batch that was committed just before a crash is skipped when it is replayed.
+//
+// A sale that passed the check can still be rejected at replay if stock was taken outside this
+// path meanwhile (direct processSale, checkout); such sales are logged and counted as rejected.
+public class JournaledSales implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(JournaledSales.class.getName());
+
+    private static final int REPLAY_BATCH =
+            Integer.getInteger("bookstore.journal.replayBatch", 500);  // Entries per replay transaction
+    private static final long RETRY_MIN_MILLIS = 100L;
+    private static final long RETRY_MAX_MILLIS = 5_000L;
+    private static final int LOCK_STRIPES = 64;
+
+    private final BookstoreInventory inventory;
+    private final SaleJournal journal;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    // Quantity journaled but not yet applied, per book (changed only under the book's stripe lock)
+    private final Map<Integer, Integer> reserved = new ConcurrentHashMap<>();
+    private final Thread replayer;
+    private volatile boolean running = true;
+
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    // Constructor - reserves stock for entries recovered from disk and starts the replayer
+    public JournaledSales(BookstoreInventory inventory, SaleJournal journal) {
+        this.inventory = inventory;
+        this.journal = journal;
+        for (int i = 0; i < locks.length; i++) locks[i] = new Object();
+        for (SaleJournal.Entry e : journal.entries()) reserved.merge(e.getBookID(), e.getQuantity(), Integer::sum);
+
+        this.replayer = new Thread(this::replayLoop, "sale-journal-replay");
+        replayer.setDaemon(true);
+        replayer.start();
+    }
+
+    // Journal a sale; the future completes when it is durable (or rejected)
+    public CompletableFuture<SaleResult> submit(int bookID, int quantity) {
+        if (quantity <= 0) return CompletableFuture.completedFuture(SaleResult.invalidQuantity(bookID, quantity));
+        if (!running || journal.isClosed()) {
+            return CompletableFuture.completedFuture(SaleResult.error(bookID, quantity, "Sale journal has been closed"));
+        }
+
+        Books book;
+        int left;
+        CompletableFuture<SaleJournal.Entry> appended;
+        synchronized (lockFor(bookID)) {
+            book = inventory.getBook(bookID);
+            if (book == null) return CompletableFuture.completedFuture(SaleResult.notFound(bookID, quantity));
+            int available = book.getStockQuantity() - reserved.getOrDefault(bookID, 0);
+            if (available < quantity) {
+                return CompletableFuture.completedFuture(
+                        SaleResult.insufficientStock(bookID, book.getTitle(), quantity, Math.max(0, available)));
+            }
+            reserved.merge(bookID, quantity, Integer::sum);
+            left = available - quantity;
+            appended = journal.append(bookID, quantity, book.getPrice());   // Record order = reservation order
+        }
+
+        return appended.handle((entry, failure) -> {
+            if (failure != null) {
+                release(bookID, quantity);
+                return SaleResult.error(bookID, quantity, "Sale could not be journaled: " + failure.getMessage());
+            }
+            return SaleResult.journaled(bookID, book.getTitle(), quantity, book.getPrice(),
+                    book.getPrice() * quantity, left);
+        });
+    }
+
+    // Runs on the replayer thread: apply durable entries in batches until closed
+    private void replayLoop() {
+        BlockingQueue<SaleJournal.Entry> queue = journal.entries();
+        List<SaleJournal.Entry> batch = new ArrayList<>(REPLAY_BATCH);
+        long backoff = 0;
+        try {
+            while (true) {
+                if (batch.isEmpty()) {
+                    SaleJournal.Entry first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        if (!running) return;
+                        if (journal.isClosed()) {
+                            // A failed sync closed the journal: what was durable has been applied
+                            running = false;
+                            logger.log(Level.WARNING, "Sale journal closed, replay stopped.");
+                            return;
+                        }
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, REPLAY_BATCH - 1);
+                }
+
+                SaleResult[] results;
+                try {
+                    results = inventory.applyJournaledSales(batch, journal.getJournalID());
+                } catch (SQLException e) {
+                    if (!running || journal.isClosed()) {
+                        running = false;
+                        return;   // Left in the journal for the next run
+                    }
+                    if (backoff == 0) {
+                        logger.log(Level.WARNING, "Journal replay paused, " + journal.getBacklog() +
+                                " sales waiting: " + e.getMessage());
+                    }
+                    backoff = Math.min(Math.max(RETRY_MIN_MILLIS, backoff * 2), RETRY_MAX_MILLIS);
+                    Thread.sleep(backoff);
+                    continue;   // Same batch again
+                }
+                if (backoff > 0) logger.log(Level.INFO, "Journal replay resumed.");
+                backoff = 0;
+
+                finish(batch, results);
+                try {
+                    journal.checkpoint(batch.get(batch.size() - 1).getLSN());
+                } catch (IOException e) {
+                    // Harmless: a later checkpoint covers these, and replaying them again is idempotent
+                    logger.log(Level.WARNING, "Could not write journal checkpoint: " + e.getMessage());
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Release the reservations of an applied batch and count the outcomes
+    private void finish(List<SaleJournal.Entry> batch, SaleResult[] results) {
+        for (int i = 0; i < results.length; i++) {
+            SaleJournal.Entry e = batch.get(i);
+            release(e.getBookID(), e.getQuantity());
+            SaleResult r = results[i];
+            if (r == null) {
+                duplicates.increment();
+            } else if (r.isSuccess()) {
+                applied.increment();
+            } else {
+                rejected.increment();
+                logger.log(Level.WARNING, "Journaled sale " + e.getLSN() + " could not be applied: " + r);
+            }
+        }
+    }
+
+    private void release(int bookID, int quantity) {
+        synchronized (lockFor(bookID)) {
+            reserved.computeIfPresent(bookID, (id, q) -> q == quantity ? null : q - quantity);
+        }
+    }
+
+    private Object lockFor(int bookID) {
+        return locks[Math.floorMod(bookID, locks.length)];
+    }
+
+    // Sales applied to MySQL since start-up
+    public long getAppliedCount() { return applied.sum(); }
+
+    // Sales skipped at replay because their invoice already existed
+    public long getDuplicateCount() { return duplicates.sum(); }
+
+    // Journaled sales MySQL refused (book deleted or stock taken elsewhere)
+    public long getRejectedCount() { return rejected.sum(); }
+
+    // Sales journaled but not yet applied
+    public long getBacklog() { return journal.getBacklog(); }
+
+    // Stop accepting sales, sync the journal and give the replayer a little time to drain it
+    @Override
+    public void close() {
+        running = false;
+        try {
+            journal.close();
+            replayer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (IOException e) {
+            System.out.println("Error closing sale journal: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Lock-free, fixed-size latency histogram with HDR-style log-linear buckets.
+// Values (nanoseconds) are grouped by power of two, and each power of two is split into
+// SUB_BUCKETS linear sub-buckets, giving a relative error below 1/SUB_BUCKETS (about 3%)
+// from 1 ns up to several minutes. Recording is a single atomic increment.
+public class LatencyHistogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;  // 32 sub-buckets per power of two
+    private static final int MAX_EXPONENT = 40;             // 2^40 ns is about 18 minutes
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private volatile long max;
+
+    // Record one latency sample in nanoseconds
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts.incrementAndGet(indexFor(nanos));
+        total.increment();
+        sum.add(nanos);
+        long m = max;
+        while (nanos > m) {           // Rarely contended: only new maxima write
+            synchronized (this) {
+                if (nanos > max) max = nanos;
+            }
+            m = max;
+        }
+    }
+
+    public long getCount() { return total.sum(); }
+    public long getMaxNanos() { return max; }
+
+    public double getMeanNanos() {
+        long n = total.sum();
+        return n == 0 ? 0.0 : (double) sum.sum() / n;
+    }
+
+    // Value at the given percentile (0-100), reported as the upper edge of its bucket
+    public long getPercentileNanos(double percentile) {
+        long n = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            n += snapshot[i];
+        }
+        if (n == 0) return 0;
+        long rank = (long) Math.ceil(percentile / 100.0 * n);
+        if (rank < 1) rank = 1;
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) return Math.min(upperBound(i), max);
+        }
+        return max;
+    }
+
+    // Clear all samples
+    public synchronized void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+        total.reset();
+        sum.reset();
+        max = 0;
+    }
+
+    // Bucket index: values below SUB_BUCKETS map linearly, larger ones by exponent and top bits
+    static int indexFor(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);      // >= SUB_BITS
+        if (exponent > MAX_EXPONENT) return BUCKETS - 1;
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    // Largest value that falls into the given bucket
+    static long upperBound(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int exponent = index / SUB_BUCKETS + SUB_BITS - 1;
+        int sub = index % SUB_BUCKETS;
+        long base = (1L << exponent) | ((long) sub << (exponent - SUB_BITS));
+        return base + (1L << (exponent - SUB_BITS)) - 1;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,66 @@
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Counters and latency histogram for one operation, e.g. processSale.
+// Usage:  long t = metrics.start();  ...  metrics.stop(t, succeeded);
+public class OperationMetrics implements OperationMetricsMBean {
+    private final String operation;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    // Constructor - creates empty metrics for the named operation
+    public OperationMetrics(String operation) {
+        this.operation = operation;
+    }
+
+    // Mark the start of a call; returns the start timestamp to pass to stop()
+    public long start() {
+        inFlight.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    // Mark the end of a call started with start()
+    public void stop(long startNanos, boolean success) {
+        latency.record(System.nanoTime() - startNanos);
+        inFlight.decrementAndGet();
+        count.increment();
+        if (!success) errors.increment();
+    }
+
+    // Record a call that was timed elsewhere
+    public void record(long elapsedNanos, boolean success) {
+        latency.record(elapsedNanos);
+        count.increment();
+        if (!success) errors.increment();
+    }
+
+    public LatencyHistogram getLatency() { return latency; }
+
+    // MBean attributes
+    @Override public String getOperation() { return operation; }
+    @Override public long getCount() { return count.sum(); }
+    @Override public long getErrorCount() { return errors.sum(); }
+    @Override public int getInFlight() { return inFlight.get(); }
+    @Override public double getMeanMicros() { return latency.getMeanNanos() / 1000.0; }
+    @Override public double getP50Micros() { return latency.getPercentileNanos(50.0) / 1000.0; }
+    @Override public double getP99Micros() { return latency.getPercentileNanos(99.0) / 1000.0; }
+    @Override public double getP999Micros() { return latency.getPercentileNanos(99.9) / 1000.0; }
+    @Override public double getMaxMicros() { return latency.getMaxNanos() / 1000.0; }
+
+    @Override
+    public void reset() {
+        count.reset();
+        errors.reset();
+        latency.reset();
+    }
+
+    // One-line snapshot, used by the periodic metrics dump
+    @Override
+    public String toString() {
+        return String.format("%-18s count=%d errors=%d inFlight=%d mean=%.1fus p50=%.1fus p99=%.1fus p999=%.1fus max=%.1fus",
+                operation, getCount(), getErrorCount(), getInFlight(), getMeanMicros(),
+                getP50Micros(), getP99Micros(), getP999Micros(), getMaxMicros());
+    }
+}
\ No newline at end of file
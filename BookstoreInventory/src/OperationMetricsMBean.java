@@ -0,0 +1,13 @@
+// JMX view of one instrumented inventory operation (see OperationMetrics)
+public interface OperationMetricsMBean {
+    String getOperation();
+    long getCount();        // Completed calls
+    long getErrorCount();   // Calls that failed
+    int getInFlight();      // Calls currently running
+    double getMeanMicros();
+    double getP50Micros();
+    double getP99Micros();
+    double getP999Micros();
+    double getMaxMicros();
+    void reset();           // Clear counters and latency samples
+}
\ No newline at end of file
@@ -0,0 +1,295 @@
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Automatic restocking (opt-in, see BookstoreInventory.enableAutoReorder).
+// Every committed stock level from a sale, checkout or updateStock is handed to stockChanged(),
+// which only records it in a map (later levels for the same book overwrite earlier ones), so the
+// sale path pays for one map put. A background thread drains those deltas every flush interval,
+// checks them against the low-stock rule for the book (book rule, else genre rule, else default)
+// and raises a ReorderRequest when stock is at or below the threshold.
+//
+// A book has at most one open request: while one is Pending or Approved, further low-stock
+// deltas are coalesced into it. New requests are stored through the inventory's repository (with
+// MySQL: the reorder_requests table, in one batch per supplier). Reviewers call approveRequest()/rejectRequest(); an approved request is marked
+// Fulfilled once stock climbs back above the threshold, and a rejected book is not re-raised
+// until that happens either.
+public class ReorderEngine implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(ReorderEngine.class.getName());
+
+    private final BookstoreInventory inventory;
+    private final long flushIntervalMillis;
+    private final ScheduledExecutorService worker;
+
+    // Low-stock rules and suppliers, most specific first
+    private final Map<Integer, Rule> bookRules = new ConcurrentHashMap<>();
+    private final Map<String, Rule> genreRules = new ConcurrentHashMap<>();
+    private volatile Rule defaultRule = new Rule(
+            Integer.getInteger("bookstore.reorder.threshold", 5),
+            Integer.getInteger("bookstore.reorder.quantity", 20));
+    private final Map<Integer, String> bookSuppliers = new ConcurrentHashMap<>();
+    private final Map<String, String> genreSuppliers = new ConcurrentHashMap<>();
+    private volatile String defaultSupplier = System.getProperty("bookstore.reorder.supplier", "Default Supplier");
+
+    // bookID -> latest committed stock not yet evaluated (written on the sale path)
+    private final Map<Integer, Integer> dirty = new ConcurrentHashMap<>();
+
+    // Open (Pending or Approved) requests; guarded by this
+    private final Map<Integer, ReorderRequest> openByBook = new HashMap<>();
+    private final Map<Integer, ReorderRequest> openByID = new HashMap<>();
+    private final Set<Integer> rejectedBooks = ConcurrentHashMap.newKeySet();  // Not re-raised until restocked
+
+    // Threshold and order size of a low-stock rule
+    public static final class Rule {
+        private final int threshold;
+        private final int reorderQuantity;
+
+        public Rule(int threshold, int reorderQuantity) {
+            if (threshold < 0 || reorderQuantity <= 0) {
+                throw new IllegalArgumentException("threshold must be >= 0 and reorderQuantity > 0");
+            }
+            this.threshold = threshold;
+            this.reorderQuantity = reorderQuantity;
+        }
+
+        public int getThreshold() { return threshold; }
+        public int getReorderQuantity() { return reorderQuantity; }
+    }
+
+    // Constructor - nothing runs until start()
+    public ReorderEngine(BookstoreInventory inventory, long flushIntervalMillis) {
+        if (flushIntervalMillis <= 0) throw new IllegalArgumentException("flushIntervalMillis must be positive");
+        this.inventory = inventory;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.worker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "reorder-engine");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // Reload open requests and start the evaluation thread (call once); returns this engine
+    public ReorderEngine start() throws SQLException {
+        loadOpenRequests();
+        worker.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    // Rule configuration
+    public void setDefaultRule(int threshold, int reorderQuantity) {
+        defaultRule = new Rule(threshold, reorderQuantity);
+    }
+
+    public void setGenreRule(String genre, int threshold, int reorderQuantity) {
+        genreRules.put(genreKey(genre), new Rule(threshold, reorderQuantity));
+    }
+
+    public void setBookRule(int bookID, int threshold, int reorderQuantity) {
+        bookRules.put(bookID, new Rule(threshold, reorderQuantity));
+    }
+
+    // Supplier configuration
+    public void setDefaultSupplier(String supplier) {
+        defaultSupplier = supplier;
+    }
+
+    public void setGenreSupplier(String genre, String supplier) {
+        genreSuppliers.put(genreKey(genre), supplier);
+    }
+
+    public void setBookSupplier(int bookID, String supplier) {
+        bookSuppliers.put(bookID, supplier);
+    }
+
+    // Record a committed stock level (called after commit on the sale/update path; never blocks)
+    void stockChanged(int bookID, int newStock) {
+        dirty.put(bookID, newStock);
+    }
+
+    // Open requests waiting for a decision, oldest first
+    public synchronized List<ReorderRequest> getPendingRequests() {
+        List<ReorderRequest> pending = new ArrayList<>();
+        for (ReorderRequest r : openByID.values()) {
+            if (r.isPending()) pending.add(r);
+        }
+        pending.sort((a, b) -> Integer.compare(a.getRequestID(), b.getRequestID()));
+        return pending;
+    }
+
+    // Every Pending or Approved request
+    public synchronized List<ReorderRequest> getOpenRequests() {
+        List<ReorderRequest> open = new ArrayList<>(openByID.values());
+        open.sort((a, b) -> Integer.compare(a.getRequestID(), b.getRequestID()));
+        return open;
+    }
+
+    // Approve a pending request; returns false if it is unknown or no longer pending
+    public boolean approveRequest(int requestID) {
+        return decide(requestID, true);
+    }
+
+    // Reject a pending request; the book is not re-raised until its stock recovers
+    public boolean rejectRequest(int requestID) {
+        return decide(requestID, false);
+    }
+
+    private boolean decide(int requestID, boolean approve) {
+        ReorderRequest request;
+        synchronized (this) {
+            request = openByID.get(requestID);
+            if (request == null || !request.isPending()) return false;
+        }
+
+        try {
+            if (inventory.getRepository().updateReorderStatus(List.of(requestID), "Pending",
+                    approve ? "Approved" : "Rejected") == 0) {
+                return false;   // Decided elsewhere
+            }
+        } catch (SQLException e) {
+            System.out.println("Error updating reorder request: " + e.getMessage());
+            return false;
+        }
+
+        synchronized (this) {
+            if (approve) {
+                request.approveRequest();
+            } else {
+                request.rejectRequest();
+                openByID.remove(requestID);
+                openByBook.remove(request.getBookID(), request);
+                rejectedBooks.add(request.getBookID());
+            }
+        }
+        logger.log(Level.INFO, request.toString());
+        return true;
+    }
+
+    // Evaluate every stock delta received so far and store the resulting requests
+    public void flush() throws SQLException {
+        List<ReorderRequest> raised = new ArrayList<>();
+        List<ReorderRequest> fulfilled = new ArrayList<>();
+
+        for (Map.Entry<Integer, Integer> e : dirty.entrySet()) {
+            int bookID = e.getKey();
+            int stock = e.getValue();
+            if (!dirty.remove(bookID, stock)) continue;   // A newer level arrived; take it next round
+            evaluate(bookID, stock, raised, fulfilled);
+        }
+
+        if (!raised.isEmpty()) {
+            try {
+                insertBySupplier(raised);
+            } catch (SQLException ex) {
+                synchronized (this) {
+                    for (ReorderRequest r : raised) openByBook.remove(r.getBookID(), r);
+                }
+                for (ReorderRequest r : raised) dirty.putIfAbsent(r.getBookID(), -1);  // Retry next round
+                throw ex;
+            }
+        }
+        if (!fulfilled.isEmpty()) markFulfilled(fulfilled);
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (SQLException | RuntimeException e) {
+            logger.log(Level.WARNING, "Reorder evaluation failed: " + e.getMessage());
+        }
+    }
+
+    // Compare one stock level with its rule; collects new and fulfilled requests
+    private void evaluate(int bookID, int stock, List<ReorderRequest> raised, List<ReorderRequest> fulfilled) {
+        Books book = inventory.getBook(bookID);
+        if (book == null) return;                     // Deleted meanwhile
+        if (stock < 0) stock = book.getStockQuantity();   // Retry marker: use the current level
+        String genre = genreKey(book.getGenre());
+        Rule rule = bookRules.get(bookID);
+        if (rule == null) rule = genreRules.get(genre);
+        if (rule == null) rule = defaultRule;
+
+        synchronized (this) {
+            ReorderRequest open = openByBook.get(bookID);
+            if (stock > rule.getThreshold()) {
+                rejectedBooks.remove(bookID);
+                if (open != null && open.isApproved()) {
+                    openByBook.remove(bookID);
+                    openByID.remove(open.getRequestID());
+                    open.fulfillRequest();
+                    fulfilled.add(open);
+                }
+                return;
+            }
+            if (open != null || rejectedBooks.contains(bookID)) return;   // Coalesce
+
+            String supplier = bookSuppliers.get(bookID);
+            if (supplier == null) supplier = genreSuppliers.get(genre);
+            if (supplier == null) supplier = defaultSupplier;
+            ReorderRequest request = new ReorderRequest(bookID, book.getTitle(), rule.getReorderQuantity(), supplier);
+            openByBook.put(bookID, request);
+            raised.add(request);
+        }
+    }
+
+    // Store new requests in one transaction, then log one line per supplier
+    private void insertBySupplier(List<ReorderRequest> raised) throws SQLException {
+        Map<String, List<ReorderRequest>> bySupplier = new LinkedHashMap<>();
+        for (ReorderRequest r : raised) {
+            bySupplier.computeIfAbsent(r.getSupplierName(), s -> new ArrayList<>()).add(r);
+        }
+
+        inventory.getRepository().insertReorders(raised);
+
+        synchronized (this) {
+            for (ReorderRequest r : raised) openByID.put(r.getRequestID(), r);
+        }
+        for (Map.Entry<String, List<ReorderRequest>> e : bySupplier.entrySet()) {
+            logger.log(Level.INFO, "Reorder batch for " + e.getKey() + ": " + e.getValue().size() + " request(s)");
+        }
+    }
+
+    private void markFulfilled(List<ReorderRequest> fulfilled) throws SQLException {
+        List<Integer> ids = new ArrayList<>(fulfilled.size());
+        for (ReorderRequest r : fulfilled) ids.add(r.getRequestID());
+        inventory.getRepository().updateReorderStatus(ids, "Approved", "Fulfilled");
+    }
+
+    // Pick up requests left open by a previous run
+    private void loadOpenRequests() throws SQLException {
+        List<ReorderRequest> open = inventory.getRepository().findOpenReorders();
+        synchronized (this) {
+            for (ReorderRequest r : open) {
+                openByID.put(r.getRequestID(), r);
+                openByBook.put(r.getBookID(), r);
+            }
+        }
+    }
+
+    // Evaluate what is left and stop the background thread
+    @Override
+    public void close() {
+        worker.shutdown();
+        try {
+            worker.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushQuietly();
+    }
+
+    private static String genreKey(String genre) {
+        return genre == null ? "" : genre.trim().toLowerCase(Locale.ROOT);
+    }
+}
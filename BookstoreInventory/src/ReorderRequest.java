@@ -20,6 +20,15 @@ public class ReorderRequest {
         this.requestDate = new Date();
     }
 
+    // Constructor - Rebuilds a request that was already stored in the reorder_requests table
+    public ReorderRequest(int requestID, int bookID, String bookTitle, int quantityRequested,
+                          String supplierName, String status, Date requestDate) {
+        this(bookID, bookTitle, quantityRequested, supplierName);
+        this.requestID = requestID;
+        this.status = status;
+        this.requestDate = requestDate;
+    }
+
     // Getters and setters
     public int getRequestID() { return requestID; }
     public int getBookID() { return bookID; }
@@ -28,15 +37,21 @@ public class ReorderRequest {
     public String getSupplierName() { return supplierName; }
     public String getStatus() { return status; }
     public Date getRequestDate() { return requestDate; }
+    public boolean isPending() { return "Pending".equals(status); }
+    public boolean isApproved() { return "Approved".equals(status); }
+
+    // Set once the request has been stored (ID generated by the database)
+    void setRequestID(int requestID) { this.requestID = requestID; }
 
     // Update request status
     public void approveRequest() { this.status = "Approved"; }
     public void rejectRequest() { this.status = "Rejected"; }
+    public void fulfillRequest() { this.status = "Fulfilled"; }  // Stock is back above the threshold
 
     // Display request details
     @Override
     public String toString() {
-        return "Reorder Request - Book: " + bookTitle + ", Quantity: " + quantityRequested +
+        return "Reorder Request #" + requestID + " - Book: " + bookTitle + ", Quantity: " + quantityRequested +
                ", Supplier: " + supplierName + ", Status: " + status + ", Date: " + requestDate;
     }
 }
\ No newline at end of file
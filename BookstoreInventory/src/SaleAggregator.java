@@ -0,0 +1,283 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Group-commit sale aggregation for hot books (opt-in, see BookstoreInventory.enableSaleAggregation).
+// Sales for the same book are queued in a lock-free per-book stage and flushed together as one
+// stock decrement plus a batch of invoice rows in a single transaction, either every
+// flushIntervalMillis or as soon as maxBatchSize sales are waiting. Each caller gets a future
+// that completes with its own SaleResult once the batch commits.
+//
+// Stages are spread over `stripes` single-threaded flushers by bookID, so flushes for one book are
+// serialized while different books flush in parallel. Each stage tracks the last known stock and
+// the quantity reserved by queued sales in one packed AtomicLong, so a sale that would oversell is
+// rejected immediately without touching the database; the guarded UPDATE at flush time remains
+// the final authority. A stage that sees no sales for a whole flush interval and has nothing
+// queued is retired and removed, so books sold once do not keep a stage forever.
+public class SaleAggregator implements AutoCloseable {
+    private static final int UNKNOWN = -1;  // Stock not loaded yet (or invalidated)
+    private static final int RETIRED = -2;  // Stage removed from `stages`; submit must take a new one
+    private static final SaleResult RETRY = SaleResult.error(0, 0, "Stage retired");
+
+    private final BookstoreInventory inventory;
+    private final int maxBatchSize;
+    private final Map<Integer, Stage> stages = new ConcurrentHashMap<>();
+    private final ExecutorService[] flushers;
+    private final ScheduledExecutorService ticker;
+    private volatile boolean running = true;
+    private final AtomicInteger submitting = new AtomicInteger();  // submit() calls past the running check
+
+    // Constructor - starts the periodic flush and one flusher thread per stripe
+    public SaleAggregator(BookstoreInventory inventory, long flushIntervalMillis, int maxBatchSize, int stripes) {
+        if (flushIntervalMillis <= 0 || maxBatchSize <= 0 || stripes <= 0) {
+            throw new IllegalArgumentException("flushIntervalMillis, maxBatchSize and stripes must be positive");
+        }
+        this.inventory = inventory;
+        this.maxBatchSize = maxBatchSize;
+        this.flushers = new ExecutorService[stripes];
+        for (int i = 0; i < stripes; i++) {
+            String name = "sale-flusher-" + i;
+            flushers[i] = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, name);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        this.ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "sale-flush-ticker");
+            t.setDaemon(true);
+            return t;
+        });
+        ticker.scheduleWithFixedDelay(this::flushAll, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Queue a sale; the future completes when the batch containing it commits (or is rejected)
+    public CompletableFuture<SaleResult> submit(int bookID, int quantity) {
+        if (quantity <= 0) return CompletableFuture.completedFuture(SaleResult.invalidQuantity(bookID, quantity));
+        submitting.incrementAndGet();   // close() waits for this to drop to zero before draining
+        try {
+            if (!running) {
+                return CompletableFuture.completedFuture(
+                        SaleResult.error(bookID, quantity, "Sale aggregation has been shut down"));
+            }
+
+            Stage stage;
+            SaleResult rejected;
+            do {
+                stage = stages.computeIfAbsent(bookID, Stage::new);
+                rejected = stage.reserve(quantity);
+            } while (rejected == RETRY);
+            if (rejected != null) return CompletableFuture.completedFuture(rejected);
+
+            PendingSale sale = new PendingSale(quantity);
+            stage.queue.add(sale);
+            stage.active = true;
+            if (stage.queued.incrementAndGet() >= maxBatchSize) scheduleFlush(stage);
+            return sale.future;
+        } finally {
+            submitting.decrementAndGet();
+        }
+    }
+
+    // Forget the known stock of a book after it changed outside the aggregator
+    public void refreshStock(int bookID) {
+        Stage stage = stages.get(bookID);
+        if (stage != null) stage.invalidateStock();
+    }
+
+    // Forget the known stock of every book (e.g. after a bulk import)
+    public void refreshAllStock() {
+        for (Stage stage : stages.values()) stage.invalidateStock();
+    }
+
+    // Sales queued but not yet flushed, across all books
+    public int getQueuedCount() {
+        int total = 0;
+        for (Stage stage : stages.values()) total += stage.queued.get();
+        return total;
+    }
+
+    // Ticker: flush every stage with queued sales and retire stages idle since the last tick
+    private void flushAll() {
+        for (Stage stage : stages.values()) {
+            if (stage.queued.get() > 0) {
+                scheduleFlush(stage);
+            } else if (stage.active) {
+                stage.active = false;
+            } else if (stage.retire()) {
+                stages.remove(stage.bookID, stage);
+            }
+        }
+    }
+
+    // No-op once close() has started: it drains every stage itself
+    private void scheduleFlush(Stage stage) {
+        if (running && stage.flushScheduled.compareAndSet(false, true)) {
+            flushers[Math.floorMod(stage.bookID, flushers.length)].execute(() -> flush(stage));
+        }
+    }
+
+    // Runs on the stage's stripe thread: drain up to maxBatchSize sales and commit them together
+    private void flush(Stage stage) {
+        stage.flushScheduled.set(false);
+        List<PendingSale> batch = new ArrayList<>(Math.min(maxBatchSize, stage.queued.get()));
+        PendingSale sale;
+        while (batch.size() < maxBatchSize && (sale = stage.queue.poll()) != null) {
+            batch.add(sale);
+        }
+        if (batch.isEmpty()) return;
+        stage.queued.addAndGet(-batch.size());
+
+        int[] quantities = new int[batch.size()];
+        int total = 0;
+        for (int i = 0; i < quantities.length; i++) {
+            quantities[i] = batch.get(i).quantity;
+            total += quantities[i];
+        }
+
+        SaleResult[] results;
+        try {
+            results = inventory.processSaleGroup(stage.bookID, quantities);
+        } catch (RuntimeException e) {
+            results = new SaleResult[quantities.length];
+            for (int i = 0; i < results.length; i++) {
+                results[i] = SaleResult.error(stage.bookID, quantities[i], e.getMessage());
+            }
+        }
+
+        SaleResult last = results[results.length - 1];
+        boolean stockKnown = last.getStatus() == SaleResult.Status.SUCCESS ||
+                             last.getStatus() == SaleResult.Status.INSUFFICIENT_STOCK;
+        stage.release(total, stockKnown ? last.getRemainingStock() : UNKNOWN);
+
+        for (int i = 0; i < results.length; i++) {
+            batch.get(i).future.complete(results[i]);
+        }
+        if (stage.queued.get() >= maxBatchSize) scheduleFlush(stage);   // More arrived meanwhile
+    }
+
+    // Stop admitting sales, flush everything still queued and stop the flusher threads
+    @Override
+    public void close() {
+        running = false;
+        while (submitting.get() > 0) Thread.onSpinWait();   // Let sales past the check finish queueing
+        ticker.shutdownNow();
+        try {
+            ticker.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Stage stage : stages.values()) {
+            flushers[Math.floorMod(stage.bookID, flushers.length)].execute(() -> {
+                while (stage.queued.get() > 0) flush(stage);
+            });
+        }
+        for (ExecutorService flusher : flushers) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // A queued sale and the future its caller is waiting on
+    private static final class PendingSale {
+        final int quantity;
+        final CompletableFuture<SaleResult> future = new CompletableFuture<>();
+
+        PendingSale(int quantity) {
+            this.quantity = quantity;
+        }
+    }
+
+    // Per-book staging area
+    private final class Stage {
+        final int bookID;
+        final ConcurrentLinkedQueue<PendingSale> queue = new ConcurrentLinkedQueue<>();
+        final AtomicInteger queued = new AtomicInteger();
+        final AtomicBoolean flushScheduled = new AtomicBoolean();
+        volatile boolean active = true;   // A sale was queued since the last tick
+        volatile String title;            // Loaded with the stock, for rejections
+        // High 32 bits: last known stock (UNKNOWN if not loaded, RETIRED once removed);
+        // low 32 bits: quantity reserved by queued sales
+        final AtomicLong state = new AtomicLong(pack(UNKNOWN, 0));
+
+        Stage(int bookID) {
+            this.bookID = bookID;
+        }
+
+        // Reserve stock for a sale; returns a rejection result, RETRY if the stage was retired,
+        // or null if the sale may be queued. The book is read at most once, outside the CAS retries.
+        SaleResult reserve(int quantity) {
+            Books book = null;
+            while (true) {
+                long s = state.get();
+                int known = stockOf(s);
+                int reserved = reservedOf(s);
+                if (known == RETIRED) return RETRY;
+                if (known == UNKNOWN) {
+                    if (book == null) {
+                        book = inventory.getBook(bookID);
+                        if (book == null) return SaleResult.notFound(bookID, quantity);
+                        title = book.getTitle();
+                    }
+                    state.compareAndSet(s, pack(book.getStockQuantity(), reserved));
+                    continue;
+                }
+                if ((long) reserved + quantity > known) {
+                    return SaleResult.insufficientStock(bookID, title, quantity, Math.max(0, known - reserved));
+                }
+                if (state.compareAndSet(s, pack(known, reserved + quantity))) return null;
+            }
+        }
+
+        // After a flush: record the stock the database reported and release the flushed reservation
+        void release(int flushedQuantity, int stockAfterFlush) {
+            while (true) {
+                long s = state.get();
+                long next = pack(stockAfterFlush, reservedOf(s) - flushedQuantity);
+                if (state.compareAndSet(s, next)) return;
+            }
+        }
+
+        void invalidateStock() {
+            while (true) {
+                long s = state.get();
+                if (stockOf(s) == RETIRED || state.compareAndSet(s, pack(UNKNOWN, reservedOf(s)))) return;
+            }
+        }
+
+        // Mark the stage retired if nothing is reserved (so nothing is queued or being queued)
+        boolean retire() {
+            while (true) {
+                long s = state.get();
+                if (reservedOf(s) != 0 || stockOf(s) == RETIRED) return false;
+                if (state.compareAndSet(s, pack(RETIRED, 0))) return true;
+            }
+        }
+    }
+
+    private static long pack(int stock, int reserved) {
+        return ((long) stock << 32) | (reserved & 0xFFFFFFFFL);
+    }
+
+    private static int stockOf(long state) {
+        return (int) (state >> 32);
+    }
+
+    private static int reservedOf(long state) {
+        return (int) state;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,368 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
+
+// Durable, append-only journal of accepted sales (see JournaledSales).
+//
+// The journal is a directory of pre-sized, memory-mapped segment files named after the first
+// sequence number (LSN) they hold. Each record is 40 bytes: payload length, CRC32C of the payload,
+// then LSN, sale time, bookID, quantity and unit price. append() copies the record into the mapped
+// segment and returns a future that completes once a background thread has forced it to disk;
+// every append that arrives while a force is running shares the next one (group fsync).
+//
+// Durable entries are handed to the replayer through entries(). Once the replayer has applied
+// them it calls checkpoint(lsn), which records the LSN in the checkpoint file and deletes segments
+// that hold nothing newer. On start-up the segments are scanned up to the first torn or missing
+// record, and every entry after the checkpoint is queued for replay again.
+public class SaleJournal implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(SaleJournal.class.getName());
+
+    private static final int PAYLOAD_BYTES = 32;
+    private static final int RECORD_BYTES = 8 + PAYLOAD_BYTES;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final long syncIntervalMillis;
+    private final String journalID;   // Random per journal directory; prefixes every idempotency key
+    private final FileChannel checkpointFile;
+    private final BlockingQueue<Entry> durable = new LinkedBlockingQueue<>();
+    private final TreeMap<Long, Path> segments = new TreeMap<>();   // First LSN -> file (guarded by this)
+    private final Thread syncer;
+
+    // Append state (guarded by this)
+    private MappedByteBuffer active;
+    private int writePos;
+    private int syncedPos;            // Bytes of the active segment already forced
+    private long nextLSN;
+    private List<Pending> unsynced = new ArrayList<>();
+    private volatile boolean closed;  // Set by close() or a failed sync
+
+    private volatile long checkpointLSN;
+
+    // Open (or create) the journal in dir and recover it
+    public SaleJournal(Path dir, int segmentBytes, long syncIntervalMillis) throws IOException {
+        if (segmentBytes < RECORD_BYTES * 16) throw new IllegalArgumentException("segmentBytes too small: " + segmentBytes);
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.syncIntervalMillis = syncIntervalMillis;
+        Files.createDirectories(dir);
+
+        Path idFile = dir.resolve("journal.id");
+        if (!Files.exists(idFile)) Files.writeString(idFile, UUID.randomUUID().toString());
+        this.journalID = Files.readString(idFile).trim();
+
+        this.checkpointFile = FileChannel.open(dir.resolve("checkpoint"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer cp = ByteBuffer.allocate(8);
+        while (cp.hasRemaining() && checkpointFile.read(cp, cp.position()) > 0) { }
+        this.checkpointLSN = cp.position() == 8 ? cp.getLong(0) : 0L;
+
+        recover();
+        this.syncer = new Thread(this::syncLoop, "sale-journal-sync");
+        syncer.setDaemon(true);
+        syncer.start();
+    }
+
+    /* ---------- Appending ---------- */
+
+    // Journal a sale; the future completes with the entry once it is on disk
+    public CompletableFuture<Entry> append(int bookID, int quantity, double unitPrice) {
+        Pending pending;
+        synchronized (this) {
+            if (closed) return CompletableFuture.failedFuture(new IOException("Sale journal is closed"));
+            try {
+                if (writePos + RECORD_BYTES > segmentBytes) rotate();
+            } catch (IOException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+            Entry entry = new Entry(nextLSN++, System.currentTimeMillis(), bookID, quantity, unitPrice);
+            writeRecord(active, writePos, entry);
+            writePos += RECORD_BYTES;
+            pending = new Pending(entry);
+            unsynced.add(pending);
+            if (unsynced.size() == 1) notifyAll();   // Wake the sync thread
+        }
+        return pending.future;
+    }
+
+    // Runs on the sync thread: force everything appended so far, then acknowledge it
+    private void syncLoop() {
+        while (true) {
+            List<Pending> batch;
+            MappedByteBuffer segment;
+            int from, to;
+            synchronized (this) {
+                while (unsynced.isEmpty() && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (unsynced.isEmpty()) return;   // Closed and drained
+            }
+            if (syncIntervalMillis > 0) {
+                try {
+                    Thread.sleep(syncIntervalMillis);   // Linger so more appends share the force
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            synchronized (this) {
+                batch = unsynced;
+                unsynced = new ArrayList<>();
+                segment = active;
+                from = syncedPos;
+                to = writePos;
+                syncedPos = writePos;
+            }
+
+            long timer = InventoryMetrics.JOURNAL_SYNC.start();
+            boolean ok = false;
+            try {
+                if (to > from) segment.force(from, to - from);   // Earlier segments were forced on rotation
+                ok = true;
+            } catch (RuntimeException e) {
+                // Fail stop: the disk can no longer be trusted, so no further sale is acknowledged
+                logger.log(Level.SEVERE, "Sale journal sync failed, journal closed: " + e.getMessage());
+                synchronized (this) {
+                    closed = true;
+                }
+            } finally {
+                InventoryMetrics.JOURNAL_SYNC.stop(timer, ok);
+            }
+            for (Pending p : batch) {
+                if (ok) {
+                    durable.add(p.entry);
+                    p.future.complete(p.entry);
+                } else {
+                    p.future.completeExceptionally(new IOException("Sale journal sync failed"));
+                }
+            }
+        }
+    }
+
+    // Force and retire the active segment and start a new one (caller holds the lock)
+    private void rotate() throws IOException {
+        if (active != null) {
+            active.force(syncedPos, writePos - syncedPos);
+            syncedPos = writePos;
+        }
+        openSegment(nextLSN);
+    }
+
+    private void openSegment(long firstLSN) throws IOException {
+        Path file = dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstLSN, SEGMENT_SUFFIX));
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            active = ch.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);   // Also sizes the file
+        }
+        segments.put(firstLSN, file);
+        writePos = 0;
+        syncedPos = 0;
+    }
+
+    /* ---------- Replay support ---------- */
+
+    // Durable entries in LSN order, for the replayer to take
+    public BlockingQueue<Entry> entries() {
+        return durable;
+    }
+
+    // Everything up to and including lsn has been applied: remember it and drop finished segments
+    public void checkpoint(long lsn) throws IOException {
+        if (lsn <= checkpointLSN) return;
+        ByteBuffer buf = ByteBuffer.allocate(8).putLong(0, lsn);
+        while (buf.hasRemaining()) checkpointFile.write(buf, buf.position());
+        checkpointFile.force(false);
+        checkpointLSN = lsn;
+
+        // A segment is finished when the next one starts at or before lsn + 1. It stays listed until
+        // its file is gone: a delete can fail while the segment is still mapped (Windows refuses to
+        // delete a mapped file), and is then retried at the next checkpoint.
+        Map<Long, Path> finished = new TreeMap<>();
+        synchronized (this) {
+            for (Map.Entry<Long, Path> e : segments.entrySet()) {
+                Long next = segments.higherKey(e.getKey());
+                if (next == null || next > lsn + 1) break;
+                finished.put(e.getKey(), e.getValue());
+            }
+        }
+        for (Map.Entry<Long, Path> e : finished.entrySet()) {
+            try {
+                Files.deleteIfExists(e.getValue());
+            } catch (IOException ex) {
+                logger.log(Level.WARNING, "Sale journal segment " + e.getValue() +
+                        " not deleted yet, retrying at the next checkpoint: " + ex.getMessage());
+                continue;
+            }
+            synchronized (this) {
+                segments.remove(e.getKey());
+            }
+        }
+    }
+
+    // True once close() was called or a sync failed; nothing more is appended
+    public boolean isClosed() { return closed; }
+
+    // Highest LSN known to be applied
+    public long getCheckpointLSN() { return checkpointLSN; }
+
+    // Entries journaled but not yet checkpointed
+    public synchronized long getBacklog() { return nextLSN - 1 - checkpointLSN; }
+
+    // Prefix of this journal's idempotency keys
+    public String getJournalID() { return journalID; }
+
+    /* ---------- Recovery ---------- */
+
+    // Scan every segment, queue entries after the checkpoint and continue appending after the last one
+    private void recover() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                long first = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+                segments.put(first, file);
+            }
+        }
+
+        long expected = segments.isEmpty() ? checkpointLSN + 1 : segments.firstKey();
+        long recovered = 0;
+        boolean ended = false;
+        for (Path file : new ArrayList<>(segments.values())) {
+            if (ended) {
+                // Nothing after a break can be trusted (rotation forces each segment, so this is rare)
+                logger.log(Level.WARNING, "Discarding sale journal segment after a damaged record: " + file);
+                segments.values().remove(file);
+                Files.delete(file);
+                continue;
+            }
+            MappedByteBuffer buf;
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(ch.size(), segmentBytes));
+            }
+            int pos = 0;
+            while (pos + RECORD_BYTES <= buf.capacity()) {
+                Entry entry = readRecord(buf, pos);
+                if (entry == null || entry.lsn != expected) break;   // End of segment or torn write
+                if (entry.lsn > checkpointLSN) {
+                    durable.add(entry);
+                    recovered++;
+                }
+                expected++;
+                pos += RECORD_BYTES;
+            }
+            if (pos + RECORD_BYTES <= buf.capacity()) {
+                // Appending continues here; zero the rest so a stale record can never reappear
+                ended = true;
+                for (int i = pos; i + RECORD_BYTES <= buf.capacity(); i += RECORD_BYTES) {
+                    if (buf.getLong(i) != 0) buf.putLong(i, 0L);
+                }
+                buf.force();
+                active = buf;
+                writePos = pos;
+                syncedPos = pos;
+            }
+        }
+        nextLSN = expected;
+        if (active == null) openSegment(nextLSN);
+        if (recovered > 0) {
+            logger.log(Level.INFO, "Sale journal recovered " + recovered + " unapplied sales after LSN " + checkpointLSN);
+        }
+    }
+
+    private static void writeRecord(MappedByteBuffer buf, int pos, Entry e) {
+        buf.putLong(pos + 8, e.lsn);
+        buf.putLong(pos + 16, e.timeMillis);
+        buf.putInt(pos + 24, e.bookID);
+        buf.putInt(pos + 28, e.quantity);
+        buf.putLong(pos + 32, Double.doubleToRawLongBits(e.unitPrice));
+        buf.putInt(pos + 4, crc(buf, pos + 8));
+        buf.putInt(pos, PAYLOAD_BYTES);   // Length last: a zero length marks the end of the segment
+    }
+
+    // The record at pos, or null if there is none or it is damaged
+    private static Entry readRecord(MappedByteBuffer buf, int pos) {
+        if (buf.getInt(pos) != PAYLOAD_BYTES) return null;
+        if (buf.getInt(pos + 4) != crc(buf, pos + 8)) return null;
+        return new Entry(buf.getLong(pos + 8), buf.getLong(pos + 16), buf.getInt(pos + 24),
+                buf.getInt(pos + 28), Double.longBitsToDouble(buf.getLong(pos + 32)));
+    }
+
+    private static int crc(MappedByteBuffer buf, int payloadPos) {
+        CRC32C crc = new CRC32C();
+        crc.update(buf.slice(payloadPos, PAYLOAD_BYTES));
+        return (int) crc.getValue();
+    }
+
+    // Stop the sync thread after it has forced everything appended so far
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            syncer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        checkpointFile.close();
+    }
+
+    // One journaled sale
+    public static final class Entry {
+        private final long lsn;
+        private final long timeMillis;
+        private final int bookID;
+        private final int quantity;
+        private final double unitPrice;
+
+        Entry(long lsn, long timeMillis, int bookID, int quantity, double unitPrice) {
+            this.lsn = lsn;
+            this.timeMillis = timeMillis;
+            this.bookID = bookID;
+            this.quantity = quantity;
+            this.unitPrice = unitPrice;
+        }
+
+        public long getLSN() { return lsn; }
+        public long getTimeMillis() { return timeMillis; }
+        public int getBookID() { return bookID; }
+        public int getQuantity() { return quantity; }
+        public double getUnitPrice() { return unitPrice; }
+
+        // Idempotency key stored with the invoice: journal ID plus LSN
+        public String key(String journalID) {
+            return journalID + "-" + lsn;
+        }
+    }
+
+    private static final class Pending {
+        final Entry entry;
+        final CompletableFuture<Entry> future = new CompletableFuture<>();
+
+        Pending(Entry entry) {
+            this.entry = entry;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Repeatable checks for SaleJournal and JournaledSales in throw-away directories: rotation at
+// segmentBytes, recovery up to a torn last record, checkpoints that delete finished segments, and
+// a batch that was committed just before a crash being skipped when the journal is replayed.
+// Replay runs against an InMemoryInventoryRepository, so no database is needed.
+//
+//   java SaleJournalCheck        (exit status 1 if any check fails)
+public class SaleJournalCheck {
+    private static final int RECORD_BYTES = 40;                    // As written by SaleJournal
+    private static final int SEGMENT_BYTES = RECORD_BYTES * 16;   // Smallest segment SaleJournal accepts
+
+    public static void main(String[] args) {
+        CheckReport report = new CheckReport("SaleJournalCheck");
+
+        report.run("rotates to a new segment at segmentBytes", () -> {
+            Path dir = Files.createTempDirectory("sale-journal-check");
+            try {
+                try (SaleJournal journal = open(dir)) {
+                    append(journal, 40);
+                }
+                List<Path> files = segments(dir);
+                CheckReport.expectEquals(List.of(
+                        "segment-00000000000000000001.log",
+                        "segment-00000000000000000017.log",
+                        "segment-00000000000000000033.log"), names(files), "segments");
+                for (Path file : files) {
+                    CheckReport.expectEquals((long) SEGMENT_BYTES, Files.size(file), "size of " + file.getFileName());
+                }
+                try (SaleJournal journal = open(dir)) {
+                    CheckReport.expectEquals(lsns(1, 40), recovered(journal), "recovered LSNs");
+                    CheckReport.expectEquals(41L, journal.append(1, 1, 1.0).get(5, TimeUnit.SECONDS).getLSN(),
+                            "next LSN");
+                }
+            } finally {
+                delete(dir);
+            }
+        });
+
+        report.run("recovery stops at a torn last record", () -> {
+            Path dir = Files.createTempDirectory("sale-journal-check");
+            try {
+                try (SaleJournal journal = open(dir)) {
+                    append(journal, 20);   // LSN 17..20 in the second segment
+                }
+                Path last = segments(dir).get(1);
+                zero(last, 3 * RECORD_BYTES + RECORD_BYTES / 2, RECORD_BYTES / 2);   // Second half of LSN 20
+                try (SaleJournal journal = open(dir)) {
+                    CheckReport.expectEquals(lsns(1, 19), recovered(journal), "recovered LSNs");
+                    CheckReport.expectEquals(20L, journal.append(1, 1, 1.0).get(5, TimeUnit.SECONDS).getLSN(),
+                            "LSN written over the torn record");
+                }
+                try (SaleJournal journal = open(dir)) {
+                    CheckReport.expectEquals(lsns(1, 20), recovered(journal), "recovered LSNs after the rewrite");
+                }
+            } finally {
+                delete(dir);
+            }
+        });
+
+        report.run("nothing after a damaged record is replayed", () -> {
+            Path dir = Files.createTempDirectory("sale-journal-check");
+            try {
+                try (SaleJournal journal = open(dir)) {
+                    append(journal, 20);
+                }
+                zero(segments(dir).get(0), 10 * RECORD_BYTES + 16, 8);   // Payload of LSN 11: CRC no longer matches
+                try (SaleJournal journal = open(dir)) {
+                    CheckReport.expectEquals(lsns(1, 10), recovered(journal), "recovered LSNs");
+                    CheckReport.expectEquals(1, segments(dir).size(), "segments left");
+                }
+            } finally {
+                delete(dir);
+            }
+        });
+
+        report.run("checkpoint deletes finished segments only", () -> {
+            Path dir = Files.createTempDirectory("sale-journal-check");
+            try {
+                try (SaleJournal journal = open(dir)) {
+                    append(journal, 40);
+                    journal.checkpoint(15);
+                    CheckReport.expectEquals(3, segments(dir).size(), "segments after checkpoint 15");
+                    journal.checkpoint(16);
+                    CheckReport.expectEquals(2, segments(dir).size(), "segments after checkpoint 16");
+                    journal.checkpoint(20);
+                    CheckReport.expectEquals(2, segments(dir).size(), "segments after checkpoint 20");
+                    CheckReport.expectEquals(20L, journal.getBacklog(), "backlog");
+                }
+                try (SaleJournal journal = open(dir)) {
+                    CheckReport.expectEquals(20L, journal.getCheckpointLSN(), "checkpoint after reopening");
+                    CheckReport.expectEquals(lsns(21, 40), recovered(journal), "recovered LSNs");
+                    journal.checkpoint(40);
+                    CheckReport.expectEquals(1, segments(dir).size(), "segments after checkpoint 40");
+                }
+            } finally {
+                delete(dir);
+            }
+        });
+
+        report.run("batch committed before a crash is applied once", () -> {
+            Path dir = Files.createTempDirectory("sale-journal-check");
+            InMemoryInventoryRepository repo = new InMemoryInventoryRepository();
+            int bookID = repo.insertBook(new Books(0, "Journaled", "Author", "Fiction", 10.0, 100));
+            try {
+                String journalID;
+                try (SaleJournal journal = open(dir)) {
+                    journalID = journal.getJournalID();
+                    for (int i = 0; i < 5; i++) journal.append(bookID, i + 1, 10.0).get(5, TimeUnit.SECONDS);
+                    // The replayer committed the first three, then the process died before the checkpoint
+                    List<SaleJournal.Entry> committed = new ArrayList<>(journal.entries()).subList(0, 3);
+                    repo.applySales(committed, journalID);
+                }
+                CheckReport.expectEquals(94, repo.findBook(bookID).getStockQuantity(), "stock before the restart");
+
+                BookstoreInventory inventory = new BookstoreInventory(repo, 100);
+                try (SaleJournal journal = open(dir)) {
+                    CheckReport.expectEquals(journalID, journal.getJournalID(), "journal ID after reopening");
+                    JournaledSales sales = new JournaledSales(inventory, journal);
+                    try {
+                        long deadline = System.currentTimeMillis() + 5_000;
+                        // The replayer counts a batch before it checkpoints it, so wait for both
+                        while ((sales.getAppliedCount() + sales.getDuplicateCount() < 5 || sales.getBacklog() > 0)
+                                && System.currentTimeMillis() < deadline) {
+                            Thread.sleep(10);
+                        }
+                        CheckReport.expectEquals(3L, sales.getDuplicateCount(), "entries skipped as duplicates");
+                        CheckReport.expectEquals(2L, sales.getAppliedCount(), "entries applied");
+                        CheckReport.expectEquals(0L, sales.getBacklog(), "backlog");
+                    } finally {
+                        sales.close();
+                    }
+                }
+                CheckReport.expectEquals(85, repo.findBook(bookID).getStockQuantity(), "stock after the replay");
+                CheckReport.expectEquals(5, repo.findInvoicesAfter(0, 100).size(), "invoices");
+            } finally {
+                delete(dir);
+            }
+        });
+
+        System.exit(report.finish());
+    }
+
+    private static SaleJournal open(Path dir) throws IOException {
+        return new SaleJournal(dir, SEGMENT_BYTES, 0L);
+    }
+
+    // Append count sales and wait until all of them are on disk
+    private static void append(SaleJournal journal, int count) throws Exception {
+        for (int i = 0; i < count; i++) journal.append(1 + i % 3, 1, 9.99).get(5, TimeUnit.SECONDS);
+    }
+
+    private static List<Long> recovered(SaleJournal journal) {
+        List<Long> lsns = new ArrayList<>();
+        for (SaleJournal.Entry e : journal.entries()) lsns.add(e.getLSN());
+        return lsns;
+    }
+
+    private static List<Long> lsns(long from, long to) {
+        List<Long> lsns = new ArrayList<>();
+        for (long lsn = from; lsn <= to; lsn++) lsns.add(lsn);
+        return lsns;
+    }
+
+    // Segment files in LSN order
+    private static List<Path> segments(Path dir) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "segment-*.log")) {
+            for (Path file : stream) files.add(file);
+        }
+        files.sort(Comparator.comparing(Path::getFileName));
+        return files;
+    }
+
+    private static List<String> names(List<Path> files) {
+        List<String> names = new ArrayList<>();
+        for (Path file : files) names.add(file.getFileName().toString());
+        return names;
+    }
+
+    // Overwrite length bytes at offset with zeros, as a write cut short by a crash would leave them
+    private static void zero(Path file, int offset, int length) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ByteBuffer zeros = ByteBuffer.allocate(length);
+            while (zeros.hasRemaining()) ch.write(zeros, offset + zeros.position());
+            ch.force(false);
+        }
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+// One line of a customer's basket: a book and how many copies of it are being bought
+public class SaleLine {
+    private final int bookID;    // Book being sold
+    private final int quantity;  // Number of copies
+
+    // Constructor - creates a basket line
+    public SaleLine(int bookID, int quantity) {
+        this.bookID = bookID;
+        this.quantity = quantity;
+    }
+
+    // Getter methods
+    public int getBookID() { return bookID; }
+    public int getQuantity() { return quantity; }
+
+    @Override
+    public String toString() {
+        return "Book ID: " + bookID + " x " + quantity;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,95 @@
+// Outcome of a single sale, returned by BookstoreInventory.processSale instead of printing to stdout
+public class SaleResult {
+
+    // Possible outcomes of a sale attempt
+    public enum Status {
+        SUCCESS,             // Stock decremented and invoice written
+        JOURNALED,           // Durably journaled; stock and invoice are applied in the background
+        BOOK_NOT_FOUND,      // No book with the requested ID
+        INSUFFICIENT_STOCK,  // Not enough copies on hand; nothing was changed
+        INVALID_QUANTITY,    // Quantity was zero or negative
+        ERROR                // Database failure; the transaction was rolled back
+    }
+
+    private final Status status;
+    private final int bookID;
+    private final String bookTitle;
+    private final int quantity;
+    private final double unitPrice;
+    private final double totalPrice;
+    private final int remainingStock;  // Stock after the sale (or current stock if it failed)
+    private final String message;      // Error detail for ERROR results
+
+    private SaleResult(Status status, int bookID, String bookTitle, int quantity,
+                       double unitPrice, double totalPrice, int remainingStock, String message) {
+        this.status = status;
+        this.bookID = bookID;
+        this.bookTitle = bookTitle;
+        this.quantity = quantity;
+        this.unitPrice = unitPrice;
+        this.totalPrice = totalPrice;
+        this.remainingStock = remainingStock;
+        this.message = message;
+    }
+
+    // Factory methods for each outcome
+    public static SaleResult success(int bookID, String title, int quantity,
+                                     double unitPrice, double totalPrice, int remainingStock) {
+        return new SaleResult(Status.SUCCESS, bookID, title, quantity, unitPrice, totalPrice, remainingStock, null);
+    }
+
+    public static SaleResult journaled(int bookID, String title, int quantity,
+                                       double unitPrice, double totalPrice, int remainingStock) {
+        return new SaleResult(Status.JOURNALED, bookID, title, quantity, unitPrice, totalPrice, remainingStock, null);
+    }
+
+    public static SaleResult notFound(int bookID, int quantity) {
+        return new SaleResult(Status.BOOK_NOT_FOUND, bookID, null, quantity, 0.0, 0.0, 0, null);
+    }
+
+    public static SaleResult insufficientStock(int bookID, String title, int quantity, int available) {
+        return new SaleResult(Status.INSUFFICIENT_STOCK, bookID, title, quantity, 0.0, 0.0, available, null);
+    }
+
+    public static SaleResult invalidQuantity(int bookID, int quantity) {
+        return new SaleResult(Status.INVALID_QUANTITY, bookID, null, quantity, 0.0, 0.0, 0, null);
+    }
+
+    public static SaleResult error(int bookID, int quantity, String message) {
+        return new SaleResult(Status.ERROR, bookID, null, quantity, 0.0, 0.0, 0, message);
+    }
+
+    // Getter methods
+    public Status getStatus() { return status; }
+    public boolean isSuccess() { return status == Status.SUCCESS; }
+    public boolean isAccepted() { return status == Status.SUCCESS || status == Status.JOURNALED; }
+    public int getBookID() { return bookID; }
+    public String getBookTitle() { return bookTitle; }
+    public int getQuantity() { return quantity; }
+    public double getUnitPrice() { return unitPrice; }
+    public double getTotalPrice() { return totalPrice; }
+    public int getRemainingStock() { return remainingStock; }
+    public String getMessage() { return message; }
+
+    // Human-readable description, suitable for a dialog box
+    @Override
+    public String toString() {
+        switch (status) {
+            case SUCCESS:
+                return "Sold " + quantity + " x " + bookTitle + " for $" + String.format("%.2f", totalPrice) +
+                       " (" + remainingStock + " left)";
+            case JOURNALED:
+                return "Sold " + quantity + " x " + bookTitle + " for $" + String.format("%.2f", totalPrice) +
+                       " (" + remainingStock + " left, recording pending)";
+            case BOOK_NOT_FOUND:
+                return "Book ID " + bookID + " not found.";
+            case INSUFFICIENT_STOCK:
+                return "Not enough stock for " + bookTitle + ": requested " + quantity +
+                       ", available " + remainingStock + ".";
+            case INVALID_QUANTITY:
+                return "Quantity must be positive.";
+            default:
+                return "Error processing sale: " + message;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,117 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Compares sale throughput of the original processSale (two connections, four statements)
+// with the single-connection locked read-modify-write path in BookstoreInventory.
+// Usage: java SaleThroughputComparison <bookID> [threads] [seconds]
+// The chosen book is restocked before each run; invoices written by the run are real rows.
+public class SaleThroughputComparison {
+    private static final int RESTOCK_LEVEL = 1_000_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 1) {
+            System.out.println("Usage: java SaleThroughputComparison <bookID> [threads] [seconds]");
+            return;
+        }
+        int bookID  = Integer.parseInt(args[0]);
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        BookstoreInventory inventory = new BookstoreInventory();
+
+        inventory.updateStock(bookID, RESTOCK_LEVEL);
+        run("legacy (2 connections, 4 statements)", threads, seconds, () -> legacySale(bookID, 1));
+
+        inventory.updateStock(bookID, RESTOCK_LEVEL);
+        run("single round-trip (1 connection, locked RMW)", threads, seconds,
+                () -> inventory.processSale(bookID, 1).isSuccess());
+
+        System.out.println(DatabaseConnection.getPool().getStats());
+        DatabaseConnection.shutdown();
+    }
+
+    // A sale attempt that reports whether it succeeded
+    private interface SaleCall {
+        boolean sell();
+    }
+
+    // Run the given sale call from several threads for a fixed time and print ops/sec and latency
+    private static void run(String label, int threads, int seconds, SaleCall call) throws InterruptedException {
+        AtomicLong ok = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        AtomicLong latencyNanos = new AtomicLong();
+        long endAt = System.nanoTime() + seconds * 1_000_000_000L;
+        CountDownLatch done = new CountDownLatch(threads);
+
+        for (int i = 0; i < threads; i++) {
+            Thread t = new Thread(() -> {
+                while (System.nanoTime() < endAt) {
+                    long start = System.nanoTime();
+                    boolean success = call.sell();
+                    latencyNanos.addAndGet(System.nanoTime() - start);
+                    (success ? ok : failed).incrementAndGet();
+                }
+                done.countDown();
+            }, "sale-bench-" + i);
+            t.start();
+        }
+        done.await();
+
+        long total = ok.get() + failed.get();
+        System.out.printf("%-45s %8.1f sales/s  avg %7.3f ms  (ok=%d, failed=%d, threads=%d)%n",
+                label, ok.get() / (double) seconds,
+                total == 0 ? 0.0 : latencyNanos.get() / 1_000_000.0 / total,
+                ok.get(), failed.get(), threads);
+    }
+
+    // Replica of the original processSale: the price lookup borrows a second connection while the
+    // first one holds the transaction, and the invoice INSERT re-reads the title with a sub-query
+    private static boolean legacySale(int bookID, int quantity) {
+        final String updateStockSQL =
+                "UPDATE books SET stockQuantity = stockQuantity - ? WHERE bookID = ?";
+        final String insertInvoiceSQL =
+                "INSERT INTO invoices (saleDate, bookID, bookTitle, quantity, totalPrice) " +
+                "VALUES (?, ?, (SELECT title FROM books WHERE bookID = ?), ?, ?)";
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stockStmt   = conn.prepareStatement(updateStockSQL);
+                 PreparedStatement invoiceStmt = conn.prepareStatement(insertInvoiceSQL)) {
+                stockStmt.setInt(1, quantity);
+                stockStmt.setInt(2, bookID);
+                stockStmt.executeUpdate();
+
+                double total = legacyPrice(bookID) * quantity;
+                invoiceStmt.setTimestamp(1, new Timestamp(System.currentTimeMillis()));
+                invoiceStmt.setInt      (2, bookID);
+                invoiceStmt.setInt      (3, bookID);
+                invoiceStmt.setInt      (4, quantity);
+                invoiceStmt.setDouble   (5, total);
+                invoiceStmt.executeUpdate();
+
+                conn.commit();
+                return true;
+            } catch (SQLException inner) {
+                conn.rollback();
+                throw inner;
+            }
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static double legacyPrice(int bookID) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT price FROM books WHERE bookID = ?")) {
+            stmt.setInt(1, bookID);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getDouble("price") : 0.0;
+            }
+        }
+    }
+}
\ No newline at end of file
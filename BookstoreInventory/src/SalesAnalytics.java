@@ -0,0 +1,419 @@
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Sales rollups kept in memory so dashboard questions never scan the invoices table.
+// Every committed sale is added to a per-day bucket (with 24 hourly slots) and to an all-time
+// bucket; each bucket keeps quantity, revenue, invoice count, per-genre totals and a top-N
+// leaderboard of titles by copies sold. Because sales only ever add to a title's count, the
+// leaderboard can be maintained exactly on each sale without re-sorting.
+//
+// History is loaded once with backfill(), which splits the invoice ID range over a fork-join
+// pool. Live sales and the backfill never count the same invoice twice: the backfill only reads
+// invoices below the first ID recorded live (the cutoff), and every invoice below the cutoff must
+// first claim its bit in a shared bitmap - whichever side sets the bit counts the invoice, the
+// other skips it. Late commits below the cutoff are counted whether they arrive during or after
+// the scan.
+public class SalesAnalytics {
+    public static final int TOP_N = 10;                 // Titles kept on each leaderboard
+    private static final int BACKFILL_CHUNK = 20_000;   // Invoice IDs per fork-join leaf
+
+    private final ZoneId zone;
+    private final Map<Long, Rollup> days = new ConcurrentHashMap<>();   // epochDay -> rollup
+    private final Rollup allTime = new Rollup();
+
+    // Backfill state: IDs below the cutoff are counted by whichever side claims them first.
+    // cutoffLock orders live sales recorded before the cutoff is published against choosing it.
+    private final Object cutoffLock = new Object();
+    private long firstLiveInvoiceID = Long.MAX_VALUE;   // Lowest ID recorded live before the backfill
+    private volatile long backfillCutoff = -1;          // -1 = no backfill started
+    private volatile boolean backfillDone;
+    private AtomicLongArray claimed;                    // One bit per invoice ID below the cutoff
+
+    public SalesAnalytics() {
+        this(ZoneId.systemDefault());
+    }
+
+    // Constructor with the time zone that defines day and hour boundaries
+    public SalesAnalytics(ZoneId zone) {
+        this.zone = zone;
+    }
+
+    // Copies and revenue for one title
+    public static final class TitleSales {
+        private final int bookID;
+        private final String title;
+        private final long quantity;
+        private final double revenue;
+
+        TitleSales(int bookID, String title, long quantity, double revenue) {
+            this.bookID = bookID;
+            this.title = title;
+            this.quantity = quantity;
+            this.revenue = revenue;
+        }
+
+        public int getBookID() { return bookID; }
+        public String getTitle() { return title; }
+        public long getQuantity() { return quantity; }
+        public double getRevenue() { return revenue; }
+
+        @Override
+        public String toString() {
+            return title + " (ID " + bookID + "): " + quantity + " sold, $" + String.format("%.2f", revenue);
+        }
+    }
+
+    // Point-in-time copy of one bucket
+    public static final class Summary {
+        private final String period;
+        private final long quantity;
+        private final double revenue;
+        private final long invoices;
+        private final List<TitleSales> topTitles;
+        private final Map<String, Double> revenueByGenre;
+        private final long[] hourlyQuantity;
+        private final double[] hourlyRevenue;
+
+        Summary(String period, long quantity, double revenue, long invoices, List<TitleSales> topTitles,
+                Map<String, Double> revenueByGenre, long[] hourlyQuantity, double[] hourlyRevenue) {
+            this.period = period;
+            this.quantity = quantity;
+            this.revenue = revenue;
+            this.invoices = invoices;
+            this.topTitles = topTitles;
+            this.revenueByGenre = revenueByGenre;
+            this.hourlyQuantity = hourlyQuantity;
+            this.hourlyRevenue = hourlyRevenue;
+        }
+
+        public String getPeriod() { return period; }
+        public long getQuantity() { return quantity; }
+        public double getRevenue() { return revenue; }
+        public long getInvoiceCount() { return invoices; }
+        public List<TitleSales> getTopTitles() { return topTitles; }  // Best sellers first, at most TOP_N
+        public Map<String, Double> getRevenueByGenre() { return revenueByGenre; }
+        public long[] getHourlyQuantity() { return hourlyQuantity; }   // 24 slots (all zero for all-time)
+        public double[] getHourlyRevenue() { return hourlyRevenue; }
+
+        @Override
+        public String toString() {
+            return period + ": " + quantity + " copies, $" + String.format("%.2f", revenue) +
+                   " over " + invoices + " invoices, top " + topTitles;
+        }
+    }
+
+    // Record a committed sale (called by BookstoreInventory after commit); invoiceID 0 = unknown
+    public void recordSale(long invoiceID, long saleTimeMillis, int bookID, String title, String genre,
+                           int quantity, double totalPrice) {
+        if (invoiceID > 0 && !claimLive(invoiceID)) return;  // The backfill counts it
+        add(saleTimeMillis, bookID, title, genre, quantity, toCents(totalPrice));
+    }
+
+    // True if a live sale should be counted here rather than by the backfill
+    private boolean claimLive(long invoiceID) {
+        if (backfillCutoff < 0) {
+            synchronized (cutoffLock) {
+                if (backfillCutoff < 0) {
+                    // The backfill has not chosen its cutoff yet, so it will stop below this ID
+                    firstLiveInvoiceID = Math.min(firstLiveInvoiceID, invoiceID);
+                    return true;
+                }
+            }
+        }
+        // Committed late, below the cutoff: count it only if the scan has not claimed it
+        return invoiceID >= backfillCutoff || claim(invoiceID);
+    }
+
+    // Set an invoice's bit; true if this call set it (the caller counts the invoice)
+    private boolean claim(long invoiceID) {
+        int word = (int) (invoiceID >>> 6);
+        long bit = 1L << invoiceID;
+        long old;
+        do {
+            old = claimed.get(word);
+            if ((old & bit) != 0) return false;
+        } while (!claimed.compareAndSet(word, old, old | bit));
+        return true;
+    }
+
+    private void add(long saleTimeMillis, int bookID, String title, String genre, int quantity, long cents) {
+        Instant instant = Instant.ofEpochMilli(saleTimeMillis);
+        LocalDate day = LocalDate.ofInstant(instant, zone);
+        int hour = instant.atZone(zone).getHour();
+        days.computeIfAbsent(day.toEpochDay(), d -> new Rollup()).add(hour, bookID, title, genre, quantity, cents);
+        allTime.add(-1, bookID, title, genre, quantity, cents);
+    }
+
+    // Sales for one day
+    public Summary getDay(LocalDate day) {
+        Rollup r = days.get(day.toEpochDay());
+        return r == null ? new Rollup().snapshot(day.toString()) : r.snapshot(day.toString());
+    }
+
+    // Sales for today
+    public Summary getToday() {
+        return getDay(LocalDate.now(zone));
+    }
+
+    // Sales since the first invoice
+    public Summary getAllTime() {
+        return allTime.snapshot("all time");
+    }
+
+    // Best-selling titles for one day (n is capped at TOP_N)
+    public List<TitleSales> getTopTitles(LocalDate day, int n) {
+        List<TitleSales> top = getDay(day).getTopTitles();
+        return top.subList(0, Math.min(n, top.size()));
+    }
+
+    // Quantity and revenue per day over an inclusive date range, oldest first (one lookup per day)
+    public List<Summary> getDailyRange(LocalDate from, LocalDate to) {
+        List<Summary> range = new ArrayList<>();
+        for (LocalDate d = from; !d.isAfter(to); d = d.plusDays(1)) {
+            range.add(getDay(d));
+        }
+        return range;
+    }
+
+    // Days that have at least one sale
+    public int getDayCount() {
+        return days.size();
+    }
+
+    public boolean isBackfilled() {
+        return backfillDone;
+    }
+
+    // Load every historical invoice (once) from the repository using a fork-join pool of the given
+    // parallelism. Each leaf scans its slice of invoice IDs (with MySQL, on its own pooled connection),
+    // aggregates locally and merges the result, so the shared buckets are locked once per leaf rather
+    // than once per row. Returns the number of invoices loaded.
+    public synchronized long backfill(InventoryRepository repository, int parallelism) throws SQLException {
+        if (backfillCutoff >= 0) throw new IllegalStateException("Sales analytics have already been backfilled");
+
+        long maxID = repository.maxInvoiceID();
+        long cutoff;
+        synchronized (cutoffLock) {
+            cutoff = Math.min(maxID + 1, firstLiveInvoiceID);
+            claimed = new AtomicLongArray(Math.toIntExact((cutoff >>> 6) + 1));
+            backfillCutoff = cutoff;   // Volatile write publishes the bitmap to live sales
+        }
+
+        long loaded;
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism));
+        try {
+            loaded = mergeSlice(pool.invoke(new SliceTask(repository, 1, cutoff)));
+        } catch (UncheckedSQLException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+        backfillDone = true;
+        return loaded;
+    }
+
+    private long mergeSlice(Slice slice) {
+        for (Map.Entry<Long, Rollup> e : slice.days.entrySet()) {
+            days.computeIfAbsent(e.getKey(), d -> new Rollup()).merge(e.getValue());
+        }
+        allTime.merge(slice.allTime);
+        return slice.rows;
+    }
+
+    // Rollups built by one backfill leaf before they are merged
+    private final class Slice {
+        final Map<Long, Rollup> days = new HashMap<>();
+        final Rollup allTime = new Rollup();
+        long rows;
+
+        void add(long saleTimeMillis, int bookID, String title, String genre, int quantity, long cents) {
+            Instant instant = Instant.ofEpochMilli(saleTimeMillis);
+            long day = LocalDate.ofInstant(instant, zone).toEpochDay();
+            days.computeIfAbsent(day, d -> new Rollup()).add(instant.atZone(zone).getHour(),
+                    bookID, title, genre, quantity, cents);
+            allTime.add(-1, bookID, title, genre, quantity, cents);
+            rows++;
+        }
+
+        Slice merge(Slice other) {
+            for (Map.Entry<Long, Rollup> e : other.days.entrySet()) {
+                days.computeIfAbsent(e.getKey(), d -> new Rollup()).merge(e.getValue());
+            }
+            allTime.merge(other.allTime);
+            rows += other.rows;
+            return this;
+        }
+    }
+
+    // Invoices with fromID <= invoiceID < toID, split in halves until a slice is small enough to read
+    private final class SliceTask extends RecursiveTask<Slice> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient InventoryRepository repository;
+        private final long fromID;
+        private final long toID;
+
+        SliceTask(InventoryRepository repository, long fromID, long toID) {
+            this.repository = repository;
+            this.fromID = fromID;
+            this.toID = toID;
+        }
+
+        @Override
+        protected Slice compute() {
+            if (toID - fromID > BACKFILL_CHUNK) {
+                long mid = fromID + (toID - fromID) / 2;
+                SliceTask left = new SliceTask(repository, fromID, mid);
+                left.fork();
+                Slice right = new SliceTask(repository, mid, toID).compute();
+                return left.join().merge(right);
+            }
+            try {
+                return read();
+            } catch (SQLException e) {
+                throw new UncheckedSQLException(e);
+            }
+        }
+
+        private Slice read() throws SQLException {
+            Slice slice = new Slice();
+            repository.scanInvoices(fromID, toID, (invoice, genre) -> {
+                if (!claim(invoice.getInvoiceID())) return;  // Already counted live
+                slice.add(invoice.getDate().getTime(), invoice.getBookID(), invoice.getBookTitle(), genre,
+                        invoice.getQuantity(), toCents(invoice.getTotalPrice()));
+            });
+            return slice;
+        }
+    }
+
+    // One time bucket. Methods are synchronized: a sale touches one day bucket and the all-time
+    // bucket for a few map updates, far less than the transaction that produced it.
+    private static final class Rollup {
+        private long quantity;
+        private long cents;
+        private long invoices;
+        private final long[] hourQuantity = new long[24];
+        private final long[] hourCents = new long[24];
+        private final Map<Integer, Totals> books = new HashMap<>();
+        private final Map<String, Totals> genres = new HashMap<>();
+        private final Totals[] leaders = new Totals[TOP_N];   // Sorted by quantity, best first
+        private int leaderCount;
+
+        synchronized void add(int hour, int bookID, String title, String genre, int qty, long saleCents) {
+            quantity += qty;
+            cents += saleCents;
+            invoices++;
+            if (hour >= 0) {
+                hourQuantity[hour] += qty;
+                hourCents[hour] += saleCents;
+            }
+            genres.computeIfAbsent(genre == null ? "" : genre, g -> new Totals(0, g)).add(qty, saleCents);
+
+            Totals book = books.computeIfAbsent(bookID, id -> new Totals(id, title));
+            book.add(qty, saleCents);
+            promote(book);
+        }
+
+        // Move a title whose count just grew into (or up) the leaderboard
+        private void promote(Totals book) {
+            int i = book.rank;
+            if (i < 0) {
+                if (leaderCount < TOP_N) {
+                    i = leaderCount++;
+                } else if (book.quantity > leaders[TOP_N - 1].quantity) {
+                    i = TOP_N - 1;
+                    leaders[i].rank = -1;
+                } else {
+                    return;
+                }
+                leaders[i] = book;
+                book.rank = i;
+            }
+            while (i > 0 && leaders[i - 1].quantity < leaders[i].quantity) {
+                Totals above = leaders[i - 1];
+                leaders[i - 1] = leaders[i];
+                leaders[i] = above;
+                leaders[i - 1].rank = i - 1;
+                above.rank = i;
+                i--;
+            }
+        }
+
+        synchronized void merge(Rollup other) {
+            synchronized (other) {
+                quantity += other.quantity;
+                cents += other.cents;
+                invoices += other.invoices;
+                for (int h = 0; h < 24; h++) {
+                    hourQuantity[h] += other.hourQuantity[h];
+                    hourCents[h] += other.hourCents[h];
+                }
+                for (Totals g : other.genres.values()) {
+                    genres.computeIfAbsent(g.name, n -> new Totals(0, n)).add(g.quantity, g.cents);
+                }
+                for (Totals b : other.books.values()) {
+                    books.computeIfAbsent(b.id, id -> new Totals(id, b.name)).add(b.quantity, b.cents);
+                }
+            }
+            // Counts moved in bulk, so rank the leaderboard from scratch
+            for (int i = 0; i < leaderCount; i++) leaders[i].rank = -1;
+            List<Totals> all = new ArrayList<>(books.values());
+            all.sort((a, b) -> Long.compare(b.quantity, a.quantity));
+            leaderCount = Math.min(TOP_N, all.size());
+            for (int i = 0; i < leaderCount; i++) {
+                leaders[i] = all.get(i);
+                leaders[i].rank = i;
+            }
+        }
+
+        synchronized Summary snapshot(String period) {
+            List<TitleSales> top = new ArrayList<>(leaderCount);
+            for (int i = 0; i < leaderCount; i++) {
+                top.add(new TitleSales(leaders[i].id, leaders[i].name, leaders[i].quantity, leaders[i].cents / 100.0));
+            }
+            Map<String, Double> byGenre = new TreeMap<>();
+            for (Totals g : genres.values()) byGenre.put(g.name, g.cents / 100.0);
+            double[] hourRevenue = new double[24];
+            for (int h = 0; h < 24; h++) hourRevenue[h] = hourCents[h] / 100.0;
+            return new Summary(period, quantity, cents / 100.0, invoices, Collections.unmodifiableList(top),
+                    Collections.unmodifiableMap(byGenre), Arrays.copyOf(hourQuantity, 24), hourRevenue);
+        }
+    }
+
+    // Running totals for one title or genre
+    private static final class Totals {
+        final int id;
+        final String name;
+        long quantity;
+        long cents;
+        int rank = -1;   // Position on the owning bucket's leaderboard, -1 if not on it
+
+        Totals(int id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        void add(long qty, long saleCents) {
+            quantity += qty;
+            cents += saleCents;
+        }
+    }
+
+    // Revenue is summed in whole cents so long-running totals do not drift
+    private static long toCents(double amount) {
+        return Math.round(amount * 100.0);
+    }
+}
@@ -0,0 +1,130 @@
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+// One-off schema migration that brings an existing book_inventory_management database up to what the
+// current code expects:
+//   books.version            row version used by adjustStock's compare-and-set
+//   books.lastModified       change time used to refresh the catalog snapshot (indexed)
+//   invoices.saleKey         idempotency key of journaled sales (unique)
+//   reorder_requests         table written by the ReorderEngine
+//
+// The application never changes the schema itself. JdbcInventoryRepository calls verify() on first
+// use and fails with a message pointing here if anything is missing. Run this once per database,
+// ideally before deploying the new code; every step checks the catalog first, so re-running is safe:
+//   java -cp bin:mysql-connector-j-9.3.0.jar SchemaMigration [--dry-run]
+// The database is chosen with -Dbookstore.db.url / .user / .password as for the application.
+public final class SchemaMigration {
+
+    // One schema change: the table (and column, if it adds one) it creates, and the DDL that creates it
+    private static final class Step {
+        final String table;
+        final String column;   // null if the step creates the table
+        final String[] ddl;
+
+        Step(String table, String column, String... ddl) {
+            this.table = table;
+            this.column = column;
+            this.ddl = ddl;
+        }
+
+        String name() {
+            return column == null ? table : table + "." + column;
+        }
+    }
+
+    private static final List<Step> STEPS = List.of(
+            new Step("books", "version",
+                    "ALTER TABLE books ADD COLUMN version BIGINT NOT NULL DEFAULT 0"),
+            new Step("books", "lastModified",
+                    "ALTER TABLE books ADD COLUMN lastModified TIMESTAMP(3) NOT NULL " +
+                    "DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3)",
+                    "CREATE INDEX idx_books_lastModified ON books (lastModified)"),
+            new Step("invoices", "saleKey",
+                    "ALTER TABLE invoices ADD COLUMN saleKey VARCHAR(64) NULL",
+                    "CREATE UNIQUE INDEX idx_invoices_saleKey ON invoices (saleKey)"),
+            new Step("reorder_requests", null,
+                    "CREATE TABLE reorder_requests (" +
+                    "requestID INT AUTO_INCREMENT PRIMARY KEY, " +
+                    "bookID INT NOT NULL, " +
+                    "bookTitle VARCHAR(255), " +
+                    "quantityRequested INT NOT NULL, " +
+                    "supplierName VARCHAR(255) NOT NULL, " +
+                    "status VARCHAR(20) NOT NULL, " +
+                    "requestDate DATETIME NOT NULL, " +
+                    "INDEX idx_reorder_status (status), " +
+                    "INDEX idx_reorder_supplier (supplierName, status))"));
+
+    private SchemaMigration() {
+    }
+
+    // Names of the steps this database still needs, e.g. "books.version"; empty if it is up to date
+    public static List<String> missing(Connection conn) throws SQLException {
+        List<String> missing = new ArrayList<>();
+        for (Step step : pending(conn)) missing.add(step.name());
+        return missing;
+    }
+
+    // Throw if the database needs migrating, naming what is missing and how to fix it
+    public static void verify(Connection conn) throws SQLException {
+        List<String> missing = missing(conn);
+        if (!missing.isEmpty()) {
+            throw new SQLException("Database schema is out of date (missing " + String.join(", ", missing) +
+                    "); run 'java SchemaMigration' against this database first");
+        }
+    }
+
+    // Apply every pending step in order; returns the names of the steps applied
+    public static List<String> migrate(Connection conn) throws SQLException {
+        List<String> applied = new ArrayList<>();
+        for (Step step : pending(conn)) {
+            try (Statement ddl = conn.createStatement()) {
+                for (String sql : step.ddl) ddl.execute(sql);   // DDL commits implicitly in MySQL
+            }
+            applied.add(step.name());
+        }
+        return applied;
+    }
+
+    // Identifier case in the catalog depends on the server and its settings, so names are compared
+    // in lower case
+    private static List<Step> pending(Connection conn) throws SQLException {
+        Set<String> present = new HashSet<>();   // "table" and "table.column"
+        try (ResultSet rs = conn.getMetaData().getColumns(conn.getCatalog(), null, null, null)) {
+            while (rs.next()) {
+                String table = rs.getString("TABLE_NAME").toLowerCase(Locale.ROOT);
+                present.add(table);
+                present.add(table + "." + rs.getString("COLUMN_NAME").toLowerCase(Locale.ROOT));
+            }
+        }
+        List<Step> pending = new ArrayList<>();
+        for (Step step : STEPS) {
+            if (!present.contains(step.name().toLowerCase(Locale.ROOT))) pending.add(step);
+        }
+        return pending;
+    }
+
+    // Usage: java SchemaMigration [--dry-run]
+    public static void main(String[] args) {
+        boolean dryRun = args.length > 0 && args[0].equals("--dry-run");
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            if (conn == null) return;   // getConnection() has already reported why
+            List<String> steps = dryRun ? missing(conn) : migrate(conn);
+            if (steps.isEmpty()) {
+                System.out.println("Schema is up to date.");
+            } else {
+                System.out.println((dryRun ? "Would add: " : "Added: ") + String.join(", ", steps));
+            }
+        } catch (SQLException e) {
+            System.out.println("Error migrating schema: " + e.getMessage());
+        } finally {
+            DatabaseConnection.shutdown();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+// Which database holds each store's stock (used by StoreInventory).
+// Every shard is a JDBC endpoint with its own ConnectionPool; every store belongs to exactly one
+// shard, and several stores may share one. A properties file describes the layout:
+//
+//   shard.east.url=jdbc:mysql://db-east:3306/bookstore?useCursorFetch=true
+//   shard.east.user=bookstore
+//   shard.east.password=...
+//   shard.east.poolMax=10            (also poolMin, statementCache; defaults 1, 10, 64)
+//   shard.local.url=jdbc:h2:mem:local;MODE=MySQL;DB_CLOSE_DELAY=-1
+//   store.1=east
+//   store.2=east
+//   store.3=local
+//
+// Embedded databases work as shards as long as their driver is on the class path, which makes it
+// easy to run several "locations" in one process.
+public class ShardMap implements AutoCloseable {
+    private final Map<String, ConnectionPool> pools;      // Shard name -> pool, in declaration order
+    private final Map<Integer, String> storeShards;       // storeID -> shard name
+
+    // Constructor - every store must map to one of the given pools; the map owns the pools from now on
+    public ShardMap(Map<String, ConnectionPool> pools, Map<Integer, String> storeShards) {
+        if (pools.isEmpty()) throw new IllegalArgumentException("No shards configured");
+        for (Map.Entry<Integer, String> e : storeShards.entrySet()) {
+            if (!pools.containsKey(e.getValue())) {
+                throw new IllegalArgumentException("Store " + e.getKey() + " is mapped to unknown shard " + e.getValue());
+            }
+        }
+        this.pools = Collections.unmodifiableMap(new LinkedHashMap<>(pools));
+        this.storeShards = Collections.unmodifiableMap(new TreeMap<>(storeShards));
+    }
+
+    // Read a shard layout from a properties file (see the class comment)
+    public static ShardMap load(Path file) throws IOException {
+        Properties props = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            props.load(in);
+        }
+        return fromProperties(props);
+    }
+
+    // Build the map and open one pool per shard.* entry
+    public static ShardMap fromProperties(Properties props) {
+        Map<String, ConnectionPool> pools = new LinkedHashMap<>();
+        Map<Integer, String> stores = new TreeMap<>();
+        try {
+            for (String key : new TreeSet<>(props.stringPropertyNames())) {
+                if (key.startsWith("shard.") && key.endsWith(".url")) {
+                    String shard = key.substring("shard.".length(), key.length() - ".url".length());
+                    pools.put(shard, new ConnectionPool(
+                            props.getProperty(key),
+                            props.getProperty("shard." + shard + ".user", ""),
+                            props.getProperty("shard." + shard + ".password", ""),
+                            intProperty(props, "shard." + shard + ".poolMin", 1),
+                            intProperty(props, "shard." + shard + ".poolMax", 10),
+                            300_000L, 5_000L, 2,
+                            intProperty(props, "shard." + shard + ".statementCache", 64)));
+                } else if (key.startsWith("store.")) {
+                    int storeID = Integer.parseInt(key.substring("store.".length()).trim());
+                    stores.put(storeID, props.getProperty(key).trim());
+                }
+            }
+            return new ShardMap(pools, stores);
+        } catch (RuntimeException e) {
+            for (ConnectionPool pool : pools.values()) pool.close();
+            throw e;
+        }
+    }
+
+    // Name of the shard that holds a store's stock
+    public String shardOf(int storeID) {
+        String shard = storeShards.get(storeID);
+        if (shard == null) throw new IllegalArgumentException("Unknown store: " + storeID);
+        return shard;
+    }
+
+    // Pool of the shard that holds a store's stock
+    public ConnectionPool poolFor(int storeID) {
+        return pools.get(shardOf(storeID));
+    }
+
+    public ConnectionPool pool(String shard) {
+        ConnectionPool pool = pools.get(shard);
+        if (pool == null) throw new IllegalArgumentException("Unknown shard: " + shard);
+        return pool;
+    }
+
+    public boolean hasStore(int storeID) {
+        return storeShards.containsKey(storeID);
+    }
+
+    // Shard names in declaration order
+    public Set<String> getShards() {
+        return pools.keySet();
+    }
+
+    // Every configured store, ascending
+    public Set<Integer> getStores() {
+        return storeShards.keySet();
+    }
+
+    // The stores held by one shard, ascending
+    public List<Integer> storesOn(String shard) {
+        List<Integer> stores = new ArrayList<>();
+        for (Map.Entry<Integer, String> e : storeShards.entrySet()) {
+            if (e.getValue().equals(shard)) stores.add(e.getKey());
+        }
+        return stores;
+    }
+
+    // Close every shard's pool
+    @Override
+    public void close() {
+        for (ConnectionPool pool : pools.values()) pool.close();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("ShardMap:");
+        for (String shard : pools.keySet()) sb.append(' ').append(shard).append('=').append(storesOn(shard));
+        return sb.toString();
+    }
+
+    private static int intProperty(Properties props, String name, int defaultValue) {
+        String value = props.getProperty(name);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+}
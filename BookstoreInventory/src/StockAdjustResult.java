@@ -0,0 +1,81 @@
+// Outcome of BookstoreInventory.adjustStock
+public class StockAdjustResult {
+
+    // Possible outcomes of an adjustment
+    public enum Status {
+        APPLIED,             // Stock changed by delta
+        BOOK_NOT_FOUND,      // No book with the requested ID
+        INSUFFICIENT_STOCK,  // Delta would take stock below zero; nothing was changed
+        CONFLICT,            // Every compare-and-set attempt lost to a concurrent writer
+        ERROR                // Database failure
+    }
+
+    private final Status status;
+    private final int bookID;
+    private final int delta;
+    private final int newStock;   // Stock after the adjustment (or the last stock seen if it failed)
+    private final long version;   // Row version after the adjustment (or the last version seen)
+    private final int attempts;   // Compare-and-set attempts made
+    private final String message; // Error detail for ERROR results
+
+    private StockAdjustResult(Status status, int bookID, int delta, int newStock, long version,
+                              int attempts, String message) {
+        this.status = status;
+        this.bookID = bookID;
+        this.delta = delta;
+        this.newStock = newStock;
+        this.version = version;
+        this.attempts = attempts;
+        this.message = message;
+    }
+
+    // Factory methods for each outcome
+    public static StockAdjustResult applied(int bookID, int delta, int newStock, long version, int attempts) {
+        return new StockAdjustResult(Status.APPLIED, bookID, delta, newStock, version, attempts, null);
+    }
+
+    public static StockAdjustResult notFound(int bookID, int delta) {
+        return new StockAdjustResult(Status.BOOK_NOT_FOUND, bookID, delta, 0, 0, 1, null);
+    }
+
+    public static StockAdjustResult insufficientStock(int bookID, int delta, int stock, long version, int attempts) {
+        return new StockAdjustResult(Status.INSUFFICIENT_STOCK, bookID, delta, stock, version, attempts, null);
+    }
+
+    public static StockAdjustResult conflict(int bookID, int delta, int attempts) {
+        return new StockAdjustResult(Status.CONFLICT, bookID, delta, 0, 0, attempts, null);
+    }
+
+    public static StockAdjustResult error(int bookID, int delta, int attempts, String message) {
+        return new StockAdjustResult(Status.ERROR, bookID, delta, 0, 0, attempts, message);
+    }
+
+    // Getter methods
+    public Status getStatus() { return status; }
+    public boolean isApplied() { return status == Status.APPLIED; }
+    public int getBookID() { return bookID; }
+    public int getDelta() { return delta; }
+    public int getNewStock() { return newStock; }
+    public long getVersion() { return version; }
+    public int getAttempts() { return attempts; }
+    public String getMessage() { return message; }
+
+    // Human-readable description, suitable for a dialog box
+    @Override
+    public String toString() {
+        switch (status) {
+            case APPLIED:
+                return "Stock of Book ID " + bookID + " changed by " + delta + " to " + newStock +
+                       " (version " + version + ")";
+            case BOOK_NOT_FOUND:
+                return "Book ID " + bookID + " not found.";
+            case INSUFFICIENT_STOCK:
+                return "Cannot change stock of Book ID " + bookID + " by " + delta +
+                       ": only " + newStock + " on hand.";
+            case CONFLICT:
+                return "Stock of Book ID " + bookID + " kept changing; gave up after " + attempts + " attempts.";
+            default:
+                return "Stock adjustment failed for Book ID " + bookID + ": " + message;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+// Copies of one book on hand in each store, merged from every shard by StoreInventory.availability.
+// Stores without a stock row are left out. If a shard did not answer in time its stores are
+// missing too and the shard is listed in getUnavailableShards(), so callers can tell "none in
+// stock" from "don't know".
+public class StoreAvailability {
+    private final int bookID;
+    private final Map<Integer, Integer> byStore;          // storeID -> quantity, ascending storeID
+    private final List<String> unavailableShards;
+
+    StoreAvailability(int bookID, Map<Integer, Integer> byStore, List<String> unavailableShards) {
+        this.bookID = bookID;
+        this.byStore = Collections.unmodifiableMap(byStore);
+        this.unavailableShards = Collections.unmodifiableList(unavailableShards);
+    }
+
+    // Getter methods
+    public int getBookID() { return bookID; }
+    public Map<Integer, Integer> getByStore() { return byStore; }
+    public List<String> getUnavailableShards() { return unavailableShards; }
+
+    // Copies in one store (0 if it has none or its shard did not answer)
+    public int getQuantity(int storeID) {
+        return byStore.getOrDefault(storeID, 0);
+    }
+
+    // Copies across all stores that answered
+    public int getTotal() {
+        int total = 0;
+        for (int quantity : byStore.values()) total += quantity;
+        return total;
+    }
+
+    // True if every shard answered
+    public boolean isComplete() {
+        return unavailableShards.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "Book ID " + bookID + ": " + getTotal() + " in stores " + byStore +
+               (isComplete() ? "" : " (no answer from " + unavailableShards + ")");
+    }
+}
@@ -0,0 +1,586 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Stock held per store, for chains where every location keeps its own copies.
+// The catalog (titles, prices) stays in BookstoreInventory; what each store has on hand lives in
+// store_stock on the shard the ShardMap assigns to that store, next to the store's invoices. A sale
+// touches only its store's shard. Availability across stores asks every shard at once (one virtual
+// thread each) and merges the answers, reporting shards that did not answer in time.
+//
+// Transfers between stores on the same shard are one transaction. Across shards there is no
+// distributed transaction: the source debits its stock and records the transfer as SENT in its
+// outbox in one local transaction, then the destination credits its stock and records the transfer
+// ID in its inbox in another. The inbox makes the credit idempotent, so a transfer whose second half
+// failed is simply delivered again by the retry task (-Dbookstore.shards.transferRetrySeconds,
+// default 30) - copies are never lost or counted twice, only briefly in transit.
+public class StoreInventory implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(StoreInventory.class.getName());
+
+    private static final int IN_LIST_CHUNK = 500;   // Book IDs per availability query
+    private static final String SENT = "SENT";
+    private static final String DELIVERED = "DELIVERED";
+
+    private static final String[] CREATE_TABLES_SQL = {
+            "CREATE TABLE IF NOT EXISTS store_stock (" +
+            "storeID INT NOT NULL, " +
+            "bookID INT NOT NULL, " +
+            "quantity INT NOT NULL, " +
+            "version BIGINT NOT NULL DEFAULT 0, " +
+            "PRIMARY KEY (storeID, bookID))",
+            "CREATE TABLE IF NOT EXISTS store_invoices (" +
+            "invoiceID BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+            "storeID INT NOT NULL, " +
+            "saleDate DATETIME(3) NOT NULL, " +
+            "bookID INT NOT NULL, " +
+            "bookTitle VARCHAR(255), " +
+            "quantity INT NOT NULL, " +
+            "totalPrice DECIMAL(10,2) NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS store_transfers_out (" +
+            "transferID VARCHAR(36) PRIMARY KEY, " +
+            "fromStore INT NOT NULL, " +
+            "toStore INT NOT NULL, " +
+            "bookID INT NOT NULL, " +
+            "quantity INT NOT NULL, " +
+            "status VARCHAR(20) NOT NULL, " +
+            "createdAt DATETIME(3) NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS store_transfers_in (" +
+            "transferID VARCHAR(36) PRIMARY KEY, " +
+            "receivedAt DATETIME(3) NOT NULL)"
+    };
+
+    private final BookstoreInventory catalog;
+    private final ShardMap shards;
+    private final long timeoutMillis;
+    private final ExecutorService fanOut = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService retryWorker;
+    private final Set<String> tablesChecked = ConcurrentHashMap.newKeySet();
+
+    // Constructor - nothing touches the shards until start()
+    public StoreInventory(BookstoreInventory catalog, ShardMap shards) {
+        this.catalog = catalog;
+        this.shards = shards;
+        this.timeoutMillis = Long.getLong("bookstore.shards.timeoutMs", 2000L);
+        this.retryWorker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "store-transfer-retry");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // Create the store tables on every reachable shard and start the transfer retry task (call once);
+    // returns this
+    public StoreInventory start() {
+        for (String shard : shards.getShards()) {
+            try {
+                connect(shard).close();   // connect() creates the tables
+            } catch (SQLException e) {
+                logger.log(Level.WARNING, "Shard " + shard + " unavailable at start-up: " + e.getMessage());
+            }
+        }
+
+        long retrySeconds = Long.getLong("bookstore.shards.transferRetrySeconds", 30L);
+        retryWorker.execute(this::retryPendingTransfers);   // Deliver what a previous run left in transit
+        if (retrySeconds > 0) {
+            retryWorker.scheduleWithFixedDelay(this::retryPendingTransfers, retrySeconds, retrySeconds,
+                    TimeUnit.SECONDS);
+        }
+        return this;
+    }
+
+    public ShardMap getShardMap() {
+        return shards;
+    }
+
+    /* ---------- Sales ---------- */
+
+    // Sell from one store's stock; price and title come from the catalog
+    public SaleResult processStoreSale(int storeID, int bookID, int quantity) {
+        String shard = shards.shardOf(storeID);   // Unknown store -> IllegalArgumentException
+        if (quantity <= 0) return SaleResult.invalidQuantity(bookID, quantity);
+
+        long timer = InventoryMetrics.STORE_SALE.start();
+        boolean ok = false;
+        try {
+            Books book = catalog.getBook(bookID);
+            if (book == null) {
+                ok = true;
+                return SaleResult.notFound(bookID, quantity);
+            }
+            SaleResult result = sellFromStore(shard, storeID, book, quantity);
+            ok = result.getStatus() != SaleResult.Status.ERROR;
+            return result;
+        } finally {
+            InventoryMetrics.STORE_SALE.stop(timer, ok);
+        }
+    }
+
+    private SaleResult sellFromStore(String shard, int storeID, Books book, int quantity) {
+        final String updateStockSQL =
+                "UPDATE store_stock SET quantity = quantity - ?, version = version + 1 " +
+                "WHERE storeID = ? AND bookID = ? AND quantity >= ?";
+        final String insertInvoiceSQL =
+                "INSERT INTO store_invoices (storeID, saleDate, bookID, bookTitle, quantity, totalPrice) " +
+                "VALUES (?, ?, ?, ?, ?, ?)";
+        int bookID = book.getBookID();
+
+        try (Connection conn = connect(shard)) {
+            conn.setAutoCommit(false);  // Begin atomic block
+
+            try (PreparedStatement stockStmt   = conn.prepareStatement(updateStockSQL);
+                 PreparedStatement invoiceStmt = conn.prepareStatement(insertInvoiceSQL)) {
+
+                /* ---------- Update stock (guarded against overselling) ---------- */
+                stockStmt.setInt(1, quantity);
+                stockStmt.setInt(2, storeID);
+                stockStmt.setInt(3, bookID);
+                stockStmt.setInt(4, quantity);
+                if (stockStmt.executeUpdate() == 0) {
+                    int available = readStock(conn, storeID, bookID);
+                    conn.rollback();
+                    return SaleResult.insufficientStock(bookID, book.getTitle(), quantity, available);
+                }
+                int remaining = readStock(conn, storeID, bookID);
+
+                /* ---------- Insert invoice ---------- */
+                double total = book.getPrice() * quantity;
+                invoiceStmt.setInt      (1, storeID);
+                invoiceStmt.setTimestamp(2, new Timestamp(System.currentTimeMillis()));  // saleDate
+                invoiceStmt.setInt      (3, bookID);
+                invoiceStmt.setString   (4, book.getTitle());
+                invoiceStmt.setInt      (5, quantity);
+                invoiceStmt.setDouble   (6, total);
+                invoiceStmt.executeUpdate();
+
+                conn.commit();  // All good
+                return SaleResult.success(bookID, book.getTitle(), quantity, book.getPrice(), total, remaining);
+
+            } catch (SQLException inner) {
+                conn.rollback();                 // Undo both steps if either fails
+                throw inner;
+            }
+        } catch (SQLException e) {
+            System.out.println("Error processing sale in store " + storeID + ": " + e.getMessage());
+            return SaleResult.error(bookID, quantity, e.getMessage());
+        }
+    }
+
+    /* ---------- Stock ---------- */
+
+    // Copies of a book in one store (0 if the store has never stocked it)
+    public int getStoreStock(int storeID, int bookID) {
+        try (Connection conn = connect(shards.shardOf(storeID))) {
+            return readStock(conn, storeID, bookID);
+        } catch (SQLException e) {
+            throw new UncheckedSQLException(e);
+        }
+    }
+
+    // Set a store's stock of a book after a count; creates the row if the store never stocked it
+    public boolean setStoreStock(int storeID, int bookID, int quantity) {
+        if (quantity < 0) throw new IllegalArgumentException("quantity must not be negative");
+        final String updateSQL =
+                "UPDATE store_stock SET quantity = ?, version = version + 1 WHERE storeID = ? AND bookID = ?";
+        try (Connection conn = connect(shards.shardOf(storeID))) {
+            while (true) {
+                try (PreparedStatement stmt = conn.prepareStatement(updateSQL)) {
+                    stmt.setInt(1, quantity);
+                    stmt.setInt(2, storeID);
+                    stmt.setInt(3, bookID);
+                    if (stmt.executeUpdate() > 0) return true;
+                }
+                if (insertStock(conn, storeID, bookID, quantity)) return true;
+                // Someone inserted the row in between: update it instead
+            }
+        } catch (SQLException e) {
+            System.out.println("Error setting stock in store " + storeID + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /* ---------- Availability ---------- */
+
+    // Copies of one book in every store
+    public StoreAvailability availability(int bookID) {
+        return availability(List.of(bookID)).get(bookID);
+    }
+
+    // Copies of several books in every store, asking all shards in parallel. A shard that fails or
+    // does not answer within bookstore.shards.timeoutMs is reported as unavailable in every result.
+    public Map<Integer, StoreAvailability> availability(Collection<Integer> bookIDs) {
+        long timer = InventoryMetrics.STORE_AVAILABILITY.start();
+        boolean ok = false;
+        try {
+            List<Integer> ids = new ArrayList<>(new TreeSet<>(bookIDs));
+            List<String> queried = new ArrayList<>();
+            List<Callable<Map<Integer, Map<Integer, Integer>>>> tasks = new ArrayList<>();
+            for (String shard : shards.getShards()) {
+                List<Integer> stores = shards.storesOn(shard);
+                if (stores.isEmpty() || ids.isEmpty()) continue;
+                queried.add(shard);
+                tasks.add(() -> readShardStock(shard, new HashSet<>(stores), ids));
+            }
+
+            Map<Integer, Map<Integer, Integer>> merged = new HashMap<>();   // bookID -> storeID -> quantity
+            List<String> unavailable = new ArrayList<>();
+            List<Future<Map<Integer, Map<Integer, Integer>>>> answers = tasks.isEmpty()
+                    ? List.of()
+                    : fanOut.invokeAll(tasks, timeoutMillis, TimeUnit.MILLISECONDS);
+            for (int i = 0; i < answers.size(); i++) {
+                try {
+                    for (Map.Entry<Integer, Map<Integer, Integer>> e : answers.get(i).get().entrySet()) {
+                        merged.computeIfAbsent(e.getKey(), id -> new TreeMap<>()).putAll(e.getValue());
+                    }
+                } catch (ExecutionException | CancellationException e) {
+                    unavailable.add(queried.get(i));
+                    logger.log(Level.WARNING, "No stock answer from shard " + queried.get(i) + ": " +
+                            (e.getCause() != null ? e.getCause().getMessage() : "timed out"));
+                }
+            }
+
+            Map<Integer, StoreAvailability> result = new LinkedHashMap<>();
+            for (int bookID : ids) {
+                result.put(bookID, new StoreAvailability(bookID,
+                        merged.getOrDefault(bookID, new TreeMap<>()), unavailable));
+            }
+            ok = unavailable.isEmpty();
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while asking shards for stock", e);
+        } finally {
+            InventoryMetrics.STORE_AVAILABILITY.stop(timer, ok);
+        }
+    }
+
+    // Stock rows of the given books on one shard, limited to the stores the map assigns to it
+    private Map<Integer, Map<Integer, Integer>> readShardStock(String shard, Set<Integer> stores,
+                                                               List<Integer> bookIDs) throws SQLException {
+        Map<Integer, Map<Integer, Integer>> found = new HashMap<>();
+        try (Connection conn = connect(shard)) {
+            for (int from = 0; from < bookIDs.size(); from += IN_LIST_CHUNK) {
+                List<Integer> chunk = bookIDs.subList(from, Math.min(bookIDs.size(), from + IN_LIST_CHUNK));
+                String sql = "SELECT storeID, bookID, quantity FROM store_stock WHERE bookID IN (" +
+                             "?,".repeat(chunk.size() - 1) + "?)";
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) stmt.setInt(i + 1, chunk.get(i));
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            int storeID = rs.getInt("storeID");
+                            if (!stores.contains(storeID)) continue;   // Left over from an older layout
+                            found.computeIfAbsent(rs.getInt("bookID"), id -> new HashMap<>())
+                                 .put(storeID, rs.getInt("quantity"));
+                        }
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /* ---------- Transfers ---------- */
+
+    // Move copies of a book from one store to another
+    public TransferResult transfer(int fromStore, int toStore, int bookID, int quantity) {
+        if (quantity <= 0) return TransferResult.invalid(fromStore, toStore, bookID, quantity, "quantity must be positive");
+        if (fromStore == toStore) return TransferResult.invalid(fromStore, toStore, bookID, quantity, "same store");
+        if (!shards.hasStore(fromStore) || !shards.hasStore(toStore)) {
+            return TransferResult.invalid(fromStore, toStore, bookID, quantity, "unknown store");
+        }
+
+        long timer = InventoryMetrics.STORE_TRANSFER.start();
+        boolean ok = false;
+        try {
+            String transferID = UUID.randomUUID().toString();
+            TransferResult result = shards.shardOf(fromStore).equals(shards.shardOf(toStore))
+                    ? transferOnShard(transferID, fromStore, toStore, bookID, quantity)
+                    : transferAcrossShards(transferID, fromStore, toStore, bookID, quantity);
+            ok = result.getStatus() != TransferResult.Status.ERROR;
+            return result;
+        } finally {
+            InventoryMetrics.STORE_TRANSFER.stop(timer, ok);
+        }
+    }
+
+    // Both stores on one shard: a single transaction
+    private TransferResult transferOnShard(String transferID, int fromStore, int toStore, int bookID, int quantity) {
+        final String lockRowsSQL =
+                "SELECT storeID FROM store_stock WHERE storeID IN (?, ?) AND bookID = ? ORDER BY storeID FOR UPDATE";
+
+        try (Connection conn = connect(shards.shardOf(fromStore))) {
+            conn.setAutoCommit(false);
+            try {
+                /* ---------- Lock both rows in storeID order (no deadlock with the reverse transfer) ---------- */
+                try (PreparedStatement lockStmt = conn.prepareStatement(lockRowsSQL)) {
+                    lockStmt.setInt(1, Math.min(fromStore, toStore));
+                    lockStmt.setInt(2, Math.max(fromStore, toStore));
+                    lockStmt.setInt(3, bookID);
+                    try (ResultSet rs = lockStmt.executeQuery()) {
+                        while (rs.next()) {
+                            // Locking only
+                        }
+                    }
+                }
+
+                /* ---------- Debit the source, credit the destination ---------- */
+                if (!debit(conn, fromStore, bookID, quantity)) {
+                    int available = readStock(conn, fromStore, bookID);
+                    conn.rollback();
+                    return TransferResult.insufficientStock(fromStore, toStore, bookID, quantity, available);
+                }
+                credit(conn, toStore, bookID, quantity);
+                recordOutgoing(conn, transferID, fromStore, toStore, bookID, quantity, DELIVERED);
+                int left = readStock(conn, fromStore, bookID);
+
+                conn.commit();
+                return TransferResult.completed(transferID, fromStore, toStore, bookID, quantity, left);
+            } catch (SQLException inner) {
+                conn.rollback();
+                throw inner;
+            }
+        } catch (SQLException e) {
+            System.out.println("Error transferring stock: " + e.getMessage());
+            return TransferResult.error(fromStore, toStore, bookID, quantity, e.getMessage());
+        }
+    }
+
+    // Stores on different shards: debit and outbox at the source, then deliver to the destination
+    private TransferResult transferAcrossShards(String transferID, int fromStore, int toStore, int bookID,
+                                                int quantity) {
+        int left;
+        try (Connection conn = connect(shards.shardOf(fromStore))) {
+            conn.setAutoCommit(false);
+            try {
+                if (!debit(conn, fromStore, bookID, quantity)) {
+                    int available = readStock(conn, fromStore, bookID);
+                    conn.rollback();
+                    return TransferResult.insufficientStock(fromStore, toStore, bookID, quantity, available);
+                }
+                recordOutgoing(conn, transferID, fromStore, toStore, bookID, quantity, SENT);
+                left = readStock(conn, fromStore, bookID);
+                conn.commit();
+            } catch (SQLException inner) {
+                conn.rollback();
+                throw inner;
+            }
+        } catch (SQLException e) {
+            System.out.println("Error transferring stock: " + e.getMessage());
+            return TransferResult.error(fromStore, toStore, bookID, quantity, e.getMessage());
+        }
+
+        try {
+            deliver(transferID, fromStore, toStore, bookID, quantity);
+            return TransferResult.completed(transferID, fromStore, toStore, bookID, quantity, left);
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Transfer " + transferID + " left store " + fromStore +
+                    " but could not be delivered yet: " + e.getMessage());
+            return TransferResult.inTransit(transferID, fromStore, toStore, bookID, quantity, left, e.getMessage());
+        }
+    }
+
+    // Second half of a cross-shard transfer; safe to repeat, the inbox row ensures one credit per transfer
+    private void deliver(String transferID, int fromStore, int toStore, int bookID, int quantity)
+            throws SQLException {
+        final String inboxSQL = "INSERT INTO store_transfers_in (transferID, receivedAt) VALUES (?, ?)";
+        final String markDeliveredSQL =
+                "UPDATE store_transfers_out SET status = ? WHERE transferID = ? AND status = ?";
+
+        /* ---------- Credit the destination once ---------- */
+        try (Connection conn = connect(shards.shardOf(toStore))) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement inbox = conn.prepareStatement(inboxSQL)) {
+                inbox.setString   (1, transferID);
+                inbox.setTimestamp(2, new Timestamp(System.currentTimeMillis()));
+                boolean first;
+                try {
+                    inbox.executeUpdate();
+                    first = true;
+                } catch (SQLException e) {
+                    if (!isDuplicateKey(e)) throw e;
+                    first = false;                     // Credited by an earlier attempt
+                }
+                if (first) credit(conn, toStore, bookID, quantity);
+                conn.commit();
+            } catch (SQLException inner) {
+                conn.rollback();
+                throw inner;
+            }
+        }
+
+        /* ---------- Close the outbox entry ---------- */
+        try (Connection conn = connect(shards.shardOf(fromStore));
+             PreparedStatement stmt = conn.prepareStatement(markDeliveredSQL)) {
+            stmt.setString(1, DELIVERED);
+            stmt.setString(2, transferID);
+            stmt.setString(3, SENT);
+            stmt.executeUpdate();
+        }
+    }
+
+    // Deliver every transfer still marked SENT in any shard's outbox; returns how many were delivered
+    public int retryPendingTransfers() {
+        final String pendingSQL =
+                "SELECT transferID, fromStore, toStore, bookID, quantity FROM store_transfers_out " +
+                "WHERE status = ? ORDER BY createdAt";
+        int delivered = 0;
+        for (String shard : shards.getShards()) {
+            List<Object[]> pending = new ArrayList<>();
+            try (Connection conn = connect(shard);
+                 PreparedStatement stmt = conn.prepareStatement(pendingSQL)) {
+                stmt.setString(1, SENT);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        pending.add(new Object[] { rs.getString("transferID"), rs.getInt("fromStore"),
+                                rs.getInt("toStore"), rs.getInt("bookID"), rs.getInt("quantity") });
+                    }
+                }
+            } catch (SQLException e) {
+                logger.log(Level.WARNING, "Cannot read pending transfers on shard " + shard + ": " + e.getMessage());
+                continue;
+            }
+
+            for (Object[] t : pending) {
+                int toStore = (Integer) t[2];
+                if (!shards.hasStore(toStore)) {
+                    logger.log(Level.WARNING, "Transfer " + t[0] + " is for store " + toStore +
+                            ", which is no longer in the shard map");
+                    continue;
+                }
+                try {
+                    deliver((String) t[0], (Integer) t[1], toStore, (Integer) t[3], (Integer) t[4]);
+                    delivered++;
+                } catch (SQLException e) {
+                    logger.log(Level.WARNING, "Transfer " + t[0] + " still in transit: " + e.getMessage());
+                }
+            }
+        }
+        if (delivered > 0) logger.log(Level.INFO, "Delivered " + delivered + " pending store transfers");
+        return delivered;
+    }
+
+    /* ---------- JDBC helpers ---------- */
+
+    // Borrow a connection from a shard, creating the store tables on first use
+    private Connection connect(String shard) throws SQLException {
+        Connection conn = shards.pool(shard).borrow();
+        if (!tablesChecked.contains(shard)) {
+            try (Statement ddl = conn.createStatement()) {
+                for (String sql : CREATE_TABLES_SQL) ddl.execute(sql);
+            } catch (SQLException e) {
+                conn.close();
+                throw e;
+            }
+            tablesChecked.add(shard);
+        }
+        return conn;
+    }
+
+    private static int readStock(Connection conn, int storeID, int bookID) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT quantity FROM store_stock WHERE storeID = ? AND bookID = ?")) {
+            stmt.setInt(1, storeID);
+            stmt.setInt(2, bookID);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    // Guarded decrement; false if the store does not have enough copies
+    private static boolean debit(Connection conn, int storeID, int bookID, int quantity) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "UPDATE store_stock SET quantity = quantity - ?, version = version + 1 " +
+                "WHERE storeID = ? AND bookID = ? AND quantity >= ?")) {
+            stmt.setInt(1, quantity);
+            stmt.setInt(2, storeID);
+            stmt.setInt(3, bookID);
+            stmt.setInt(4, quantity);
+            return stmt.executeUpdate() > 0;
+        }
+    }
+
+    // Add copies to a store, creating its row if it never stocked the book
+    private static void credit(Connection conn, int storeID, int bookID, int quantity) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "UPDATE store_stock SET quantity = quantity + ?, version = version + 1 " +
+                "WHERE storeID = ? AND bookID = ?")) {
+            stmt.setInt(1, quantity);
+            stmt.setInt(2, storeID);
+            stmt.setInt(3, bookID);
+            while (stmt.executeUpdate() == 0) {
+                if (insertStock(conn, storeID, bookID, quantity)) return;
+            }
+        }
+    }
+
+    // Insert a new stock row; false if one already exists (another writer got there first)
+    private static boolean insertStock(Connection conn, int storeID, int bookID, int quantity) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO store_stock (storeID, bookID, quantity, version) VALUES (?, ?, ?, 0)")) {
+            stmt.setInt(1, storeID);
+            stmt.setInt(2, bookID);
+            stmt.setInt(3, quantity);
+            stmt.executeUpdate();
+            return true;
+        } catch (SQLException e) {
+            if (isDuplicateKey(e)) return false;
+            throw e;
+        }
+    }
+
+    private static void recordOutgoing(Connection conn, String transferID, int fromStore, int toStore, int bookID,
+                                       int quantity, String status) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO store_transfers_out (transferID, fromStore, toStore, bookID, quantity, status, createdAt) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+            stmt.setString   (1, transferID);
+            stmt.setInt      (2, fromStore);
+            stmt.setInt      (3, toStore);
+            stmt.setInt      (4, bookID);
+            stmt.setInt      (5, quantity);
+            stmt.setString   (6, status);
+            stmt.setTimestamp(7, new Timestamp(System.currentTimeMillis()));
+            stmt.executeUpdate();
+        }
+    }
+
+    // Only a unique-key clash counts: MySQL reports it as SQLState 23000 with error 1062, H2 and Derby
+    // as 23505. Other class-23 states (NOT NULL, CHECK, foreign key) would fail on every retry.
+    private static boolean isDuplicateKey(SQLException e) {
+        String state = e.getSQLState();
+        if (state == null) return false;
+        return (state.equals("23000") && e.getErrorCode() == 1062) || state.equals("23505");
+    }
+
+    // Stop the retry task and the fan-out threads; the ShardMap's pools belong to whoever created it
+    @Override
+    public void close() {
+        retryWorker.shutdownNow();
+        fanOut.shutdownNow();
+    }
+}
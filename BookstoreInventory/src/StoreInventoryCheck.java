@@ -0,0 +1,355 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Repeatable checks for ShardMap and StoreInventory over three embedded endpoints in one process:
+// every store's rows land on its own shard, availability asks all shards at once and names the one
+// that did not answer, and a cross-shard transfer whose second half failed is credited exactly once
+// when it is delivered again - also when the credit went through but the outbox was never closed,
+// and when several retries race. Each check gets fresh databases; a failing delivery is staged by
+// taking the destination's inbox table offline. The catalog is an InMemoryInventoryRepository.
+// The default endpoints are H2 in-memory databases in MySQL mode (H2 is a test dependency in
+// pom.xml, and `mvn -B test` runs this with the other harnesses); another URL template with %s for
+// the database name may be given instead.
+//
+//   java StoreInventoryCheck [jdbc-url-template [user password]]     (exit status 1 if any check fails)
+public class StoreInventoryCheck {
+    private static final String DEFAULT_URL = "jdbc:h2:mem:%s;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    private static final long TIMEOUT_MILLIS = 1_000L;   // bookstore.shards.timeoutMs for every check
+
+    private static final String[] TABLES = {
+            "store_stock", "store_invoices", "store_transfers_out", "store_transfers_in", "store_transfers_in_offline"
+    };
+
+    private static final AtomicInteger databases = new AtomicInteger();
+    private static String urlTemplate = DEFAULT_URL;
+    private static String user = "sa";
+    private static String password = "";
+
+    public static void main(String[] args) {
+        if (args.length > 0) {
+            urlTemplate = args[0];
+            user = args.length > 1 ? args[1] : "";
+            password = args.length > 2 ? args[2] : "";
+        }
+        System.setProperty("bookstore.shards.timeoutMs", Long.toString(TIMEOUT_MILLIS));
+        CheckReport report = new CheckReport("StoreInventoryCheck");
+
+        report.run("shard map routes each store to one endpoint", () -> {
+            try (Fixture f = new Fixture()) {
+                ShardMap map = f.stores.getShardMap();
+                CheckReport.expectEquals(List.of("east", "west", "north"), new ArrayList<>(map.getShards()), "shards");
+                CheckReport.expectEquals("east", map.shardOf(2), "shard of store 2");
+                CheckReport.expectEquals("west", map.shardOf(3), "shard of store 3");
+                CheckReport.expectEquals(List.of(4, 5), map.storesOn("north"), "stores on north");
+                CheckReport.expect(map.poolFor(4) == map.pool("north"), "store 4 uses the north pool");
+                CheckReport.expect(!map.hasStore(9), "store 9 is not configured");
+                expectRejected(() -> map.shardOf(9), "shardOf an unknown store");
+                expectRejected(() -> f.stores.processStoreSale(9, f.book, 1), "sale in an unknown store");
+
+                for (int store = 1; store <= 5; store++) {
+                    CheckReport.expect(f.stores.setStoreStock(store, f.book, 10 * store), "stock store " + store);
+                }
+                SaleResult sale = f.stores.processStoreSale(3, f.book, 4);
+                CheckReport.expectEquals(SaleResult.Status.SUCCESS, sale.getStatus(), "sale in store 3");
+                CheckReport.expectEquals(26, f.stores.getStoreStock(3, f.book), "store 3 after the sale");
+
+                CheckReport.expectEquals(List.of(1, 2), f.storesWithRows("east"), "stock rows on east");
+                CheckReport.expectEquals(List.of(3), f.storesWithRows("west"), "stock rows on west");
+                CheckReport.expectEquals(List.of(4, 5), f.storesWithRows("north"), "stock rows on north");
+                CheckReport.expectEquals(0L, f.count("east", "SELECT COUNT(*) FROM store_invoices"), "invoices on east");
+                CheckReport.expectEquals(1L, f.count("west", "SELECT COUNT(*) FROM store_invoices WHERE storeID = 3"),
+                        "invoices on west");
+            }
+        });
+
+        report.run("unknown shard in the layout is refused", () -> {
+            Properties props = new Properties();
+            props.setProperty("shard.east.url", url("store_check_" + databases.incrementAndGet() + "_east"));
+            props.setProperty("shard.east.user", user);
+            props.setProperty("shard.east.password", password);
+            props.setProperty("store.1", "east");
+            props.setProperty("store.2", "south");
+            expectRejected(() -> ShardMap.fromProperties(props), "store mapped to a missing shard");
+        });
+
+        report.run("availability merges every shard", () -> {
+            try (Fixture f = new Fixture()) {
+                f.stores.setStoreStock(1, f.book, 3);
+                f.stores.setStoreStock(3, f.book, 5);
+                f.stores.setStoreStock(5, f.book, 7);
+                f.stores.setStoreStock(2, f.other, 1);
+
+                Map<Integer, StoreAvailability> found = f.stores.availability(List.of(f.other, f.book, f.missing));
+                CheckReport.expectEquals(List.of(f.book, f.other, f.missing), new ArrayList<>(found.keySet()), "books");
+                StoreAvailability book = found.get(f.book);
+                CheckReport.expect(book.isComplete(), "every shard answered: " + book);
+                CheckReport.expectEquals(Map.of(1, 3, 3, 5, 5, 7), book.getByStore(), "copies by store");
+                CheckReport.expectEquals(15, book.getTotal(), "total copies");
+                CheckReport.expectEquals(Map.of(2, 1), found.get(f.other).getByStore(), "other book");
+                CheckReport.expectEquals(0, found.get(f.missing).getTotal(), "book no store stocks");
+            }
+        });
+
+        report.run("availability asks the shards in parallel", () -> {
+            try (Fixture f = new Fixture()) {
+                for (int store = 1; store <= 5; store++) f.stores.setStoreStock(store, f.book, store);
+
+                // Each shard's only connection is handed back once all three shards have a query waiting
+                // for it at the same time, which a one-shard-after-another fan-out never reaches
+                Thread gate = f.releaseWhenAllWaiting(List.of("east", "west", "north"));
+                StoreAvailability all = f.stores.availability(f.book);
+                gate.join();
+
+                CheckReport.expect(all.isComplete(), "every shard answered together: " + all);
+                CheckReport.expectEquals(15, all.getTotal(), "total copies");
+            }
+        });
+
+        report.run("availability names a shard that does not answer", () -> {
+            try (Fixture f = new Fixture()) {
+                for (int store = 1; store <= 5; store++) f.stores.setStoreStock(store, f.book, store);
+
+                Thread holder = f.hold("west", TIMEOUT_MILLIS * 2);
+                long start = System.nanoTime();
+                StoreAvailability partial = f.stores.availability(f.book);
+                long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                holder.join();
+
+                CheckReport.expectEquals(List.of("west"), partial.getUnavailableShards(), "unavailable shards");
+                CheckReport.expectEquals(Map.of(1, 1, 2, 2, 4, 4, 5, 5), partial.getByStore(), "copies by store");
+                CheckReport.expect(elapsed < TIMEOUT_MILLIS * 3 / 2, "gave up after " + elapsed + " ms");
+                CheckReport.expect(f.stores.availability(f.book).isComplete(), "west answers again");
+            }
+        });
+
+        report.run("constraint violation is not retried as a duplicate key", () -> {
+            try (Fixture f = new Fixture()) {
+                f.update("east", "ALTER TABLE store_stock ADD CONSTRAINT stock_cap CHECK (quantity <= 100)");
+                // A CHECK failure is SQLState class 23 too; it must fail the call, not retry the insert
+                ExecutorService pool = Executors.newSingleThreadExecutor();
+                try {
+                    Future<Boolean> set = pool.submit(() -> f.stores.setStoreStock(1, f.book, 500));
+                    CheckReport.expect(!set.get(10, TimeUnit.SECONDS), "stock over the CHECK limit was refused");
+                } finally {
+                    pool.shutdownNow();
+                }
+                CheckReport.expectEquals(0, f.stores.getStoreStock(1, f.book), "store 1");
+            }
+        });
+
+        report.run("same-shard transfer is one transaction", () -> {
+            try (Fixture f = new Fixture()) {
+                f.stores.setStoreStock(4, f.book, 6);
+                TransferResult moved = f.stores.transfer(4, 5, f.book, 4);
+                CheckReport.expectEquals(TransferResult.Status.COMPLETED, moved.getStatus(), "transfer");
+                CheckReport.expectEquals(2, f.stores.getStoreStock(4, f.book), "store 4");
+                CheckReport.expectEquals(4, f.stores.getStoreStock(5, f.book), "store 5");
+                CheckReport.expectEquals(TransferResult.Status.INSUFFICIENT_STOCK,
+                        f.stores.transfer(4, 5, f.book, 3).getStatus(), "transfer of more than store 4 has");
+                CheckReport.expectEquals(0L, f.pendingTransfers("north"), "pending transfers");
+            }
+        });
+
+        report.run("failed cross-shard delivery is credited once on retry", () -> {
+            try (Fixture f = new Fixture()) {
+                f.stores.setStoreStock(1, f.book, 10);
+
+                f.inboxOffline("west", true);
+                TransferResult moved = f.stores.transfer(1, 3, f.book, 4);
+                CheckReport.expectEquals(TransferResult.Status.IN_TRANSIT, moved.getStatus(), "transfer");
+                CheckReport.expectEquals(6, moved.getSourceStock(), "source stock reported");
+                CheckReport.expectEquals(6, f.stores.getStoreStock(1, f.book), "store 1 after the debit");
+                CheckReport.expectEquals(0, f.stores.getStoreStock(3, f.book), "store 3 before delivery");
+                CheckReport.expectEquals(1L, f.pendingTransfers("east"), "pending transfers");
+
+                CheckReport.expectEquals(0, f.stores.retryPendingTransfers(), "delivered while west is still down");
+                f.inboxOffline("west", false);
+                CheckReport.expectEquals(1, f.stores.retryPendingTransfers(), "delivered once west is back");
+                CheckReport.expectEquals(0, f.stores.retryPendingTransfers(), "delivered on the next retry");
+                CheckReport.expectEquals(4, f.stores.getStoreStock(3, f.book), "store 3 after delivery");
+                CheckReport.expectEquals(10, f.stores.availability(f.book).getTotal(), "copies across stores");
+                CheckReport.expectEquals(0L, f.pendingTransfers("east"), "pending transfers");
+            }
+        });
+
+        report.run("lost outbox update does not credit twice", () -> {
+            try (Fixture f = new Fixture()) {
+                f.stores.setStoreStock(1, f.book, 10);
+                TransferResult moved = f.stores.transfer(1, 4, f.book, 3);
+                CheckReport.expectEquals(TransferResult.Status.COMPLETED, moved.getStatus(), "transfer");
+
+                // The credit committed but the source never heard back: its outbox still says SENT
+                f.update("east", "UPDATE store_transfers_out SET status = 'SENT' WHERE transferID = '" +
+                        moved.getTransferID() + "'");
+                CheckReport.expectEquals(1, f.stores.retryPendingTransfers(), "redelivered");
+                CheckReport.expectEquals(3, f.stores.getStoreStock(4, f.book), "store 4");
+                CheckReport.expectEquals(7, f.stores.getStoreStock(1, f.book), "store 1");
+                CheckReport.expectEquals(0L, f.pendingTransfers("east"), "pending transfers");
+            }
+        });
+
+        report.run("racing retries credit a transfer once", () -> {
+            try (Fixture f = new Fixture()) {
+                f.stores.setStoreStock(3, f.book, 20);
+                f.inboxOffline("north", true);
+                for (int i = 0; i < 5; i++) {
+                    CheckReport.expectEquals(TransferResult.Status.IN_TRANSIT,
+                            f.stores.transfer(3, 5, f.book, 2).getStatus(), "transfer " + i);
+                }
+                f.inboxOffline("north", false);
+
+                ExecutorService pool = Executors.newFixedThreadPool(4);
+                try {
+                    List<Future<Integer>> retries = new ArrayList<>();
+                    for (int i = 0; i < 4; i++) retries.add(pool.submit(f.stores::retryPendingTransfers));
+                    for (Future<Integer> r : retries) r.get(10, TimeUnit.SECONDS);
+                } finally {
+                    pool.shutdown();
+                }
+                CheckReport.expectEquals(10, f.stores.getStoreStock(3, f.book), "store 3");
+                CheckReport.expectEquals(10, f.stores.getStoreStock(5, f.book), "store 5");
+                CheckReport.expectEquals(5L, f.count("north", "SELECT COUNT(*) FROM store_transfers_in"), "inbox rows");
+                CheckReport.expectEquals(0L, f.pendingTransfers("west"), "pending transfers");
+            }
+        });
+
+        System.exit(report.finish());
+    }
+
+    private static String url(String database) {
+        return String.format(urlTemplate, database);
+    }
+
+    // The action must throw IllegalArgumentException
+    private static void expectRejected(Runnable action, String what) {
+        try {
+            action.run();
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        throw new AssertionError(what + " was accepted");
+    }
+
+    // Three shards on fresh databases (east: stores 1 and 2, west: 3, north: 4 and 5) with one pooled
+    // connection each, and a catalog with two books
+    private static final class Fixture implements AutoCloseable {
+        final StoreInventory stores;
+        final int book;
+        final int other;
+        final int missing;
+
+        Fixture() {
+            int run = databases.incrementAndGet();
+            Map<String, ConnectionPool> pools = new LinkedHashMap<>();
+            for (String shard : List.of("east", "west", "north")) {
+                pools.put(shard, new ConnectionPool(url("store_check_" + run + "_" + shard), user, password,
+                        1, 1, 60_000L, 5_000L, 2, 16));
+            }
+            ShardMap map = new ShardMap(pools, Map.of(1, "east", 2, "east", 3, "west", 4, "north", 5, "north"));
+
+            InMemoryInventoryRepository catalogRepo = new InMemoryInventoryRepository();
+            book = catalogRepo.insertBook(new Books(0, "Sharded", "Author", "Fiction", 12.5, 0));
+            other = catalogRepo.insertBook(new Books(0, "Other", "Author", "Poetry", 8.0, 0));
+            missing = other + 1;
+            // Not started, so no background retry races the checks; asking every shard once creates the tables
+            stores = new StoreInventory(new BookstoreInventory(catalogRepo, 100), map);
+            stores.availability(book);
+        }
+
+        // Stores with a stock row on one shard, ascending
+        List<Integer> storesWithRows(String shard) throws SQLException {
+            List<Integer> found = new ArrayList<>();
+            try (Connection conn = stores.getShardMap().pool(shard).borrow();
+                 Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT DISTINCT storeID FROM store_stock ORDER BY storeID")) {
+                while (rs.next()) found.add(rs.getInt(1));
+            }
+            return found;
+        }
+
+        long pendingTransfers(String shard) throws SQLException {
+            return count(shard, "SELECT COUNT(*) FROM store_transfers_out WHERE status = 'SENT'");
+        }
+
+        long count(String shard, String sql) throws SQLException {
+            try (Connection conn = stores.getShardMap().pool(shard).borrow();
+                 PreparedStatement stmt = conn.prepareStatement(sql);
+                 ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+
+        void update(String shard, String sql) throws SQLException {
+            try (Connection conn = stores.getShardMap().pool(shard).borrow();
+                 Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate(sql);
+            }
+        }
+
+        // Take a shard's transfer inbox away (every delivery to it fails) or bring it back
+        void inboxOffline(String shard, boolean offline) throws SQLException {
+            update(shard, offline
+                    ? "ALTER TABLE store_transfers_in RENAME TO store_transfers_in_offline"
+                    : "ALTER TABLE store_transfers_in_offline RENAME TO store_transfers_in");
+        }
+
+        // Borrow the shard's only connection and give it back after millis
+        Thread hold(String shard, long millis) throws SQLException {
+            Connection conn = stores.getShardMap().pool(shard).borrow();
+            return Thread.ofVirtual().start(() -> {
+                try (conn) {
+                    Thread.sleep(millis);
+                } catch (SQLException | InterruptedException e) {
+                    System.out.println("Error releasing held connection: " + e.getMessage());
+                }
+            });
+        }
+
+        // Borrow each shard's only connection and give them all back once every one of those shards
+        // has a borrower waiting (or after TIMEOUT_MILLIS * 2)
+        Thread releaseWhenAllWaiting(List<String> held) throws SQLException {
+            ShardMap map = stores.getShardMap();
+            List<Connection> conns = new ArrayList<>();
+            for (String shard : held) conns.add(map.pool(shard).borrow());
+            return Thread.ofVirtual().start(() -> {
+                long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS * 2;
+                try {
+                    while (System.currentTimeMillis() < deadline
+                            && !held.stream().allMatch(s -> map.pool(s).getStats().getWaiting() > 0)) {
+                        Thread.sleep(5);
+                    }
+                    for (Connection conn : conns) conn.close();
+                } catch (SQLException | InterruptedException e) {
+                    System.out.println("Error releasing held connections: " + e.getMessage());
+                }
+            });
+        }
+
+        // Drop the store tables (a non-embedded endpoint keeps its database) and close the pools
+        @Override
+        public void close() throws SQLException {
+            ShardMap map = stores.getShardMap();
+            stores.close();
+            for (String shard : map.getShards()) {
+                try (Connection conn = map.pool(shard).borrow(); Statement stmt = conn.createStatement()) {
+                    for (String table : TABLES) stmt.execute("DROP TABLE IF EXISTS " + table);
+                }
+            }
+            map.close();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+// Outcome of moving copies between two stores, returned by StoreInventory.transfer
+public class TransferResult {
+
+    // Possible outcomes of a transfer
+    public enum Status {
+        COMPLETED,           // Taken from the source store and added to the destination
+        IN_TRANSIT,          // Taken from the source; the destination shard will be credited by the retry task
+        INSUFFICIENT_STOCK,  // Source store does not have enough copies; nothing was changed
+        INVALID,             // Zero/negative quantity, same store twice, or an unknown store
+        ERROR                // Database failure before the source was debited; nothing was changed
+    }
+
+    private final Status status;
+    private final String transferID;
+    private final int fromStore;
+    private final int toStore;
+    private final int bookID;
+    private final int quantity;
+    private final int sourceStock;   // Stock left at the source (or current stock if it was too low)
+    private final String message;    // Detail for INVALID, ERROR and IN_TRANSIT results
+
+    private TransferResult(Status status, String transferID, int fromStore, int toStore, int bookID,
+                           int quantity, int sourceStock, String message) {
+        this.status = status;
+        this.transferID = transferID;
+        this.fromStore = fromStore;
+        this.toStore = toStore;
+        this.bookID = bookID;
+        this.quantity = quantity;
+        this.sourceStock = sourceStock;
+        this.message = message;
+    }
+
+    // Factory methods for each outcome
+    public static TransferResult completed(String transferID, int fromStore, int toStore, int bookID,
+                                           int quantity, int sourceStock) {
+        return new TransferResult(Status.COMPLETED, transferID, fromStore, toStore, bookID, quantity, sourceStock, null);
+    }
+
+    public static TransferResult inTransit(String transferID, int fromStore, int toStore, int bookID,
+                                           int quantity, int sourceStock, String message) {
+        return new TransferResult(Status.IN_TRANSIT, transferID, fromStore, toStore, bookID, quantity, sourceStock, message);
+    }
+
+    public static TransferResult insufficientStock(int fromStore, int toStore, int bookID, int quantity, int available) {
+        return new TransferResult(Status.INSUFFICIENT_STOCK, null, fromStore, toStore, bookID, quantity, available, null);
+    }
+
+    public static TransferResult invalid(int fromStore, int toStore, int bookID, int quantity, String message) {
+        return new TransferResult(Status.INVALID, null, fromStore, toStore, bookID, quantity, 0, message);
+    }
+
+    public static TransferResult error(int fromStore, int toStore, int bookID, int quantity, String message) {
+        return new TransferResult(Status.ERROR, null, fromStore, toStore, bookID, quantity, 0, message);
+    }
+
+    // Getter methods
+    public Status getStatus() { return status; }
+    public String getTransferID() { return transferID; }
+    public int getFromStore() { return fromStore; }
+    public int getToStore() { return toStore; }
+    public int getBookID() { return bookID; }
+    public int getQuantity() { return quantity; }
+    public int getSourceStock() { return sourceStock; }
+    public String getMessage() { return message; }
+
+    // True if the copies have left the source store (they will arrive even if not yet credited)
+    public boolean isAccepted() {
+        return status == Status.COMPLETED || status == Status.IN_TRANSIT;
+    }
+
+    // Human-readable description, suitable for a dialog box
+    @Override
+    public String toString() {
+        switch (status) {
+            case COMPLETED:
+                return "Moved " + quantity + " of Book ID " + bookID + " from store " + fromStore +
+                       " to store " + toStore + " (" + sourceStock + " left at the source).";
+            case IN_TRANSIT:
+                return "Transfer " + transferID + " of " + quantity + " of Book ID " + bookID + " left store " +
+                       fromStore + " and will be credited to store " + toStore + " shortly: " + message;
+            case INSUFFICIENT_STOCK:
+                return "Cannot move " + quantity + " of Book ID " + bookID + " from store " + fromStore +
+                       ": only " + sourceStock + " on hand.";
+            case INVALID:
+                return "Invalid transfer: " + message;
+            default:
+                return "Transfer of Book ID " + bookID + " from store " + fromStore + " failed: " + message;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+import java.sql.SQLException;
+
+// Wraps a SQLException thrown where checked exceptions are not allowed (e.g. inside a Stream)
+public class UncheckedSQLException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    // Constructor - wraps the original database error
+    public UncheckedSQLException(SQLException cause) {
+        super(cause.getMessage(), cause);
+    }
+
+    // The original database error
+    @Override
+    public synchronized SQLException getCause() {
+        return (SQLException) super.getCause();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,202 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// An ordered list of operations for WorkloadReplay, either read from bookstore_logs.txt or
+// synthesized with Zipf-distributed book popularity.
+//
+// The log has been written in two formats over time, and both are understood:
+//   INFO: Sale processed: The Hobbit | Quantity: 3 | Total Price: $44.97     (java.util.logging, by title)
+//   INFO: Sale processed | Book ID: 7 | Qty: 3 | Total: $44.97
+//   INFO: Book added: The Hobbit | Stock: 50
+//   INFO: Stock updated for Book ID: 7 | New Stock: 20
+//   2026-10-17T06:22:57.103 SALE bookID=7 qty=3 total=44.97                   (InventoryEventLog)
+//   2026-10-17T06:22:57.104 STOCK_UPDATE bookID=7 stock=20
+//   2026-10-17T06:22:57.105 BOOK_ADDED bookID=8 stock=50 title="The Hobbit"
+// Other lines (JUL headers, reports, warnings, deletes) are counted as ignored. Deletes are left out
+// on purpose: replayed against another catalog they would only make later operations fail.
+public class Workload {
+    private static final Pattern SALE_BY_TITLE =
+            Pattern.compile("INFO: Sale processed(?::| for:) (.+?) \\| Quantity: (\\d+).*");
+    private static final Pattern SALE_BY_ID =
+            Pattern.compile("INFO: Sale processed \\| Book ID: (\\d+) \\| Qty: (\\d+).*");
+    private static final Pattern BOOK_ADDED =
+            Pattern.compile("INFO: Book added: (.+?) \\| Stock: (\\d+).*");
+    private static final Pattern STOCK_UPDATED =
+            Pattern.compile("INFO: Stock updated for Book ID: (\\d+) \\| New Stock: (\\d+).*");
+    private static final Pattern EVENT =
+            Pattern.compile("\\d{4}-\\d{2}-\\d{2}T\\S+ (SALE|STOCK_UPDATE|BOOK_ADDED) bookID=(\\d+)(.*)");
+    private static final Pattern EVENT_FIELD =
+            Pattern.compile(" (qty|stock)=(-?\\d+)| title=\"(.*)\"$");
+
+    private final List<WorkloadOp> ops;
+    private final int ignoredLines;
+
+    public Workload(List<WorkloadOp> ops, int ignoredLines) {
+        this.ops = Collections.unmodifiableList(new ArrayList<>(ops));
+        this.ignoredLines = ignoredLines;
+    }
+
+    public List<WorkloadOp> getOps() { return ops; }
+
+    // Log lines that did not describe a replayable operation (0 for synthetic workloads)
+    public int getIgnoredLines() { return ignoredLines; }
+
+    public int size() {
+        return ops.size();
+    }
+
+    // Operations per type, for the report header
+    public Map<WorkloadOp.Type, Integer> countByType() {
+        Map<WorkloadOp.Type, Integer> counts = new EnumMap<>(WorkloadOp.Type.class);
+        for (WorkloadOp op : ops) counts.merge(op.getType(), 1, Integer::sum);
+        return counts;
+    }
+
+    /* ---------- Reading a log ---------- */
+
+    // Parse a log file in either format (or a mix of both)
+    public static Workload fromLog(Path file) throws IOException {
+        List<WorkloadOp> ops = new ArrayList<>();
+        int ignored = 0;
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                WorkloadOp op = parseLine(line.trim());
+                if (op != null) ops.add(op);
+                else ignored++;
+            }
+        }
+        return new Workload(ops, ignored);
+    }
+
+    // The operation a single log line describes, or null
+    static WorkloadOp parseLine(String line) {
+        Matcher m = EVENT.matcher(line);
+        if (m.matches()) return parseEvent(m.group(1), Integer.parseInt(m.group(2)), m.group(3));
+
+        if ((m = SALE_BY_ID.matcher(line)).matches()) {
+            return WorkloadOp.sale(Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2)));
+        }
+        if ((m = SALE_BY_TITLE.matcher(line)).matches()) {
+            return WorkloadOp.saleByTitle(m.group(1), Integer.parseInt(m.group(2)));
+        }
+        if ((m = BOOK_ADDED.matcher(line)).matches()) {
+            return WorkloadOp.addBook(m.group(1), Integer.parseInt(m.group(2)));
+        }
+        if ((m = STOCK_UPDATED.matcher(line)).matches()) {
+            return WorkloadOp.setStock(Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2)));
+        }
+        return null;
+    }
+
+    // The key=value tail of an InventoryEventLog line
+    private static WorkloadOp parseEvent(String type, int bookID, String fields) {
+        int qty = 0;
+        int stock = 0;
+        String title = null;
+        Matcher f = EVENT_FIELD.matcher(fields);
+        while (f.find()) {
+            if (f.group(3) != null) title = f.group(3);
+            else if (f.group(1).equals("qty")) qty = Integer.parseInt(f.group(2));
+            else stock = Integer.parseInt(f.group(2));
+        }
+        switch (type) {
+            case "SALE":         return qty > 0 ? WorkloadOp.sale(bookID, qty) : null;
+            case "STOCK_UPDATE": return WorkloadOp.setStock(bookID, stock);
+            default:             return title != null ? WorkloadOp.addBook(title, stock) : null;
+        }
+    }
+
+    /* ---------- Synthetic workloads ---------- */
+
+    // Operation mix as relative weights, e.g. "sale=70,lookup=25,stock=4,add=1"
+    public static Map<WorkloadOp.Type, Double> parseMix(String spec) {
+        Map<WorkloadOp.Type, Double> mix = new EnumMap<>(WorkloadOp.Type.class);
+        for (String part : spec.split(",")) {
+            String[] kv = part.trim().split("=", 2);
+            if (kv.length < 2) throw new IllegalArgumentException("Mix entries look like sale=70: " + part);
+            WorkloadOp.Type type;
+            switch (kv[0].trim()) {
+                case "sale":   type = WorkloadOp.Type.SALE; break;
+                case "lookup": type = WorkloadOp.Type.LOOKUP; break;
+                case "stock":  type = WorkloadOp.Type.SET_STOCK; break;
+                case "add":    type = WorkloadOp.Type.ADD_BOOK; break;
+                default: throw new IllegalArgumentException("Unknown operation in mix: " + kv[0]);
+            }
+            double weight = Double.parseDouble(kv[1].trim());
+            if (weight < 0) throw new IllegalArgumentException("Mix weights must not be negative: " + part);
+            mix.put(type, weight);
+        }
+        return mix;
+    }
+
+    // count operations over the given books. Popularity follows Zipf's law with the given exponent
+    // (0 = uniform, 1 = classic long tail): the k-th most popular book is chosen with probability
+    // proportional to 1/k^exponent. Which book gets which rank is shuffled with the seed, so the hot
+    // set is not simply the lowest IDs. Sales take 1..maxQuantity copies; restocks and new books
+    // use restockLevel.
+    public static Workload zipfian(int count, List<Integer> bookIDs, double exponent,
+                                   Map<WorkloadOp.Type, Double> mix, int maxQuantity, int restockLevel,
+                                   long seed) {
+        if (bookIDs.isEmpty()) throw new IllegalArgumentException("No books to build a workload on");
+        Random random = new Random(seed);
+        List<Integer> ranked = new ArrayList<>(bookIDs);
+        Collections.shuffle(ranked, random);
+
+        double[] popularity = new double[ranked.size()];   // Cumulative, unnormalized
+        double sum = 0;
+        for (int k = 0; k < popularity.length; k++) {
+            sum += 1.0 / Math.pow(k + 1, exponent);
+            popularity[k] = sum;
+        }
+
+        WorkloadOp.Type[] types = mix.keySet().toArray(new WorkloadOp.Type[0]);
+        double[] shares = new double[types.length];         // Cumulative
+        double mixSum = 0;
+        for (int i = 0; i < types.length; i++) {
+            mixSum += mix.get(types[i]);
+            shares[i] = mixSum;
+        }
+        if (mixSum <= 0) throw new IllegalArgumentException("Operation mix is empty");
+
+        List<WorkloadOp> ops = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            WorkloadOp.Type type = types[pick(shares, random.nextDouble() * mixSum)];
+            int bookID = ranked.get(pick(popularity, random.nextDouble() * sum));
+            switch (type) {
+                case SALE:
+                    ops.add(WorkloadOp.sale(bookID, 1 + random.nextInt(maxQuantity)));
+                    break;
+                case SET_STOCK:
+                    ops.add(WorkloadOp.setStock(bookID, restockLevel));
+                    break;
+                case ADD_BOOK:
+                    ops.add(WorkloadOp.addBook("Synthetic Book " + i, restockLevel));
+                    break;
+                default:
+                    ops.add(WorkloadOp.lookup(bookID));
+                    break;
+            }
+        }
+        return new Workload(ops, 0);
+    }
+
+    // Index of the first cumulative weight above value
+    private static int pick(double[] cumulative, double value) {
+        int i = Arrays.binarySearch(cumulative, value);
+        i = i >= 0 ? i + 1 : -i - 1;
+        return Math.min(i, cumulative.length - 1);
+    }
+}
@@ -0,0 +1,75 @@
+// One operation of a replayable workload (see Workload and WorkloadReplay).
+// Old log lines name books by title only; such operations carry bookID 0 and the title, and the
+// replay resolves the title against the catalog before it starts.
+public final class WorkloadOp {
+
+    // Kinds of operations a workload can contain
+    public enum Type {
+        SALE,        // bookID/title, quantity
+        ADD_BOOK,    // title, stock
+        SET_STOCK,   // bookID, stock
+        LOOKUP       // bookID
+    }
+
+    private final Type type;
+    private final int bookID;
+    private final String title;
+    private final int quantity;
+    private final int stock;
+
+    private WorkloadOp(Type type, int bookID, String title, int quantity, int stock) {
+        this.type = type;
+        this.bookID = bookID;
+        this.title = title;
+        this.quantity = quantity;
+        this.stock = stock;
+    }
+
+    // Factory methods for each type
+    public static WorkloadOp sale(int bookID, int quantity) {
+        return new WorkloadOp(Type.SALE, bookID, null, quantity, 0);
+    }
+
+    public static WorkloadOp saleByTitle(String title, int quantity) {
+        return new WorkloadOp(Type.SALE, 0, title, quantity, 0);
+    }
+
+    public static WorkloadOp addBook(String title, int stock) {
+        return new WorkloadOp(Type.ADD_BOOK, 0, title, 0, stock);
+    }
+
+    public static WorkloadOp setStock(int bookID, int stock) {
+        return new WorkloadOp(Type.SET_STOCK, bookID, null, 0, stock);
+    }
+
+    public static WorkloadOp lookup(int bookID) {
+        return new WorkloadOp(Type.LOOKUP, bookID, null, 0, 0);
+    }
+
+    // The same operation on a resolved bookID
+    public WorkloadOp withBookID(int resolvedID) {
+        return new WorkloadOp(type, resolvedID, title, quantity, stock);
+    }
+
+    // Getter methods
+    public Type getType() { return type; }
+    public int getBookID() { return bookID; }
+    public String getTitle() { return title; }
+    public int getQuantity() { return quantity; }
+    public int getStock() { return stock; }
+
+    // True if the operation targets an existing book that has not been resolved yet
+    public boolean needsBookID() {
+        return type != Type.ADD_BOOK && bookID <= 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(type.name());
+        if (bookID > 0) sb.append(" bookID=").append(bookID);
+        if (title != null) sb.append(" title=\"").append(title).append('"');
+        if (type == Type.SALE) sb.append(" qty=").append(quantity);
+        if (type == Type.ADD_BOOK || type == Type.SET_STOCK) sb.append(" stock=").append(stock);
+        return sb.toString();
+    }
+}
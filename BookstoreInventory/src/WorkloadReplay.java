@@ -0,0 +1,293 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Replays a Workload against BookstoreInventory in this JVM to measure what the inventory itself
+// sustains (InventoryLoadTest does the same through the HTTP API). Workers are virtual threads
+// taking the next operation from the shared list; with --rate the operations are also paced to a
+// fixed schedule, and latency is then measured from each operation's scheduled start, so a stall
+// shows up in the percentiles instead of silently lowering the offered load.
+//
+// After the run every book that was sold but never restocked is read back and checked:
+// final stock must equal initial stock minus the copies reported sold, and must not be negative.
+// Any difference is reported as an oversell (or lost sale).
+//
+//   java WorkloadReplay --log=bookstore_logs.txt --loops=1000 --concurrency=64
+//   java WorkloadReplay --synthetic=1000000 --books=10000 --zipf=1.1 --mix=sale=70,lookup=28,stock=2
+//
+// Options: --log=FILE | --synthetic=N, --books=N --zipf=S --mix=SPEC --maxQty=N --seed=N,
+//          --backend=memory|jdbc --initialStock=N --concurrency=N --rate=OPS_PER_SEC --loops=N
+// The memory backend (default) seeds an InMemoryInventoryRepository with the books the workload
+// needs; the jdbc backend runs against the configured MySQL catalog and changes real rows.
+public class WorkloadReplay {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String log = null, backend = "memory", mixSpec = "sale=70,lookup=25,stock=4,add=1";
+        int synthetic = 0, books = 1000, maxQty = 3, initialStock = 1000, concurrency = 64, loops = 1;
+        double zipf = 1.0, rate = 0;
+        long seed = 42;
+
+        for (String arg : args) {
+            String[] kv = arg.split("=", 2);
+            switch (kv[0]) {
+                case "--log":          log = kv[1]; break;
+                case "--synthetic":    synthetic = Integer.parseInt(kv[1]); break;
+                case "--books":        books = Integer.parseInt(kv[1]); break;
+                case "--zipf":         zipf = Double.parseDouble(kv[1]); break;
+                case "--mix":          mixSpec = kv[1]; break;
+                case "--maxQty":       maxQty = Integer.parseInt(kv[1]); break;
+                case "--seed":         seed = Long.parseLong(kv[1]); break;
+                case "--backend":      backend = kv[1]; break;
+                case "--initialStock": initialStock = Integer.parseInt(kv[1]); break;
+                case "--concurrency":  concurrency = Integer.parseInt(kv[1]); break;
+                case "--rate":         rate = Double.parseDouble(kv[1]); break;
+                case "--loops":        loops = Integer.parseInt(kv[1]); break;
+                default:
+                    System.out.println("Unknown option: " + arg);
+                    return;
+            }
+        }
+        if ((log == null) == (synthetic <= 0)) {
+            System.out.println("Give either --log=FILE or --synthetic=N");
+            return;
+        }
+
+        /* ---------- Build the workload and the inventory it runs on ---------- */
+        Workload workload = log != null ? Workload.fromLog(Paths.get(log)) : null;
+        BookstoreInventory inventory;
+        if (backend.equals("memory")) {
+            inventory = new BookstoreInventory(
+                    new InMemoryInventoryRepository(seedBooks(workload, books, initialStock)), 100_000);
+        } else if (backend.equals("jdbc")) {
+            inventory = new BookstoreInventory();
+        } else {
+            System.out.println("Unknown backend: " + backend);
+            return;
+        }
+        if (workload == null) {
+            List<Integer> ids;
+            try (Stream<Books> catalog = inventory.streamBooks()) {
+                ids = catalog.limit(books).map(Books::getBookID).collect(Collectors.toList());
+            }
+            workload = Workload.zipfian(synthetic, ids, zipf, Workload.parseMix(mixSpec),
+                                        maxQty, initialStock, seed);
+        }
+        System.out.println("Workload: " + workload.size() + " operations " + workload.countByType() +
+                (log != null ? ", " + workload.getIgnoredLines() + " log lines ignored" : ""));
+
+        WorkloadReplay replay = new WorkloadReplay(inventory, workload);
+        if (replay.ops.isEmpty()) {
+            System.out.println("Nothing to replay (" + replay.unresolved + " operations on unknown books).");
+            return;
+        }
+        replay.run(concurrency, rate, loops);
+        replay.printReport(concurrency, rate);
+        if (backend.equals("jdbc")) DatabaseConnection.shutdown();
+    }
+
+    // Books for the memory backend: every ID and title the log refers to, or 1..books for a synthetic run
+    private static List<Books> seedBooks(Workload workload, int books, int stock) {
+        List<Books> seed = new ArrayList<>();
+        if (workload == null) {
+            for (int id = 1; id <= books; id++) {
+                seed.add(new Books(id, "Book " + id, "Author " + (id % 997), "Genre " + (id % 17), 9.99, stock));
+            }
+            return seed;
+        }
+        Set<Integer> ids = new LinkedHashSet<>();
+        Set<String> titles = new LinkedHashSet<>();
+        for (WorkloadOp op : workload.getOps()) {
+            if (op.getBookID() > 0) ids.add(op.getBookID());
+            else if (op.getTitle() != null) titles.add(op.getTitle());
+        }
+        for (int id : ids) seed.add(new Books(id, "Book " + id, "Unknown", "Unknown", 9.99, stock));
+        for (String title : titles) seed.add(new Books(0, title, "Unknown", "Unknown", 9.99, stock));
+        return seed;
+    }
+
+    private final BookstoreInventory inventory;
+    private final List<WorkloadOp> ops;   // Resolved: every operation names an existing book or adds one
+    private final int unresolved;          // Dropped because their title or bookID is not in the catalog
+    private final Map<Integer, Integer> initialStock = new HashMap<>();   // Sold books, before the run
+
+    private final Map<WorkloadOp.Type, LatencyHistogram> latency = new EnumMap<>(WorkloadOp.Type.class);
+    private final Map<SaleResult.Status, LongAdder> saleOutcomes = new EnumMap<>(SaleResult.Status.class);
+    private final Map<Integer, LongAdder> soldCopies = new ConcurrentHashMap<>();
+    private final Set<Integer> restocked = ConcurrentHashMap.newKeySet();
+    private final LongAdder errors = new LongAdder();       // ERROR results and exceptions
+    private final LongAdder negativeStock = new LongAdder(); // Sales that reported stock below zero
+    private long elapsedNanos;
+    private long behindNanos;   // How far the last operation started after its scheduled time
+
+    // Constructor - resolves titles and checks bookIDs against the inventory's catalog
+    public WorkloadReplay(BookstoreInventory inventory, Workload workload) {
+        this.inventory = inventory;
+        Map<String, Integer> byTitle = new HashMap<>();
+        boolean needTitles = workload.getOps().stream().anyMatch(WorkloadOp::needsBookID);
+        if (needTitles) {
+            try (Stream<Books> catalog = inventory.streamBooks()) {  // Holds a connection until closed
+                catalog.forEach(b -> byTitle.putIfAbsent(b.getTitle(), b.getBookID()));
+            }
+        }
+
+        List<WorkloadOp> resolved = new ArrayList<>(workload.size());
+        Set<Integer> missing = new HashSet<>();
+        int dropped = 0;
+        for (WorkloadOp op : workload.getOps()) {
+            if (op.needsBookID()) {
+                Integer id = byTitle.get(op.getTitle());
+                if (id == null) {
+                    dropped++;
+                    continue;
+                }
+                op = op.withBookID(id);
+            }
+            if (op.getType() != WorkloadOp.Type.ADD_BOOK && !initialStock.containsKey(op.getBookID())) {
+                if (missing.contains(op.getBookID())) {
+                    dropped++;
+                    continue;
+                }
+                Books book = inventory.getBook(op.getBookID());
+                if (book == null) {
+                    missing.add(op.getBookID());
+                    dropped++;
+                    continue;
+                }
+                initialStock.put(op.getBookID(), book.getStockQuantity());
+            }
+            resolved.add(op);
+        }
+        this.ops = resolved;
+        this.unresolved = dropped;
+        for (WorkloadOp.Type type : WorkloadOp.Type.values()) latency.put(type, new LatencyHistogram());
+        for (SaleResult.Status status : SaleResult.Status.values()) saleOutcomes.put(status, new LongAdder());
+    }
+
+    // Run the workload loops times over with the given number of virtual threads; rate 0 = as fast as possible
+    public void run(int concurrency, double rate, int loops) throws InterruptedException {
+        long total = (long) ops.size() * loops;
+        long intervalNanos = rate > 0 ? (long) (1_000_000_000L / rate) : 0;
+        AtomicLong next = new AtomicLong();
+        AtomicLong lastBehind = new AtomicLong();
+        long begin = System.nanoTime();
+
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int w = 0; w < concurrency; w++) {
+                workers.execute(() -> {
+                    long i;
+                    while ((i = next.getAndIncrement()) < total) {
+                        WorkloadOp op = ops.get((int) (i % ops.size()));
+                        long start;
+                        if (intervalNanos > 0) {
+                            start = begin + i * intervalNanos;
+                            long wait;
+                            while ((wait = start - System.nanoTime()) > 0) LockSupport.parkNanos(wait);
+                            lastBehind.set(System.nanoTime() - start);
+                        } else {
+                            start = System.nanoTime();
+                        }
+                        execute(op);
+                        latency.get(op.getType()).record(System.nanoTime() - start);
+                    }
+                });
+            }
+        }   // close() waits for every worker
+        elapsedNanos = System.nanoTime() - begin;
+        behindNanos = lastBehind.get();
+    }
+
+    private void execute(WorkloadOp op) {
+        try {
+            switch (op.getType()) {
+                case SALE:
+                    SaleResult result = inventory.processSale(op.getBookID(), op.getQuantity());
+                    saleOutcomes.get(result.getStatus()).increment();
+                    if (result.getStatus() == SaleResult.Status.ERROR) errors.increment();
+                    if (result.isAccepted()) {
+                        soldCopies.computeIfAbsent(op.getBookID(), id -> new LongAdder()).add(op.getQuantity());
+                        if (result.getRemainingStock() < 0) negativeStock.increment();
+                    }
+                    break;
+                case SET_STOCK:
+                    restocked.add(op.getBookID());
+                    inventory.updateStock(op.getBookID(), op.getStock());
+                    break;
+                case ADD_BOOK:
+                    inventory.addBook(new Books(0, op.getTitle(), "Unknown", "Unknown", 9.99, op.getStock()));
+                    break;
+                default:
+                    inventory.getBook(op.getBookID());
+                    break;
+            }
+        } catch (RuntimeException e) {
+            errors.increment();
+        }
+    }
+
+    // Throughput, per-operation latency, sale outcomes and the stock check
+    public void printReport(int concurrency, double rate) {
+        double seconds = elapsedNanos / 1e9;
+        long count = 0;
+        for (LatencyHistogram h : latency.values()) count += h.getCount();
+
+        System.out.printf(Locale.ROOT, "Concurrency: %d, duration: %.1f s, operations: %d (%.1f ops/s%s)%n",
+                concurrency, seconds, count, count / seconds,
+                rate > 0 ? String.format(Locale.ROOT, ", target %.1f, %.1f ms behind schedule at the end",
+                                         rate, behindNanos / 1e6) : "");
+        if (unresolved > 0) System.out.println("Skipped (unknown book): " + unresolved);
+        for (Map.Entry<WorkloadOp.Type, LatencyHistogram> e : latency.entrySet()) {
+            LatencyHistogram h = e.getValue();
+            if (h.getCount() == 0) continue;
+            System.out.printf(Locale.ROOT, "%-9s n=%-9d us  p50 %.1f  p90 %.1f  p99 %.1f  p999 %.1f  max %.1f%n",
+                    e.getKey(), h.getCount(), h.getPercentileNanos(50) / 1e3, h.getPercentileNanos(90) / 1e3,
+                    h.getPercentileNanos(99) / 1e3, h.getPercentileNanos(99.9) / 1e3, h.getMaxNanos() / 1e3);
+        }
+        StringBuilder outcomes = new StringBuilder("Sales:");
+        saleOutcomes.forEach((status, n) -> {
+            if (n.sum() > 0) outcomes.append(' ').append(status).append('=').append(n.sum());
+        });
+        System.out.println(outcomes);
+        System.out.println("Errors: " + errors.sum());
+
+        int checked = 0, oversold = 0, lost = 0;
+        for (Map.Entry<Integer, LongAdder> e : soldCopies.entrySet()) {
+            int bookID = e.getKey();
+            if (restocked.contains(bookID)) continue;   // Stock was overwritten; nothing to compare
+            Books book = readBack(bookID);
+            if (book == null) continue;
+            long expected = initialStock.get(bookID) - e.getValue().sum();
+            checked++;
+            if (book.getStockQuantity() < 0 || book.getStockQuantity() < expected) oversold++;
+            else if (book.getStockQuantity() > expected) lost++;
+        }
+        System.out.println("Oversells: " + (oversold + negativeStock.sum()) + " (" + negativeStock.sum() +
+                " sales left negative stock, " + oversold + " of " + checked + " books below initial minus sold; " +
+                lost + " above it)");
+    }
+
+    // The stored row, bypassing the cache
+    private Books readBack(int bookID) {
+        try {
+            return inventory.getRepository().findBook(bookID);
+        } catch (SQLException e) {
+            throw new UncheckedSQLException(e);
+        }
+    }
+}